@@ -0,0 +1,540 @@
+/**
+ * AnimationBenchmarks.java - measures the animation subsystems of the spider
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the subsystems which pose the spider rather than draw it: the
+ * tripod gait on crowds of several sizes, one spider after another and in
+ * parallel; the leg solver from the rest pose and tracking moving feet; the
+ * joint limits, alone and after applying a pose; sampling a large mapped clip
+ * file; applying a large library of poses as maps and as arrays; and rotating
+ * the selected joints of one spider and of a crowd.
+ *
+ * The benchmarks run in the harness of {@link HotPathBenchmarks}, which runs
+ * them after its own, so their results go into the same JSON file. What cannot
+ * be timed per operation, such as the heap taken by the pose library or the
+ * time to open the clip file, is printed before the benchmarks concerned.
+ */
+public class AnimationBenchmarks {
+	/** The number of frames per second of the clip. */
+	private static final float CLIP_FRAME_RATE = 60;
+	/** The size of the clip file, in megabytes. */
+	private static final int CLIP_MEGABYTES = 100;
+	/** The number of spiders of the crowds of the limit and selection sweeps. */
+	private static final int CROWD = 10000;
+	/** The time between two frames of the gait, in seconds. */
+	private static final double FRAME_TIME = 1.0 / 60;
+	/** The sizes of the crowds posed by the gait. */
+	private static final int[] GAIT_CROWDS = { 1000, 10000, 100000 };
+	/** The number of poses of the pose library. */
+	private static final int POSE_LIBRARY = 100000;
+	/** The number of random times at which the clip is sampled. */
+	private static final int SAMPLE_TIMES = 4096;
+	/** The number of frames in one revolution of a tracked foot. */
+	private static final int SOLVER_FRAMES_PER_REVOLUTION = 120;
+	/** The greatest number of iterations of a single solve. */
+	private static final int SOLVER_MAX_ITERATIONS = 50;
+	/** The number of targets from which the solves from rest draw. */
+	private static final int SOLVER_TARGETS = 1000;
+	/** The distance within which a foot reaches its target. */
+	private static final double SOLVER_TOLERANCE = 1e-4;
+	/** The radius of the circle around which each tracked foot moves. */
+	private static final double SOLVER_TRACK_RADIUS = 0.05;
+
+	/** The harness which runs the benchmarks. */
+	private final BenchmarkHarness harness;
+
+	/**
+	 * Instantiates the suite, which runs its benchmarks in the specified harness.
+	 *
+	 * @param harness The harness which runs the benchmarks.
+	 */
+	public AnimationBenchmarks(final BenchmarkHarness harness) {
+		this.harness = harness;
+	}
+
+	/**
+	 * Runs every benchmark of the suite which matches the filter of the harness.
+	 *
+	 * @throws IOException if the clip file cannot be written or read.
+	 */
+	public void run() throws IOException {
+		this.gait();
+		this.legSolver();
+		this.limits();
+		this.clip();
+		this.poseLibrary();
+		this.selection();
+	}
+
+	/**
+	 * Runs the benchmarks of the tripod gait, each of which poses a whole crowd
+	 * of spiders walking at random phases for one frame.
+	 */
+	private void gait() {
+		final TripodGait gait = new TripodGait(new Spider(new Point3D(0, 0, 0), "spider"), 0.5, 0.3, 0.6, 20);
+		final Random random = new Random(1);
+		for (final int crowd : GAIT_CROWDS) {
+			if (!this.harness.matches("gait.sequential." + crowd, "gait.parallel." + crowd)) {
+				continue;
+			}
+			final double[] phases = new double[crowd];
+			for (int i = 0; i < crowd; i++) {
+				phases[i] = random.nextDouble();
+			}
+			final double[] poses = new double[crowd * TripodGait.POSE_STRIDE];
+
+			this.harness.run("gait.sequential." + crowd, new BenchmarkHarness.Operation() {
+				/** The number of frames posed so far. */
+				private int frame = 0;
+
+				@Override
+				public long run(final int count) {
+					for (int n = 0; n < count; n++, this.frame++) {
+						for (int i = 0; i < crowd; i++) {
+							gait.evaluate(this.frame * FRAME_TIME, phases[i], poses, i * TripodGait.POSE_STRIDE);
+						}
+					}
+					return Double.doubleToRawLongBits(poses[poses.length - 1]);
+				}
+			});
+			this.harness.run("gait.parallel." + crowd, new BenchmarkHarness.Operation() {
+				/** The number of frames posed so far. */
+				private int frame = 0;
+
+				@Override
+				public long run(final int count) {
+					for (int n = 0; n < count; n++, this.frame++) {
+						gait.evaluateAll(this.frame * FRAME_TIME, phases, poses);
+					}
+					return Double.doubleToRawLongBits(poses[poses.length - 1]);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs the benchmarks of the leg solver: single solves from the rest pose to
+	 * unrelated targets, and frames in which every foot moves a little from where
+	 * the previous frame left it. The targets are foot positions of random poses
+	 * within the extents of the joints, so all of them are reachable.
+	 */
+	private void legSolver() {
+		if (!this.harness.matches("legSolver.fromRest", "legSolver.tracking")) {
+			return;
+		}
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+		final LegSolver solver = new LegSolver(spider, SOLVER_TOLERANCE, SOLVER_MAX_ITERATIONS);
+		final double[] rest = skeleton.angles().clone();
+
+		// the legs and foot positions of random poses
+		final Random random = new Random(1);
+		final int[] legs = new int[SOLVER_TARGETS];
+		final double[] targets = new double[SOLVER_TARGETS * 3];
+		final double[] extents = skeleton.extents();
+		final double[] foot = new double[3];
+		for (int t = 0; t < SOLVER_TARGETS; t++) {
+			legs[t] = random.nextInt(spider.legCount());
+			for (final Component joint : spider.legJoints(legs[t])) {
+				final int j = skeleton.indexOf(joint);
+				for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+					final double min = extents[j * Skeleton.EXTENT_STRIDE + 2 * axis];
+					final double max = extents[j * Skeleton.EXTENT_STRIDE + 2 * axis + 1];
+					skeleton.angles()[j * Skeleton.ANGLE_STRIDE + axis] = min + random.nextDouble() * (max - min);
+				}
+			}
+			solver.beginFrame(Integer.MAX_VALUE);
+			solver.foot(legs[t], foot);
+			System.arraycopy(foot, 0, targets, t * 3, 3);
+			System.arraycopy(rest, 0, skeleton.angles(), 0, rest.length);
+		}
+
+		final BenchmarkHarness.Operation fromRest = new BenchmarkHarness.Operation() {
+			/** The number of solves so far. */
+			private int solve = 0;
+
+			@Override
+			public long run(final int count) {
+				long reached = 0;
+				for (int n = 0; n < count; n++, this.solve++) {
+					final int t = this.solve % SOLVER_TARGETS;
+					System.arraycopy(rest, 0, skeleton.angles(), 0, rest.length);
+					solver.reset();
+					solver.beginFrame(Integer.MAX_VALUE);
+					if (solver.solve(legs[t], targets[3 * t], targets[3 * t + 1], targets[3 * t + 2])) {
+						reached++;
+					}
+				}
+				return reached;
+			}
+		};
+		long reached = 0;
+		long iterations = 0;
+		for (int t = 0; t < SOLVER_TARGETS; t++) {
+			reached += fromRest.run(1);
+			iterations += solver.iterations();
+		}
+		System.out.printf("legSolver.fromRest: %.2f iterations/solve, %.1f%% reached%n",
+				(double) iterations / SOLVER_TARGETS, 100.0 * reached / SOLVER_TARGETS);
+		this.harness.run("legSolver.fromRest", fromRest);
+
+		// every leg tracking a foot which circles its rest position
+		System.arraycopy(rest, 0, skeleton.angles(), 0, rest.length);
+		solver.reset();
+		solver.beginFrame(Integer.MAX_VALUE);
+		final double[] centers = new double[spider.legCount() * 3];
+		for (int leg = 0; leg < spider.legCount(); leg++) {
+			solver.foot(leg, foot);
+			System.arraycopy(foot, 0, centers, leg * 3, 3);
+		}
+		this.harness.run("legSolver.tracking", new BenchmarkHarness.Operation() {
+			/** The number of frames solved so far. */
+			private int frame = 0;
+
+			@Override
+			public long run(final int count) {
+				long tracked = 0;
+				for (int n = 0; n < count; n++, this.frame++) {
+					final double angle = 2 * Math.PI * this.frame / SOLVER_FRAMES_PER_REVOLUTION;
+					solver.beginFrame(Integer.MAX_VALUE);
+					for (int leg = 0; leg < spider.legCount(); leg++) {
+						if (solver.solve(leg, centers[leg * 3] + SOLVER_TRACK_RADIUS * Math.cos(angle),
+								centers[leg * 3 + 1], centers[leg * 3 + 2] + SOLVER_TRACK_RADIUS * Math.sin(angle))) {
+							tracked++;
+						}
+					}
+				}
+				return tracked;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmarks of the joint limits: applying a pose alone, applying it
+	 * and enforcing the limits when the pose is valid and when a joint lies
+	 * outside its extents, and scanning the angles of a whole crowd with the
+	 * scalar scanner and with the selected one.
+	 */
+	private void limits() {
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+		final JointLimits limits = spider.limits();
+		final JointSelection clamped = new JointSelection(skeleton.size());
+
+		// two valid poses to alternate between, and one with a joint beyond its limit
+		limits.enforce(skeleton, null);
+		final Pose rest = new Pose(skeleton);
+		final Pose bent = new Pose(skeleton);
+		final int joint = skeleton.indexOf(spider.legJoints(0).get(0));
+		bent.set(joint, bent.get(joint, Skeleton.X), bent.get(joint, Skeleton.Y) + 1, bent.get(joint, Skeleton.Z));
+		final Pose invalid = new Pose(skeleton);
+		invalid.set(joint, invalid.get(joint, Skeleton.X), 1000, invalid.get(joint, Skeleton.Z));
+
+		this.harness.run("limits.apply", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					((i & 1) == 0 ? bent : rest).applyTo(skeleton);
+				}
+				return Double.doubleToRawLongBits(skeleton.angles()[joint * Skeleton.ANGLE_STRIDE + Skeleton.Y]);
+			}
+		});
+		this.harness.run("limits.apply.enforce", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long found = 0;
+				for (int i = 0; i < count; i++) {
+					((i & 1) == 0 ? bent : rest).applyTo(skeleton);
+					found += limits.enforce(skeleton, null);
+				}
+				return found;
+			}
+		});
+		this.harness.run("limits.apply.enforce.clamped", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long found = 0;
+				for (int i = 0; i < count; i++) {
+					((i & 1) == 0 ? invalid : rest).applyTo(skeleton);
+					clamped.clear();
+					found += limits.enforce(skeleton, clamped);
+				}
+				return found;
+			}
+		});
+
+		if (!this.harness.matches("limits.scan.scalar", "limits.scan.selected")) {
+			return;
+		}
+		final double[] crowd = new double[CROWD * skeleton.angles().length];
+		final double[] min = new double[crowd.length];
+		final double[] max = new double[crowd.length];
+		for (int i = 0; i < crowd.length; i++) {
+			min[i] = -90;
+			max[i] = 90;
+		}
+		final JointLimits.Scanner scalar = new JointLimits.ScalarScanner();
+		final JointLimits.Scanner selected = JointLimits.scanner();
+		this.harness.run("limits.scan.scalar", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long found = 0;
+				for (int i = 0; i < count; i++) {
+					found += scalar.nextOutside(crowd, min, max, 0);
+				}
+				return found;
+			}
+		});
+		this.harness.run("limits.scan.selected", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long found = 0;
+				for (int i = 0; i < count; i++) {
+					found += selected.nextOutside(crowd, min, max, 0);
+				}
+				return found;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmark of sampling a clip file of the spider walking at random
+	 * times, after writing the file and printing how long it takes to map it and
+	 * to read it onto the heap. The file is deleted afterwards.
+	 *
+	 * @throws IOException if the clip file cannot be written or read.
+	 */
+	private void clip() throws IOException {
+		if (!this.harness.matches("clip.sample")) {
+			return;
+		}
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+		final TripodGait gait = new TripodGait(spider, 0.5, 0.3, 0.6, 20);
+
+		// the joints of the gait in the order of the skeleton
+		final int[] joints = new int[Spider.STATE_COUNT];
+		joints[0] = skeleton.indexOf(Spider.HEAD_NAME);
+		joints[1] = skeleton.indexOf(Spider.BODY_NAME);
+		for (int leg = 0; leg < spider.legCount(); leg++) {
+			final List<Component> chain = spider.legJoints(leg);
+			for (int j = 0; j < chain.size(); j++) {
+				joints[2 + leg * chain.size() + j] = skeleton.indexOf(chain.get(j));
+			}
+		}
+		final double duration = CLIP_MEGABYTES * 1e6 / (joints.length * Skeleton.ANGLE_STRIDE * 4) / CLIP_FRAME_RATE;
+		final PoseSource walk = new PoseSource() {
+			private final double[] pose = new double[TripodGait.POSE_STRIDE];
+
+			@Override
+			public double duration() {
+				return duration;
+			}
+
+			@Override
+			public int joint(final int track) {
+				return joints[track];
+			}
+
+			@Override
+			public void sample(final double time, final double[] angles) {
+				gait.evaluate(time, 0, this.pose, 0);
+				for (int track = 0; track < joints.length; track++) {
+					System.arraycopy(this.pose, track * Skeleton.ANGLE_STRIDE, angles,
+							joints[track] * Skeleton.ANGLE_STRIDE, Skeleton.ANGLE_STRIDE);
+				}
+			}
+
+			@Override
+			public int trackCount() {
+				return joints.length;
+			}
+		};
+
+		final Path file = Files.createTempFile("spider", ".clip");
+		try {
+			long start = System.nanoTime();
+			MappedClip.write(file, skeleton, walk, CLIP_FRAME_RATE);
+			System.out.printf("clip: wrote %.1f MB in %.0f ms%n", Files.size(file) / 1e6,
+					(System.nanoTime() - start) / 1e6);
+
+			final Runtime runtime = Runtime.getRuntime();
+			System.gc();
+			long heap = runtime.totalMemory() - runtime.freeMemory();
+			start = System.nanoTime();
+			final MappedClip clip = MappedClip.open(file, skeleton);
+			final double open = (System.nanoTime() - start) / 1e6;
+			System.out.printf("clip: mapped in %.3f ms, %.1f MB of heap, %d frames%n", open,
+					(runtime.totalMemory() - runtime.freeMemory() - heap) / 1e6, clip.frameCount());
+			System.gc();
+			heap = runtime.totalMemory() - runtime.freeMemory();
+			start = System.nanoTime();
+			final byte[] bytes = Files.readAllBytes(file);
+			final double read = (System.nanoTime() - start) / 1e6;
+			System.out.printf("clip: read in %.3f ms, %.1f MB of heap (%d bytes)%n", read,
+					(runtime.totalMemory() - runtime.freeMemory() - heap) / 1e6, bytes.length);
+
+			final double[] times = new double[SAMPLE_TIMES];
+			final Random random = new Random(1);
+			for (int i = 0; i < SAMPLE_TIMES; i++) {
+				times[i] = random.nextDouble() * clip.duration();
+			}
+			final double[] angles = skeleton.angles().clone();
+			this.harness.run("clip.sample", new BenchmarkHarness.Operation() {
+				@Override
+				public long run(final int count) {
+					for (int i = 0; i < count; i++) {
+						clip.sample(times[i % SAMPLE_TIMES], angles);
+					}
+					return Double.doubleToRawLongBits(angles[angles.length - 1]);
+				}
+			});
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Runs the benchmarks of applying a large library of random poses to the
+	 * spider, stored as maps from joint names to configurations and as
+	 * {@link Pose}s, after printing how much heap each form takes.
+	 */
+	private void poseLibrary() {
+		if (!this.harness.matches("spider.setModelStates.library.map", "spider.setModelStates.library.pose")) {
+			return;
+		}
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+		final Random random = new Random(1);
+
+		// the names of every named joint but the root
+		final String[] names = new String[skeleton.size() - 1];
+		for (int joint = 1; joint < skeleton.size(); joint++) {
+			names[joint - 1] = skeleton.component(joint).name();
+		}
+
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long heap = runtime.totalMemory() - runtime.freeMemory();
+		final List<Map<String, Configuration>> maps = new ArrayList<Map<String, Configuration>>(POSE_LIBRARY);
+		for (int i = 0; i < POSE_LIBRARY; i++) {
+			final Map<String, Configuration> map = new HashMap<String, Configuration>();
+			for (final String name : names) {
+				map.put(name, new BaseConfiguration(random.nextInt(60) - 30, random.nextInt(60) - 30, 0));
+			}
+			maps.add(map);
+		}
+		System.gc();
+		final long mapHeap = runtime.totalMemory() - runtime.freeMemory() - heap;
+
+		heap = runtime.totalMemory() - runtime.freeMemory();
+		final Pose[] poses = new Pose[POSE_LIBRARY];
+		for (int i = 0; i < POSE_LIBRARY; i++) {
+			poses[i] = Pose.compile(skeleton, maps.get(i));
+		}
+		System.gc();
+		final long poseHeap = runtime.totalMemory() - runtime.freeMemory() - heap;
+		System.out.printf("pose library of %d poses of %d joints: maps %d bytes/pose, poses %d bytes/pose%n",
+				POSE_LIBRARY, names.length, mapHeap / POSE_LIBRARY, poseHeap / POSE_LIBRARY);
+
+		this.harness.run("spider.setModelStates.library.map", new BenchmarkHarness.Operation() {
+			/** The number of poses applied so far. */
+			private int applied = 0;
+
+			@Override
+			public long run(final int count) {
+				for (int n = 0; n < count; n++, this.applied++) {
+					spider.setModelStates(maps.get(this.applied % POSE_LIBRARY));
+				}
+				return spider.clamped().count();
+			}
+		});
+		this.harness.run("spider.setModelStates.library.pose", new BenchmarkHarness.Operation() {
+			/** The number of poses applied so far. */
+			private int applied = 0;
+
+			@Override
+			public long run(final int count) {
+				long moved = 0;
+				for (int n = 0; n < count; n++, this.applied++) {
+					moved += spider.setModelStates(poses[this.applied % POSE_LIBRARY]) ? 1 : 0;
+				}
+				return moved;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmarks of rotating every leg joint of the spider, component by
+	 * component and in one sweep of a {@link JointSelection}, and of rotating the
+	 * same joints of every spider of a crowd stored in one array.
+	 */
+	private void selection() {
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+
+		// select every leg joint
+		final JointSelection selection = new JointSelection(skeleton.size());
+		final List<Component> selected = new ArrayList<Component>();
+		for (int leg = 0; leg < spider.legCount(); leg++) {
+			for (final Component joint : spider.legJoints(leg)) {
+				selection.toggle(skeleton.indexOf(joint));
+				selected.add(joint);
+			}
+		}
+		final BaseConfiguration forward = new BaseConfiguration(1, 1, 0);
+		final BaseConfiguration backward = new BaseConfiguration(-1, -1, 0);
+
+		this.harness.run("selection.rotate.components", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					final Configuration configuration = (i & 1) == 0 ? forward : backward;
+					for (final Component joint : selected) {
+						joint.changeConfiguration(configuration);
+					}
+				}
+				return Double.doubleToRawLongBits(skeleton.angles()[skeleton.angles().length - 1]);
+			}
+		});
+		this.harness.run("selection.rotate.bitset", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long moved = 0;
+				for (int i = 0; i < count; i++) {
+					final double delta = (i & 1) == 0 ? 1 : -1;
+					moved += selection.rotate(skeleton, delta, delta, 0);
+				}
+				return moved;
+			}
+		});
+
+		if (!this.harness.matches("selection.rotate.crowd")) {
+			return;
+		}
+		final double[] crowd = new double[CROWD * skeleton.angles().length];
+		for (int i = 0; i < CROWD; i++) {
+			System.arraycopy(skeleton.angles(), 0, crowd, i * skeleton.angles().length, skeleton.angles().length);
+		}
+		this.harness.run("selection.rotate.crowd", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					final double delta = (i & 1) == 0 ? 1 : -1;
+					selection.rotate(crowd, skeleton.extents(), CROWD, delta, delta, 0);
+				}
+				return Double.doubleToRawLongBits(crowd[crowd.length - 1]);
+			}
+		});
+	}
+}
@@ -0,0 +1,278 @@
+/**
+ * AnimationClip.java - timed keyframes of the joints of a skeleton
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable animation of some of the joints of a {@link Skeleton}, as a
+ * track of timed keyframes per joint.
+ *
+ * The rotation of each keyframe is stored as a quaternion, so that sampling the
+ * clip between two keyframes interpolates along the shortest arc between the
+ * two orientations instead of interpolating each Euler angle separately. All
+ * tracks are packed into flat arrays, and sampling neither allocates nor
+ * changes the clip, so a clip may be sampled by any number of players at once.
+ */
+public class AnimationClip implements PoseSource {
+
+	/**
+	 * Collects the keyframes of a clip in any order.
+	 */
+	public static class Builder {
+		/** The keyframes of each joint by name, as time, x, y, and z angles. */
+		private final Map<String, List<double[]>> keys = new LinkedHashMap<String, List<double[]>>();
+		/** Whether the clip interpolates linearly instead of spherically. */
+		private boolean linear = false;
+
+		/**
+		 * Builds the clip for the specified skeleton.
+		 *
+		 * @param skeleton The skeleton whose joints the clip animates.
+		 * @return The clip.
+		 * @throws IllegalArgumentException if a joint is not in the skeleton.
+		 */
+		public AnimationClip build(final Skeleton skeleton) {
+			return new AnimationClip(skeleton, this.keys, this.linear);
+		}
+
+		/**
+		 * Adds a keyframe for the specified joint.
+		 *
+		 * @param joint The name of the joint.
+		 * @param time  The time of the keyframe from the start of the clip, in
+		 *              seconds.
+		 * @param x     The angle around the x axis at the keyframe, in degrees.
+		 * @param y     The angle around the y axis at the keyframe, in degrees.
+		 * @param z     The angle around the z axis at the keyframe, in degrees.
+		 * @return This builder.
+		 */
+		public Builder key(final String joint, final double time, final double x, final double y, final double z) {
+			List<double[]> track = this.keys.get(joint);
+			if (track == null) {
+				track = new ArrayList<double[]>();
+				this.keys.put(joint, track);
+			}
+			track.add(new double[] { time, x, y, z });
+			return this;
+		}
+
+		/**
+		 * Sets whether the clip interpolates with normalized linear interpolation,
+		 * which is cheaper than spherical interpolation but does not move at a
+		 * constant angular velocity.
+		 *
+		 * @param linear Whether the clip interpolates linearly.
+		 * @return This builder.
+		 */
+		public Builder linear(final boolean linear) {
+			this.linear = linear;
+			return this;
+		}
+	}
+
+	/**
+	 * Builds a clip which moves through the specified poses in order, reaching
+	 * one every {@code interval} seconds.
+	 *
+	 * @param skeleton The skeleton whose joints the clip animates.
+	 * @param poses    The configuration of each joint at each pose, by joint name.
+	 * @param interval The time between two consecutive poses, in seconds.
+	 * @return The clip.
+	 */
+	public static AnimationClip fromPoses(final Skeleton skeleton, final List<Map<String, Configuration>> poses,
+			final double interval) {
+		final Builder builder = new Builder();
+		for (int i = 0; i < poses.size(); i++) {
+			for (final Map.Entry<String, Configuration> entry : poses.get(i).entrySet()) {
+				final Configuration configuration = entry.getValue();
+				builder.key(entry.getKey(), i * interval, configuration.xAngle(), configuration.yAngle(),
+						configuration.zAngle());
+			}
+		}
+		return builder.build(skeleton);
+	}
+
+	/**
+	 * Builds a clip which moves every named joint through the specified poses in
+	 * order, reaching one every {@code interval} seconds.
+	 *
+	 * @param skeleton The skeleton whose joints the clip animates.
+	 * @param poses    The poses of the skeleton.
+	 * @param interval The time between two consecutive poses, in seconds.
+	 * @return The clip.
+	 */
+	public static AnimationClip fromPoses(final Skeleton skeleton, final Pose[] poses, final double interval) {
+		final Builder builder = new Builder();
+		for (int i = 0; i < poses.length; i++) {
+			for (int joint = 0; joint < skeleton.size(); joint++) {
+				final String name = skeleton.component(joint).name();
+				if (name != null) {
+					builder.key(name, i * interval, poses[i].get(joint, Skeleton.X), poses[i].get(joint, Skeleton.Y),
+							poses[i].get(joint, Skeleton.Z));
+				}
+			}
+		}
+		return builder.build(skeleton);
+	}
+
+	/** The time of the last keyframe of any track, in seconds. */
+	private final double duration;
+	/** The index in the skeleton of the joint of each track. */
+	private final int[] joints;
+	/**
+	 * The x, y, and z angles of each keyframe as they were keyed, which choose
+	 * between the Euler angles of the interpolated rotations.
+	 */
+	private final double[] keyAngles;
+	/**
+	 * The index of the first keyframe of each track, followed by the total number
+	 * of keyframes.
+	 */
+	private final int[] keyStarts;
+	/** Whether the clip interpolates linearly instead of spherically. */
+	private final boolean linear;
+	/** The rotation of each keyframe, as {@link QuaternionMath} quaternions. */
+	private final double[] rotations;
+	/** The time of each keyframe, in increasing order within each track. */
+	private final double[] times;
+
+	/**
+	 * Packs the specified keyframes into the arrays of this clip.
+	 *
+	 * @param skeleton The skeleton whose joints the clip animates.
+	 * @param keys     The keyframes of each joint by name.
+	 * @param linear   Whether the clip interpolates linearly.
+	 */
+	private AnimationClip(final Skeleton skeleton, final Map<String, List<double[]>> keys, final boolean linear) {
+		int count = 0;
+		for (final List<double[]> track : keys.values()) {
+			count += track.size();
+		}
+		this.linear = linear;
+		this.joints = new int[keys.size()];
+		this.keyStarts = new int[keys.size() + 1];
+		this.times = new double[count];
+		this.keyAngles = new double[count * Skeleton.ANGLE_STRIDE];
+		this.rotations = new double[count * QuaternionMath.STRIDE];
+
+		double duration = 0;
+		int track = 0;
+		int key = 0;
+		for (final Map.Entry<String, List<double[]>> entry : keys.entrySet()) {
+			final List<double[]> frames = new ArrayList<double[]>(entry.getValue());
+			Collections.sort(frames, new Comparator<double[]>() {
+				@Override
+				public int compare(final double[] a, final double[] b) {
+					return Double.compare(a[0], b[0]);
+				}
+			});
+			this.joints[track] = skeleton.indexOf(entry.getKey());
+			this.keyStarts[track] = key;
+			for (final double[] frame : frames) {
+				this.times[key] = frame[0];
+				System.arraycopy(frame, 1, this.keyAngles, key * Skeleton.ANGLE_STRIDE, Skeleton.ANGLE_STRIDE);
+				QuaternionMath.fromEuler(frame[1], frame[2], frame[3], this.rotations, key * QuaternionMath.STRIDE);
+				duration = Math.max(duration, frame[0]);
+				key++;
+			}
+			track++;
+		}
+		this.keyStarts[track] = key;
+		this.duration = duration;
+	}
+
+	/**
+	 * Gets the time of the last keyframe of any track.
+	 *
+	 * @return The length of this clip, in seconds.
+	 */
+	@Override
+	public double duration() {
+		return this.duration;
+	}
+
+	/**
+	 * Gets the index in the skeleton of the joint of the specified track.
+	 *
+	 * @param track The index of the track.
+	 * @return The index of the joint of the track.
+	 */
+	@Override
+	public int joint(final int track) {
+		return this.joints[track];
+	}
+
+	/**
+	 * Writes the angles of every animated joint at the specified time into the
+	 * specified array. Before the first keyframe of a track and after its last,
+	 * the joint holds the angles of that keyframe. Between two keyframes, the
+	 * interpolated rotation is written as the Euler angles nearest to the angles
+	 * interpolated linearly between the keyframes, so that keyframes within the
+	 * extents of a joint do not play back as other angles for the same rotation.
+	 * The angles of joints without a track are left unchanged.
+	 *
+	 * @param time   The time from the start of the clip, in seconds.
+	 * @param angles The array of angles, with {@link Skeleton#ANGLE_STRIDE}
+	 *               entries per joint in the order of the skeleton.
+	 */
+	@Override
+	public void sample(final double time, final double[] angles) {
+		for (int track = 0; track < this.joints.length; track++) {
+			final int first = this.keyStarts[track];
+			final int last = this.keyStarts[track + 1] - 1;
+			final int offset = this.joints[track] * Skeleton.ANGLE_STRIDE;
+			if (time <= this.times[first] || first == last) {
+				this.write(first, angles, offset);
+			} else if (time >= this.times[last]) {
+				this.write(last, angles, offset);
+			} else {
+				// find the last keyframe at or before the time
+				int low = first;
+				int high = last;
+				while (high - low > 1) {
+					final int middle = (low + high) >>> 1;
+					if (this.times[middle] <= time) {
+						low = middle;
+					} else {
+						high = middle;
+					}
+				}
+				final double t = (time - this.times[low]) / (this.times[high] - this.times[low]);
+				for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+					final double from = this.keyAngles[low * Skeleton.ANGLE_STRIDE + axis];
+					final double to = this.keyAngles[high * Skeleton.ANGLE_STRIDE + axis];
+					angles[offset + axis] = from + t * (to - from);
+				}
+				QuaternionMath.interpolateToEuler(this.rotations, low * QuaternionMath.STRIDE, this.rotations,
+						high * QuaternionMath.STRIDE, t, this.linear, angles, offset, angles, offset);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of tracks of this clip.
+	 *
+	 * @return The number of animated joints.
+	 */
+	@Override
+	public int trackCount() {
+		return this.joints.length;
+	}
+
+	/**
+	 * Writes the angles of the specified keyframe as they were keyed.
+	 *
+	 * @param key    The index of the keyframe.
+	 * @param angles The array to which to write the angles.
+	 * @param offset The offset at which to write the angles.
+	 */
+	private void write(final int key, final double[] angles, final int offset) {
+		System.arraycopy(this.keyAngles, key * Skeleton.ANGLE_STRIDE, angles, offset, Skeleton.ANGLE_STRIDE);
+	}
+}
@@ -32,6 +32,8 @@ public class Arm extends Component implements Animate, Selection{
 	private final Finger[] fingers;
 	/** The set of all components. */
 	private final List<Component> components;
+	/** The hierarchy of this model compiled into flat arrays. */
+	private final Skeleton skeleton;
 	/** The set of components which are currently selected for rotation. */
 	private final Set<Component> selectedComponents = new HashSet<Component>(18);
 	
@@ -153,6 +155,15 @@ public class Arm extends Component implements Animate, Selection{
     }
 
   	
+  	/**
+  	 * Gets the hierarchy of this model compiled into flat arrays.
+  	 * 
+  	 * @return The hierarchy of this model compiled into flat arrays.
+  	 */
+  	public Skeleton skeleton() {
+  		return this.skeleton;
+  	}
+
   	public void toggleSelection(int selectionNum) {
   		if ( 0 <= selectionNum && selectionNum <= 17) {
   			Component component = mapNum2Component(selectionNum);
@@ -345,6 +356,9 @@ public class Arm extends Component implements Animate, Selection{
 	    this.components = Arrays.asList(palm1, middle1, distal1, palm2, middle2,
 	        distal2, palm3, middle3, distal3, palm4, middle4, distal4, palm5,
 	        middle5, distal5, this.hand, this.forearm, this.upperArm);
+
+	    // pack the finished hierarchy into flat arrays for linear traversals
+	    this.skeleton = Skeleton.compile(this);
 	}
 	
 	private class Finger {
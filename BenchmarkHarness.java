@@ -0,0 +1,412 @@
+/**
+ * BenchmarkHarness.java - runs timed benchmarks and writes their results as JSON
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs benchmarks the way JMH does in its average time mode, and writes the
+ * results in the JSON format of JMH, so that the results of two commits can be
+ * compared with the tools made for JMH.
+ *
+ * Each benchmark runs for a number of warm-up iterations, whose results are
+ * discarded, and then for a number of measured iterations of fixed duration.
+ * Within an iteration the operation is called in batches which double in size
+ * until the iteration has lasted long enough, so that reading the clock does
+ * not weigh on short operations. The score is the mean time per operation over
+ * the measured iterations, and its error is the half width of the 99.9%
+ * confidence interval, as JMH reports it. Only the benchmarks whose name
+ * contains the filter given at construction are run.
+ *
+ * As JMH does by default, each benchmark can run in a JVM of its own, so that
+ * the code it compiles and the types it profiles are not left over from the
+ * benchmarks before it. Otherwise two implementations of one interface, such
+ * as the scalar and SIMD {@link QuaternionKernels}, would be measured with
+ * call sites which the first of them made monomorphic. The forked JVM reruns
+ * the main class of the suite with the same JVM arguments, skips every other
+ * benchmark, and hands its measurements back through a temporary file; only the
+ * preparations of the suite and the printed scores stay in the first JVM.
+ *
+ * JMH itself cannot be used, because it generates its harness into the package
+ * of each benchmark and refuses classes in the default package, where all the
+ * classes of this program are.
+ */
+public class BenchmarkHarness {
+
+	/**
+	 * An operation to measure.
+	 */
+	public interface Operation {
+		/**
+		 * Performs the operation the specified number of times.
+		 *
+		 * @param count The number of times to perform the operation.
+		 * @return A value derived from the results, which the harness consumes so
+		 *         that the work is not optimized away.
+		 */
+		long run(final int count);
+	}
+
+	/**
+	 * The measured score of one benchmark.
+	 */
+	private static class Result {
+		/** The name of the benchmark. */
+		private final String name;
+		/** The mean time per operation of each measured iteration, in nanoseconds. */
+		private final double[] samples;
+
+		/**
+		 * Instantiates the result of the specified benchmark.
+		 *
+		 * @param name    The name of the benchmark.
+		 * @param samples The mean time per operation of each measured iteration.
+		 */
+		private Result(final String name, final double[] samples) {
+			this.name = name;
+			this.samples = samples;
+		}
+
+		/**
+		 * Gets the half width of the 99.9% confidence interval of the score.
+		 *
+		 * @return The error of the score, in nanoseconds per operation.
+		 */
+		private double error() {
+			final int n = this.samples.length;
+			if (n < 2) {
+				return Double.NaN;
+			}
+			final double mean = this.score();
+			double squares = 0;
+			for (final double sample : this.samples) {
+				squares += (sample - mean) * (sample - mean);
+			}
+			final double t = n - 1 < T_999.length ? T_999[n - 1] : T_999_LIMIT;
+			return t * Math.sqrt(squares / (n - 1) / n);
+		}
+
+		/**
+		 * Gets the mean time per operation.
+		 *
+		 * @return The score, in nanoseconds per operation.
+		 */
+		private double score() {
+			double sum = 0;
+			for (final double sample : this.samples) {
+				sum += sample;
+			}
+			return sum / this.samples.length;
+		}
+	}
+
+	/**
+	 * The two-sided 99.9% quantiles of Student's t distribution, by degrees of
+	 * freedom from 0, which is unused.
+	 */
+	private static final double[] T_999 = { Double.NaN, 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041,
+			4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850 };
+	/** The two-sided 99.9% quantile of the normal distribution. */
+	private static final double T_999_LIMIT = 3.291;
+	/** The system property which names the only benchmark a forked JVM runs. */
+	private static final String FORK_PROPERTY = "benchmark.fork";
+	/**
+	 * The system property which names the file to which a forked JVM writes its
+	 * measurements.
+	 */
+	private static final String SAMPLES_PROPERTY = "benchmark.fork.samples";
+
+	/** The part of the name of each benchmark to run. */
+	private final String filter;
+	/**
+	 * The name of the only benchmark to run, if this JVM was forked to run it,
+	 * or null.
+	 */
+	private final String forked;
+	/** The duration of each iteration, in nanoseconds. */
+	private final long iterationTime;
+	/**
+	 * The class whose main method runs the benchmarks in a forked JVM, or null
+	 * to run them in this JVM.
+	 */
+	private final Class<?> main;
+	/** The number of measured iterations of each benchmark. */
+	private final int measurements;
+	/** The results of the benchmarks run so far, in order. */
+	private final List<Result> results = new ArrayList<Result>();
+	/** Consumes the values returned by the operations. */
+	private long sink = 0;
+	/** The number of discarded warm-up iterations of each benchmark. */
+	private final int warmups;
+
+	/**
+	 * Instantiates a harness which runs each benchmark matching the specified
+	 * filter for the specified numbers of iterations. In a JVM forked by another
+	 * harness, only the benchmark it was forked for runs, in this JVM.
+	 *
+	 * @param warmups       The number of discarded warm-up iterations.
+	 * @param measurements  The number of measured iterations.
+	 * @param iterationTime The duration of each iteration, in milliseconds.
+	 * @param filter        The part of the name of each benchmark to run, or
+	 *                      the empty string to run all of them.
+	 * @param main          The class whose main method, called without
+	 *                      arguments, runs the benchmarks in this harness, to run
+	 *                      each benchmark in a JVM of its own; or null to run
+	 *                      them all in this JVM.
+	 */
+	public BenchmarkHarness(final int warmups, final int measurements, final int iterationTime,
+			final String filter, final Class<?> main) {
+		this.filter = filter;
+		this.forked = System.getProperty(FORK_PROPERTY);
+		this.main = this.forked == null ? main : null;
+		this.warmups = warmups;
+		this.measurements = measurements;
+		this.iterationTime = iterationTime * 1000000L;
+	}
+
+	/**
+	 * Gets whether any of the specified benchmarks matches the filter, so that
+	 * suites can skip expensive preparations for benchmarks which will not run.
+	 *
+	 * @param names The names of the benchmarks.
+	 * @return Whether any of the benchmarks would run.
+	 */
+	public boolean matches(final String... names) {
+		for (final String name : names) {
+			if (this.forked != null ? name.equals(this.forked) : name.contains(this.filter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the specified benchmark if its name matches the filter, in this JVM or
+	 * in a forked one, prints its score, and keeps it for
+	 * {@link #writeJson(Path)}.
+	 *
+	 * @param name      The name of the benchmark.
+	 * @param operation The operation to measure.
+	 * @throws IllegalStateException if the forked JVM fails.
+	 * @throws UncheckedIOException  if the measurements cannot be handed back
+	 *                               from the forked JVM.
+	 */
+	public void run(final String name, final Operation operation) {
+		if (!this.matches(name)) {
+			return;
+		}
+		final double[] samples;
+		if (this.main != null) {
+			samples = this.fork(name);
+		} else {
+			for (int i = 0; i < this.warmups; i++) {
+				this.iterate(operation);
+			}
+			samples = new double[this.measurements];
+			for (int i = 0; i < this.measurements; i++) {
+				samples[i] = this.iterate(operation);
+			}
+			if (this.forked != null) {
+				this.handBack(samples);
+			}
+		}
+		final Result result = new Result(name, samples);
+		this.results.add(result);
+		System.out.printf(Locale.ROOT, "%-44s %14.3f +- %12.3f ns/op%n", name, result.score(), result.error());
+	}
+
+	/**
+	 * Writes the results of every benchmark run so far to the specified file in
+	 * the JSON format of JMH.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeJson(final Path file) throws IOException {
+		final Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		try {
+			out.write("[\n");
+			for (int r = 0; r < this.results.size(); r++) {
+				final Result result = this.results.get(r);
+				final double score = result.score();
+				final double error = result.error();
+				out.write("  {\n");
+				out.write("    \"benchmark\" : " + quote(result.name) + ",\n");
+				out.write("    \"mode\" : \"avgt\",\n");
+				out.write("    \"threads\" : 1,\n");
+				out.write("    \"forks\" : " + (this.main != null ? 1 : 0) + ",\n");
+				out.write("    \"jvm\" : " + quote(System.getProperty("java.home")) + ",\n");
+				out.write("    \"jdkVersion\" : " + quote(System.getProperty("java.version")) + ",\n");
+				out.write("    \"vmName\" : " + quote(System.getProperty("java.vm.name")) + ",\n");
+				out.write("    \"warmupIterations\" : " + this.warmups + ",\n");
+				out.write("    \"warmupTime\" : \"" + this.iterationTime / 1000000 + " ms\",\n");
+				out.write("    \"measurementIterations\" : " + this.measurements + ",\n");
+				out.write("    \"measurementTime\" : \"" + this.iterationTime / 1000000 + " ms\",\n");
+				out.write("    \"primaryMetric\" : {\n");
+				out.write("      \"score\" : " + number(score) + ",\n");
+				out.write("      \"scoreError\" : " + number(error) + ",\n");
+				out.write("      \"scoreConfidence\" : [ " + number(score - error) + ", " + number(score + error)
+						+ " ],\n");
+				out.write("      \"scoreUnit\" : \"ns/op\",\n");
+				out.write("      \"rawData\" : [ [ ");
+				for (int i = 0; i < result.samples.length; i++) {
+					out.write((i > 0 ? ", " : "") + number(result.samples[i]));
+				}
+				out.write(" ] ]\n");
+				out.write("    },\n");
+				out.write("    \"secondaryMetrics\" : {}\n");
+				out.write(r + 1 < this.results.size() ? "  },\n" : "  }\n");
+			}
+			out.write("]\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Runs the specified benchmark in a JVM of its own, which reruns the main
+	 * class with the same JVM arguments.
+	 *
+	 * @param name The name of the benchmark.
+	 * @return The mean time per operation of each measured iteration.
+	 * @throws IllegalStateException if the forked JVM fails or is interrupted.
+	 * @throws UncheckedIOException  if the measurements cannot be read.
+	 */
+	private double[] fork(final String name) {
+		final List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		Path file = null;
+		Path log = null;
+		try {
+			file = Files.createTempFile("benchmark", ".samples");
+			log = Files.createTempFile("benchmark", ".log");
+			command.add("-D" + FORK_PROPERTY + "=" + name);
+			command.add("-D" + SAMPLES_PROPERTY + "=" + file);
+			command.add("-classpath");
+			command.add(System.getProperty("java.class.path"));
+			command.add(this.main.getName());
+			// the suite prints its preparations in this JVM already, so the output of
+			// the forked JVM only matters if it fails
+			final Process process = new ProcessBuilder(command).redirectErrorStream(true)
+					.redirectOutput(log.toFile()).start();
+			final int status = process.waitFor();
+			if (status != 0) {
+				System.err.write(Files.readAllBytes(log));
+				throw new IllegalStateException("the JVM forked for " + name + " exited with status " + status);
+			}
+			final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			if (lines.size() != this.measurements) {
+				throw new IllegalStateException("the JVM forked for " + name + " measured " + lines.size()
+						+ " iterations, not " + this.measurements);
+			}
+			final double[] samples = new double[lines.size()];
+			for (int i = 0; i < samples.length; i++) {
+				samples[i] = Double.parseDouble(lines.get(i));
+			}
+			return samples;
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while " + name + " ran", exception);
+		} finally {
+			delete(file);
+			delete(log);
+		}
+	}
+
+	/**
+	 * Deletes the specified temporary file, if there is one.
+	 *
+	 * @param file The file, or null.
+	 */
+	private static void delete(final Path file) {
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (final IOException exception) {
+				// a leftover temporary file does no harm
+			}
+		}
+	}
+
+	/**
+	 * Writes the measurements of the benchmark which this JVM was forked to run
+	 * for the JVM which forked it, one per line.
+	 *
+	 * @param samples The mean time per operation of each measured iteration.
+	 * @throws UncheckedIOException if the measurements cannot be written.
+	 */
+	private void handBack(final double[] samples) {
+		final List<String> lines = new ArrayList<String>();
+		for (final double sample : samples) {
+			lines.add(Double.toString(sample));
+		}
+		try {
+			Files.write(Paths.get(System.getProperty(SAMPLES_PROPERTY)), lines, StandardCharsets.UTF_8);
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * Runs the specified operation in batches of doubling size for the duration
+	 * of one iteration.
+	 *
+	 * @param operation The operation to measure.
+	 * @return The mean time per operation, in nanoseconds.
+	 */
+	private double iterate(final Operation operation) {
+		long operations = 0;
+		long elapsed = 0;
+		for (int batch = 1; elapsed < this.iterationTime; batch = Math.min(batch * 2, 1 << 24)) {
+			final long start = System.nanoTime();
+			this.sink += operation.run(batch);
+			elapsed += System.nanoTime() - start;
+			operations += batch;
+		}
+		return (double) elapsed / operations;
+	}
+
+	/**
+	 * Gets the value consumed from the operations, which is meaningless but keeps
+	 * the compiler from discarding their work.
+	 *
+	 * @return The consumed value.
+	 */
+	public long sink() {
+		return this.sink;
+	}
+
+	/**
+	 * Formats the specified number as a JSON number, or as the string JMH writes
+	 * for a value which is not a number.
+	 *
+	 * @param value The number.
+	 * @return The JSON value.
+	 */
+	private static String number(final double value) {
+		return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.6f", value);
+	}
+
+	/**
+	 * Formats the specified string as a JSON string.
+	 *
+	 * @param value The string.
+	 * @return The JSON string, with quotes and backslashes escaped.
+	 */
+	private static String quote(final String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
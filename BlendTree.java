@@ -0,0 +1,310 @@
+/**
+ * BlendTree.java - blends weighted, masked layers of poses into one pose
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Blends any number of {@link PoseSource} layers, such as clips, static poses,
+ * or other blend trees, into one pose of a {@link Skeleton}.
+ *
+ * Each layer has a weight and a {@link JointMask}, whose product is the weight
+ * of the layer at each joint. The rotations of the ordinary layers at a joint
+ * are averaged as quaternions in proportion to their weights, so that, for
+ * example, a layer masked to the upper legs and a layer masked to the distal
+ * joints each pose their own joints, and two layers of weight 1 and 3 at the
+ * same joint yield a rotation a quarter of the way from one to the other. A
+ * joint which no ordinary layer weighs keeps its rest pose, which is the pose
+ * of the skeleton when the tree was built.
+ *
+ * Additive layers are then applied in the order in which they were added, each
+ * as the rotation from its pose at time 0 to its pose at the sampled time,
+ * scaled by its weight. A twitch clip starting from any pose thus adds its
+ * motion on top of the locomotion beneath it. Each blended rotation is written
+ * as the Euler angles nearest to the angles of the layers, weighted alike, so
+ * that layers within the extents of a joint blend to angles within them.
+ *
+ * Sampling takes time linear in the number of tracks of the layers, and does
+ * not allocate. Unlike an {@link AnimationClip}, a blend tree keeps the
+ * intermediate results of sampling, so only one thread may sample it at a time.
+ */
+public class BlendTree implements PoseSource {
+
+	/**
+	 * A source of poses with its weight and mask.
+	 */
+	private static class Layer {
+		/** Whether the layer is added to the blend of the ordinary layers. */
+		private final boolean additive;
+		/**
+		 * The inverse of the rotation of each joint at time 0, as
+		 * {@link QuaternionMath} quaternions, or null if the layer is not additive.
+		 */
+		private final double[] inverseReference;
+		/** The mask which weighs each joint. */
+		private final JointMask mask;
+		/**
+		 * The angles of each joint at time 0, or null if the layer is not additive.
+		 */
+		private final double[] reference;
+		/** The angles sampled from the source, in the order of the skeleton. */
+		private final double[] samples;
+		/** The source of the poses. */
+		private final PoseSource source;
+		/** The weight of the layer. */
+		private double weight = 1;
+
+		/**
+		 * Instantiates a layer of weight 1.
+		 *
+		 * @param source   The source of the poses.
+		 * @param mask     The mask which weighs each joint.
+		 * @param additive Whether the layer is additive.
+		 * @param size     The number of joints of the skeleton.
+		 */
+		private Layer(final PoseSource source, final JointMask mask, final boolean additive, final int size) {
+			this.source = source;
+			this.mask = mask;
+			this.additive = additive;
+			this.samples = new double[size * Skeleton.ANGLE_STRIDE];
+			if (additive) {
+				this.inverseReference = new double[size * QuaternionMath.STRIDE];
+				source.sample(0, this.samples);
+				for (int track = 0; track < source.trackCount(); track++) {
+					final int joint = source.joint(track);
+					final int a = joint * Skeleton.ANGLE_STRIDE;
+					final int q = joint * QuaternionMath.STRIDE;
+					QuaternionMath.fromEuler(this.samples[a + Skeleton.X], this.samples[a + Skeleton.Y],
+							this.samples[a + Skeleton.Z], this.inverseReference, q);
+					// the conjugate of a unit quaternion is its inverse
+					this.inverseReference[q + QuaternionMath.X] = -this.inverseReference[q + QuaternionMath.X];
+					this.inverseReference[q + QuaternionMath.Y] = -this.inverseReference[q + QuaternionMath.Y];
+					this.inverseReference[q + QuaternionMath.Z] = -this.inverseReference[q + QuaternionMath.Z];
+				}
+				this.reference = this.samples.clone();
+			} else {
+				this.inverseReference = null;
+				this.reference = null;
+			}
+		}
+	}
+
+	/** The identity rotation, as a {@link QuaternionMath} quaternion. */
+	private static final double[] IDENTITY = { 1, 0, 0, 0 };
+
+	/** The blended rotation of each joint, as {@link QuaternionMath} quaternions. */
+	private final double[] blended;
+	/** The time after which no layer changes, in seconds. */
+	private double duration = 0;
+	/** Whether any layer animates each joint of the skeleton. */
+	private final boolean[] animated;
+	/** The index of each joint which any layer animates, in increasing order. */
+	private int[] joints = new int[0];
+	/** The layers, in the order in which they were added. */
+	private final List<Layer> layers = new ArrayList<Layer>();
+	/**
+	 * The angles of the layers at each joint, weighted as their rotations are,
+	 * which choose between the Euler angles of the blended rotation.
+	 */
+	private final double[] near;
+	/** The angles of each joint of the skeleton when this tree was built. */
+	private final double[] rest;
+	/** Holds the rotation of a layer and its offset from the reference. */
+	private final double[] rotation = new double[2 * QuaternionMath.STRIDE];
+	/** The skeleton whose joints are blended. */
+	private final Skeleton skeleton;
+	/** The sum of the weights of the ordinary layers at each joint. */
+	private final double[] totals;
+
+	/**
+	 * Instantiates an empty tree for the specified skeleton, whose current pose
+	 * becomes the rest pose of the tree.
+	 *
+	 * @param skeleton The skeleton whose joints are blended.
+	 */
+	public BlendTree(final Skeleton skeleton) {
+		this.skeleton = skeleton;
+		this.rest = skeleton.angles().clone();
+		this.animated = new boolean[skeleton.size()];
+		this.blended = new double[skeleton.size() * QuaternionMath.STRIDE];
+		this.near = new double[skeleton.size() * Skeleton.ANGLE_STRIDE];
+		this.totals = new double[skeleton.size()];
+	}
+
+	/**
+	 * Adds an additive layer of weight 1 on top of the layers added so far.
+	 *
+	 * @param source The source of the poses, whose pose at time 0 is the
+	 *               reference from which its motion is measured.
+	 * @param mask   The mask which weighs each joint.
+	 * @return The index of the layer.
+	 */
+	public int addAdditiveLayer(final PoseSource source, final JointMask mask) {
+		return this.add(new Layer(source, mask, true, this.skeleton.size()));
+	}
+
+	/**
+	 * Adds an ordinary layer of weight 1.
+	 *
+	 * @param source The source of the poses.
+	 * @param mask   The mask which weighs each joint.
+	 * @return The index of the layer.
+	 */
+	public int addLayer(final PoseSource source, final JointMask mask) {
+		return this.add(new Layer(source, mask, false, this.skeleton.size()));
+	}
+
+	@Override
+	public double duration() {
+		return this.duration;
+	}
+
+	@Override
+	public int joint(final int track) {
+		return this.joints[track];
+	}
+
+	@Override
+	public void sample(final double time, final double[] angles) {
+		final double[] q = this.rotation;
+		for (final int joint : this.joints) {
+			Arrays.fill(this.blended, joint * QuaternionMath.STRIDE, (joint + 1) * QuaternionMath.STRIDE, 0);
+			Arrays.fill(this.near, joint * Skeleton.ANGLE_STRIDE, (joint + 1) * Skeleton.ANGLE_STRIDE, 0);
+			this.totals[joint] = 0;
+		}
+
+		// average the ordinary layers
+		for (int l = 0; l < this.layers.size(); l++) {
+			final Layer layer = this.layers.get(l);
+			if (layer.additive || layer.weight <= 0) {
+				continue;
+			}
+			layer.source.sample(time, layer.samples);
+			for (int track = 0; track < layer.source.trackCount(); track++) {
+				final int joint = layer.source.joint(track);
+				double weight = layer.weight * layer.mask.weight(joint);
+				if (weight <= 0) {
+					continue;
+				}
+				final int a = joint * Skeleton.ANGLE_STRIDE;
+				final int b = joint * QuaternionMath.STRIDE;
+				QuaternionMath.fromEuler(layer.samples[a + Skeleton.X], layer.samples[a + Skeleton.Y],
+						layer.samples[a + Skeleton.Z], q, 0);
+				this.totals[joint] += weight;
+				for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+					this.near[a + axis] += weight * layer.samples[a + axis];
+				}
+				// q and -q are the same rotation; add the one on the side of the sum
+				if (q[0] * this.blended[b] + q[1] * this.blended[b + 1] + q[2] * this.blended[b + 2]
+						+ q[3] * this.blended[b + 3] < 0) {
+					weight = -weight;
+				}
+				for (int i = 0; i < QuaternionMath.STRIDE; i++) {
+					this.blended[b + i] += weight * q[i];
+				}
+			}
+		}
+		for (final int joint : this.joints) {
+			final int a = joint * Skeleton.ANGLE_STRIDE;
+			if (this.totals[joint] > 0) {
+				QuaternionMath.normalize(this.blended, joint * QuaternionMath.STRIDE);
+				for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+					this.near[a + axis] /= this.totals[joint];
+				}
+			} else {
+				System.arraycopy(this.rest, a, this.near, a, Skeleton.ANGLE_STRIDE);
+				QuaternionMath.fromEuler(this.rest[a + Skeleton.X], this.rest[a + Skeleton.Y],
+						this.rest[a + Skeleton.Z], this.blended, joint * QuaternionMath.STRIDE);
+			}
+		}
+
+		// apply the additive layers in order
+		for (int l = 0; l < this.layers.size(); l++) {
+			final Layer layer = this.layers.get(l);
+			if (!layer.additive || layer.weight <= 0) {
+				continue;
+			}
+			layer.source.sample(time, layer.samples);
+			for (int track = 0; track < layer.source.trackCount(); track++) {
+				final int joint = layer.source.joint(track);
+				final double weight = layer.weight * layer.mask.weight(joint);
+				if (weight <= 0) {
+					continue;
+				}
+				final int a = joint * Skeleton.ANGLE_STRIDE;
+				final int b = joint * QuaternionMath.STRIDE;
+				QuaternionMath.fromEuler(layer.samples[a + Skeleton.X], layer.samples[a + Skeleton.Y],
+						layer.samples[a + Skeleton.Z], q, 0);
+				// the offset from the reference, scaled by the weight
+				QuaternionMath.multiply(layer.inverseReference, b, q, 0, q, QuaternionMath.STRIDE);
+				QuaternionMath.slerp(IDENTITY, 0, q, QuaternionMath.STRIDE, weight, q, QuaternionMath.STRIDE);
+				QuaternionMath.multiply(this.blended, b, q, QuaternionMath.STRIDE, this.blended, b);
+				for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+					this.near[a + axis] += weight * (layer.samples[a + axis] - layer.reference[a + axis]);
+				}
+			}
+		}
+
+		// write each rotation as the Euler angles nearest to those of the layers
+		for (final int joint : this.joints) {
+			final int b = joint * QuaternionMath.STRIDE;
+			QuaternionMath.toEuler(this.blended[b + QuaternionMath.W], this.blended[b + QuaternionMath.X],
+					this.blended[b + QuaternionMath.Y], this.blended[b + QuaternionMath.Z], this.near,
+					joint * Skeleton.ANGLE_STRIDE, angles, joint * Skeleton.ANGLE_STRIDE);
+		}
+	}
+
+	/**
+	 * Sets the weight of the specified layer. A layer of weight 0 is not sampled.
+	 *
+	 * @param layer  The index of the layer.
+	 * @param weight The weight of the layer, at least 0, and at most 1 for an
+	 *               additive layer.
+	 */
+	public void setWeight(final int layer, final double weight) {
+		this.layers.get(layer).weight = weight;
+	}
+
+	@Override
+	public int trackCount() {
+		return this.joints.length;
+	}
+
+	/**
+	 * Gets the weight of the specified layer.
+	 *
+	 * @param layer The index of the layer.
+	 * @return The weight of the layer.
+	 */
+	public double weight(final int layer) {
+		return this.layers.get(layer).weight;
+	}
+
+	/**
+	 * Adds the specified layer and the joints it animates to this tree.
+	 *
+	 * @param layer The layer to add.
+	 * @return The index of the layer.
+	 */
+	private int add(final Layer layer) {
+		this.layers.add(layer);
+		this.duration = Math.max(this.duration, layer.source.duration());
+		for (int track = 0; track < layer.source.trackCount(); track++) {
+			this.animated[layer.source.joint(track)] = true;
+		}
+		int count = 0;
+		for (final boolean animated : this.animated) {
+			count += animated ? 1 : 0;
+		}
+		this.joints = new int[count];
+		count = 0;
+		for (int joint = 0; joint < this.animated.length; joint++) {
+			if (this.animated[joint]) {
+				this.joints[count++] = joint;
+			}
+		}
+		return this.layers.size() - 1;
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * BoundingSphere.java - a sphere which encloses a displayable object
+ */
+
+/**
+ * A sphere which encloses everything a displayable object draws, in the
+ * coordinates of that object.
+ */
+public class BoundingSphere {
+	/** The radius of this sphere. */
+	private final double radius;
+	/** The x component of the center of this sphere. */
+	private final double x;
+	/** The y component of the center of this sphere. */
+	private final double y;
+	/** The z component of the center of this sphere. */
+	private final double z;
+
+	/**
+	 * Instantiates this sphere with the specified center and radius.
+	 *
+	 * @param x      The x component of the center of this sphere.
+	 * @param y      The y component of the center of this sphere.
+	 * @param z      The z component of the center of this sphere.
+	 * @param radius The radius of this sphere.
+	 */
+	public BoundingSphere(final double x, final double y, final double z, final double radius) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.radius = radius;
+	}
+
+	/**
+	 * Gets the radius of this sphere.
+	 *
+	 * @return The radius of this sphere.
+	 */
+	public double radius() {
+		return this.radius;
+	}
+
+	/**
+	 * Gets the x component of the center of this sphere.
+	 *
+	 * @return The x component of the center of this sphere.
+	 */
+	public double x() {
+		return this.x;
+	}
+
+	/**
+	 * Gets the y component of the center of this sphere.
+	 *
+	 * @return The y component of the center of this sphere.
+	 */
+	public double y() {
+		return this.y;
+	}
+
+	/**
+	 * Gets the z component of the center of this sphere.
+	 *
+	 * @return The z component of the center of this sphere.
+	 */
+	public double z() {
+		return this.z;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * BoundingVolumes.java - hierarchical bounding spheres of a skeleton
+ */
+
+/**
+ * A bounding sphere for the subtree of every component of a {@link Skeleton},
+ * in the coordinates of the root of the skeleton.
+ *
+ * The sphere of a subtree encloses the {@link Displayable#bounds()} of the
+ * displayable of its root, moved by the world transform of that component, and
+ * the spheres of the subtrees of its children. The spheres are recomputed in a
+ * single reverse sweep over the skeleton, and only when the world transforms
+ * changed since they were last computed.
+ */
+public class BoundingVolumes {
+	/** The number of entries per component in the spheres array. */
+	public static final int SPHERE_STRIDE = 4;
+	/** The offset of the radius within a sphere entry. */
+	public static final int RADIUS = 3;
+
+	/** The transforms from which the spheres are computed. */
+	private final ForwardKinematics kinematics;
+	/**
+	 * The bounding sphere of the displayable of each component in the coordinates
+	 * of the component, with a negative radius if it draws nothing and an
+	 * infinite radius if its extent is not known.
+	 */
+	private final double[] locals;
+	/**
+	 * The bounding sphere of the subtree of each component, with a negative radius
+	 * if the subtree draws nothing.
+	 */
+	private final double[] spheres;
+	/** The version of the transforms from which the spheres were computed. */
+	private long version = -1;
+
+	/**
+	 * Instantiates the bounding volumes of the skeleton of the specified
+	 * transforms.
+	 *
+	 * @param kinematics The transforms from which the spheres are computed.
+	 */
+	public BoundingVolumes(final ForwardKinematics kinematics) {
+		final Skeleton skeleton = kinematics.skeleton();
+		this.kinematics = kinematics;
+		this.locals = new double[skeleton.size() * SPHERE_STRIDE];
+		this.spheres = new double[skeleton.size() * SPHERE_STRIDE];
+		for (int i = 0; i < skeleton.size(); i++) {
+			final Displayable displayable = skeleton.component(i).displayable();
+			final int s = i * SPHERE_STRIDE;
+			if (displayable == null) {
+				this.locals[s + RADIUS] = -1;
+			} else if (displayable.bounds() == null) {
+				// an object of unknown extent is never culled
+				this.locals[s + RADIUS] = Double.POSITIVE_INFINITY;
+			} else {
+				final BoundingSphere bounds = displayable.bounds();
+				this.locals[s + Skeleton.X] = bounds.x();
+				this.locals[s + Skeleton.Y] = bounds.y();
+				this.locals[s + Skeleton.Z] = bounds.z();
+				this.locals[s + RADIUS] = bounds.radius();
+			}
+		}
+	}
+
+	/**
+	 * Gets the array of subtree spheres, with {@link #SPHERE_STRIDE} entries per
+	 * component in the order of the skeleton: the x, y, and z components of the
+	 * center followed by the radius, which is negative for an empty subtree.
+	 *
+	 * @return The array of subtree spheres.
+	 */
+	public double[] spheres() {
+		return this.spheres;
+	}
+
+	/**
+	 * Recomputes the subtree spheres if the world transforms changed since they
+	 * were last computed. The transforms themselves are not updated.
+	 *
+	 * @return Whether the spheres were recomputed.
+	 */
+	public boolean update() {
+		if (this.version == this.kinematics.version()) {
+			return false;
+		}
+		this.version = this.kinematics.version();
+
+		final Skeleton skeleton = this.kinematics.skeleton();
+		final double[] worlds = this.kinematics.worlds();
+		for (int i = 0; i < skeleton.size(); i++) {
+			this.spheres[i * SPHERE_STRIDE + RADIUS] = -1;
+		}
+		// every descendant comes after its ancestors, so sweeping backwards
+		// finishes each subtree before merging it into its parent
+		for (int i = skeleton.size() - 1; i >= 0; i--) {
+			final int l = i * SPHERE_STRIDE;
+			if (this.locals[l + RADIUS] >= 0) {
+				final double x = this.locals[l + Skeleton.X];
+				final double y = this.locals[l + Skeleton.Y];
+				final double z = this.locals[l + Skeleton.Z];
+				final int m = i * ForwardKinematics.MATRIX_STRIDE;
+				// the world transforms are rigid, so the radius is unchanged
+				this.merge(i, worlds[m] * x + worlds[m + 4] * y + worlds[m + 8] * z + worlds[m + 12],
+						worlds[m + 1] * x + worlds[m + 5] * y + worlds[m + 9] * z + worlds[m + 13],
+						worlds[m + 2] * x + worlds[m + 6] * y + worlds[m + 10] * z + worlds[m + 14],
+						this.locals[l + RADIUS]);
+			}
+			final int parent = skeleton.parent(i);
+			if (parent >= 0 && this.spheres[l + RADIUS] >= 0) {
+				this.merge(parent, this.spheres[l + Skeleton.X], this.spheres[l + Skeleton.Y],
+						this.spheres[l + Skeleton.Z], this.spheres[l + RADIUS]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Grows the subtree sphere of the specified component to also enclose the
+	 * specified sphere.
+	 *
+	 * @param index  The index of the component.
+	 * @param x      The x component of the center of the sphere to enclose.
+	 * @param y      The y component of the center of the sphere to enclose.
+	 * @param z      The z component of the center of the sphere to enclose.
+	 * @param radius The radius of the sphere to enclose.
+	 */
+	private void merge(final int index, final double x, final double y, final double z, final double radius) {
+		final double[] s = this.spheres;
+		final int o = index * SPHERE_STRIDE;
+		final double r = s[o + RADIUS];
+		final double dx = x - s[o + Skeleton.X], dy = y - s[o + Skeleton.Y], dz = z - s[o + Skeleton.Z];
+		final double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if (r < 0 || distance + r <= radius) {
+			// this sphere is empty or inside the other one
+			s[o + Skeleton.X] = x;
+			s[o + Skeleton.Y] = y;
+			s[o + Skeleton.Z] = z;
+			s[o + RADIUS] = radius;
+		} else if (distance + radius > r) {
+			// neither sphere encloses the other, so span both along the line
+			// through their centers
+			final double merged = (distance + r + radius) / 2;
+			final double t = (merged - r) / distance;
+			s[o + Skeleton.X] += dx * t;
+			s[o + Skeleton.Y] += dy * t;
+			s[o + Skeleton.Z] += dz * t;
+			s[o + RADIUS] = merged;
+		}
+	}
+}
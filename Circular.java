@@ -13,6 +13,8 @@ import com.jogamp.opengl.util.gl2.GLUT;//for new version of gl
 public class Circular {
 	/** The OpenGL utility toolkit object to use to draw this object. */
 	private final GLUT glut;
+	/** The level of detail at which this object is drawn, where 0 is the finest. */
+	private int levelOfDetail = 0;
 	/** The radius of this object. */
 	private final double radius;
 
@@ -43,4 +45,31 @@ public class Circular {
 	protected double radius() {
 		return this.radius;
 	}
+
+	/**
+	 * Gets the level of detail at which this object is drawn.
+	 * 
+	 * @return The level of detail at which this object is drawn.
+	 */
+	public int levelOfDetail() {
+		return this.levelOfDetail;
+	}
+
+	/**
+	 * Sets the level of detail at which this object is drawn.
+	 * 
+	 * @param level The level of detail, where 0 is the finest.
+	 */
+	public void setLevelOfDetail(final int level) {
+		this.levelOfDetail = level;
+	}
+
+	/**
+	 * Gets the radius of the round cross section of this object.
+	 * 
+	 * @return The radius of this object.
+	 */
+	public double silhouetteRadius() {
+		return this.radius;
+	}
 }
@@ -0,0 +1,152 @@
+/**
+ * ClipPlayer.java - plays an animation clip or blend tree on a skeleton
+ */
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays a {@link PoseSource}, such as an {@link AnimationClip} or a
+ * {@link BlendTree}, on a skeleton, sampling it at the time of each frame.
+ *
+ * Playback is requested with {@link #play()} from any thread, and starts at the
+ * next frame. The drawing thread calls {@link #update(double, Skeleton)} once
+ * per frame with the time of the frame; the player writes the sampled angles
+ * into the skeleton and marks the components which moved out of date. Given the
+ * limits of the skeleton, the player then clamps every joint to its extents and
+ * reports which joints it clamped. While the clip plays, the frame pacer redraws
+ * continuously.
+ */
+public class ClipPlayer {
+	/**
+	 * Whether the pacer has been told that the clip plays, from the request to
+	 * play until playback ends.
+	 */
+	private final AtomicBoolean active = new AtomicBoolean();
+	/** The joints clamped to their extents in the last frame. */
+	private final JointSelection clamped;
+	/** The clip to play. */
+	private final PoseSource clip;
+	/** The extents of the joints of the skeleton, or {@code null} to play unclamped. */
+	private final JointLimits limits;
+	/** The pacer which redraws continuously while the clip plays. */
+	private final FramePacer pacer;
+	/** Whether the clip is playing. */
+	private boolean playing = false;
+	/** The sampled angles, with an entry for every joint of the skeleton. */
+	private final double[] pose;
+	/** Whether playback from the start was requested. */
+	private volatile boolean requested = false;
+	/** The time at which playback started, in seconds. */
+	private double startTime;
+
+	/**
+	 * Instantiates a player for the specified clip.
+	 *
+	 * @param clip  The clip to play.
+	 * @param size  The number of joints of the skeleton on which to play it.
+	 * @param pacer The pacer which redraws continuously while the clip plays.
+	 */
+	public ClipPlayer(final PoseSource clip, final int size, final FramePacer pacer) {
+		this(clip, size, pacer, null);
+	}
+
+	/**
+	 * Instantiates a player for the specified clip which keeps the joints within
+	 * the specified limits.
+	 *
+	 * @param clip   The clip to play.
+	 * @param size   The number of joints of the skeleton on which to play it.
+	 * @param pacer  The pacer which redraws continuously while the clip plays.
+	 * @param limits The extents of the joints of the skeleton, or {@code null} to
+	 *               play the clip unclamped.
+	 */
+	public ClipPlayer(final PoseSource clip, final int size, final FramePacer pacer, final JointLimits limits) {
+		this.clip = clip;
+		this.pacer = pacer;
+		this.limits = limits;
+		this.pose = new double[size * Skeleton.ANGLE_STRIDE];
+		this.clamped = new JointSelection(size);
+	}
+
+	/**
+	 * Gets the joints which were clamped to their extents in the last frame in
+	 * which the clip played.
+	 *
+	 * @return The clamped joints, by skeleton index.
+	 */
+	public JointSelection clamped() {
+		return this.clamped;
+	}
+
+	/**
+	 * Gets whether the clip is playing or about to play.
+	 *
+	 * @return Whether the clip is playing or about to play.
+	 */
+	public boolean isPlaying() {
+		return this.active.get();
+	}
+
+	/**
+	 * Requests that the clip play from its start at the next frame, restarting it
+	 * if it is already playing.
+	 */
+	public void play() {
+		this.requested = true;
+		if (this.active.compareAndSet(false, true)) {
+			this.pacer.beginAnimation();
+		}
+	}
+
+	/**
+	 * Samples the clip at the specified time and writes the angles of the
+	 * animated joints into the specified skeleton, if the clip is playing.
+	 *
+	 * @param now      The time of the frame, in seconds.
+	 * @param skeleton The skeleton on which to play the clip.
+	 * @return Whether any joint moved.
+	 */
+	public boolean update(final double now, final Skeleton skeleton) {
+		if (this.requested) {
+			this.requested = false;
+			this.playing = true;
+			this.startTime = now;
+		}
+		if (!this.playing) {
+			return false;
+		}
+
+		final double elapsed = now - this.startTime;
+		this.clip.sample(elapsed, this.pose);
+		final double[] angles = skeleton.angles();
+		boolean changed = false;
+		for (int track = 0; track < this.clip.trackCount(); track++) {
+			final int joint = this.clip.joint(track);
+			final int a = joint * Skeleton.ANGLE_STRIDE;
+			if (angles[a + Skeleton.X] != this.pose[a + Skeleton.X]
+					|| angles[a + Skeleton.Y] != this.pose[a + Skeleton.Y]
+					|| angles[a + Skeleton.Z] != this.pose[a + Skeleton.Z]) {
+				System.arraycopy(this.pose, a, angles, a, Skeleton.ANGLE_STRIDE);
+				skeleton.component(joint).markDirty();
+				changed = true;
+			}
+		}
+		if (this.limits != null) {
+			this.clamped.clear();
+			if (this.limits.enforce(skeleton, this.clamped) > 0) {
+				changed = true;
+			}
+		}
+
+		if (elapsed >= this.clip.duration() && !this.requested) {
+			this.playing = false;
+			this.active.set(false);
+			// a request made just now finds the player inactive and keeps the pacer
+			// running itself, unless this thread claims it first
+			if (!(this.requested && this.active.compareAndSet(false, true))) {
+				this.pacer.endAnimation();
+			}
+		}
+		return changed;
+	}
+}
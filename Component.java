@@ -6,7 +6,7 @@
  * @since Spring 2011
  */
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import javax.media.opengl.GL;
@@ -17,33 +17,47 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	private int callListHandle;
 	/**
 	 * The children of this component, which will be drawn respecting the
-	 * translation and rotation of this component.
+	 * translation and rotation of this component, in the order in which they
+	 * were added so that identically built models compile to the same skeleton.
 	 */
-	private Set<Component> children = new HashSet<Component>();
+	private Set<Component> children = new LinkedHashSet<Component>();
 	/** The color of this component. */
 	private FloatColor color = FloatColor.ORANGE;
+	/**
+	 * Whether the call list of this component is out of date and must be
+	 * recompiled on the next call to {@link #update(RenderCommands)}.
+	 */
+	private boolean dirty = true;
+	/**
+	 * Whether the call list of at least one descendant of this component is out
+	 * of date, so that {@link #update(RenderCommands)} must descend into the children.
+	 */
+	private boolean descendantDirty = false;
 	/** The displayable object which this component draws. */
 	private final Displayable displayable;
-	/** The position of this component. */
-	private Point3D position;
-	/** The current angle at which this joint is rotated around the x axis. */
-	private double xAngle = 0.0;
-	/** The minimum angle to which this joint can be rotated around the x axis. */
-	private double xNegativeExtent = -360;
-	/** The maximum angle to which this joint can be rotated around the x axis. */
-	private double xPositiveExtent = 360;
-	/** The current angle at which this joint is rotated around the y axis. */
-	private double yAngle = 0.0;
-	/** The minimum angle to which this joint can be rotated around the y axis. */
-	private double yNegativeExtent = -360;
-	/** The maximum angle to which this joint can be rotated around the y axis. */
-	private double yPositiveExtent = 360;
-	/** The current angle at which this joint is rotated around the z axis. */
-	private double zAngle = 0.0;
-	/** The minimum angle to which this joint can be rotated around the z axis. */
-	private double zNegativeExtent = -360;
-	/** The maximum angle to which this joint can be rotated around the z axis. */
-	private double zPositiveExtent = 360;
+	/** The component which has this component as a child, if any. */
+	private Component parent = null;
+	/**
+	 * The current x, y, and z angles of this component, stored starting at
+	 * {@link #angleOffset}. Once this component is compiled into a
+	 * {@link Skeleton}, this array is shared with the other components of the
+	 * skeleton.
+	 */
+	private double[] angles = new double[Skeleton.ANGLE_STRIDE];
+	/** The offset of the angles and position of this component in their arrays. */
+	private int angleOffset = 0;
+	/**
+	 * The minimum and maximum angles to which this joint can be rotated around the
+	 * x, y, and z axes, stored starting at {@link #extentOffset}.
+	 */
+	private double[] extents = { -360, 360, -360, 360, -360, 360 };
+	/** The offset of the extents of this component in their array. */
+	private int extentOffset = 0;
+	/**
+	 * The x, y, and z components of the position of this component, stored
+	 * starting at {@link #angleOffset}.
+	 */
+	private double[] positions = new double[Skeleton.POSITION_STRIDE];
 
 	/**
 	 * Instantiates this component with the specified position, but with nothing to
@@ -66,13 +80,15 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param displayable The object which this component represents.
 	 */
 	public Component(final Point3D position, final Displayable displayable, final String name) {
-		this.position = position;
+		this.positions[Skeleton.X] = position.x();
+		this.positions[Skeleton.Y] = position.y();
+		this.positions[Skeleton.Z] = position.z();
 		this.displayable = displayable;
 		this.name = name;
 	}
 
 	public String toString() {
-		return "Component[" + ", " + this.xAngle + ", " + this.yAngle + ", " + this.zAngle + ", " + this.position + "]";
+		return "Component[" + ", " + this.xAngle() + ", " + this.yAngle() + ", " + this.zAngle() + ", " + this.position() + "]";
 	}
 
 	/** The human-readable name of this component. */
@@ -85,6 +101,80 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 */
 	public void addChild(final Component component) {
 		this.children.add(component);
+		component.parent = this;
+		// the call list of this component must now also call the new child
+		this.markDirty();
+		if (component.dirty || component.descendantDirty) {
+			this.descendantDirty = true;
+		}
+	}
+
+	/**
+	 * Marks the call list of this component as out of date, and records on each
+	 * ancestor that it has an out of date descendant.
+	 * 
+	 * Ancestors do not need their own call lists recompiled, since a call to
+	 * {@code glCallList} compiled into a call list is resolved when the list is
+	 * executed, not when it is compiled.
+	 */
+	protected void markDirty() {
+		this.dirty = true;
+		for (Component ancestor = this.parent; ancestor != null && !ancestor.descendantDirty; ancestor = ancestor.parent) {
+			ancestor.descendantDirty = true;
+		}
+	}
+
+	/**
+	 * Moves the angles, extents, and position of this component into the
+	 * specified arrays at the specified index, and stores them there from now on.
+	 * 
+	 * @param angles    The array of angles, with {@link Skeleton#ANGLE_STRIDE}
+	 *                  entries per component.
+	 * @param extents   The array of extents, with {@link Skeleton#EXTENT_STRIDE}
+	 *                  entries per component.
+	 * @param positions The array of positions, with
+	 *                  {@link Skeleton#POSITION_STRIDE} entries per component.
+	 * @param index     The index of this component in the arrays.
+	 */
+	void bind(final double[] angles, final double[] extents, final double[] positions, final int index) {
+		final int newAngleOffset = index * Skeleton.ANGLE_STRIDE;
+		final int newExtentOffset = index * Skeleton.EXTENT_STRIDE;
+		System.arraycopy(this.angles, this.angleOffset, angles, newAngleOffset, Skeleton.ANGLE_STRIDE);
+		System.arraycopy(this.extents, this.extentOffset, extents, newExtentOffset, Skeleton.EXTENT_STRIDE);
+		System.arraycopy(this.positions, this.angleOffset, positions, newAngleOffset, Skeleton.POSITION_STRIDE);
+		this.angles = angles;
+		this.extents = extents;
+		this.positions = positions;
+		this.angleOffset = newAngleOffset;
+		this.extentOffset = newExtentOffset;
+	}
+
+	/**
+	 * Gets the children of this component.
+	 * 
+	 * @return The children of this component.
+	 */
+	Set<Component> children() {
+		return this.children;
+	}
+
+	/**
+	 * Gets the color of this component.
+	 * 
+	 * @return The color of this component.
+	 */
+	FloatColor color() {
+		return this.color;
+	}
+
+	/**
+	 * Gets the displayable object which this component draws.
+	 * 
+	 * @return The displayable object which this component draws, or {@code null}
+	 *         if this component only provides a positioning and rotation.
+	 */
+	Displayable displayable() {
+		return this.displayable;
 	}
 
 	/**
@@ -103,12 +193,12 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * Calls the OpenGL call list which contains the commands which draw this
 	 * component.
 	 * 
-	 * @param gl The OpenGL object with which to perform the drawing.
+	 * @param gl The render commands with which to perform the drawing.
 	 * 
 	 * @see edu.bu.cs.cs480.Displayable#draw(javax.media.opengl.GL)
 	 */
 	@Override
-	public void draw(final GL2 gl) {
+	public void draw(final RenderCommands gl) {
 		gl.glCallList(this.callListHandle);
 	}
 
@@ -122,8 +212,9 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 */
 	@Override
 	public void initialize(final GL2 gl) {
-		// create a new OpenGL call list handle
+		// create a new OpenGL call list handle, which must be compiled before use
 		this.callListHandle = gl.glGenLists(1);
+		this.markDirty();
 
 		// initialize the displayable object which this component represents
 		if (this.displayable != null) {
@@ -136,6 +227,36 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 		}
 	}
 
+	/**
+	 * Components also draw their children at transforms which change as joints
+	 * move, so their extent is not known here; see {@link BoundingVolumes}.
+	 * 
+	 * @return {@code null}
+	 */
+	@Override
+	public BoundingSphere bounds() {
+		return null;
+	}
+
+	/**
+	 * Frees the call list of this component, then calls the corresponding method
+	 * on the displayable object and the children of this component.
+	 * 
+	 * @param gl The OpenGL object which owns the call list.
+	 */
+	@Override
+	public void dispose(final GL2 gl) {
+		gl.glDeleteLists(this.callListHandle, 1);
+
+		if (this.displayable != null) {
+			this.displayable.dispose(gl);
+		}
+
+		for (final Component child : this.children) {
+			child.dispose(gl);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -143,25 +264,24 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param angleDeltan {@inheritDoc}
 	 */
 	public void rotate(final Axis axis, final double angleDelta) {
-		if (axis.equals(Axis.X)) {
-			this.xAngle += angleDelta;
-			this.xAngle = Math.min(this.xAngle, this.xPositiveExtent);
-			this.xAngle = Math.max(this.xAngle, this.xNegativeExtent);
-		} else if (axis.equals(Axis.Y)) {
-			this.yAngle += angleDelta;
-			this.yAngle = Math.min(this.yAngle, this.yPositiveExtent);
-			this.yAngle = Math.max(this.yAngle, this.yNegativeExtent);
-		} else if (axis.equals(Axis.Z)) {
-			this.zAngle += angleDelta;
-			this.zAngle = Math.min(this.zAngle, this.zPositiveExtent);
-			this.zAngle = Math.max(this.zAngle, this.zNegativeExtent);
+		final int angle = this.angleOffset + axis.ordinal();
+		final int extent = this.extentOffset + 2 * axis.ordinal();
+		final double oldAngle = this.angles[angle];
+		this.angles[angle] = Math.max(Math.min(oldAngle + angleDelta, this.extents[extent + 1]), this.extents[extent]);
+		// a rotation stopped at the joint limit does not change the call list
+		if (this.angles[angle] != oldAngle) {
+			this.markDirty();
 		}
 	}
 
 	public void setAngles(final double x, final double y, final double z) {
-		this.xAngle = x;
-		this.yAngle = y;
-		this.zAngle = z;
+		final int i = this.angleOffset;
+		if (this.angles[i + Skeleton.X] != x || this.angles[i + Skeleton.Y] != y || this.angles[i + Skeleton.Z] != z) {
+			this.angles[i + Skeleton.X] = x;
+			this.angles[i + Skeleton.Y] = y;
+			this.angles[i + Skeleton.Z] = z;
+			this.markDirty();
+		}
 	}
 
 	public void setAngles(final Configuration angledObject) {
@@ -170,7 +290,19 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 
 	public void setConfiguration(final double x, final double y, final double z, final Point3D p) {
 		this.setAngles(x, y, z);
-		this.position = p;
+		this.setPosition(p);
+	}
+
+	/**
+	 * Sets the position of this component relative to its parent.
+	 * 
+	 * @param p The new position of this component.
+	 */
+	public void setPosition(final Point3D p) {
+		this.positions[this.angleOffset + Skeleton.X] = p.x();
+		this.positions[this.angleOffset + Skeleton.Y] = p.y();
+		this.positions[this.angleOffset + Skeleton.Z] = p.z();
+		this.markDirty();
 	}
 
 	public void setConfiguration(Configuration config) {
@@ -181,7 +313,12 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 		this.rotate(Axis.X, x);
 		this.rotate(Axis.Y, y);
 		this.rotate(Axis.Z, z);
-		this.position = new Point3D(this.position.x() + p.x(), this.position.y() + p.y(), this.position.z() + p.z());
+		if (p.x() != 0 || p.y() != 0 || p.z() != 0) {
+			this.positions[this.angleOffset + Skeleton.X] += p.x();
+			this.positions[this.angleOffset + Skeleton.Y] += p.y();
+			this.positions[this.angleOffset + Skeleton.Z] += p.z();
+			this.markDirty();
+		}
 	}
 
 	public void changeConfiguration(Configuration config) {
@@ -197,7 +334,10 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 */
 	@Override
 	public void setColor(final FloatColor color) {
-		this.color = color;
+		if (this.color != color) {
+			this.color = color;
+			this.markDirty();
+		}
 	}
 
 	/**
@@ -206,7 +346,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newXNegativeExtent {@inheritDoc}
 	 */
 	public void setXNegativeExtent(final double newXNegativeExtent) {
-		this.xNegativeExtent = newXNegativeExtent;
+		this.extents[this.extentOffset + 0] = newXNegativeExtent;
 	}
 
 	/**
@@ -215,7 +355,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newXPositiveExtent {@inheritDoc}
 	 */
 	public void setXPositiveExtent(final double newXPositiveExtent) {
-		this.xPositiveExtent = newXPositiveExtent;
+		this.extents[this.extentOffset + 1] = newXPositiveExtent;
 	}
 
 	/**
@@ -224,7 +364,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newYNegativeExtent {@inheritDoc}
 	 */
 	public void setYNegativeExtent(final double newYNegativeExtent) {
-		this.yNegativeExtent = newYNegativeExtent;
+		this.extents[this.extentOffset + 2] = newYNegativeExtent;
 	}
 
 	/**
@@ -233,7 +373,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newYPositiveExtent {@inheritDoc}
 	 */
 	public void setYPositiveExtent(final double newYPositiveExtent) {
-		this.yPositiveExtent = newYPositiveExtent;
+		this.extents[this.extentOffset + 3] = newYPositiveExtent;
 	}
 
 	/**
@@ -242,7 +382,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newZNegativeExtent {@inheritDoc}
 	 */
 	public void setZNegativeExtent(final double newZNegativeExtent) {
-		this.zNegativeExtent = newZNegativeExtent;
+		this.extents[this.extentOffset + 4] = newZNegativeExtent;
 	}
 
 	/**
@@ -251,38 +391,53 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @param newZPositiveExtent {@inheritDoc}
 	 */
 	public void setZPositiveExtent(final double newZPositiveExtent) {
-		this.zPositiveExtent = newZPositiveExtent;
+		this.extents[this.extentOffset + 5] = newZPositiveExtent;
 	}
 
 	/**
 	 * Updates the call list used to when this component is drawn.
 	 * 
 	 * This method first calls the corresponding method on the children of this
-	 * component. Then this component is translated, rotated, and colored
-	 * appropriately. Next this component is drawn using the {@link Displayable}
-	 * specified in the constructor of this class. Finally, the children of this
-	 * component are drawn with respect to the rotation and translation done to this
-	 * component.
+	 * component, if any of them are out of date. Then, if the state of this
+	 * component changed since the last update, its call list is recompiled: this
+	 * component is translated, rotated, and colored appropriately. Next this
+	 * component is drawn using the {@link Displayable} specified in the
+	 * constructor of this class. Finally, the children of this component are drawn
+	 * with respect to the rotation and translation done to this component.
 	 * 
-	 * @param gl The OpenGL object with which to perform the drawing.
+	 * Only the components along the paths to changed components are visited, so a
+	 * single edit costs time proportional to the depth of the changed component.
+	 * 
+	 * @param gl The render commands with which to perform the drawing.
 	 * 
 	 * @see edu.bu.cs.cs480.UpdatingDisplayable#update(javax.media.opengl.GL)
 	 */
 	@Override
-	public void update(final GL2 gl) {
+	public void update(final RenderCommands gl) {
 		// update each of the children of this component
-		for (final Component child : this.children) {
-			child.update(gl);
+		if (this.descendantDirty) {
+			for (final Component child : this.children) {
+				if (child.dirty || child.descendantDirty) {
+					child.update(gl);
+				}
+			}
+			this.descendantDirty = false;
+		}
+
+		if (!this.dirty) {
+			return;
 		}
+		this.dirty = false;
 
 		gl.glNewList(this.callListHandle, GL2.GL_COMPILE);
 		gl.glPushMatrix();
 		
 
-		gl.glTranslated(this.position.x(), this.position.y(), this.position.z());
-		gl.glRotated(xAngle,1,0,0);
-		gl.glRotated(yAngle,0,1,0);
-		gl.glRotated(zAngle,0,0,1);
+		final int i = this.angleOffset;
+		gl.glTranslated(this.positions[i + Skeleton.X], this.positions[i + Skeleton.Y], this.positions[i + Skeleton.Z]);
+		gl.glRotated(this.angles[i + Skeleton.X], 1, 0, 0);
+		gl.glRotated(this.angles[i + Skeleton.Y], 0, 1, 0);
+		gl.glRotated(this.angles[i + Skeleton.Z], 0, 0, 1);
 
 		if (this.displayable != null) {
 			gl.glPushAttrib(GL2.GL_CURRENT_BIT);
@@ -306,7 +461,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @return {@inheritDoc}
 	 */
 	public double xAngle() {
-		return this.xAngle;
+		return this.angles[this.angleOffset + Skeleton.X];
 	}
 
 	/**
@@ -315,7 +470,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @return {@inheritDoc}
 	 */
 	public double yAngle() {
-		return this.yAngle;
+		return this.angles[this.angleOffset + Skeleton.Y];
 	}
 
 	/**
@@ -324,7 +479,7 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @return {@inheritDoc}
 	 */
 	public double zAngle() {
-		return this.zAngle;
+		return this.angles[this.angleOffset + Skeleton.Z];
 	}
 
 	/**
@@ -333,7 +488,8 @@ public class Component implements Rotatable, Nameable, UpdatingDisplayable, Colo
 	 * @return {@inheritDoc}
 	 */
 	public Point3D position() {
-		return this.position;
+		final int i = this.angleOffset;
+		return new Point3D(this.positions[i + Skeleton.X], this.positions[i + Skeleton.Y], this.positions[i + Skeleton.Z]);
 	}
 
 	/**
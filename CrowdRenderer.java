@@ -0,0 +1,358 @@
+/**
+ * CrowdRenderer.java - draws many spiders with instanced draw calls
+ */
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLException;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Draws a crowd of spiders which share one copy of the mesh of each of their
+ * parts.
+ *
+ * Every frame, the world matrices of all joints of all spiders are uploaded
+ * into a single floating point texture, with one row per spider and four texels
+ * (the columns of the matrix) per joint. Each part is then drawn once for the
+ * whole crowd with an instanced draw call, and the vertex shader fetches the
+ * matrix of its joint from the row of its instance. The number of draw calls
+ * per frame is therefore the number of parts of one spider, whatever the size
+ * of the crowd.
+ */
+public class CrowdRenderer {
+
+	/**
+	 * The shared mesh of a part of the spider, with its vertices in a vertex
+	 * buffer and its indices in main memory.
+	 */
+	private static class Part {
+		/** The number of indices of the mesh. */
+		private final int indexCount;
+		/** The indices of the vertices of each triangle of the mesh. */
+		private final IntBuffer indices;
+		/** The handle to the vertex buffer of the mesh. */
+		private final int vertexBuffer;
+
+		/**
+		 * Uploads the vertices of the specified mesh.
+		 *
+		 * @param gl   The OpenGL object with which to create the vertex buffer.
+		 * @param mesh The mesh of the part.
+		 */
+		private Part(final GL2 gl, final Mesh mesh) {
+			final int[] buffers = new int[1];
+			gl.glGenBuffers(1, buffers, 0);
+			this.vertexBuffer = buffers[0];
+			this.indexCount = mesh.indexCount();
+			// the instanced draw call of this version of JOGL only takes indices
+			// from main memory
+			this.indices = Buffers.newDirectIntBuffer(mesh.indices(), 0, this.indexCount);
+
+			final int floats = mesh.vertexCount() * Mesh.VERTEX_STRIDE;
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.vertexBuffer);
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) floats * Buffers.SIZEOF_FLOAT,
+					Buffers.newDirectFloatBuffer(mesh.vertices(), 0, floats), GL.GL_STATIC_DRAW);
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		}
+	}
+
+	/** The distance between neighboring spiders in the crowd. */
+	public static final double SPACING = 1.5;
+
+	/** The vertex shader, which transforms each vertex by its instance's matrix. */
+	private static final String VERTEX_SHADER = String.join("\n",
+			"#version 130",
+			"#extension GL_ARB_draw_instanced : require",
+			"uniform sampler2D matrices;",
+			"uniform int joint;",
+			"uniform vec3 color;",
+			"out vec3 shade;",
+			"void main() {",
+			"  int column = 4 * joint;",
+			"  int row = gl_InstanceIDARB;",
+			"  mat4 world = mat4(texelFetch(matrices, ivec2(column, row), 0),",
+			"                    texelFetch(matrices, ivec2(column + 1, row), 0),",
+			"                    texelFetch(matrices, ivec2(column + 2, row), 0),",
+			"                    texelFetch(matrices, ivec2(column + 3, row), 0));",
+			"  gl_Position = gl_ModelViewProjectionMatrix * (world * gl_Vertex);",
+			"  vec3 normal = normalize(gl_NormalMatrix * (mat3(world) * gl_Normal));",
+			"  vec3 light = normalize(gl_LightSource[0].position.xyz);",
+			"  shade = color * (gl_LightSource[0].ambient.rgb",
+			"      + gl_LightSource[0].diffuse.rgb * max(dot(normal, light), 0.0));",
+			"}");
+
+	/** The fragment shader, which uses the color lit in the vertex shader. */
+	private static final String FRAGMENT_SHADER = String.join("\n",
+			"#version 130",
+			"in vec3 shade;",
+			"void main() {",
+			"  gl_FragColor = vec4(shade, 1.0);",
+			"}");
+
+	/** The location of the color uniform of the shader. */
+	private int colorLocation;
+	/** Whether to leave out the spiders which are outside the view frustum. */
+	private boolean culling = true;
+	/** The number of floats per spider in the matrix texture. */
+	private final int floatsPerSpider;
+	/** The view frustum against which spiders are culled. */
+	private final Frustum frustum = new Frustum();
+	/** The location of the joint uniform of the shader. */
+	private int jointLocation;
+	/** The world matrices of all joints of all spiders, as uploaded each frame. */
+	private final FloatBuffer matrices;
+	/** The handle to the texture holding the world matrices. */
+	private int matrixTexture;
+	/** The shared mesh of the part at each joint, or {@code null} for none. */
+	private final Part[] parts;
+	/** The handle to the shader program. */
+	private int program;
+	/** The spiders of the crowd. */
+	private final Spider[] spiders;
+	/** The number of spiders drawn by the last draw. */
+	private int visibleCount = 0;
+
+	/**
+	 * Instantiates a crowd of the specified number of spiders, laid out on a
+	 * square grid in the x-y plane around the origin.
+	 *
+	 * @param size The number of spiders in the crowd.
+	 */
+	public CrowdRenderer(final int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("crowd size must be positive");
+		}
+		this.spiders = new Spider[size];
+		final int side = (int) Math.ceil(Math.sqrt(size));
+		for (int i = 0; i < size; i++) {
+			final double x = (i % side - (side - 1) / 2.0) * SPACING;
+			final double y = (i / side - (side - 1) / 2.0) * SPACING;
+			this.spiders[i] = new Spider(new Point3D(x, y, 0), "spider" + i);
+		}
+		final int joints = this.spiders[0].skeleton().size();
+		this.parts = new Part[joints];
+		this.floatsPerSpider = joints * ForwardKinematics.MATRIX_STRIDE;
+		this.matrices = Buffers.newDirectFloatBuffer(size * this.floatsPerSpider);
+	}
+
+	/**
+	 * Frees the OpenGL resources held by this renderer.
+	 *
+	 * @param gl The OpenGL object which owns the resources.
+	 */
+	public void dispose(final GL2 gl) {
+		final Map<Part, Boolean> disposed = new HashMap<Part, Boolean>();
+		for (final Part part : this.parts) {
+			if (part != null && disposed.put(part, Boolean.TRUE) == null) {
+				gl.glDeleteBuffers(1, new int[] { part.vertexBuffer }, 0);
+			}
+		}
+		gl.glDeleteTextures(1, new int[] { this.matrixTexture }, 0);
+		gl.glDeleteProgram(this.program);
+	}
+
+	/**
+	 * Uploads the world matrices of every visible spider, then draws each part of
+	 * the visible spiders with one instanced draw call.
+	 *
+	 * Unless culling is disabled, spiders whose bounding sphere is outside the
+	 * view frustum are left out of the matrix texture, so they cost neither
+	 * upload bandwidth nor vertex processing.
+	 *
+	 * @param gl The OpenGL object with which to perform the drawing.
+	 */
+	public void draw(final GL2 gl) {
+		if (this.culling) {
+			this.frustum.extract(gl);
+		}
+		int visible = 0;
+		for (int i = 0; i < this.spiders.length; i++) {
+			final ForwardKinematics kinematics = this.spiders[i].kinematics();
+			kinematics.update();
+			if (this.culling) {
+				kinematics.bounds().update();
+				final double[] root = kinematics.bounds().spheres();
+				if (root[BoundingVolumes.RADIUS] < 0 || !this.frustum.intersects(root[Skeleton.X], root[Skeleton.Y],
+						root[Skeleton.Z], root[BoundingVolumes.RADIUS])) {
+					continue;
+				}
+			}
+			final double[] worlds = kinematics.worlds();
+			final int offset = visible * this.floatsPerSpider;
+			for (int j = 0; j < this.floatsPerSpider; j++) {
+				this.matrices.put(offset + j, (float) worlds[j]);
+			}
+			visible++;
+		}
+		this.visibleCount = visible;
+		if (visible == 0) {
+			return;
+		}
+
+		gl.glActiveTexture(GL.GL_TEXTURE0);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, this.matrixTexture);
+		gl.glTexSubImage2D(GL.GL_TEXTURE_2D, 0, 0, 0, this.floatsPerSpider / 4, visible, GL.GL_RGBA, GL.GL_FLOAT,
+				this.matrices);
+
+		gl.glUseProgram(this.program);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+		final Skeleton skeleton = this.spiders[0].skeleton();
+		for (int j = 0; j < this.parts.length; j++) {
+			final Part part = this.parts[j];
+			if (part == null) {
+				continue;
+			}
+			final FloatColor color = skeleton.component(j).color();
+			gl.glUniform1i(this.jointLocation, j);
+			gl.glUniform3f(this.colorLocation, color.red(), color.green(), color.blue());
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, part.vertexBuffer);
+			gl.glVertexPointer(3, GL.GL_FLOAT, Mesh.VERTEX_STRIDE * Buffers.SIZEOF_FLOAT, 0);
+			gl.glNormalPointer(GL.GL_FLOAT, Mesh.VERTEX_STRIDE * Buffers.SIZEOF_FLOAT,
+					Mesh.NORMAL_OFFSET * Buffers.SIZEOF_FLOAT);
+			gl.glDrawElementsInstanced(GL.GL_TRIANGLES, part.indexCount, GL.GL_UNSIGNED_INT, part.indices, visible);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glUseProgram(0);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+	}
+
+	/**
+	 * Compiles the shader program, allocates the matrix texture, and uploads one
+	 * shared mesh for each distinct part of the spider.
+	 *
+	 * @param gl The OpenGL object with which to create the resources.
+	 */
+	public void initialize(final GL2 gl) {
+		this.program = gl.glCreateProgram();
+		final int vertexShader = compile(gl, GL2ES2.GL_VERTEX_SHADER, VERTEX_SHADER);
+		final int fragmentShader = compile(gl, GL2ES2.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+		gl.glAttachShader(this.program, vertexShader);
+		gl.glAttachShader(this.program, fragmentShader);
+		gl.glLinkProgram(this.program);
+		final int[] status = new int[1];
+		gl.glGetProgramiv(this.program, GL2ES2.GL_LINK_STATUS, status, 0);
+		if (status[0] == GL.GL_FALSE) {
+			final byte[] log = new byte[4096];
+			final int[] length = new int[1];
+			gl.glGetProgramInfoLog(this.program, log.length, length, 0, log, 0);
+			throw new GLException("crowd shader failed to link: " + new String(log, 0, length[0]));
+		}
+		gl.glDeleteShader(vertexShader);
+		gl.glDeleteShader(fragmentShader);
+		this.jointLocation = gl.glGetUniformLocation(this.program, "joint");
+		this.colorLocation = gl.glGetUniformLocation(this.program, "color");
+		gl.glUseProgram(this.program);
+		gl.glUniform1i(gl.glGetUniformLocation(this.program, "matrices"), 0);
+		gl.glUseProgram(0);
+
+		final int[] textures = new int[1];
+		gl.glGenTextures(1, textures, 0);
+		this.matrixTexture = textures[0];
+		gl.glBindTexture(GL.GL_TEXTURE_2D, this.matrixTexture);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_NEAREST);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_NEAREST);
+		gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA32F, this.floatsPerSpider / 4, this.spiders.length, 0,
+				GL.GL_RGBA, GL.GL_FLOAT, null);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+
+		final Map<GeometryCache.Key, Part> shared = new HashMap<GeometryCache.Key, Part>();
+		final Skeleton skeleton = this.spiders[0].skeleton();
+		for (int j = 0; j < skeleton.size(); j++) {
+			final Displayable displayable = skeleton.component(j).displayable();
+			if (displayable instanceof Tessellable) {
+				// the whole crowd shares one mesh per part, so it is drawn at the finest
+				// level of detail
+				final GeometryCache.Key key = ((Tessellable) displayable).geometryKey(0);
+				Part part = shared.get(key);
+				if (part == null) {
+					part = new Part(gl, Tessellator.tessellate(key));
+					shared.put(key, part);
+				}
+				this.parts[j] = part;
+			}
+		}
+	}
+
+	/**
+	 * Sets whether to leave out the spiders which are outside the view frustum.
+	 *
+	 * @param culling Whether to leave out the spiders outside the view frustum.
+	 */
+	public void setCulling(final boolean culling) {
+		this.culling = culling;
+	}
+
+	/**
+	 * Copies the angles of the joints of the specified skeleton onto every spider
+	 * of the crowd, leaving the position of each spider unchanged.
+	 *
+	 * @param source The skeleton of a spider whose pose to copy.
+	 */
+	public void setPose(final Skeleton source) {
+		for (final Spider spider : this.spiders) {
+			System.arraycopy(source.angles(), 0, spider.skeleton().angles(), 0, source.angles().length);
+		}
+	}
+
+	/**
+	 * Gets the number of spiders in the crowd.
+	 *
+	 * @return The number of spiders in the crowd.
+	 */
+	public int size() {
+		return this.spiders.length;
+	}
+
+	/**
+	 * Gets the spider at the specified index in the crowd.
+	 *
+	 * @param index The index of the spider.
+	 * @return The spider at the specified index.
+	 */
+	public Spider spider(final int index) {
+		return this.spiders[index];
+	}
+
+	/**
+	 * Gets the number of spiders drawn by the last draw.
+	 *
+	 * @return The number of spiders drawn by the last draw.
+	 */
+	public int visibleCount() {
+		return this.visibleCount;
+	}
+
+	/**
+	 * Compiles a shader of the specified type from the specified source.
+	 *
+	 * @param gl     The OpenGL object with which to compile the shader.
+	 * @param type   The type of the shader.
+	 * @param source The source of the shader.
+	 * @return The handle to the compiled shader.
+	 * @throws GLException if the shader does not compile.
+	 */
+	private static int compile(final GL2 gl, final int type, final String source) {
+		final int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, 1, new String[] { source }, new int[] { source.length() }, 0);
+		gl.glCompileShader(shader);
+		final int[] status = new int[1];
+		gl.glGetShaderiv(shader, GL2ES2.GL_COMPILE_STATUS, status, 0);
+		if (status[0] == GL.GL_FALSE) {
+			final byte[] log = new byte[4096];
+			final int[] length = new int[1];
+			gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+			throw new GLException("crowd shader failed to compile: " + new String(log, 0, length[0]));
+		}
+		return shader;
+	}
+}
@@ -3,6 +3,7 @@
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -47,6 +48,16 @@ public class CyclicIterator<E> implements Iterator<E> {
 
 	private int current = 0;
 
+	/**
+	 * Gets the elements in the order in which they are iterated, starting from
+	 * the first element added.
+	 * 
+	 * @return An unmodifiable view of the elements.
+	 */
+	public List<E> elements() {
+		return Collections.unmodifiableList(this.elements);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
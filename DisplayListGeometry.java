@@ -0,0 +1,43 @@
+/**
+ * DisplayListGeometry.java - a mesh stored in an OpenGL call list
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * A mesh stored in an OpenGL call list.
+ */
+public class DisplayListGeometry implements Geometry {
+	/** The handle to the OpenGL call list which draws this mesh. */
+	private final int callListHandle;
+
+	/**
+	 * Instantiates this mesh with the specified compiled call list.
+	 *
+	 * @param callListHandle The handle to the OpenGL call list which draws this
+	 *                       mesh.
+	 */
+	public DisplayListGeometry(final int callListHandle) {
+		this.callListHandle = callListHandle;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void draw(final RenderCommands gl) {
+		gl.glCallList(this.callListHandle);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void dispose(final GL2 gl) {
+		gl.glDeleteLists(this.callListHandle, 1);
+	}
+}
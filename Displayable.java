@@ -13,24 +13,44 @@ import javax.media.opengl.GL2;
 public interface Displayable {
 
 	/**
-	 * Draws this object using the specified OpenGL object.
+	 * Gets a sphere which encloses everything this object draws, in the
+	 * coordinates in which it is drawn.
+	 * 
+	 * @return The bounding sphere of this object, or {@code null} if its extent
+	 *         is not known.
+	 */
+	BoundingSphere bounds();
+
+	/**
+	 * Draws this object with the specified render commands.
 	 * 
 	 * Implementing classes should require that this method be called after the
-	 * {@link #initialize(GL)} method.
+	 * {@link #initialize(GL2)} method.
 	 * 
-	 * @param gl The OpenGL object on which to draw this object.
+	 * @param gl The render commands with which to draw this object.
 	 */
-	void draw(final GL2 gl);
+	void draw(final RenderCommands gl);
 
 	/**
 	 * Performs initialization required by this object (for example defining a GL
 	 * call list).
 	 * 
 	 * Implementing classes should require that this method be called before the
-	 * {@link #draw(GL)} method.
+	 * {@link #draw(RenderCommands)} method.
 	 * 
 	 * @param gl The OpenGL object on which to draw this object.
 	 */
 	void initialize(final GL2 gl);
 
+	/**
+	 * Frees the OpenGL resources held by this object.
+	 * 
+	 * Implementing classes should require that this method be called after the
+	 * {@link #initialize(GL2)} method, and that {@link #draw(RenderCommands)} is not called
+	 * afterwards unless this object is initialized again.
+	 * 
+	 * @param gl The OpenGL object which owns the resources of this object.
+	 */
+	void dispose(final GL2 gl);
+
 }
\ No newline at end of file
@@ -3,38 +3,57 @@ import javax.media.opengl.GL2;
 
 import com.jogamp.opengl.util.gl2.GLUT;//for new version of gl
 
-public class Ellipsoid extends Circular implements Displayable {
+public class Ellipsoid extends Circular implements Displayable, Tessellable {
 	
-	private int callListHandle;
-	
-	public int get_handle() {
-		return this.callListHandle;
-	}
+	private final Geometry[] geometries = new Geometry[LevelOfDetail.LEVELS];
 	
 	public Ellipsoid(double radius, GLUT glut) {
 		super(radius, glut);
 	}
 
 	@Override
-	public void draw(GL2 gl) {
-		gl.glCallList(this.callListHandle);
+	public BoundingSphere bounds() {
+		return new BoundingSphere(0, 0, 0, this.radius());
+	}
+
+	@Override
+	public void draw(RenderCommands gl) {
+		this.geometries[this.levelOfDetail()].draw(gl);
 		
 	}
 
 	@Override
 	public void initialize(GL2 gl) {
-		this.callListHandle = gl.glGenLists(1);
-		
-		gl.glNewList(this.callListHandle, GL2.GL_COMPILE);
-		
-		gl.glPushMatrix();
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			final GeometryCache.Key key = this.geometryKey(level);
+			this.geometries[level] = GeometryCache.forContext(gl).acquire(gl, key, new GeometryCache.Builder() {
+				@Override
+				public Geometry build(final GL2 gl) {
+					final int callListHandle = gl.glGenLists(1);
+					
+					gl.glNewList(callListHandle, GL2.GL_COMPILE);
+					
+					Ellipsoid.this.glut().glutSolidSphere(Ellipsoid.this.radius(), key.slices(), key.stacks());
+					
+					gl.glEndList();
+					return new DisplayListGeometry(callListHandle);
+				}
+			});
+		}
+	}
 
-		
-		this.glut().glutSolidSphere(this.radius(), 36, 18);
-		
-		gl.glPopMatrix();
-		
-		gl.glEndList();
+	@Override
+	public GeometryCache.Key geometryKey(int level) {
+		return new GeometryCache.Key(GeometryCache.Primitive.SPHERE, this.radius(), 0, LevelOfDetail.slices(36, level),
+				LevelOfDetail.stacks(18, level));
+	}
+
+	@Override
+	public void dispose(GL2 gl) {
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			GeometryCache.forContext(gl).release(gl, this.geometries[level]);
+			this.geometries[level] = null;
+		}
 	}
 	
 }
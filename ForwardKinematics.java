@@ -0,0 +1,325 @@
+/**
+ * ForwardKinematics.java - local and world transforms of each joint of a skeleton
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * Computes and caches a local and a world transformation matrix for every
+ * component of a {@link Skeleton}.
+ *
+ * The local matrix of a component is the translation to its position followed
+ * by its rotations around the x, y, and z axes, exactly as applied by
+ * {@link Component#update(RenderCommands)}. The world matrix is the product of the local
+ * matrices from the root of the skeleton down to the component. All matrices
+ * are stored in column major order, as OpenGL expects them.
+ *
+ * A local matrix is only recomputed when the angles or position of its
+ * component change, and only the sines and cosines of the changed angles are
+ * recomputed. A world matrix is only recomputed when its local matrix or the
+ * world matrix of its parent changed.
+ */
+public class ForwardKinematics {
+	/** The number of entries per component in the matrix arrays. */
+	public static final int MATRIX_STRIDE = 16;
+
+	/**
+	 * Multiplies two affine transformation matrices in column major order,
+	 * {@code dst = a * b}. The destination must not overlap either operand.
+	 *
+	 * @param a  The array containing the left operand.
+	 * @param ao The offset of the left operand.
+	 * @param b  The array containing the right operand.
+	 * @param bo The offset of the right operand.
+	 * @param d  The array to which to write the product.
+	 * @param d0 The offset at which to write the product.
+	 */
+	static void multiplyAffine(final double[] a, final int ao, final double[] b, final int bo, final double[] d,
+			final int d0) {
+		for (int column = 0; column < 4; column++) {
+			final int bc = bo + 4 * column;
+			final double b0 = b[bc], b1 = b[bc + 1], b2 = b[bc + 2];
+			final double b3 = column == 3 ? 1 : 0;
+			final int dc = d0 + 4 * column;
+			d[dc] = a[ao] * b0 + a[ao + 4] * b1 + a[ao + 8] * b2 + a[ao + 12] * b3;
+			d[dc + 1] = a[ao + 1] * b0 + a[ao + 5] * b1 + a[ao + 9] * b2 + a[ao + 13] * b3;
+			d[dc + 2] = a[ao + 2] * b0 + a[ao + 6] * b1 + a[ao + 10] * b2 + a[ao + 14] * b3;
+			d[dc + 3] = b3;
+		}
+	}
+
+	/** The matrix on the OpenGL modelview stack when drawing started. */
+	private final double[] base = new double[MATRIX_STRIDE];
+	/** The bounding spheres of the subtrees of the skeleton. */
+	private final BoundingVolumes bounds;
+	/** The angles from which the local matrices were last computed. */
+	private final double[] cachedAngles;
+	/** The positions from which the local matrices were last computed. */
+	private final double[] cachedPositions;
+	/** The cosines of the cached angles. */
+	private final double[] cosines;
+	/** The number of components skipped by the last draw. */
+	private int culled = 0;
+	/** Whether to skip the subtrees which are outside the view frustum. */
+	private boolean culling = true;
+	/** The view frustum against which subtrees are culled. */
+	private final Frustum frustum = new Frustum();
+	/** The local matrix of each component. */
+	private final double[] locals;
+	/** The product of the base matrix and a world matrix, for loading into GL. */
+	private final double[] modelview = new double[MATRIX_STRIDE];
+	/** The sines of the cached angles. */
+	private final double[] sines;
+	/** The skeleton whose transforms are computed. */
+	private final Skeleton skeleton;
+	/** Whether the world matrix of each component changed in the last update. */
+	private final boolean[] worldChanged;
+	/** The world matrix of each component. */
+	private final double[] worlds;
+	/** The number of updates which changed at least one world matrix. */
+	private long version = 0;
+	/** Whether the cached matrices have never been computed. */
+	private boolean stale = true;
+
+	/**
+	 * Instantiates this object for the specified skeleton.
+	 *
+	 * @param skeleton The skeleton whose transforms are computed.
+	 */
+	public ForwardKinematics(final Skeleton skeleton) {
+		final int size = skeleton.size();
+		this.skeleton = skeleton;
+		this.locals = new double[size * MATRIX_STRIDE];
+		this.worlds = new double[size * MATRIX_STRIDE];
+		this.worldChanged = new boolean[size];
+		this.cachedAngles = new double[size * Skeleton.ANGLE_STRIDE];
+		this.cachedPositions = new double[size * Skeleton.POSITION_STRIDE];
+		this.sines = new double[size * Skeleton.ANGLE_STRIDE];
+		this.cosines = new double[size * Skeleton.ANGLE_STRIDE];
+		this.bounds = new BoundingVolumes(this);
+	}
+
+	/**
+	 * Gets the bounding spheres of the subtrees of the skeleton, which are
+	 * brought up to date by {@link #draw(RenderCommands)}.
+	 *
+	 * @return The bounding spheres of the subtrees of the skeleton.
+	 */
+	public BoundingVolumes bounds() {
+		return this.bounds;
+	}
+
+	/**
+	 * Gets the number of components which the last draw skipped because their
+	 * subtree was outside the view frustum.
+	 *
+	 * @return The number of components skipped by the last draw.
+	 */
+	public int culledCount() {
+		return this.culled;
+	}
+
+	/**
+	 * Updates the transforms, then draws the displayable of each component by
+	 * loading its transform directly onto the modelview matrix.
+	 *
+	 * The current modelview matrix is used as the transform of the parent of the
+	 * skeleton, and is restored afterwards. Unless culling is disabled, whole
+	 * subtrees whose bounding sphere is outside the view frustum are skipped.
+	 *
+	 * @param gl The render commands with which to perform the drawing.
+	 */
+	public void draw(final RenderCommands gl) {
+		this.update();
+		gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, this.base, 0);
+		final double[] spheres = this.bounds.spheres();
+		if (this.culling) {
+			this.bounds.update();
+			this.frustum.extract(gl);
+		}
+		this.culled = 0;
+		int i = 0;
+		while (i < this.skeleton.size()) {
+			final int s = i * BoundingVolumes.SPHERE_STRIDE;
+			if (this.culling && (spheres[s + BoundingVolumes.RADIUS] < 0
+					|| !this.frustum.intersects(spheres[s + Skeleton.X], spheres[s + Skeleton.Y],
+							spheres[s + Skeleton.Z], spheres[s + BoundingVolumes.RADIUS]))) {
+				// nothing in this subtree can be visible
+				this.culled += this.skeleton.subtreeEnd(i) - i;
+				i = this.skeleton.subtreeEnd(i);
+				continue;
+			}
+
+			final Component component = this.skeleton.component(i);
+			final Displayable displayable = component.displayable();
+			if (displayable != null) {
+				multiplyAffine(this.base, 0, this.worlds, i * MATRIX_STRIDE, this.modelview, 0);
+				gl.glLoadMatrixd(this.modelview, 0);
+
+				final FloatColor color = component.color();
+				gl.glPushAttrib(GL2.GL_CURRENT_BIT);
+				gl.glColor3f(color.red(), color.green(), color.blue());
+				displayable.draw(gl);
+				gl.glPopAttrib();
+			}
+			i++;
+		}
+		gl.glLoadMatrixd(this.base, 0);
+	}
+
+	/**
+	 * Gets the array of local matrices, with {@link #MATRIX_STRIDE} entries per
+	 * component in the order of the skeleton.
+	 *
+	 * @return The array of local matrices.
+	 */
+	public double[] locals() {
+		return this.locals;
+	}
+
+	/**
+	 * Sets whether to skip the subtrees which are outside the view frustum.
+	 *
+	 * @param culling Whether to skip the subtrees outside the view frustum.
+	 */
+	public void setCulling(final boolean culling) {
+		this.culling = culling;
+	}
+
+	/**
+	 * Gets the skeleton whose transforms are computed.
+	 *
+	 * @return The skeleton whose transforms are computed.
+	 */
+	public Skeleton skeleton() {
+		return this.skeleton;
+	}
+
+	/**
+	 * Transforms the specified point in the frame of the specified component into
+	 * the frame of the root of the skeleton, using the last computed transforms.
+	 *
+	 * @param index The index of the component.
+	 * @param x     The x component of the point.
+	 * @param y     The y component of the point.
+	 * @param z     The z component of the point.
+	 * @param dst   The array to which to write the x, y, and z components of the
+	 *              transformed point.
+	 */
+	public void transformPoint(final int index, final double x, final double y, final double z,
+			final double[] dst) {
+		final int m = index * MATRIX_STRIDE;
+		dst[0] = this.worlds[m] * x + this.worlds[m + 4] * y + this.worlds[m + 8] * z + this.worlds[m + 12];
+		dst[1] = this.worlds[m + 1] * x + this.worlds[m + 5] * y + this.worlds[m + 9] * z + this.worlds[m + 13];
+		dst[2] = this.worlds[m + 2] * x + this.worlds[m + 6] * y + this.worlds[m + 10] * z + this.worlds[m + 14];
+	}
+
+	/**
+	 * Recomputes the local matrices of the components whose angles or position
+	 * changed since the last update, and the world matrices which depend on them.
+	 *
+	 * @return Whether any world matrix changed.
+	 */
+	public boolean update() {
+		final double[] angles = this.skeleton.angles();
+		final double[] positions = this.skeleton.positions();
+		boolean anyChanged = false;
+		for (int i = 0; i < this.skeleton.size(); i++) {
+			boolean localChanged = this.stale;
+			final int a = i * Skeleton.ANGLE_STRIDE;
+			for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+				if (this.stale || angles[a + axis] != this.cachedAngles[a + axis]) {
+					final double radians = Math.toRadians(angles[a + axis]);
+					this.cachedAngles[a + axis] = angles[a + axis];
+					this.sines[a + axis] = Math.sin(radians);
+					this.cosines[a + axis] = Math.cos(radians);
+					localChanged = true;
+				}
+			}
+			final int p = i * Skeleton.POSITION_STRIDE;
+			for (int axis = 0; axis < Skeleton.POSITION_STRIDE; axis++) {
+				if (positions[p + axis] != this.cachedPositions[p + axis]) {
+					this.cachedPositions[p + axis] = positions[p + axis];
+					localChanged = true;
+				}
+			}
+			if (localChanged) {
+				this.computeLocal(i);
+			}
+
+			final int parent = this.skeleton.parent(i);
+			this.worldChanged[i] = localChanged || (parent >= 0 && this.worldChanged[parent]);
+			if (this.worldChanged[i]) {
+				if (parent < 0) {
+					System.arraycopy(this.locals, i * MATRIX_STRIDE, this.worlds, i * MATRIX_STRIDE, MATRIX_STRIDE);
+				} else {
+					multiplyAffine(this.worlds, parent * MATRIX_STRIDE, this.locals, i * MATRIX_STRIDE, this.worlds,
+							i * MATRIX_STRIDE);
+				}
+				anyChanged = true;
+			}
+		}
+		this.stale = false;
+		if (anyChanged) {
+			this.version++;
+		}
+		return anyChanged;
+	}
+
+	/**
+	 * Gets the number of updates which changed at least one world matrix, so that
+	 * users of the world matrices can tell whether their derived data is stale.
+	 *
+	 * @return The number of updates which changed at least one world matrix.
+	 */
+	public long version() {
+		return this.version;
+	}
+
+	/**
+	 * Gets the array of world matrices, with {@link #MATRIX_STRIDE} entries per
+	 * component in the order of the skeleton.
+	 *
+	 * @return The array of world matrices.
+	 */
+	public double[] worlds() {
+		return this.worlds;
+	}
+
+	/**
+	 * Computes the local matrix of the specified component from its cached
+	 * position, sines, and cosines, as the product of the translation and the
+	 * rotations around the x, y, and z axes in that order.
+	 *
+	 * @param index The index of the component.
+	 */
+	private void computeLocal(final int index) {
+		final int a = index * Skeleton.ANGLE_STRIDE;
+		final double sx = this.sines[a + Skeleton.X], cx = this.cosines[a + Skeleton.X];
+		final double sy = this.sines[a + Skeleton.Y], cy = this.cosines[a + Skeleton.Y];
+		final double sz = this.sines[a + Skeleton.Z], cz = this.cosines[a + Skeleton.Z];
+		final double[] m = this.locals;
+		final int o = index * MATRIX_STRIDE;
+
+		m[o] = cy * cz;
+		m[o + 1] = cx * sz + sx * sy * cz;
+		m[o + 2] = sx * sz - cx * sy * cz;
+		m[o + 3] = 0;
+
+		m[o + 4] = -cy * sz;
+		m[o + 5] = cx * cz - sx * sy * sz;
+		m[o + 6] = sx * cz + cx * sy * sz;
+		m[o + 7] = 0;
+
+		m[o + 8] = sy;
+		m[o + 9] = -sx * cy;
+		m[o + 10] = cx * cy;
+		m[o + 11] = 0;
+
+		final int p = index * Skeleton.POSITION_STRIDE;
+		m[o + 12] = this.cachedPositions[p + Skeleton.X];
+		m[o + 13] = this.cachedPositions[p + Skeleton.Y];
+		m[o + 14] = this.cachedPositions[p + Skeleton.Z];
+		m[o + 15] = 1;
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * FramePacer.java - decides when the canvas is redrawn
+ */
+
+import java.awt.EventQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.media.opengl.GLAutoDrawable;
+
+import com.jogamp.opengl.util.FPSAnimator;//for new version of gl
+
+/**
+ * Decides when a drawable is redrawn.
+ *
+ * In continuous mode the drawable is redrawn {@link #FRAME_RATE} times a second
+ * by an animator, as before. In on-demand mode the animator stays paused, and
+ * the drawable is only redrawn when {@link #requestRender()} is called after
+ * something visible changed; any number of requests made before the redraw
+ * happens are served by a single frame. While at least one animation is
+ * playing, an on-demand pacer runs continuously.
+ *
+ * The pacer counts the frames rendered and the frames skipped, where a skipped
+ * frame is one which a continuous pacer would have rendered but this one did
+ * not.
+ */
+public class FramePacer {
+	/** The number of frames per second rendered in continuous mode. */
+	public static final int FRAME_RATE = 60;
+
+	/** The number of animations which are playing. */
+	private final AtomicInteger animations = new AtomicInteger();
+	/** The animator which redraws the drawable in continuous mode. */
+	private final FPSAnimator animator;
+	/** Whether the drawable is always redrawn continuously. */
+	private final boolean continuous;
+	/** The drawable to redraw. */
+	private final GLAutoDrawable drawable;
+	/** Whether a redraw has been requested and has not happened yet. */
+	private final AtomicBoolean pending = new AtomicBoolean();
+	/** The number of frames rendered since the pacer started. */
+	private final AtomicLong rendered = new AtomicLong();
+	/** The time at which the pacer started, in nanoseconds. */
+	private volatile long startTime;
+
+	/** Redraws the drawable, serving every request made until now. */
+	private final Runnable display = new Runnable() {
+		@Override
+		public void run() {
+			FramePacer.this.pending.set(false);
+			if (!FramePacer.this.animator.isAnimating()) {
+				FramePacer.this.drawable.display();
+			}
+		}
+	};
+	/** Pauses or resumes the animator to match the number of animations. */
+	private final Runnable reconcile = new Runnable() {
+		@Override
+		public void run() {
+			FramePacer.this.reconcile();
+		}
+	};
+
+	/**
+	 * Instantiates a pacer for the specified drawable.
+	 *
+	 * @param drawable   The drawable to redraw.
+	 * @param continuous Whether to redraw the drawable continuously instead of on
+	 *                   demand.
+	 */
+	public FramePacer(final GLAutoDrawable drawable, final boolean continuous) {
+		this.drawable = drawable;
+		this.continuous = continuous;
+		this.animator = new FPSAnimator(drawable, FRAME_RATE);
+	}
+
+	/**
+	 * Gets the animator which redraws the drawable in continuous mode.
+	 *
+	 * @return The animator which redraws the drawable in continuous mode.
+	 */
+	public FPSAnimator animator() {
+		return this.animator;
+	}
+
+	/**
+	 * Records that an animation started playing, so that the drawable is redrawn
+	 * continuously until it stops. Each call must be matched by a call to
+	 * {@link #endAnimation()}.
+	 */
+	public void beginAnimation() {
+		if (this.animations.getAndIncrement() == 0 && !this.continuous) {
+			// the animator may not be paused or resumed from its own thread
+			new Thread(this.reconcile).start();
+		}
+	}
+
+	/**
+	 * Records that an animation stopped playing.
+	 */
+	public void endAnimation() {
+		if (this.animations.decrementAndGet() == 0 && !this.continuous) {
+			new Thread(this.reconcile).start();
+		}
+	}
+
+	/**
+	 * Records that a frame was rendered. This must be called at the start of
+	 * every redraw of the drawable.
+	 */
+	public void frameRendered() {
+		this.rendered.incrementAndGet();
+	}
+
+	/**
+	 * Gets whether the drawable is redrawn continuously, either because the pacer
+	 * is in continuous mode or because an animation is playing.
+	 *
+	 * @return Whether the drawable is redrawn continuously.
+	 */
+	public boolean isContinuous() {
+		return this.animator.isAnimating();
+	}
+
+	/**
+	 * Gets the number of frames rendered since the pacer started.
+	 *
+	 * @return The number of frames rendered since the pacer started.
+	 */
+	public long renderedCount() {
+		return this.rendered.get();
+	}
+
+	/**
+	 * Requests that the drawable be redrawn because something visible changed.
+	 * Does nothing if it is redrawn continuously anyway.
+	 */
+	public void requestRender() {
+		if (!this.animator.isAnimating() && this.pending.compareAndSet(false, true)) {
+			EventQueue.invokeLater(this.display);
+		}
+	}
+
+	/**
+	 * Gets the number of frames which a continuous pacer would have rendered
+	 * since this pacer started, but this one did not.
+	 *
+	 * @return The number of frames skipped since the pacer started.
+	 */
+	public long skippedCount() {
+		final long due = (System.nanoTime() - this.startTime) * FRAME_RATE / 1000000000L;
+		return Math.max(0, due - this.rendered.get());
+	}
+
+	/**
+	 * Starts the pacer, and draws the first frame.
+	 */
+	public void start() {
+		this.startTime = System.nanoTime();
+		this.animator.start();
+		if (!this.continuous) {
+			this.reconcile();
+			this.requestRender();
+		}
+	}
+
+	/**
+	 * Stops the pacer. No frames are drawn afterwards except on request.
+	 */
+	public void stop() {
+		this.animator.stop();
+	}
+
+	/**
+	 * Pauses the animator if no animation is playing, and resumes it otherwise.
+	 */
+	private synchronized void reconcile() {
+		if (this.animations.get() > 0) {
+			if (this.animator.isPaused()) {
+				this.animator.resume();
+			}
+		} else if (!this.animator.isPaused()) {
+			this.animator.pause();
+		}
+	}
+}
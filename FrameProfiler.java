@@ -0,0 +1,253 @@
+/**
+ * FrameProfiler.java - times the phases of each frame
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import javax.media.opengl.GL2;
+
+import com.jogamp.opengl.util.gl2.GLUT;
+
+/**
+ * Times the input, update, draw, and swap phases of each frame, and the frame
+ * as a whole, with {@link System#nanoTime()}, and counts the durations in a
+ * {@link LatencyHistogram} per phase.
+ *
+ * The drawing thread calls {@link #phase(Phase)} as each phase begins, which
+ * ends the previous one, and {@link #endFrame()} when the frame is done.
+ * Timing a frame only reads the clock and increments counts, so it neither
+ * allocates nor measurably slows the frame. Once per {@link #REPORT_INTERVAL}
+ * the median, 99th percentile, and maximum of each phase over the interval are
+ * turned into the lines of an optional overlay, which
+ * {@link #drawOverlay(GL2, int)} draws over the scene, and appended to an
+ * optional CSV file; then the histograms start over. If the file cannot be
+ * written, the failure is reported once and no more rows are written.
+ */
+public class FrameProfiler implements AutoCloseable {
+
+	/**
+	 * The timed phases of a frame.
+	 */
+	public enum Phase {
+		/** Applying the input and the pose of the edited spider to the drawn one. */
+		INPUT,
+		/** Bringing the transforms, levels of detail, and call lists up to date. */
+		UPDATE,
+		/** Issuing the drawing commands. */
+		DRAW,
+		/** Swapping the front and back buffers. */
+		SWAP;
+	}
+
+	/** The time between two reports, in nanoseconds. */
+	public static final long REPORT_INTERVAL = 1000000000L;
+
+	/** The horizontal position of the overlay, in pixels from the left. */
+	private static final int OVERLAY_LEFT = 10;
+	/** The distance between two lines of the overlay, in pixels. */
+	private static final int OVERLAY_LINE_HEIGHT = 16;
+	/** The phases, in order. */
+	private static final Phase[] PHASES = Phase.values();
+	/** The index of the histogram of whole frames, after those of the phases. */
+	private static final int FRAME = PHASES.length;
+
+	/**
+	 * The file to which each report is appended, or {@code null} if there is
+	 * none or it could not be written.
+	 */
+	private Writer csv;
+	/** The phase which is being timed, or {@code null} if none is. */
+	private Phase current = null;
+	/** The time at which the current frame started, in nanoseconds. */
+	private long frameStart;
+	/** The OpenGL utility toolkit object with which the overlay is drawn. */
+	private final GLUT glut = new GLUT();
+	/** The durations of each phase, then of whole frames, in nanoseconds. */
+	private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length + 1];
+	/** Whether a frame has started and has not yet ended. */
+	private boolean inFrame = false;
+	/** The time at which the current interval started, in nanoseconds. */
+	private long intervalStart;
+	/** The lines of the overlay, from the last report. */
+	private final String[] lines = new String[PHASES.length + 1];
+	/** Whether to draw the overlay. */
+	private final boolean overlay;
+	/** The time at which the current phase started, in nanoseconds. */
+	private long phaseStart;
+	/** The time at which profiling started, in nanoseconds. */
+	private final long startTime;
+
+	/**
+	 * Instantiates a profiler which reports to an overlay or a CSV file, or both.
+	 *
+	 * @param overlay Whether to draw the overlay.
+	 * @param csv     The CSV file to which to append, which is created with a
+	 *                header if it does not exist or is empty, or {@code null}
+	 *                for none.
+	 * @throws IOException if the CSV file cannot be created.
+	 */
+	public FrameProfiler(final boolean overlay, final Path csv) throws IOException {
+		this.overlay = overlay;
+		for (int i = 0; i < this.histograms.length; i++) {
+			this.histograms[i] = new LatencyHistogram();
+			this.lines[i] = name(i) + " -";
+		}
+		if (csv != null) {
+			this.csv = Files.newBufferedWriter(csv, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+			if (Files.size(csv) == 0) {
+				this.csv.write("time_s,phase,count,mean_us,p50_us,p99_us,max_us\n");
+			}
+		} else {
+			this.csv = null;
+		}
+		this.startTime = System.nanoTime();
+		this.intervalStart = this.startTime;
+	}
+
+	/**
+	 * Gets the name of the phase, or of whole frames, with the specified index.
+	 *
+	 * @param index The index of the histogram.
+	 * @return The name in lower case.
+	 */
+	private static String name(final int index) {
+		return index == FRAME ? "frame" : PHASES[index].name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Writes the reports still buffered and closes the CSV file, if any.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.csv != null) {
+			this.csv.close();
+		}
+	}
+
+	/**
+	 * Draws the lines of the last report over the top left corner of the scene,
+	 * if the overlay is enabled. Call this after the draw phase, outside any
+	 * phase, so that it is not timed itself.
+	 *
+	 * @param gl     The OpenGL object with which to draw.
+	 * @param height The height of the drawable, in pixels.
+	 */
+	public void drawOverlay(final GL2 gl, final int height) {
+		if (!this.overlay) {
+			return;
+		}
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_CURRENT_BIT);
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glDisable(GL2.GL_DEPTH_TEST);
+		gl.glColor3f(1, 1, 1);
+		for (int i = 0; i < this.lines.length; i++) {
+			gl.glWindowPos2i(OVERLAY_LEFT, height - (i + 1) * OVERLAY_LINE_HEIGHT);
+			this.glut.glutBitmapString(GLUT.BITMAP_HELVETICA_12, this.lines[i]);
+		}
+		gl.glPopAttrib();
+	}
+
+	/**
+	 * Ends the current phase and the frame, and reports if the interval is over.
+	 */
+	public synchronized void endFrame() {
+		this.stop();
+		if (!this.inFrame) {
+			return;
+		}
+		this.inFrame = false;
+		final long now = System.nanoTime();
+		this.histograms[FRAME].record(now - this.frameStart);
+		if (now - this.intervalStart >= REPORT_INTERVAL) {
+			this.report(now);
+		}
+	}
+
+	/**
+	 * Ends the current phase, if any, and starts timing the specified phase. The
+	 * first phase of a frame also starts the frame.
+	 *
+	 * @param phase The phase which begins.
+	 */
+	public synchronized void phase(final Phase phase) {
+		final long now = System.nanoTime();
+		if (this.current != null) {
+			this.histograms[this.current.ordinal()].record(now - this.phaseStart);
+		}
+		if (!this.inFrame) {
+			this.inFrame = true;
+			this.frameStart = now;
+		}
+		this.current = phase;
+		this.phaseStart = now;
+	}
+
+	/**
+	 * Ends the current phase, if any, without starting another one.
+	 */
+	public synchronized void stop() {
+		if (this.current != null) {
+			this.histograms[this.current.ordinal()].record(System.nanoTime() - this.phaseStart);
+			this.current = null;
+		}
+	}
+
+	/**
+	 * Turns the histograms of the interval which ends into the lines of the
+	 * overlay and the rows of the CSV file, and starts a new interval.
+	 *
+	 * @param now The current time, in nanoseconds.
+	 */
+	private void report(final long now) {
+		final double time = (now - this.startTime) / 1e9;
+		for (int i = 0; i < this.histograms.length; i++) {
+			final LatencyHistogram histogram = this.histograms[i];
+			final double p50 = histogram.percentile(50) / 1e3;
+			final double p99 = histogram.percentile(99) / 1e3;
+			final double max = histogram.max() / 1e3;
+			this.lines[i] = String.format(Locale.ROOT, "%-6s p50 %8.1f us  p99 %8.1f us  max %8.1f us", name(i), p50,
+					p99, max);
+			if (this.csv != null) {
+				try {
+					this.csv.write(String.format(Locale.ROOT, "%.3f,%s,%d,%.1f,%.1f,%.1f,%.1f%n", time, name(i),
+							histogram.count(), histogram.mean() / 1e3, p50, p99, max));
+				} catch (final IOException exception) {
+					this.failed(exception);
+				}
+			}
+			histogram.reset();
+		}
+		if (this.csv != null) {
+			try {
+				this.csv.flush();
+			} catch (final IOException exception) {
+				this.failed(exception);
+			}
+		}
+		this.intervalStart = now;
+	}
+
+	/**
+	 * Reports that the CSV file could not be written, and stops writing it.
+	 *
+	 * @param exception The reason the file could not be written.
+	 */
+	private void failed(final IOException exception) {
+		System.err.println("cannot write the frame times, stopping: " + exception);
+		try {
+			this.csv.close();
+		} catch (final IOException ignored) {
+			// the file is given up on either way
+		}
+		this.csv = null;
+	}
+}
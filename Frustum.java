@@ -0,0 +1,110 @@
+/**
+ * Frustum.java - the visible volume of a perspective view
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * The six clipping planes of the visible volume, in the coordinates of the
+ * modelview matrix from which they were extracted.
+ *
+ * The planes are the sums and differences of the rows of the product of the
+ * projection and modelview matrices, so they reflect the
+ * {@code gluPerspective} and {@code gluLookAt} setup loaded on the projection
+ * stack as well as whatever is on the modelview stack.
+ */
+public class Frustum {
+	/** The number of planes of the frustum. */
+	private static final int PLANES = 6;
+
+	/** The product of the projection and modelview matrices. */
+	private final double[] clip = new double[ForwardKinematics.MATRIX_STRIDE];
+	/** The modelview matrix from which the planes were last extracted. */
+	private final double[] modelview = new double[ForwardKinematics.MATRIX_STRIDE];
+	/**
+	 * The a, b, c, and d coefficients of each plane, normalized so that a point
+	 * inside the frustum has a positive distance from every plane.
+	 */
+	private final double[] planes = new double[PLANES * 4];
+	/** The projection matrix from which the planes were last extracted. */
+	private final double[] projection = new double[ForwardKinematics.MATRIX_STRIDE];
+
+	/**
+	 * Extracts the planes of the frustum from the current projection and
+	 * modelview matrices of the specified OpenGL object.
+	 *
+	 * @param gl The OpenGL object from which to read the matrices.
+	 */
+	public void extract(final GL2 gl) {
+		gl.glGetDoublev(GL2.GL_PROJECTION_MATRIX, this.projection, 0);
+		gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, this.modelview, 0);
+		this.extract(this.projection, this.modelview);
+	}
+
+	/**
+	 * Extracts the planes of the frustum from the current projection and
+	 * modelview matrices read through the specified render commands.
+	 *
+	 * @param gl The render commands with which to read the matrices.
+	 */
+	public void extract(final RenderCommands gl) {
+		gl.glGetDoublev(GL2.GL_PROJECTION_MATRIX, this.projection, 0);
+		gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, this.modelview, 0);
+		this.extract(this.projection, this.modelview);
+	}
+
+	/**
+	 * Extracts the planes of the frustum from the specified matrices, given in
+	 * column major order.
+	 *
+	 * @param projection The projection matrix.
+	 * @param modelview  The modelview matrix.
+	 */
+	public void extract(final double[] projection, final double[] modelview) {
+		final double[] m = this.clip;
+		for (int column = 0; column < 4; column++) {
+			for (int row = 0; row < 4; row++) {
+				m[4 * column + row] = projection[row] * modelview[4 * column]
+						+ projection[4 + row] * modelview[4 * column + 1]
+						+ projection[8 + row] * modelview[4 * column + 2]
+						+ projection[12 + row] * modelview[4 * column + 3];
+			}
+		}
+		// left, right, bottom, top, near, and far: the w row plus or minus the x,
+		// y, and z rows
+		for (int plane = 0; plane < PLANES; plane++) {
+			final int row = plane / 2;
+			final double sign = plane % 2 == 0 ? 1 : -1;
+			final double a = m[3] + sign * m[row];
+			final double b = m[7] + sign * m[4 + row];
+			final double c = m[11] + sign * m[8 + row];
+			final double d = m[15] + sign * m[12 + row];
+			final double length = Math.sqrt(a * a + b * b + c * c);
+			this.planes[4 * plane] = a / length;
+			this.planes[4 * plane + 1] = b / length;
+			this.planes[4 * plane + 2] = c / length;
+			this.planes[4 * plane + 3] = d / length;
+		}
+	}
+
+	/**
+	 * Gets whether the specified sphere is at least partly inside the frustum.
+	 * Spheres which are outside but near a corner of the frustum may also be
+	 * reported as inside.
+	 *
+	 * @param x      The x component of the center of the sphere.
+	 * @param y      The y component of the center of the sphere.
+	 * @param z      The z component of the center of the sphere.
+	 * @param radius The radius of the sphere.
+	 * @return Whether the sphere may be visible.
+	 */
+	public boolean intersects(final double x, final double y, final double z, final double radius) {
+		for (int plane = 0; plane < PLANES; plane++) {
+			final int p = 4 * plane;
+			if (this.planes[p] * x + this.planes[p + 1] * y + this.planes[p + 2] * z + this.planes[p + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
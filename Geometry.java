@@ -0,0 +1,28 @@
+/**
+ * Geometry.java - a mesh which lives in the memory of the graphics card
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * A mesh which lives in the memory of the graphics card, and which may be
+ * shared by any number of {@link Displayable} objects through a
+ * {@link GeometryCache}.
+ */
+public interface Geometry {
+
+	/**
+	 * Draws this mesh in the current modelview frame.
+	 *
+	 * @param gl The render commands with which to draw this mesh.
+	 */
+	void draw(final RenderCommands gl);
+
+	/**
+	 * Frees the OpenGL resources held by this mesh.
+	 *
+	 * @param gl The OpenGL object which owns the resources of this mesh.
+	 */
+	void dispose(final GL2 gl);
+
+}
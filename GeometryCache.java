@@ -0,0 +1,285 @@
+/**
+ * GeometryCache.java - shares identical meshes between displayable objects
+ */
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.media.opengl.GL2;
+import javax.media.opengl.GLContext;
+
+/**
+ * A reference counted cache of the meshes of an OpenGL context, keyed by the
+ * primitive type and the parameters from which the mesh was tessellated.
+ *
+ * Displayable objects which would tessellate identical meshes, such as the
+ * segments of the legs of a spider, acquire a single shared mesh from the cache
+ * instead. The mesh is freed when the last of them releases it.
+ *
+ * The {@link RenderBackend} of the cache decides how new meshes are built: with
+ * the builder of the displayable object, or by tessellating the primitive into
+ * vertex buffers.
+ */
+public class GeometryCache {
+
+	/**
+	 * Builds the mesh for a key which is not yet in the cache.
+	 */
+	public interface Builder {
+		/**
+		 * Tessellates and uploads a new mesh.
+		 *
+		 * @param gl The OpenGL object with which to create the mesh.
+		 * @return The new mesh.
+		 */
+		Geometry build(final GL2 gl);
+	}
+
+	/**
+	 * The kinds of primitive meshes which can be cached.
+	 */
+	public enum Primitive {
+		/** A cylinder with a hemisphere on top, as drawn by {@link RoundedCylinder}. */
+		ROUNDED_CYLINDER,
+		/** A sphere centered at the origin, as drawn by {@link Ellipsoid}. */
+		SPHERE,
+		/** A sphere scaled into an ellipsoid, as drawn by {@link Palm}. */
+		PALM;
+	}
+
+	/**
+	 * The parameters from which a mesh is tessellated.
+	 */
+	public static class Key {
+		/** The height of the primitive, or 0 if it has none. */
+		private final double height;
+		/** The kind of primitive. */
+		private final Primitive primitive;
+		/** The radius of the primitive. */
+		private final double radius;
+		/** The number of slices around the axis of the primitive. */
+		private final int slices;
+		/** The number of stacks along the axis of the primitive. */
+		private final int stacks;
+
+		/**
+		 * Instantiates this key with the specified parameters.
+		 *
+		 * @param primitive The kind of primitive.
+		 * @param radius    The radius of the primitive.
+		 * @param height    The height of the primitive, or 0 if it has none.
+		 * @param slices    The number of slices around the axis of the primitive.
+		 * @param stacks    The number of stacks along the axis of the primitive.
+		 */
+		public Key(final Primitive primitive, final double radius, final double height, final int slices,
+				final int stacks) {
+			this.primitive = primitive;
+			this.radius = radius;
+			this.height = height;
+			this.slices = slices;
+			this.stacks = stacks;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @param object {@inheritDoc}
+		 * @return {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final Key that = (Key) object;
+			return this.primitive == that.primitive && Double.compare(this.radius, that.radius) == 0
+					&& Double.compare(this.height, that.height) == 0 && this.slices == that.slices
+					&& this.stacks == that.stacks;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @return {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			int hash = this.primitive.hashCode();
+			hash = 31 * hash + Double.valueOf(this.radius).hashCode();
+			hash = 31 * hash + Double.valueOf(this.height).hashCode();
+			hash = 31 * hash + this.slices;
+			return 31 * hash + this.stacks;
+		}
+
+		/**
+		 * Gets the height of the primitive.
+		 *
+		 * @return The height of the primitive, or 0 if it has none.
+		 */
+		public double height() {
+			return this.height;
+		}
+
+		/**
+		 * Gets the kind of primitive.
+		 *
+		 * @return The kind of primitive.
+		 */
+		public Primitive primitive() {
+			return this.primitive;
+		}
+
+		/**
+		 * Gets the radius of the primitive.
+		 *
+		 * @return The radius of the primitive.
+		 */
+		public double radius() {
+			return this.radius;
+		}
+
+		/**
+		 * Gets the number of slices around the axis of the primitive.
+		 *
+		 * @return The number of slices around the axis of the primitive.
+		 */
+		public int slices() {
+			return this.slices;
+		}
+
+		/**
+		 * Gets the number of stacks along the axis of the primitive.
+		 *
+		 * @return The number of stacks along the axis of the primitive.
+		 */
+		public int stacks() {
+			return this.stacks;
+		}
+	}
+
+	/**
+	 * A cached mesh and the number of objects which use it.
+	 */
+	private static class Entry {
+		/** The cached mesh. */
+		private final Geometry geometry;
+		/** The key of the cached mesh. */
+		private final Key key;
+		/** The number of objects which have acquired and not yet released the mesh. */
+		private int references = 0;
+
+		/**
+		 * Instantiates this entry with the specified key and mesh.
+		 *
+		 * @param key      The key of the cached mesh.
+		 * @param geometry The cached mesh.
+		 */
+		private Entry(final Key key, final Geometry geometry) {
+			this.key = key;
+			this.geometry = geometry;
+		}
+	}
+
+	/** The cache of each OpenGL context, which is dropped with the context. */
+	private static final Map<GLContext, GeometryCache> CACHES = new WeakHashMap<GLContext, GeometryCache>();
+
+	/**
+	 * Gets the cache of the OpenGL context of the specified OpenGL object,
+	 * creating it if necessary.
+	 *
+	 * @param gl The OpenGL object whose context owns the cache.
+	 * @return The cache of the context of the specified OpenGL object.
+	 */
+	public static synchronized GeometryCache forContext(final GL2 gl) {
+		GeometryCache cache = CACHES.get(gl.getContext());
+		if (cache == null) {
+			cache = new GeometryCache();
+			CACHES.put(gl.getContext(), cache);
+		}
+		return cache;
+	}
+
+	/** The way in which new meshes are stored and drawn. */
+	private RenderBackend backend = RenderBackend.DISPLAY_LIST;
+	/** The entry of each cached mesh, by the mesh itself. */
+	private final Map<Geometry, Entry> entriesByGeometry = new IdentityHashMap<Geometry, Entry>();
+	/** The entry of each cached mesh, by its key. */
+	private final Map<Key, Entry> entriesByKey = new HashMap<Key, Entry>();
+
+	/**
+	 * Gets the mesh with the specified key, building it with the specified
+	 * builder if it is not yet cached. Each call must be matched by a call to
+	 * {@link #release(GL2, Geometry)}.
+	 *
+	 * @param gl      The OpenGL object with which to build the mesh.
+	 * @param key     The parameters from which the mesh is tessellated.
+	 * @param builder The builder which builds the mesh if it is not yet cached.
+	 * @return The shared mesh with the specified key.
+	 */
+	public Geometry acquire(final GL2 gl, final Key key, final Builder builder) {
+		Entry entry = this.entriesByKey.get(key);
+		if (entry == null) {
+			final Geometry geometry;
+			if (this.backend == RenderBackend.VERTEX_BUFFER) {
+				geometry = new VertexBufferGeometry(gl, Tessellator.tessellate(key));
+			} else {
+				geometry = builder.build(gl);
+			}
+			entry = new Entry(key, geometry);
+			this.entriesByKey.put(key, entry);
+			this.entriesByGeometry.put(entry.geometry, entry);
+		}
+		entry.references++;
+		return entry.geometry;
+	}
+
+	/**
+	 * Gets the way in which new meshes are stored and drawn.
+	 *
+	 * @return The way in which new meshes are stored and drawn.
+	 */
+	public RenderBackend backend() {
+		return this.backend;
+	}
+
+	/**
+	 * Sets the way in which meshes built from now on are stored and drawn. Meshes
+	 * which are already cached are not affected.
+	 *
+	 * @param backend The way in which new meshes are stored and drawn.
+	 */
+	public void setBackend(final RenderBackend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * Releases a mesh acquired from this cache, freeing it if no other object
+	 * uses it.
+	 *
+	 * @param gl       The OpenGL object which owns the mesh.
+	 * @param geometry The mesh to release.
+	 */
+	public void release(final GL2 gl, final Geometry geometry) {
+		final Entry entry = this.entriesByGeometry.get(geometry);
+		if (entry == null) {
+			throw new IllegalArgumentException("geometry was not acquired from this cache");
+		}
+		entry.references--;
+		if (entry.references == 0) {
+			this.entriesByKey.remove(entry.key);
+			this.entriesByGeometry.remove(geometry);
+			geometry.dispose(gl);
+		}
+	}
+
+	/**
+	 * Gets the number of distinct meshes in this cache.
+	 *
+	 * @return The number of distinct meshes in this cache.
+	 */
+	public int size() {
+		return this.entriesByKey.size();
+	}
+}
@@ -0,0 +1,493 @@
+/**
+ * HotPathBenchmarks.java - measures the scene graph, quaternion, and pose hot paths
+ */
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.media.opengl.GL2;
+
+/**
+ * Measures the operations done on every frame and every edit: updating and
+ * drawing the scene graph, composing and converting quaternions one at a time
+ * and in batches, posing the spider in each of the ways it can be posed,
+ * rotating the selected joints, and looking up joints by name. The benchmarks
+ * of the animation subsystems in {@link AnimationBenchmarks} run with them, in
+ * the same harness and into the same results, and each benchmark runs in a JVM
+ * of its own. Drawing goes to a {@link NoOpGL}, whose empty methods the
+ * compiler inlines away, so the scores are the CPU cost of the Java code alone. {@link Component#draw(RenderCommands)} only replays the call list
+ * of the spider, so the drawing traversal is measured as
+ * {@code kinematics.draw}, and the traversal which compiles the call lists as
+ * {@code component.update}. The {@code .recorded} variants draw into a
+ * {@link RecordingRenderCommands} instead, whose commands per frame are printed
+ * first.
+ *
+ * Run with {@code java --add-modules jdk.incubator.vector HotPathBenchmarks
+ * [results.json [filter]]}, or with {@code mvn -Pbench verify}, which writes
+ * {@code target/benchmarks.json}. Only the benchmarks whose name contains the
+ * filter are run; {@code quaternion.array} runs the batch kernels, for
+ * example, and {@code gait} the tripod gait. The results file has the JSON
+ * format of JMH, so results of two commits can be compared with the tools made
+ * for JMH.
+ */
+public class HotPathBenchmarks {
+	/** The duration of each iteration, in milliseconds. */
+	private static final int ITERATION_TIME = 1000;
+	/** The number of measured iterations of each benchmark. */
+	private static final int MEASUREMENTS = 5;
+	/** The names of the operations of the batch quaternion benchmarks. */
+	private static final String[] QUATERNION_ARRAY_OPERATIONS = { "multiply", "normalize", "slerp", "toMatrices" };
+	/** The sizes of the arrays of the batch quaternion benchmarks, from one model to a crowd. */
+	private static final int[] QUATERNION_ARRAY_SIZES = { 20, 4096, 1048576 };
+	/** The number of distinct rotations cycled through by the quaternion benchmarks. */
+	private static final int ROTATIONS = 16;
+	/** The number of discarded warm-up iterations of each benchmark. */
+	private static final int WARMUPS = 3;
+
+	/** The harness which runs the benchmarks. */
+	private final BenchmarkHarness harness;
+
+	/**
+	 * Instantiates the suite, which runs its benchmarks in the specified harness.
+	 *
+	 * @param harness The harness which runs the benchmarks.
+	 */
+	private HotPathBenchmarks(final BenchmarkHarness harness) {
+		this.harness = harness;
+	}
+
+	/**
+	 * Runs the specified benchmark if its name matches the filter.
+	 *
+	 * @param name      The name of the benchmark.
+	 * @param operation The operation to measure.
+	 */
+	private void run(final String name, final BenchmarkHarness.Operation operation) {
+		this.harness.run(name, operation);
+	}
+
+	/**
+	 * Runs the benchmarks of the scene graph.
+	 */
+	private void sceneGraph() {
+		final GL2 gl = NoOpGL.create();
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		// tessellate in memory, since display lists would need a real context
+		GeometryCache.forContext(gl).setBackend(RenderBackend.VERTEX_BUFFER);
+		spider.initialize(gl);
+		final RenderCommands commands = new JoglRenderCommands(gl);
+		spider.update(commands);
+		spider.kinematics().setCulling(false);
+		final RecordingRenderCommands recorder = new RecordingRenderCommands();
+		final Skeleton skeleton = spider.skeleton();
+		final Component joint = spider.legJoints(0).get(2);
+
+		this.run("component.update", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					joint.setAngles(0, (i & 1) == 0 ? 10 : 0, 0);
+					spider.update(commands);
+				}
+				return count;
+			}
+		});
+		this.run("component.update.all", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					for (int c = 0; c < skeleton.size(); c++) {
+						skeleton.component(c).markDirty();
+					}
+					spider.update(commands);
+				}
+				return count;
+			}
+		});
+		this.run("kinematics.draw", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					joint.setAngles(0, (i & 1) == 0 ? 10 : 0, 0);
+					spider.kinematics().draw(commands);
+				}
+				return count;
+			}
+		});
+
+		for (int c = 0; c < skeleton.size(); c++) {
+			skeleton.component(c).markDirty();
+		}
+		recorder.clear();
+		spider.update(recorder);
+		System.out.println("component.update.all per frame: " + recorder.summary());
+		recorder.clear();
+		spider.kinematics().draw(recorder);
+		System.out.println("kinematics.draw per frame: " + recorder.summary());
+		this.run("component.update.recorded", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long size = 0;
+				for (int i = 0; i < count; i++) {
+					recorder.clear();
+					joint.setAngles(0, (i & 1) == 0 ? 10 : 0, 0);
+					spider.update(recorder);
+					size += recorder.size();
+				}
+				return size;
+			}
+		});
+		this.run("kinematics.draw.recorded", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long size = 0;
+				for (int i = 0; i < count; i++) {
+					recorder.clear();
+					joint.setAngles(0, (i & 1) == 0 ? 10 : 0, 0);
+					spider.kinematics().draw(recorder);
+					size += recorder.size();
+				}
+				return size;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmarks of the quaternion operations, each cycling through
+	 * several rotations so that no result can be computed once and reused.
+	 */
+	private void quaternions() {
+		final Quaternion drag = new Quaternion();
+		drag.setFromAxisAngle(1, 1, 0, 0.01f);
+		final Quaternion[] rotations = new Quaternion[ROTATIONS];
+		for (int i = 0; i < ROTATIONS; i++) {
+			rotations[i] = new Quaternion();
+			rotations[i].setFromAxisAngle(1, i, 2, 0.1f * i);
+		}
+		final Quaternion view = new Quaternion();
+		final float[] matrix = new float[16];
+
+		this.run("quaternion.multiply", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					sum += Float.floatToRawIntBits(drag.multiply(rotations[i % ROTATIONS]).s());
+				}
+				return sum;
+			}
+		});
+		this.run("quaternion.multiplyInto", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					drag.multiplyInto(rotations[i % ROTATIONS], view);
+					sum += Float.floatToRawIntBits(view.s());
+				}
+				return sum;
+			}
+		});
+		this.run("quaternion.normalize", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					final Quaternion rotation = rotations[i % ROTATIONS];
+					rotation.normalize();
+					sum += Float.floatToRawIntBits(rotation.s());
+				}
+				return sum;
+			}
+		});
+		this.run("quaternion.toMatrix", new BenchmarkHarness.Operation() {
+			/** The last matrix, kept so that the matrices are really allocated. */
+			private float[] last;
+
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					this.last = rotations[i % ROTATIONS].toMatrix();
+					sum += Float.floatToRawIntBits(this.last[5]);
+				}
+				return sum;
+			}
+		});
+		this.run("quaternion.toMatrix.dst", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					rotations[i % ROTATIONS].toMatrix(matrix, 0);
+					sum += Float.floatToRawIntBits(matrix[5]);
+				}
+				return sum;
+			}
+		});
+
+		// the work of one mouse drag: compose the view with the drag rotation,
+		// normalize it, and convert it into the matrix of the frame
+		this.run("quaternion.drag.allocating", new BenchmarkHarness.Operation() {
+			/** The view rotation, replaced by each composition. */
+			private Quaternion dragged = new Quaternion();
+
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					this.dragged = drag.multiply(this.dragged);
+					this.dragged.normalize();
+					sum += Float.floatToRawIntBits(this.dragged.toMatrix()[5]);
+				}
+				return sum;
+			}
+		});
+		this.run("quaternion.drag.inPlace", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					drag.multiplyInto(view, view);
+					view.normalize();
+					view.toMatrix(matrix, 0);
+					sum += Float.floatToRawIntBits(matrix[5]);
+				}
+				return sum;
+			}
+		});
+		final double[] quaternions = new double[2 * QuaternionMath.STRIDE];
+		QuaternionMath.fromAxisAngle(1, 1, 0, 0.01, quaternions, 0);
+		quaternions[QuaternionMath.STRIDE + QuaternionMath.W] = 1;
+		final double[] doubleMatrix = new double[16];
+		this.run("quaternion.drag.double", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				final int q = QuaternionMath.STRIDE;
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					QuaternionMath.multiply(quaternions, 0, quaternions, q, quaternions, q);
+					QuaternionMath.normalize(quaternions, q);
+					QuaternionMath.toMatrix(quaternions[q + QuaternionMath.W], quaternions[q + QuaternionMath.X],
+							quaternions[q + QuaternionMath.Y], quaternions[q + QuaternionMath.Z], doubleMatrix, 0);
+					sum += Double.doubleToRawLongBits(doubleMatrix[5]);
+				}
+				return sum;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmarks of the batch quaternion kernels, the scalar kernels
+	 * against those selected by {@link QuaternionArray#kernels()}, on arrays of
+	 * several sizes. Each operation processes a whole array.
+	 */
+	private void quaternionArrays() {
+		final QuaternionKernels scalar = new ScalarQuaternionKernels();
+		final QuaternionKernels selected = QuaternionArray.kernels();
+		final Random random = new Random(1);
+		for (final int size : QUATERNION_ARRAY_SIZES) {
+			final String prefix = "quaternion.array.";
+			final String suffix = "." + size;
+			// skip allocating the arrays if none of their benchmarks runs
+			boolean wanted = false;
+			for (final String operation : QUATERNION_ARRAY_OPERATIONS) {
+				wanted |= this.harness.matches(prefix + operation + suffix + ".scalar",
+						prefix + operation + suffix + ".selected");
+			}
+			if (!wanted) {
+				continue;
+			}
+			final QuaternionArray a = randomQuaternions(size, random);
+			final QuaternionArray b = randomQuaternions(size, random);
+			final QuaternionArray dst = new QuaternionArray(size);
+			final Mat4Array matrices = new Mat4Array(size);
+			final float[] t = new float[size];
+			for (int i = 0; i < size; i++) {
+				t[i] = random.nextFloat();
+			}
+			for (final QuaternionKernels kernels : new QuaternionKernels[] { scalar, selected }) {
+				final String variant = suffix + (kernels == scalar ? ".scalar" : ".selected");
+				this.run(prefix + "multiply" + variant, new BenchmarkHarness.Operation() {
+					@Override
+					public long run(final int count) {
+						for (int i = 0; i < count; i++) {
+							kernels.multiply(a, b, dst);
+						}
+						return Float.floatToRawIntBits(dst.w()[0]);
+					}
+				});
+				this.run(prefix + "normalize" + variant, new BenchmarkHarness.Operation() {
+					@Override
+					public long run(final int count) {
+						for (int i = 0; i < count; i++) {
+							kernels.normalize(dst);
+						}
+						return Float.floatToRawIntBits(dst.w()[0]);
+					}
+				});
+				this.run(prefix + "slerp" + variant, new BenchmarkHarness.Operation() {
+					@Override
+					public long run(final int count) {
+						for (int i = 0; i < count; i++) {
+							kernels.slerp(a, b, t, dst);
+						}
+						return Float.floatToRawIntBits(dst.w()[0]);
+					}
+				});
+				this.run(prefix + "toMatrices" + variant, new BenchmarkHarness.Operation() {
+					@Override
+					public long run(final int count) {
+						for (int i = 0; i < count; i++) {
+							kernels.toMatrices(a, matrices);
+						}
+						return Float.floatToRawIntBits(matrices.entry(5)[0]);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Creates an array of random unit quaternions.
+	 *
+	 * @param size   The number of quaternions.
+	 * @param random The source of random numbers.
+	 * @return The array.
+	 */
+	private static QuaternionArray randomQuaternions(final int size, final Random random) {
+		final QuaternionArray q = new QuaternionArray(size);
+		for (int i = 0; i < size; i++) {
+			q.set(i, (float) random.nextGaussian(), (float) random.nextGaussian(), (float) random.nextGaussian(),
+					(float) random.nextGaussian());
+		}
+		new ScalarQuaternionKernels().normalize(q);
+		return q;
+	}
+
+	/**
+	 * Runs the benchmarks of posing the spider and of looking up its joints.
+	 */
+	private void poses() {
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Skeleton skeleton = spider.skeleton();
+
+		// two poses of every joint, in each of the forms the spider accepts
+		final String[] names = new String[skeleton.size()];
+		final ArrayList<Configuration> restList = new ArrayList<Configuration>();
+		final ArrayList<Configuration> bentList = new ArrayList<Configuration>();
+		final Map<String, Configuration> restMap = new HashMap<String, Configuration>();
+		final Map<String, Configuration> bentMap = new HashMap<String, Configuration>();
+		for (int i = 0; i < skeleton.size(); i++) {
+			final Component component = skeleton.component(i);
+			names[i] = component.name();
+			final Configuration rest = new BaseConfiguration(component.xAngle(), component.yAngle(),
+					component.zAngle());
+			final Configuration bent = new BaseConfiguration(component.xAngle(), component.yAngle() + 5,
+					component.zAngle());
+			restMap.put(names[i], rest);
+			bentMap.put(names[i], bent);
+		}
+		// the list is ordered as Spider.toggleSelection numbers the components
+		final List<String> listed = new ArrayList<String>();
+		listed.add(Spider.HEAD_NAME);
+		listed.add(Spider.BODY_NAME);
+		for (int leg = 0; leg < spider.legCount(); leg++) {
+			for (final Component joint : spider.legJoints(leg)) {
+				listed.add(joint.name());
+			}
+		}
+		for (final String name : listed) {
+			restList.add(restMap.get(name));
+			bentList.add(bentMap.get(name));
+		}
+		final Pose restPose = Pose.compile(skeleton, restMap);
+		final Pose bentPose = Pose.compile(skeleton, bentMap);
+
+		this.run("spider.setModelStates.list", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					spider.setModelStates((i & 1) == 0 ? bentList : restList);
+				}
+				return spider.clamped().count();
+			}
+		});
+		this.run("spider.setModelStates.map", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					spider.setModelStates((i & 1) == 0 ? bentMap : restMap);
+				}
+				return spider.clamped().count();
+			}
+		});
+		this.run("spider.setModelStates.pose", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long moved = 0;
+				for (int i = 0; i < count; i++) {
+					moved += spider.setModelStates((i & 1) == 0 ? bentPose : restPose) ? 1 : 0;
+				}
+				return moved;
+			}
+		});
+
+		// select every joint of every leg
+		for (int i = 2; i < Spider.STATE_COUNT; i++) {
+			spider.toggleSelection(i);
+		}
+		final Configuration forward = new BaseConfiguration(1, 1, 0);
+		final Configuration backward = new BaseConfiguration(-1, -1, 0);
+		this.run("spider.changeSelected", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				for (int i = 0; i < count; i++) {
+					spider.changeSelected((i & 1) == 0 ? forward : backward);
+				}
+				return spider.selection().count();
+			}
+		});
+
+		// the lookup by name which replaced Spider.mapName2Component
+		this.run("skeleton.indexOf", new BenchmarkHarness.Operation() {
+			@Override
+			public long run(final int count) {
+				long sum = 0;
+				for (int i = 0; i < count; i++) {
+					sum += skeleton.indexOf(names[i % names.length]);
+				}
+				return sum;
+			}
+		});
+	}
+
+	/**
+	 * Runs the benchmarks and writes their results.
+	 *
+	 * @param args The optional file to which to write the results as JSON, and
+	 *             the optional part of the name of each benchmark to run.
+	 * @throws IOException if the results cannot be written.
+	 */
+	public static void main(final String[] args) throws IOException {
+		final BenchmarkHarness harness = new BenchmarkHarness(WARMUPS, MEASUREMENTS, ITERATION_TIME,
+				args.length > 1 ? args[1] : "", HotPathBenchmarks.class);
+		System.out.println("selected quaternion kernels: " + QuaternionArray.kernels().getClass().getName());
+		System.out.println("selected limit scanner: " + JointLimits.scanner().getClass().getName());
+		final HotPathBenchmarks suite = new HotPathBenchmarks(harness);
+		suite.sceneGraph();
+		suite.quaternions();
+		suite.quaternionArrays();
+		suite.poses();
+		new AnimationBenchmarks(harness).run();
+		if (args.length > 0) {
+			harness.writeJson(Paths.get(args[0]));
+		}
+		System.out.println("(checksum " + harness.sink() + ")");
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * InputAccumulator.java - merges joint rotation requests into one per frame
+ */
+
+import java.awt.EventQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Merges every request to rotate the selected joints of a spider which arrives
+ * between two frames into a single rotation per axis.
+ *
+ * Key events only add their angle to a running sum, without allocating or
+ * touching the model. At the start of each frame, the drawing thread calls
+ * {@link #schedule()}, which queues one flush on the event dispatch thread if
+ * anything was added. The flush rotates the selected joints by the sums in one
+ * pass and then runs the listener given at construction, so the cost of input
+ * handling follows the frame rate rather than the key repeat rate.
+ *
+ * Edits which change the selection or replace the pose must call
+ * {@link #flush()} first, so that the rotations requested before them are
+ * applied to the joints and the pose for which they were requested.
+ */
+public class InputAccumulator {
+
+	/**
+	 * The rotation applied by a flush; reused so that flushing does not allocate.
+	 */
+	private final BaseConfiguration configuration = new BaseConfiguration(0, 0, 0);
+	/**
+	 * The sum of the requested rotations around the x, y, and z axes since the
+	 * last flush. Only the event dispatch thread uses this.
+	 */
+	private final double[] deltas = new double[3];
+	/** Rotates the selected joints by the accumulated sums. */
+	private final Runnable flush = new Runnable() {
+		@Override
+		public void run() {
+			InputAccumulator.this.scheduled.set(false);
+			InputAccumulator.this.flush();
+		}
+	};
+	/** Runs after each flush which changed the spider. */
+	private final Runnable listener;
+	/** Whether rotations were added since the last flush. */
+	private volatile boolean pending = false;
+	/** Whether a flush is queued on the event dispatch thread. */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	/** The spider whose selected joints are rotated. */
+	private final Spider spider;
+
+	/**
+	 * Instantiates an accumulator for the selected joints of the specified
+	 * spider.
+	 *
+	 * @param spider   The spider whose selected joints are rotated.
+	 * @param listener Runs on the event dispatch thread after each flush which
+	 *                 changed the spider.
+	 */
+	public InputAccumulator(final Spider spider, final Runnable listener) {
+		this.spider = spider;
+		this.listener = listener;
+	}
+
+	/**
+	 * Adds a requested rotation of the selected joints. Only the event dispatch
+	 * thread may call this method.
+	 *
+	 * @param axis  The axis around which to rotate.
+	 * @param angle The angle by which to rotate, in degrees.
+	 */
+	public void add(final Axis axis, final double angle) {
+		this.deltas[axis.ordinal()] += angle;
+		this.pending = true;
+	}
+
+	/**
+	 * Queues a flush on the event dispatch thread if rotations are waiting and no
+	 * flush is queued yet. May be called from any thread.
+	 */
+	public void schedule() {
+		if (this.pending && this.scheduled.compareAndSet(false, true)) {
+			EventQueue.invokeLater(this.flush);
+		}
+	}
+
+	/**
+	 * Rotates the selected joints by the accumulated sums and clears them, if
+	 * rotations are waiting. Only the event dispatch thread may call this method.
+	 */
+	public void flush() {
+		if (!this.pending) {
+			return;
+		}
+		this.pending = false;
+		this.configuration.setXAngle(this.deltas[Axis.X.ordinal()]);
+		this.configuration.setYAngle(this.deltas[Axis.Y.ordinal()]);
+		this.configuration.setZAngle(this.deltas[Axis.Z.ordinal()]);
+		this.deltas[Axis.X.ordinal()] = 0;
+		this.deltas[Axis.Y.ordinal()] = 0;
+		this.deltas[Axis.Z.ordinal()] = 0;
+		this.spider.changeSelected(this.configuration);
+		this.listener.run();
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * JoglRenderCommands.java - issues render commands to a JOGL context
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * Forwards every render command to a JOGL {@code GL2} object.
+ */
+public class JoglRenderCommands implements RenderCommands {
+	/** The OpenGL object to which the commands are forwarded. */
+	private final GL2 gl;
+
+	/**
+	 * Instantiates render commands which are forwarded to the specified OpenGL
+	 * object.
+	 *
+	 * @param gl The OpenGL object to which to forward the commands.
+	 */
+	public JoglRenderCommands(final GL2 gl) {
+		this.gl = gl;
+	}
+
+	/**
+	 * Gets the OpenGL object to which the commands are forwarded.
+	 *
+	 * @return The OpenGL object to which the commands are forwarded.
+	 */
+	public GL2 gl() {
+		return this.gl;
+	}
+
+	@Override
+	public void glBindBuffer(final int target, final int buffer) {
+		this.gl.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glCallList(final int list) {
+		this.gl.glCallList(list);
+	}
+
+	@Override
+	public void glColor3f(final float red, final float green, final float blue) {
+		this.gl.glColor3f(red, green, blue);
+	}
+
+	@Override
+	public void glDisableClientState(final int array) {
+		this.gl.glDisableClientState(array);
+	}
+
+	@Override
+	public void glDrawElements(final int mode, final int count, final int type, final long offset) {
+		this.gl.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void glEnableClientState(final int array) {
+		this.gl.glEnableClientState(array);
+	}
+
+	@Override
+	public void glEndList() {
+		this.gl.glEndList();
+	}
+
+	@Override
+	public void glGetDoublev(final int name, final double[] params, final int offset) {
+		this.gl.glGetDoublev(name, params, offset);
+	}
+
+	@Override
+	public void glGetIntegerv(final int name, final int[] params, final int offset) {
+		this.gl.glGetIntegerv(name, params, offset);
+	}
+
+	@Override
+	public void glLoadMatrixd(final double[] matrix, final int offset) {
+		this.gl.glLoadMatrixd(matrix, offset);
+	}
+
+	@Override
+	public void glNewList(final int list, final int mode) {
+		this.gl.glNewList(list, mode);
+	}
+
+	@Override
+	public void glNormalPointer(final int type, final int stride, final long offset) {
+		this.gl.glNormalPointer(type, stride, offset);
+	}
+
+	@Override
+	public void glPopAttrib() {
+		this.gl.glPopAttrib();
+	}
+
+	@Override
+	public void glPopMatrix() {
+		this.gl.glPopMatrix();
+	}
+
+	@Override
+	public void glPushAttrib(final int mask) {
+		this.gl.glPushAttrib(mask);
+	}
+
+	@Override
+	public void glPushMatrix() {
+		this.gl.glPushMatrix();
+	}
+
+	@Override
+	public void glRotated(final double angle, final double x, final double y, final double z) {
+		this.gl.glRotated(angle, x, y, z);
+	}
+
+	@Override
+	public void glTranslated(final double x, final double y, final double z) {
+		this.gl.glTranslated(x, y, z);
+	}
+
+	@Override
+	public void glVertexPointer(final int size, final int type, final int stride, final long offset) {
+		this.gl.glVertexPointer(size, type, stride, offset);
+	}
+}
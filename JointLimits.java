@@ -0,0 +1,173 @@
+/**
+ * JointLimits.java - clamps whole poses to the extents of the joints
+ */
+
+/**
+ * The extents of every joint of a {@link Skeleton}, laid out like its angles,
+ * which clamp a whole pose at once and report which joints were clamped.
+ *
+ * {@link Component#rotate(Axis, double)} keeps a joint within its extents, but
+ * setting the angles of a whole pose bypasses it. Bulk updates therefore end
+ * with {@link #enforce(Skeleton, JointSelection)}. The minimum and maximum of
+ * each angle are stored in two arrays parallel to the angles, so finding the
+ * angles outside their extents is one scan over three consecutive arrays. The
+ * scan runs on SIMD lanes through {@link VectorLimitScanner} if the
+ * {@code jdk.incubator.vector} module is available at run time, and one angle
+ * at a time otherwise. Valid poses, the usual case, cost that scan alone and
+ * are not written; only the angles the scan finds outside are clamped. An
+ * angle which is not a number counts as outside its extent and is clamped as
+ * if it were 0, so that a corrupt pose cannot leave a joint undefined.
+ */
+public class JointLimits {
+
+	/**
+	 * Finds the next angle outside its extent.
+	 */
+	public interface Scanner {
+		/**
+		 * Finds the first angle at or after the specified index which is below its
+		 * minimum, above its maximum, or not a number.
+		 *
+		 * @param angles The angles.
+		 * @param min    The minimum of each angle.
+		 * @param max    The maximum of each angle.
+		 * @param from   The index at which to start.
+		 * @return The index of the first angle outside its extent, or the length of
+		 *         the arrays if there is none.
+		 */
+		int nextOutside(final double[] angles, final double[] min, final double[] max, final int from);
+	}
+
+	/**
+	 * Scans one angle at a time.
+	 */
+	static class ScalarScanner implements Scanner {
+		@Override
+		public int nextOutside(final double[] angles, final double[] min, final double[] max, final int from) {
+			for (int i = from; i < angles.length; i++) {
+				if (!(angles[i] >= min[i] && angles[i] <= max[i])) {
+					return i;
+				}
+			}
+			return angles.length;
+		}
+	}
+
+	/** The scanner used by all limits. */
+	private static final Scanner SCANNER = loadScanner();
+
+	/**
+	 * Instantiates the SIMD scanner, falling back to the scalar scanner if the
+	 * vector module was not added to the virtual machine.
+	 *
+	 * @return The scanner to use.
+	 */
+	private static Scanner loadScanner() {
+		try {
+			return (Scanner) Class.forName("VectorLimitScanner").getDeclaredConstructor().newInstance();
+		} catch (final ReflectiveOperationException | LinkageError exception) {
+			return new ScalarScanner();
+		}
+	}
+
+	/**
+	 * Gets the scanner used by all limits.
+	 *
+	 * @return The SIMD scanner if available, or else the scalar scanner.
+	 */
+	public static Scanner scanner() {
+		return SCANNER;
+	}
+
+	/** The maximum of each angle, in the order of the angles of the skeleton. */
+	private final double[] max;
+	/** The minimum of each angle, in the order of the angles of the skeleton. */
+	private final double[] min;
+	/** The skeleton whose extents these are. */
+	private final Skeleton skeleton;
+
+	/**
+	 * Instantiates the limits of the current extents of the specified skeleton.
+	 *
+	 * @param skeleton The skeleton whose extents to enforce.
+	 */
+	public JointLimits(final Skeleton skeleton) {
+		this.skeleton = skeleton;
+		this.min = new double[skeleton.size() * Skeleton.ANGLE_STRIDE];
+		this.max = new double[skeleton.size() * Skeleton.ANGLE_STRIDE];
+		this.refresh();
+	}
+
+	/**
+	 * Clamps an angle to its extent, treating an angle which is not a number as
+	 * 0.
+	 *
+	 * @param angle The angle.
+	 * @param min   The minimum of the angle.
+	 * @param max   The maximum of the angle.
+	 * @return The angle within its extent.
+	 */
+	private static double clamp(final double angle, final double min, final double max) {
+		return Math.max(Math.min(Double.isNaN(angle) ? 0 : angle, max), min);
+	}
+
+	/**
+	 * Clamps the specified angles to the extents of their joints.
+	 *
+	 * @param angles  The angles of every joint of the skeleton, with
+	 *                {@link Skeleton#ANGLE_STRIDE} entries per joint.
+	 * @param clamped The set to which to add each clamped joint, or {@code null}.
+	 * @return The number of angles which were clamped.
+	 */
+	public int clamp(final double[] angles, final JointSelection clamped) {
+		int count = 0;
+		for (int i = SCANNER.nextOutside(angles, this.min, this.max, 0); i < angles.length; i = SCANNER
+				.nextOutside(angles, this.min, this.max, i + 1)) {
+			angles[i] = clamp(angles[i], this.min[i], this.max[i]);
+			if (clamped != null) {
+				clamped.add(i / Skeleton.ANGLE_STRIDE);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Clamps the angles of the specified skeleton to the extents of its joints,
+	 * and marks the clamped components out of date.
+	 *
+	 * @param skeleton The skeleton, which must be the skeleton of these limits or
+	 *                 one built the same way.
+	 * @param clamped  The set to which to add each clamped joint, or
+	 *                 {@code null}.
+	 * @return The number of angles which were clamped.
+	 */
+	public int enforce(final Skeleton skeleton, final JointSelection clamped) {
+		final double[] angles = skeleton.angles();
+		int count = 0;
+		for (int i = SCANNER.nextOutside(angles, this.min, this.max, 0); i < angles.length; i = SCANNER
+				.nextOutside(angles, this.min, this.max, i + 1)) {
+			angles[i] = clamp(angles[i], this.min[i], this.max[i]);
+			skeleton.component(i / Skeleton.ANGLE_STRIDE).markDirty();
+			if (clamped != null) {
+				clamped.add(i / Skeleton.ANGLE_STRIDE);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the extents of the skeleton again, after they have been changed.
+	 */
+	public void refresh() {
+		final double[] extents = this.skeleton.extents();
+		for (int joint = 0; joint < this.skeleton.size(); joint++) {
+			for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+				final int e = joint * Skeleton.EXTENT_STRIDE + 2 * axis;
+				this.min[joint * Skeleton.ANGLE_STRIDE + axis] = extents[e];
+				this.max[joint * Skeleton.ANGLE_STRIDE + axis] = extents[e + 1];
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * JointMask.java - a weight per joint of a skeleton
+ */
+
+import java.util.Arrays;
+
+/**
+ * A weight between 0 and 1 for each joint of a {@link Skeleton}, which limits
+ * a layer of a {@link BlendTree} to some of the joints, for example the upper
+ * legs, or fades it in along a chain of joints.
+ */
+public class JointMask {
+
+	/**
+	 * Creates a mask which lets every joint of the specified skeleton through.
+	 *
+	 * @param skeleton The skeleton whose joints to mask.
+	 * @return A mask with a weight of 1 for every joint.
+	 */
+	public static JointMask all(final Skeleton skeleton) {
+		final JointMask mask = new JointMask(skeleton);
+		Arrays.fill(mask.weights, 1);
+		return mask;
+	}
+
+	/** The skeleton whose joints are masked. */
+	private final Skeleton skeleton;
+	/** The weight of each joint, in the order of the skeleton. */
+	private final double[] weights;
+
+	/**
+	 * Instantiates a mask which blocks every joint of the specified skeleton.
+	 *
+	 * @param skeleton The skeleton whose joints to mask.
+	 */
+	public JointMask(final Skeleton skeleton) {
+		this.skeleton = skeleton;
+		this.weights = new double[skeleton.size()];
+	}
+
+	/**
+	 * Sets the weight of the joint with the specified name.
+	 *
+	 * @param joint  The name of the joint.
+	 * @param weight The weight of the joint, between 0 and 1.
+	 * @return This mask.
+	 * @throws IllegalArgumentException if no joint has the specified name.
+	 */
+	public JointMask set(final String joint, final double weight) {
+		this.weights[this.skeleton.indexOf(joint)] = weight;
+		return this;
+	}
+
+	/**
+	 * Sets the weight of the joint with the specified name and of all of its
+	 * descendants.
+	 *
+	 * @param joint  The name of the joint at the root of the subtree.
+	 * @param weight The weight of the joints, between 0 and 1.
+	 * @return This mask.
+	 * @throws IllegalArgumentException if no joint has the specified name.
+	 */
+	public JointMask setSubtree(final String joint, final double weight) {
+		final int root = this.skeleton.indexOf(joint);
+		Arrays.fill(this.weights, root, this.skeleton.subtreeEnd(root), weight);
+		return this;
+	}
+
+	/**
+	 * Gets the weight of the joint at the specified index.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 * @return The weight of the joint.
+	 */
+	public double weight(final int joint) {
+		return this.weights[joint];
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * JointSelection.java - a set of joints of a skeleton as a bitset
+ */
+
+/**
+ * A set of the joints of a {@link Skeleton}, stored as one bit per joint index,
+ * which rotates the selected joints within their extents in a single pass over
+ * the flat angle and extent arrays of the skeleton.
+ *
+ * The rotation of each selected joint adds the delta around each axis and
+ * clamps the sum to the extent of the joint with {@code Math.min} and
+ * {@code Math.max}, which compile to branch-free instructions, so the cost of a
+ * rotation is linear in the number of selected joints and does not depend on
+ * which axes are rotated or which joints reach their limits.
+ * {@link #rotate(double[], double[], int, double, double, double)} applies the
+ * same rotation to the joints of any number of models of one skeleton whose
+ * angles are stored one after another in one array, in one sweep.
+ */
+public class JointSelection {
+	/** The number of bits per word of the bitset. */
+	private static final int WORD_SIZE = 64;
+
+	/** The number of joints of the skeleton. */
+	private final int size;
+	/** The bitset, in which bit {@code j % 64} of word {@code j / 64} is joint {@code j}. */
+	private final long[] words;
+
+	/**
+	 * Instantiates an empty selection of the joints of a skeleton of the
+	 * specified size.
+	 *
+	 * @param size The number of joints of the skeleton.
+	 */
+	public JointSelection(final int size) {
+		this.size = size;
+		this.words = new long[(size + WORD_SIZE - 1) / WORD_SIZE];
+	}
+
+	/**
+	 * Selects the specified joint.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 */
+	public void add(final int joint) {
+		this.words[joint / WORD_SIZE] |= 1L << joint;
+	}
+
+	/**
+	 * Deselects every joint.
+	 */
+	public void clear() {
+		for (int w = 0; w < this.words.length; w++) {
+			this.words[w] = 0;
+		}
+	}
+
+	/**
+	 * Gets whether the specified joint is selected.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 * @return Whether the joint is selected.
+	 */
+	public boolean contains(final int joint) {
+		return (this.words[joint / WORD_SIZE] & 1L << joint) != 0;
+	}
+
+	/**
+	 * Gets the number of selected joints.
+	 *
+	 * @return The number of selected joints.
+	 */
+	public int count() {
+		int count = 0;
+		for (final long word : this.words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Rotates the selected joints of the specified models by the specified
+	 * angles, clamping each angle to the extent of its joint. The models must
+	 * share the skeleton of this selection, and neither their components nor
+	 * their caches are told of the change.
+	 *
+	 * @param angles  The angles of the models, with {@link Skeleton#ANGLE_STRIDE}
+	 *                entries per joint and the joints of each model following
+	 *                those of the previous one.
+	 * @param extents The extents of the joints of the skeleton, with
+	 *                {@link Skeleton#EXTENT_STRIDE} entries per joint.
+	 * @param models  The number of models.
+	 * @param x       The angle to add around the x axis, in degrees.
+	 * @param y       The angle to add around the y axis, in degrees.
+	 * @param z       The angle to add around the z axis, in degrees.
+	 */
+	public void rotate(final double[] angles, final double[] extents, final int models, final double x,
+			final double y, final double z) {
+		for (int model = 0, base = 0; model < models; model++, base += this.size * Skeleton.ANGLE_STRIDE) {
+			for (int w = 0; w < this.words.length; w++) {
+				for (long word = this.words[w]; word != 0; word &= word - 1) {
+					final int joint = w * WORD_SIZE + Long.numberOfTrailingZeros(word);
+					rotate(angles, base + joint * Skeleton.ANGLE_STRIDE, extents, joint * Skeleton.EXTENT_STRIDE, x,
+							y, z);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rotates the selected joints of the specified skeleton by the specified
+	 * angles, clamping each angle to the extent of its joint, and marks the
+	 * components which moved out of date.
+	 *
+	 * @param skeleton The skeleton whose joints to rotate.
+	 * @param x        The angle to add around the x axis, in degrees.
+	 * @param y        The angle to add around the y axis, in degrees.
+	 * @param z        The angle to add around the z axis, in degrees.
+	 * @return The number of joints which moved.
+	 */
+	public int rotate(final Skeleton skeleton, final double x, final double y, final double z) {
+		final double[] angles = skeleton.angles();
+		final double[] extents = skeleton.extents();
+		int moved = 0;
+		for (int w = 0; w < this.words.length; w++) {
+			for (long word = this.words[w]; word != 0; word &= word - 1) {
+				final int joint = w * WORD_SIZE + Long.numberOfTrailingZeros(word);
+				// a rotation stopped at the joint limit does not change the call list
+				if (rotate(angles, joint * Skeleton.ANGLE_STRIDE, extents, joint * Skeleton.EXTENT_STRIDE, x, y, z)) {
+					skeleton.component(joint).markDirty();
+					moved++;
+				}
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * Selects the specified joint if it is not selected, and deselects it
+	 * otherwise.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 * @return Whether the joint is now selected.
+	 */
+	public boolean toggle(final int joint) {
+		this.words[joint / WORD_SIZE] ^= 1L << joint;
+		return this.contains(joint);
+	}
+
+	/**
+	 * Rotates one joint by the specified angles, clamped to its extent.
+	 *
+	 * @param angles  The array of angles.
+	 * @param a       The offset of the angles of the joint.
+	 * @param extents The array of extents.
+	 * @param e       The offset of the extents of the joint.
+	 * @param x       The angle to add around the x axis, in degrees.
+	 * @param y       The angle to add around the y axis, in degrees.
+	 * @param z       The angle to add around the z axis, in degrees.
+	 * @return Whether any angle of the joint changed.
+	 */
+	private static boolean rotate(final double[] angles, final int a, final double[] extents, final int e,
+			final double x, final double y, final double z) {
+		final double oldX = angles[a + Skeleton.X];
+		final double oldY = angles[a + Skeleton.Y];
+		final double oldZ = angles[a + Skeleton.Z];
+		final double newX = Math.max(Math.min(oldX + x, extents[e + 1]), extents[e]);
+		final double newY = Math.max(Math.min(oldY + y, extents[e + 3]), extents[e + 2]);
+		final double newZ = Math.max(Math.min(oldZ + z, extents[e + 5]), extents[e + 4]);
+		angles[a + Skeleton.X] = newX;
+		angles[a + Skeleton.Y] = newY;
+		angles[a + Skeleton.Z] = newZ;
+		return (newX != oldX) | (newY != oldY) | (newZ != oldZ);
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * LatencyHistogram.java - a histogram of durations in logarithmic buckets
+ */
+
+import java.util.Arrays;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, so that
+ * percentiles are known to within about 6% from nanoseconds to hours in a
+ * fixed array of counts.
+ *
+ * Durations below 16 nanoseconds each have their own bucket. Above, every
+ * power of two is split into 16 buckets of equal width, so the bucket of a
+ * duration is found from the position of its highest bit and the four bits
+ * below it. Recording is a few shifts and an increment, and never allocates.
+ * A histogram is not safe for use by several threads at once.
+ */
+public class LatencyHistogram {
+	/** The number of bits of each duration below its highest bit which select a sub-bucket. */
+	private static final int SUB_BITS = 4;
+	/** The number of sub-buckets per power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/** The number of buckets, enough for any positive long. */
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	/** The number of durations in each bucket. */
+	private final long[] counts = new long[BUCKETS];
+	/** The number of recorded durations. */
+	private long count = 0;
+	/** The longest recorded duration. */
+	private long max = 0;
+	/** The sum of the recorded durations. */
+	private long sum = 0;
+
+	/**
+	 * Gets the index of the bucket of the specified duration.
+	 *
+	 * @param value The duration, which must not be negative.
+	 * @return The index of its bucket.
+	 */
+	private static int bucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Gets the greatest duration which falls into the specified bucket.
+	 *
+	 * @param bucket The index of the bucket.
+	 * @return The upper bound of the bucket.
+	 */
+	private static long upperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return low + (1L << shift) - 1;
+	}
+
+	/**
+	 * Gets the number of recorded durations.
+	 *
+	 * @return The number of recorded durations.
+	 */
+	public long count() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the longest recorded duration.
+	 *
+	 * @return The longest recorded duration, or 0 if there is none.
+	 */
+	public long max() {
+		return this.max;
+	}
+
+	/**
+	 * Gets the mean of the recorded durations.
+	 *
+	 * @return The mean duration, or 0 if there is none.
+	 */
+	public double mean() {
+		return this.count == 0 ? 0 : (double) this.sum / this.count;
+	}
+
+	/**
+	 * Gets the duration below or at which the specified percentage of the
+	 * recorded durations lie, rounded up to the upper bound of its bucket but not
+	 * beyond the longest recorded duration.
+	 *
+	 * @param percentile The percentage, from 0 to 100.
+	 * @return The duration, or 0 if there is none.
+	 */
+	public long percentile(final double percentile) {
+		if (this.count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += this.counts[bucket];
+			if (seen >= rank) {
+				return Math.min(upperBound(bucket), this.max);
+			}
+		}
+		return this.max;
+	}
+
+	/**
+	 * Records the specified duration.
+	 *
+	 * @param duration The duration; negative durations are recorded as 0.
+	 */
+	public void record(final long duration) {
+		final long value = Math.max(duration, 0);
+		this.counts[bucket(value)]++;
+		this.count++;
+		this.sum += value;
+		this.max = Math.max(this.max, value);
+	}
+
+	/**
+	 * Forgets every recorded duration.
+	 */
+	public void reset() {
+		Arrays.fill(this.counts, 0);
+		this.count = 0;
+		this.max = 0;
+		this.sum = 0;
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ * LegSolver.java - inverse kinematics for the legs of a spider
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the angles of the joints of a leg of a {@link Spider} which put its
+ * foot at a target position, by damped least squares.
+ *
+ * Each joint of a leg is translated and then rotated around its x, y, and z
+ * axes in turn, so a leg is a chain of nine hinges. Each iteration of the
+ * solver computes the frame of every hinge and the velocity of the foot per
+ * radian of each hinge, then turns all the hinges at once by the smallest
+ * amounts which move the foot to the target, damped so that steps stay small
+ * where the leg is nearly straight. Every angle is clamped to the extent of its
+ * joint around that axis. Hinges whose extent is a single angle never turn, and
+ * a hinge held at a limit takes no part in a step which would push it further.
+ *
+ * The solver remembers the solution of each leg and starts the next solve of
+ * the leg from it, so a target which moves a little per frame is usually
+ * reached in one or two iterations. Solving is also limited by an iteration
+ * budget per frame, shared by all legs, so that many spiders cannot stall a
+ * frame; a leg whose solve runs out of budget keeps its pose so far and
+ * continues from it in the next frame.
+ *
+ * Targets are in the frame of the root of the skeleton, as returned by
+ * {@link ForwardKinematics#transformPoint}. Before solving, the world matrix of
+ * the body must be current; {@link #beginFrame(int)} updates the kinematics.
+ */
+public class LegSolver {
+	/**
+	 * The damping of each step, as a distance: steps toward targets much farther
+	 * than this are shortened where the leg is nearly straight.
+	 */
+	private static final double DAMPING = 0.02;
+	/** The number of hinges of a leg. */
+	private static final int HINGES = 3 * Skeleton.ANGLE_STRIDE;
+	/** The number of joints of a leg. */
+	private static final int JOINTS = 3;
+
+	/** The unit axis of each hinge of the leg being solved, in the root frame. */
+	private final double[] axes = new double[HINGES * 3];
+	/** The position of the foot of the leg being solved, in the root frame. */
+	private final double[] foot = new double[3];
+	/** The frame being built by the forward pass, in column major order. */
+	private final double[] frame = new double[ForwardKinematics.MATRIX_STRIDE];
+	/** Whether each hinge of the leg being solved takes part in the step. */
+	private final boolean[] free = new boolean[HINGES];
+	/** The number of iterations used by all solves since the start of the frame. */
+	private long iterations = 0;
+	/** The velocity of the foot per radian of each hinge of the leg being solved. */
+	private final double[] jacobian = new double[HINGES * 3];
+	/** The index of each joint of each leg in the skeleton. */
+	private final int[] joints;
+	/** The kinematics of the spider. */
+	private final ForwardKinematics kinematics;
+	/** The greatest number of iterations of a single solve. */
+	private final int maxIterations;
+	/** The origin of each hinge of the leg being solved, in the root frame. */
+	private final double[] origins = new double[HINGES * 3];
+	/** The number of iterations left in the budget of the current frame. */
+	private int remaining = Integer.MAX_VALUE;
+	/** The skeleton of the spider. */
+	private final Skeleton skeleton;
+	/** Whether each leg has a solution from which to start. */
+	private final boolean[] solved;
+	/** The last solution of each leg, as the angles of its hinges in degrees. */
+	private final double[] solutions;
+	/** The distance from the target within which a leg is solved. */
+	private final double tolerance;
+
+	/**
+	 * Instantiates a solver for the legs of the specified spider.
+	 *
+	 * @param spider        The spider whose legs to solve.
+	 * @param tolerance     The distance from the target within which a foot is
+	 *                      considered to have reached it.
+	 * @param maxIterations The greatest number of iterations of a single solve.
+	 */
+	public LegSolver(final Spider spider, final double tolerance, final int maxIterations) {
+		this.kinematics = spider.kinematics();
+		this.skeleton = spider.skeleton();
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+		this.joints = new int[spider.legCount() * JOINTS];
+		for (int leg = 0; leg < spider.legCount(); leg++) {
+			final List<Component> chain = spider.legJoints(leg);
+			for (int j = 0; j < JOINTS; j++) {
+				this.joints[leg * JOINTS + j] = this.skeleton.indexOf(chain.get(j));
+			}
+		}
+		this.solutions = new double[spider.legCount() * HINGES];
+		this.solved = new boolean[spider.legCount()];
+	}
+
+	/**
+	 * Starts a new frame with the specified iteration budget, and brings the
+	 * transforms of the skeleton up to date.
+	 *
+	 * @param budget The greatest number of iterations of all solves in the frame.
+	 */
+	public void beginFrame(final int budget) {
+		this.remaining = budget;
+		this.iterations = 0;
+		this.kinematics.update();
+	}
+
+	/**
+	 * Writes the position of the foot of the specified leg at its current angles,
+	 * from which the next solve of the leg starts. The world matrix of the body
+	 * must be current.
+	 *
+	 * @param leg The index of the leg.
+	 * @param dst The array to which to write the x, y, and z components of the
+	 *            position, in the frame of the root of the skeleton.
+	 */
+	public void foot(final int leg, final double[] dst) {
+		this.startFromSkeleton(leg);
+		this.forward(leg);
+		System.arraycopy(this.foot, 0, dst, 0, 3);
+	}
+
+	/**
+	 * Gets the number of iterations used by all solves since the start of the
+	 * frame.
+	 *
+	 * @return The number of iterations used in this frame.
+	 */
+	public long iterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Gets the number of legs of the spider.
+	 *
+	 * @return The number of legs.
+	 */
+	public int legCount() {
+		return this.solved.length;
+	}
+
+	/**
+	 * Forgets the solution of every leg, so that the next solve of each leg starts
+	 * from its current angles.
+	 */
+	public void reset() {
+		Arrays.fill(this.solved, false);
+	}
+
+	/**
+	 * Moves the foot of the specified leg toward the specified target, within the
+	 * extents of its joints and the remaining iteration budget of the frame, and
+	 * writes the resulting angles into the skeleton. The joints whose angles
+	 * changed are marked out of date.
+	 *
+	 * @param leg The index of the leg.
+	 * @param x   The x component of the target.
+	 * @param y   The y component of the target.
+	 * @param z   The z component of the target.
+	 * @return Whether the foot is within the tolerance of the target.
+	 */
+	public boolean solve(final int leg, final double x, final double y, final double z) {
+		if (!this.solved[leg]) {
+			this.startFromSkeleton(leg);
+		}
+		final double[] extents = this.skeleton.extents();
+		this.forward(leg);
+		boolean reached = this.distanceSquared(x, y, z) <= this.tolerance * this.tolerance;
+		final int budget = Math.min(this.maxIterations, this.remaining);
+		int iteration = 0;
+		while (!reached && iteration < budget) {
+			this.step(leg, x, y, z, extents);
+			iteration++;
+			this.forward(leg);
+			reached = this.distanceSquared(x, y, z) <= this.tolerance * this.tolerance;
+		}
+		this.remaining -= iteration;
+		this.iterations += iteration;
+
+		final double[] angles = this.skeleton.angles();
+		for (int j = 0; j < JOINTS; j++) {
+			final int joint = this.joints[leg * JOINTS + j];
+			final int a = joint * Skeleton.ANGLE_STRIDE;
+			final int h = leg * HINGES + j * Skeleton.ANGLE_STRIDE;
+			if (angles[a + Skeleton.X] != this.solutions[h + Skeleton.X]
+					|| angles[a + Skeleton.Y] != this.solutions[h + Skeleton.Y]
+					|| angles[a + Skeleton.Z] != this.solutions[h + Skeleton.Z]) {
+				System.arraycopy(this.solutions, h, angles, a, Skeleton.ANGLE_STRIDE);
+				this.skeleton.component(joint).markDirty();
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * Gets the square of the distance from the foot to the target.
+	 *
+	 * @param x The x component of the target.
+	 * @param y The y component of the target.
+	 * @param z The z component of the target.
+	 * @return The square of the distance from the foot to the target.
+	 */
+	private double distanceSquared(final double x, final double y, final double z) {
+		final double dx = this.foot[0] - x, dy = this.foot[1] - y, dz = this.foot[2] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Gets the index in the extents of the skeleton of the minimum angle of the
+	 * specified hinge, which is followed by its maximum angle.
+	 *
+	 * @param leg The index of the leg.
+	 * @param h   The index of the hinge within the leg.
+	 * @return The index of the minimum angle of the hinge.
+	 */
+	private int extentIndex(final int leg, final int h) {
+		return this.joints[leg * JOINTS + h / Skeleton.ANGLE_STRIDE] * Skeleton.EXTENT_STRIDE
+				+ 2 * (h % Skeleton.ANGLE_STRIDE);
+	}
+
+	/**
+	 * Computes the origin and axis of every hinge of the specified leg and the
+	 * position of its foot, from its solution and the world matrix of its parent.
+	 *
+	 * @param leg The index of the leg.
+	 */
+	private void forward(final int leg) {
+		final double[] m = this.frame;
+		final double[] positions = this.skeleton.positions();
+		final int first = this.joints[leg * JOINTS];
+		System.arraycopy(this.kinematics.worlds(), this.skeleton.parent(first) * ForwardKinematics.MATRIX_STRIDE, m,
+				0, ForwardKinematics.MATRIX_STRIDE);
+		for (int j = 0; j < JOINTS; j++) {
+			final int p = this.joints[leg * JOINTS + j] * Skeleton.POSITION_STRIDE;
+			final double px = positions[p + Skeleton.X], py = positions[p + Skeleton.Y],
+					pz = positions[p + Skeleton.Z];
+			for (int r = 0; r < 3; r++) {
+				m[12 + r] += m[r] * px + m[4 + r] * py + m[8 + r] * pz;
+			}
+			for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+				// the hinge turns around the current column of its axis
+				final int h = j * Skeleton.ANGLE_STRIDE + axis;
+				System.arraycopy(m, 12, this.origins, 3 * h, 3);
+				System.arraycopy(m, 4 * axis, this.axes, 3 * h, 3);
+				// right-multiplying by the rotation mixes the other two columns
+				final double radians = Math.toRadians(this.solutions[leg * HINGES + h]);
+				final double sin = Math.sin(radians), cos = Math.cos(radians);
+				final int u = 4 * ((axis + 1) % 3), v = 4 * ((axis + 2) % 3);
+				for (int r = 0; r < 3; r++) {
+					final double mu = m[u + r], mv = m[v + r];
+					m[u + r] = cos * mu + sin * mv;
+					m[v + r] = cos * mv - sin * mu;
+				}
+			}
+		}
+		for (int r = 0; r < 3; r++) {
+			this.foot[r] = m[12 + r] + m[8 + r] * Spider.OUT_JOINT_HEIGHT;
+		}
+	}
+
+	/**
+	 * Copies the current angles of the specified leg into its solution.
+	 *
+	 * @param leg The index of the leg.
+	 */
+	private void startFromSkeleton(final int leg) {
+		final double[] angles = this.skeleton.angles();
+		for (int j = 0; j < JOINTS; j++) {
+			System.arraycopy(angles, this.joints[leg * JOINTS + j] * Skeleton.ANGLE_STRIDE, this.solutions,
+					leg * HINGES + j * Skeleton.ANGLE_STRIDE, Skeleton.ANGLE_STRIDE);
+		}
+		this.solved[leg] = true;
+	}
+
+	/**
+	 * Turns the free hinges of the specified leg by one damped least squares
+	 * step toward the target, from the frames of the last forward pass.
+	 *
+	 * @param leg     The index of the leg.
+	 * @param x       The x component of the target.
+	 * @param y       The y component of the target.
+	 * @param z       The z component of the target.
+	 * @param extents The extents of the joints of the skeleton.
+	 */
+	private void step(final int leg, final double x, final double y, final double z, final double[] extents) {
+		final int s = leg * HINGES;
+		final double ex = x - this.foot[0], ey = y - this.foot[1], ez = z - this.foot[2];
+		// the symmetric matrix J * J^T + DAMPING^2 * I over the free hinges
+		final double damping = DAMPING * DAMPING;
+		double a00 = damping, a01 = 0, a02 = 0, a11 = damping, a12 = 0, a22 = damping;
+		for (int h = 0; h < HINGES; h++) {
+			final int e = this.extentIndex(leg, h);
+			final int o = 3 * h;
+			final double ax = this.axes[o], ay = this.axes[o + 1], az = this.axes[o + 2];
+			final double vx = this.foot[0] - this.origins[o], vy = this.foot[1] - this.origins[o + 1],
+					vz = this.foot[2] - this.origins[o + 2];
+			final double jx = ay * vz - az * vy, jy = az * vx - ax * vz, jz = ax * vy - ay * vx;
+			this.jacobian[o] = jx;
+			this.jacobian[o + 1] = jy;
+			this.jacobian[o + 2] = jz;
+			final double pull = jx * ex + jy * ey + jz * ez;
+			final double angle = this.solutions[s + h];
+			this.free[h] = extents[e] < extents[e + 1] && !(angle >= extents[e + 1] && pull > 0)
+					&& !(angle <= extents[e] && pull < 0);
+			if (this.free[h]) {
+				a00 += jx * jx;
+				a01 += jx * jy;
+				a02 += jx * jz;
+				a11 += jy * jy;
+				a12 += jy * jz;
+				a22 += jz * jz;
+			}
+		}
+
+		// solve (J * J^T + DAMPING^2 * I) * w = e by Cramer's rule
+		final double c00 = a11 * a22 - a12 * a12, c01 = a02 * a12 - a01 * a22, c02 = a01 * a12 - a02 * a11;
+		final double c11 = a00 * a22 - a02 * a02, c12 = a01 * a02 - a00 * a12, c22 = a00 * a11 - a01 * a01;
+		final double determinant = a00 * c00 + a01 * c01 + a02 * c02;
+		final double wx = (c00 * ex + c01 * ey + c02 * ez) / determinant;
+		final double wy = (c01 * ex + c11 * ey + c12 * ez) / determinant;
+		final double wz = (c02 * ex + c12 * ey + c22 * ez) / determinant;
+
+		// and turn each free hinge by J^T * w
+		for (int h = 0; h < HINGES; h++) {
+			final int e = this.extentIndex(leg, h);
+			double angle = this.solutions[s + h];
+			if (this.free[h]) {
+				final int o = 3 * h;
+				angle += Math.toDegrees(this.jacobian[o] * wx + this.jacobian[o + 1] * wy + this.jacobian[o + 2] * wz);
+			}
+			this.solutions[s + h] = Math.max(extents[e], Math.min(extents[e + 1], angle));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * LevelOfDetail.java - chooses how finely to tessellate each part of a model
+ */
+
+import javax.media.opengl.GL2;
+
+/**
+ * Chooses, every frame, how finely each {@link Tessellable} part of a skeleton
+ * is tessellated from the size of its silhouette on screen.
+ *
+ * Level 0 is the finest level, tessellated with the full number of slices and
+ * stacks of the primitive, and each following level halves them. A part moves
+ * to a finer level only once its projected radius exceeds the threshold of that
+ * level by the hysteresis factor, and to a coarser level only once it falls
+ * below its threshold by the same factor, so that a part hovering near a
+ * threshold does not switch levels every frame.
+ */
+public class LevelOfDetail {
+
+	/**
+	 * The factor by which the projected radius must pass a threshold before the
+	 * level changes.
+	 */
+	public static final double HYSTERESIS = 1.25;
+	/** The number of levels of detail of each primitive. */
+	public static final int LEVELS = 4;
+	/** The fewest slices around the axis of a primitive at any level. */
+	public static final int MIN_SLICES = 6;
+	/** The fewest stacks along the axis of a primitive at any level. */
+	public static final int MIN_STACKS = 4;
+	/**
+	 * The projected radius in pixels at or above which each level but the
+	 * coarsest is used instead of the next coarser one.
+	 */
+	private static final double[] THRESHOLDS = { 24, 8, 3 };
+
+	/**
+	 * Chooses the level of detail for a part with the specified projected radius,
+	 * given the level at which it was last drawn.
+	 *
+	 * @param pixels  The radius of the silhouette of the part on screen, in
+	 *                pixels.
+	 * @param current The level at which the part was last drawn.
+	 * @return The level at which to draw the part.
+	 */
+	public static int select(final double pixels, final int current) {
+		int level = current;
+		while (level > 0 && pixels >= THRESHOLDS[level - 1] * HYSTERESIS) {
+			level--;
+		}
+		while (level < LEVELS - 1 && pixels < THRESHOLDS[level] / HYSTERESIS) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Gets the number of slices of a primitive at the specified level.
+	 *
+	 * @param slices The number of slices of the primitive at the finest level.
+	 * @param level  The level of detail.
+	 * @return The number of slices at the specified level.
+	 */
+	public static int slices(final int slices, final int level) {
+		return Math.max(MIN_SLICES, slices >> level);
+	}
+
+	/**
+	 * Gets the number of stacks of a primitive at the specified level.
+	 *
+	 * @param stacks The number of stacks of the primitive at the finest level.
+	 * @param level  The level of detail.
+	 * @return The number of stacks at the specified level.
+	 */
+	public static int stacks(final int stacks, final int level) {
+		return Math.max(MIN_STACKS, stacks >> level);
+	}
+
+	/** The modelview matrix on which the skeleton is drawn. */
+	private final double[] base = new double[ForwardKinematics.MATRIX_STRIDE];
+	/** The projection matrix. */
+	private final double[] projection = new double[ForwardKinematics.MATRIX_STRIDE];
+	/** The x, y, width, and height of the viewport. */
+	private final int[] viewport = new int[4];
+
+	/**
+	 * Updates the transforms of the specified skeleton, then chooses the level of
+	 * detail of each of its tessellable parts from the current modelview and
+	 * projection matrices and viewport.
+	 *
+	 * The components whose level changed are marked out of date, so that their
+	 * call lists are recompiled on the next update.
+	 *
+	 * @param gl         The render commands with which to read the current
+	 *                   matrices.
+	 * @param kinematics The transforms of the skeleton whose parts to examine.
+	 * @return Whether the level of any part changed.
+	 */
+	public boolean update(final RenderCommands gl, final ForwardKinematics kinematics) {
+		kinematics.update();
+		gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, this.base, 0);
+		gl.glGetDoublev(GL2.GL_PROJECTION_MATRIX, this.projection, 0);
+		gl.glGetIntegerv(GL2.GL_VIEWPORT, this.viewport, 0);
+
+		// the length of the y row of the projection is the focal length, whatever
+		// rigid view transform is multiplied into it
+		final double[] p = this.projection;
+		final double pixelsPerUnit = Math.sqrt(p[1] * p[1] + p[5] * p[5] + p[9] * p[9]) * this.viewport[3] / 2;
+
+		final Skeleton skeleton = kinematics.skeleton();
+		final double[] worlds = kinematics.worlds();
+		final double[] b = this.base;
+		boolean changed = false;
+		for (int i = 0; i < skeleton.size(); i++) {
+			final Component component = skeleton.component(i);
+			if (!(component.displayable() instanceof Tessellable)) {
+				continue;
+			}
+			final Tessellable part = (Tessellable) component.displayable();
+
+			// the origin of the part in the coordinates of the modelview matrix
+			final int m = i * ForwardKinematics.MATRIX_STRIDE;
+			final double wx = worlds[m + 12], wy = worlds[m + 13], wz = worlds[m + 14];
+			final double x = b[0] * wx + b[4] * wy + b[8] * wz + b[12];
+			final double y = b[1] * wx + b[5] * wy + b[9] * wz + b[13];
+			final double z = b[2] * wx + b[6] * wy + b[10] * wz + b[14];
+			// the clip space w is the distance in front of the eye; parts behind the
+			// eye get the coarsest level
+			final double w = p[3] * x + p[7] * y + p[11] * z + p[15];
+			final double pixels = w > 0 ? part.silhouetteRadius() * pixelsPerUnit / w : 0;
+
+			final int level = select(pixels, part.levelOfDetail());
+			if (level != part.levelOfDetail()) {
+				part.setLevelOfDetail(level);
+				component.markDirty();
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
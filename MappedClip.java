@@ -0,0 +1,265 @@
+/**
+ * MappedClip.java - an animation clip streamed from a memory-mapped file
+ */
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An animation of some of the joints of a {@link Skeleton}, read from a binary
+ * clip file which is mapped into memory instead of read onto the heap.
+ *
+ * A clip file holds frames sampled at a fixed rate. All numbers are little
+ * endian:
+ *
+ * <pre>
+ * int    magic, the bytes "SPCL"
+ * int    version, currently 1
+ * int    number of joints
+ * int    number of frames
+ * float  frames per second
+ * int    offset of the first frame from the start of the file
+ * joint table: for each joint, a short byte count and the UTF-8 bytes of its name
+ * padding up to the offset of the first frame, a multiple of 4
+ * frames: for each frame and each joint, the float x, y, and z angles in degrees
+ * </pre>
+ *
+ * Opening a clip reads only the header and the joint table; the frames stay in
+ * the mapped file, and the operating system pages them in as they are sampled.
+ * Opening a large motion library is therefore close to instant, and costs no
+ * heap beyond the joint table. Sampling reads the two frames around the time
+ * straight from the mapping and interpolates their angles linearly, which the
+ * fixed, dense frame rate makes adequate. Sampling only reads the mapping at
+ * absolute positions, so any number of players may sample a clip at once.
+ */
+public class MappedClip implements PoseSource {
+	/** The first four bytes of a clip file. */
+	public static final int MAGIC = 'S' | 'P' << 8 | 'C' << 16 | 'L' << 24;
+	/** The version of the format which this class reads and writes. */
+	public static final int VERSION = 1;
+
+	/** The size of the fixed part of the header, in bytes. */
+	private static final int HEADER_SIZE = 24;
+
+	/**
+	 * Maps the specified clip file for the specified skeleton.
+	 *
+	 * @param file     The clip file.
+	 * @param skeleton The skeleton whose joints the clip animates.
+	 * @return The clip.
+	 * @throws IOException              if the file cannot be mapped or is not a
+	 *                                  clip file.
+	 * @throws IllegalArgumentException if a joint of the clip is not in the
+	 *                                  skeleton.
+	 */
+	public static MappedClip open(final Path file, final Skeleton skeleton) throws IOException {
+		final MappedByteBuffer buffer;
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map");
+			}
+			// the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException(file + " is not a clip file");
+		}
+		final int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException(file + " has unsupported version " + version);
+		}
+		final int jointCount = buffer.getInt();
+		final int frameCount = buffer.getInt();
+		final float frameRate = buffer.getFloat();
+		final int dataOffset = buffer.getInt();
+		if (jointCount < 0 || frameCount < 1 || !(frameRate > 0) || dataOffset < HEADER_SIZE
+				|| dataOffset % 4 != 0 || dataOffset > buffer.capacity()
+				|| (buffer.capacity() - dataOffset) / 4 / Skeleton.ANGLE_STRIDE / frameCount < jointCount) {
+			throw new IOException(file + " has a malformed header");
+		}
+
+		final int[] joints = new int[jointCount];
+		for (int track = 0; track < jointCount; track++) {
+			// the table must end before the samples start
+			if (dataOffset - buffer.position() < 2) {
+				throw new IOException(file + " has a malformed joint table");
+			}
+			final byte[] name = new byte[buffer.getShort() & 0xffff];
+			if (dataOffset - buffer.position() < name.length) {
+				throw new IOException(file + " has a malformed joint table");
+			}
+			buffer.get(name);
+			joints[track] = skeleton.indexOf(new String(name, StandardCharsets.UTF_8));
+		}
+
+		buffer.position(dataOffset);
+		final FloatBuffer frames = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		return new MappedClip(joints, frames, frameCount, frameRate);
+	}
+
+	/**
+	 * Samples the specified source at a fixed rate over its duration and writes
+	 * the samples of its tracks to the specified clip file.
+	 *
+	 * @param file      The clip file to create or replace.
+	 * @param skeleton  The skeleton whose joints the source poses, all of whose
+	 *                  animated joints must be named.
+	 * @param source    The source to sample.
+	 * @param frameRate The number of frames per second.
+	 * @throws IOException              if the file cannot be written.
+	 * @throws IllegalArgumentException if the name of an animated joint is
+	 *                                  longer than 65535 bytes in UTF-8.
+	 */
+	public static void write(final Path file, final Skeleton skeleton, final PoseSource source,
+			final float frameRate) throws IOException {
+		final int jointCount = source.trackCount();
+		final int frameCount = (int) Math.floor(source.duration() * frameRate) + 1;
+		final byte[][] names = new byte[jointCount][];
+		int tableSize = 0;
+		for (int track = 0; track < jointCount; track++) {
+			names[track] = skeleton.component(source.joint(track)).name().getBytes(StandardCharsets.UTF_8);
+			if (names[track].length > 0xffff) {
+				throw new IllegalArgumentException("the name of joint " + source.joint(track) + " is too long");
+			}
+			tableSize += 2 + names[track].length;
+		}
+		final int dataOffset = (HEADER_SIZE + tableSize + 3) & ~3;
+		final long size = dataOffset + (long) frameCount * jointCount * Skeleton.ANGLE_STRIDE * 4;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("the clip is too large to map");
+		}
+
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(jointCount).putInt(frameCount).putFloat(frameRate)
+					.putInt(dataOffset);
+			for (final byte[] name : names) {
+				buffer.putShort((short) name.length).put(name);
+			}
+
+			buffer.position(dataOffset);
+			final double[] pose = skeleton.angles().clone();
+			for (int frame = 0; frame < frameCount; frame++) {
+				source.sample(frame / (double) frameRate, pose);
+				for (int track = 0; track < jointCount; track++) {
+					final int a = source.joint(track) * Skeleton.ANGLE_STRIDE;
+					buffer.putFloat((float) pose[a + Skeleton.X]).putFloat((float) pose[a + Skeleton.Y])
+							.putFloat((float) pose[a + Skeleton.Z]);
+				}
+			}
+			buffer.force();
+		}
+	}
+
+	/** The number of frames of the clip. */
+	private final int frameCount;
+	/** The number of frames per second. */
+	private final float frameRate;
+	/** The angles of each frame, as mapped from the file. */
+	private final FloatBuffer frames;
+	/** The index in the skeleton of the joint of each track. */
+	private final int[] joints;
+
+	/**
+	 * Instantiates a clip over the specified mapped frames.
+	 *
+	 * @param joints     The index in the skeleton of the joint of each track.
+	 * @param frames     The angles of each frame.
+	 * @param frameCount The number of frames.
+	 * @param frameRate  The number of frames per second.
+	 */
+	private MappedClip(final int[] joints, final FloatBuffer frames, final int frameCount, final float frameRate) {
+		this.joints = joints;
+		this.frames = frames;
+		this.frameCount = frameCount;
+		this.frameRate = frameRate;
+	}
+
+	/**
+	 * Gets the time of the last frame.
+	 *
+	 * @return The length of this clip, in seconds.
+	 */
+	@Override
+	public double duration() {
+		return (this.frameCount - 1) / (double) this.frameRate;
+	}
+
+	/**
+	 * Gets the number of frames of this clip.
+	 *
+	 * @return The number of frames.
+	 */
+	public int frameCount() {
+		return this.frameCount;
+	}
+
+	/**
+	 * Gets the number of frames per second of this clip.
+	 *
+	 * @return The frame rate, in frames per second.
+	 */
+	public float frameRate() {
+		return this.frameRate;
+	}
+
+	/**
+	 * Gets the index in the skeleton of the joint of the specified track.
+	 *
+	 * @param track The index of the track.
+	 * @return The index of the joint of the track.
+	 */
+	@Override
+	public int joint(final int track) {
+		return this.joints[track];
+	}
+
+	/**
+	 * Writes the angles of every animated joint at the specified time into the
+	 * specified array. Before the first frame and after the last, the joints hold
+	 * the angles of that frame. The angles of joints without a track are left
+	 * unchanged.
+	 *
+	 * @param time   The time from the start of the clip, in seconds.
+	 * @param angles The array of angles, with {@link Skeleton#ANGLE_STRIDE}
+	 *               entries per joint in the order of the skeleton.
+	 */
+	@Override
+	public void sample(final double time, final double[] angles) {
+		final double position = Math.max(0, Math.min(this.frameCount - 1, time * this.frameRate));
+		final int frame = (int) position;
+		final int stride = this.joints.length * Skeleton.ANGLE_STRIDE;
+		// the last frame has no successor, and is sampled with t = 0
+		final int step = frame < this.frameCount - 1 ? stride : 0;
+		final float t = (float) (position - frame);
+		int from = frame * stride;
+		for (int track = 0; track < this.joints.length; track++) {
+			final int offset = this.joints[track] * Skeleton.ANGLE_STRIDE;
+			for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+				final float a = this.frames.get(from);
+				final float b = this.frames.get(from + step);
+				angles[offset + axis] = a + (b - a) * t;
+				from++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of tracks of this clip.
+	 *
+	 * @return The number of animated joints.
+	 */
+	@Override
+	public int trackCount() {
+		return this.joints.length;
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Mat4Array.java - a batch of 4 by 4 matrices stored entry by entry
+ */
+
+/**
+ * A fixed number of 4 by 4 matrices stored as a structure of arrays: one
+ * {@code float} array per entry, holding that entry of every matrix, so that
+ * batch operations read and write consecutive memory and can be vectorized.
+ *
+ * Entries are numbered in column major order, as in OpenGL.
+ */
+public class Mat4Array {
+	/** The number of entries of a matrix. */
+	public static final int ENTRIES = 16;
+
+	/** The array of each entry, in column major order. */
+	private final float[][] entries = new float[ENTRIES][];
+
+	/**
+	 * Instantiates an array of the specified number of zero matrices.
+	 *
+	 * @param size The number of matrices.
+	 */
+	public Mat4Array(final int size) {
+		for (int k = 0; k < ENTRIES; k++) {
+			this.entries[k] = new float[size];
+		}
+	}
+
+	/**
+	 * Gets the array which holds the specified entry of every matrix.
+	 *
+	 * @param k The index of the entry, in column major order.
+	 * @return The backing array of the entry.
+	 */
+	public float[] entry(final int k) {
+		return this.entries[k];
+	}
+
+	/**
+	 * Copies the specified matrix into the specified array in column major order,
+	 * as expected by {@code glMultMatrixf}.
+	 *
+	 * @param i      The index of the matrix.
+	 * @param dst    The array to which to write the matrix.
+	 * @param offset The offset at which to write the matrix.
+	 */
+	public void get(final int i, final float[] dst, final int offset) {
+		for (int k = 0; k < ENTRIES; k++) {
+			dst[offset + k] = this.entries[k][i];
+		}
+	}
+
+	/**
+	 * Gets the number of matrices in this array.
+	 *
+	 * @return The number of matrices.
+	 */
+	public int size() {
+		return this.entries[0].length;
+	}
+}
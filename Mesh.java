@@ -0,0 +1,119 @@
+/**
+ * Mesh.java - an indexed triangle mesh with interleaved positions and normals
+ */
+
+import java.util.Arrays;
+
+/**
+ * An indexed triangle mesh held in main memory, whose vertices are stored
+ * interleaved as the x, y, and z components of the position followed by the x,
+ * y, and z components of the normal.
+ */
+public class Mesh {
+	/** The number of floats per vertex. */
+	public static final int VERTEX_STRIDE = 6;
+	/** The offset of the normal within a vertex. */
+	public static final int NORMAL_OFFSET = 3;
+
+	/** The number of used entries of the indices array. */
+	private int indexCount = 0;
+	/** The indices of the vertices of each triangle. */
+	private int[] indices;
+	/** The number of vertices. */
+	private int vertexCount = 0;
+	/** The interleaved positions and normals of the vertices. */
+	private float[] vertices;
+
+	/**
+	 * Instantiates an empty mesh with room for the specified number of vertices
+	 * and indices.
+	 *
+	 * @param vertexCapacity The expected number of vertices.
+	 * @param indexCapacity  The expected number of indices.
+	 */
+	public Mesh(final int vertexCapacity, final int indexCapacity) {
+		this.vertices = new float[Math.max(1, vertexCapacity) * VERTEX_STRIDE];
+		this.indices = new int[Math.max(3, indexCapacity)];
+	}
+
+	/**
+	 * Adds a triangle with the specified vertices, in counterclockwise order when
+	 * seen from the front.
+	 *
+	 * @param a The index of the first vertex.
+	 * @param b The index of the second vertex.
+	 * @param c The index of the third vertex.
+	 */
+	public void addTriangle(final int a, final int b, final int c) {
+		if (this.indexCount + 3 > this.indices.length) {
+			this.indices = Arrays.copyOf(this.indices, 2 * this.indices.length);
+		}
+		this.indices[this.indexCount++] = a;
+		this.indices[this.indexCount++] = b;
+		this.indices[this.indexCount++] = c;
+	}
+
+	/**
+	 * Adds a vertex with the specified position and normal.
+	 *
+	 * @param px The x component of the position.
+	 * @param py The y component of the position.
+	 * @param pz The z component of the position.
+	 * @param nx The x component of the normal.
+	 * @param ny The y component of the normal.
+	 * @param nz The z component of the normal.
+	 * @return The index of the new vertex.
+	 */
+	public int addVertex(final double px, final double py, final double pz, final double nx, final double ny,
+			final double nz) {
+		if ((this.vertexCount + 1) * VERTEX_STRIDE > this.vertices.length) {
+			this.vertices = Arrays.copyOf(this.vertices, 2 * this.vertices.length);
+		}
+		final int v = this.vertexCount * VERTEX_STRIDE;
+		this.vertices[v] = (float) px;
+		this.vertices[v + 1] = (float) py;
+		this.vertices[v + 2] = (float) pz;
+		this.vertices[v + NORMAL_OFFSET] = (float) nx;
+		this.vertices[v + NORMAL_OFFSET + 1] = (float) ny;
+		this.vertices[v + NORMAL_OFFSET + 2] = (float) nz;
+		return this.vertexCount++;
+	}
+
+	/**
+	 * Gets the number of indices, which is three times the number of triangles.
+	 *
+	 * @return The number of indices.
+	 */
+	public int indexCount() {
+		return this.indexCount;
+	}
+
+	/**
+	 * Gets the indices of the vertices of each triangle. Only the first
+	 * {@link #indexCount()} entries are used.
+	 *
+	 * @return The indices of the vertices of each triangle.
+	 */
+	public int[] indices() {
+		return this.indices;
+	}
+
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return The number of vertices.
+	 */
+	public int vertexCount() {
+		return this.vertexCount;
+	}
+
+	/**
+	 * Gets the interleaved positions and normals of the vertices. Only the first
+	 * {@link #vertexCount()} times {@link #VERTEX_STRIDE} entries are used.
+	 *
+	 * @return The interleaved positions and normals of the vertices.
+	 */
+	public float[] vertices() {
+		return this.vertices;
+	}
+}
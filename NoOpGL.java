@@ -0,0 +1,132 @@
+/**
+ * NoOpGL.java - an OpenGL object which ignores every call
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL2;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Creates OpenGL objects which need no context and ignore every call, so that
+ * drawing code can be measured for its own CPU cost.
+ *
+ * Each call returns zero, {@code false}, or {@code null} and writes nothing into
+ * its array or buffer arguments, except that the {@code glGen} methods hand out
+ * distinct names, so that objects created through it can be told apart by
+ * {@link RecordingRenderCommands}. {@link GL2} has more methods than a dynamic
+ * proxy can implement, so the first call of {@link #create()} writes the source
+ * of a class with an empty body for every method of the interface, compiles it
+ * with the compiler of the running JDK, and loads it. Calls on the result are
+ * then ordinary virtual calls of empty methods.
+ */
+public final class NoOpGL {
+	/** The name of the generated class. */
+	private static final String CLASS_NAME = "GeneratedNoOpGL2";
+
+	/** The generated class, once it was compiled. */
+	private static Class<?> generated = null;
+
+	/**
+	 * Creates an OpenGL object which ignores every call, generating its class on
+	 * the first call.
+	 *
+	 * @return The OpenGL object.
+	 * @throws IllegalStateException if the running Java has no compiler.
+	 * @throws UncheckedIOException  if the class cannot be written or compiled.
+	 */
+	public static synchronized GL2 create() {
+		try {
+			if (generated == null) {
+				generated = generate();
+			}
+			return (GL2) generated.getDeclaredConstructor().newInstance();
+		} catch (final ReflectiveOperationException exception) {
+			throw new IllegalStateException(exception);
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * Writes, compiles, and loads a class implementing {@link GL2} with empty
+	 * methods.
+	 *
+	 * @return The class.
+	 * @throws IOException                  if the class cannot be written.
+	 * @throws ReflectiveOperationException if the class cannot be loaded.
+	 */
+	private static Class<?> generate() throws IOException, ReflectiveOperationException {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("no Java compiler; run on a JDK to use NoOpGL");
+		}
+
+		// one method per signature, as interfaces inherited twice repeat them
+		final Map<String, Method> methods = new LinkedHashMap<String, Method>();
+		for (final Method method : GL2.class.getMethods()) {
+			final StringBuilder signature = new StringBuilder(method.getName());
+			for (final Class<?> type : method.getParameterTypes()) {
+				signature.append(',').append(type.getName());
+			}
+			methods.put(signature.toString(), method);
+		}
+
+		final StringBuilder source = new StringBuilder();
+		source.append("public class ").append(CLASS_NAME).append(" implements javax.media.opengl.GL2 {\n");
+		source.append("\tprivate int names = 0;\n");
+		for (final Method method : methods.values()) {
+			final Class<?> type = method.getReturnType();
+			final boolean generates = method.getName().startsWith("glGen");
+			source.append("\tpublic ").append(type.getCanonicalName()).append(' ').append(method.getName())
+					.append('(');
+			final Class<?>[] parameters = method.getParameterTypes();
+			for (int i = 0; i < parameters.length; i++) {
+				source.append(i > 0 ? ", " : "").append(parameters[i].getCanonicalName()).append(" p").append(i);
+			}
+			source.append(") {");
+			if (generates && type == int.class && parameters.length == 1 && parameters[0] == int.class) {
+				// glGenLists returns the first of a range of names
+				source.append(" final int first = this.names + 1; this.names += p0; return first;");
+			} else if (generates && parameters.length == 3 && parameters[1] == int[].class) {
+				source.append(" for (int i = 0; i < p0; i++) { p1[p2 + i] = ++this.names; }");
+			} else if (type == boolean.class) {
+				source.append(" return false;");
+			} else if (type.isPrimitive() && type != void.class) {
+				source.append(" return (").append(type.getName()).append(") 0;");
+			} else if (type != void.class) {
+				source.append(" return null;");
+			}
+			source.append(" }\n");
+		}
+		source.append("}\n");
+
+		final Path directory = Files.createTempDirectory("noopgl");
+		final Path file = directory.resolve(CLASS_NAME + ".java");
+		Files.write(file, source.toString().getBytes(StandardCharsets.UTF_8));
+		final int status = compiler.run(null, null, null, "-nowarn", "-classpath",
+				System.getProperty("java.class.path"), "-d", directory.toString(), file.toString());
+		if (status != 0) {
+			throw new IOException("cannot compile " + file);
+		}
+		final URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+				GL2.class.getClassLoader());
+		return loader.loadClass(CLASS_NAME);
+	}
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private NoOpGL() {
+	}
+}
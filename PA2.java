@@ -23,17 +23,20 @@
  * 
  */
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import javax.media.opengl.GL;
@@ -44,8 +47,8 @@ import javax.media.opengl.GLCapabilities;
 import javax.media.opengl.GLEventListener;
 import javax.media.opengl.glu.GLU;
 import javax.swing.JFrame;
+import javax.swing.Timer;
 
-import com.jogamp.opengl.util.FPSAnimator;//for new version of gl
 import com.jogamp.opengl.util.gl2.GLUT;//for new version of gl
 
 /**
@@ -72,22 +75,30 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 	public static final Point3D INITIAL_POSITION = new Point3D(0, 0, 0);
 	/** The angle by which to rotate the joint on user request to rotate. */
 	public static final double ROTATION_ANGLE = 2.0;
+	/** The time between two test cases in the animation clip, in seconds. */
+	public static final double CLIP_INTERVAL = 1.0;
+	/** The number of frames per second of a saved clip file. */
+	public static final float CLIP_FRAME_RATE = 60;
+	/** The time between two checks for due records while replaying a session, in milliseconds. */
+	public static final int REPLAY_INTERVAL = 5;
+	/** The title of the window. */
+	public static final String TITLE = "CS480/CS680 : Hand Simulator";
 	/** Randomly generated serial version UID. */
 	private static final long serialVersionUID = -7060944143920496524L;
 
 	/**
 	 * Runs the hand simulation in a single JFrame.
 	 * 
-	 * @param args This parameter is ignored.
+	 * @param args The command line options, as described in
+	 *             {@link ViewerOptions}.
 	 */
 	public static void main(final String[] args) {
-		new PA2().animator.start();
+		final PA2 pa2 = new PA2(ViewerOptions.parse(args));
+		pa2.pacer.start();
 	}
 
-	/**
-	 * The animator which controls the framerate at which the canvas is animated.
-	 */
-	final FPSAnimator animator;
+	/** Decides when the canvas is redrawn. */
+	final FramePacer pacer;
 	/** The canvas on which we draw the scene. */
 	private final GLCanvas canvas;
 	/** The capabilities of the canvas. */
@@ -101,18 +112,87 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 	/** The axis around which to rotate the selected joints. */
 	private Axis selectedAxis = Axis.X;
 
-	/** Whether the state of the model has been changed. */
+	/**
+	 * The render commands which forward to the OpenGL object of the canvas,
+	 * replaced whenever the canvas gets a new OpenGL object. Only the drawing
+	 * thread uses this.
+	 */
+	private JoglRenderCommands commands = null;
+	/** The crowd of spiders drawn with instancing, or {@code null} for none. */
+	private final CrowdRenderer crowd;
+	/** Chooses how finely to tessellate each part of the spider. */
+	private final LevelOfDetail levelOfDetail = new LevelOfDetail();
+	/** The options with which the viewer was started. */
+	private final ViewerOptions options;
+	/** Plays the clip through the test cases, or a clip file, on the drawn spider. */
+	private final ClipPlayer player;
+	/** Times the phases of each frame, or {@code null} if not profiling. */
+	private final FrameProfiler profiler;
+	/** Records each edit of the spider and the view, or {@code null} if not recording. */
+	private final SessionRecorder recorder;
+	/** Merges the joint rotations requested between two frames. */
+	private final InputAccumulator input;
+	/** Hands snapshots of the edited spider over to the drawing thread. */
+	private final PoseHandoff handoff;
+	/**
+	 * Whether the state of the drawn spider has changed since its call lists were
+	 * last updated. Only the drawing thread uses this.
+	 */
 	private boolean stateChanged = true;
+	/** The rotation applied by the last mouse drag, reused for each event. */
+	private final Quaternion drag_quaternion = new Quaternion();
 	/** The quaternion which controls the rotation of the world. */
-	private Quaternion viewing_quaternion = new Quaternion();
+	private final Quaternion viewing_quaternion = new Quaternion();
+	/** The matrix of the viewing quaternion, reused for each publication. */
+	private final float[] viewing_matrix = new float[16];
 
 	private final Arm arm;
+	/** The spider edited by user input on the event dispatch thread. */
 	private final Spider spider;
+	/** The copy of the spider drawn on the OpenGL thread. */
+	private final Spider renderSpider;
 
 	/**
-	 * Initializes the necessary OpenGL objects and adds a canvas to this JFrame.
+	 * Initializes the necessary OpenGL objects and adds a canvas to this JFrame,
+	 * with the default options.
 	 */
 	public PA2() {
+		this(new ViewerOptions());
+	}
+
+	/**
+	 * Initializes the necessary OpenGL objects and adds a canvas to this JFrame.
+	 * 
+	 * @param options The options with which to draw the model.
+	 */
+	public PA2(final ViewerOptions options) {
+		this.options = options;
+		// the models must exist before the frame is shown, since the canvas may be
+		// initialized as soon as it is visible
+		this.arm = new Arm(INITIAL_POSITION, "arm");
+		this.spider = new Spider(INITIAL_POSITION, "spider");
+		this.renderSpider = new Spider(INITIAL_POSITION, "spider");
+		// resolve the joint names of the test cases once, against the rest pose
+		final TestCasesSpider testCases = new TestCasesSpider();
+		this.testPoses = new Pose[testCases.elements().size()];
+		for (int i = 0; i < this.testPoses.length; i++) {
+			this.testPoses[i] = Pose.compile(this.spider.skeleton(), testCases.elements().get(i));
+		}
+		this.stopPose = Pose.compile(this.spider.skeleton(), testCases.stop());
+		this.handoff = new PoseHandoff(this.spider.skeleton().size());
+		this.handoff.publish(this.spider.skeleton(), this.viewing_quaternion.toMatrix());
+		this.input = new InputAccumulator(this.spider, new Runnable() {
+			@Override
+			public void run() {
+				PA2.this.publish();
+			}
+		});
+		this.crowd = options.crowdSize() > 0 ? new CrowdRenderer(options.crowdSize()) : null;
+		this.renderSpider.kinematics().setCulling(options.culling());
+		if (this.crowd != null) {
+			this.crowd.setCulling(options.culling());
+		}
+
 		this.capabilities.setDoubleBuffered(true);
 
 		this.canvas = new GLCanvas(this.capabilities);
@@ -124,16 +204,90 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 		this.canvas.setAutoSwapBufferMode(true);
 		this.getContentPane().add(this.canvas);
 
-		// refresh the scene at 60 frames per second
-		this.animator = new FPSAnimator(this.canvas, 60);
+		// refresh the scene when it changes, or at 60 frames per second if asked
+		this.pacer = new FramePacer(this.canvas, options.continuous());
+		if (options.reportFps()) {
+			this.pacer.animator().setUpdateFPSFrames(300, System.out);
+		}
+
+		// a clip which moves through every test case and back to the stop sign
+		final Skeleton skeleton = this.renderSpider.skeleton();
+		final Pose[] poses = Arrays.copyOf(this.testPoses, this.testPoses.length + 1);
+		poses[this.testPoses.length] = this.stopPose;
+		PoseSource clip = AnimationClip.fromPoses(skeleton, poses, CLIP_INTERVAL);
+		FrameProfiler profiler = null;
+		SessionRecorder recorder = null;
+		SessionReplayer replayer = null;
+		try {
+			if (options.profileOverlay() || options.profileCsvFile() != null) {
+				profiler = new FrameProfiler(options.profileOverlay(),
+						options.profileCsvFile() != null ? Paths.get(options.profileCsvFile()) : null);
+			}
+			if (options.saveClipFile() != null) {
+				MappedClip.write(Paths.get(options.saveClipFile()), skeleton, clip, CLIP_FRAME_RATE);
+			}
+			if (options.clipFile() != null) {
+				clip = MappedClip.open(Paths.get(options.clipFile()), skeleton);
+			}
+			if (options.recordFile() != null) {
+				recorder = new SessionRecorder(Paths.get(options.recordFile()));
+			}
+			if (options.replayFile() != null) {
+				replayer = new SessionReplayer(Paths.get(options.replayFile()));
+			}
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		this.player = new ClipPlayer(clip, skeleton.size(), this.pacer, this.renderSpider.limits());
+		this.profiler = profiler;
+		if (profiler != null) {
+			// swap the buffers in display so that the swap can be timed
+			this.canvas.setAutoSwapBufferMode(false);
+			// write the last times however the program exits
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					try {
+						PA2.this.profiler.close();
+					} catch (final IOException exception) {
+						exception.printStackTrace();
+					}
+				}
+			});
+		}
+		this.recorder = recorder;
+		if (recorder != null) {
+			this.spider.setRecorder(recorder);
+			// write the rest of the session however the program exits
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					try {
+						PA2.this.recorder.close();
+					} catch (final IOException exception) {
+						exception.printStackTrace();
+					}
+				}
+			});
+		}
 
-		this.setTitle("CS480/CS680 : Hand Simulator");
+		this.setTitle(TITLE);
 		this.setSize(DEFAULT_WINDOW_WIDTH, DEFAULT_WINDOW_HEIGHT);
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		this.setVisible(true);
 
-		this.arm = new Arm(INITIAL_POSITION, "arm");
-		this.spider = new Spider(INITIAL_POSITION, "spider");
+		// show how many frames were rendered and how many the pacer skipped
+		new Timer(1000, new ActionListener() {
+			@Override
+			public void actionPerformed(final ActionEvent event) {
+				PA2.this.setTitle(TITLE + " - " + PA2.this.pacer.renderedCount() + " frames rendered, "
+						+ PA2.this.pacer.skippedCount() + " skipped");
+			}
+		}).start();
+
+		if (replayer != null) {
+			this.replay(replayer, options.replayFast());
+		}
 	}
 
 	/**
@@ -144,10 +298,21 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 	 */
 	public void display(final GLAutoDrawable drawable) {
 		final GL2 gl = (GL2) drawable.getGL();
+		this.pacer.frameRendered();
+		this.phase(FrameProfiler.Phase.INPUT);
+		// apply the joint rotations requested since the last frame
+		this.input.schedule();
 
-		// clear the display
-		gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+		// take the latest pose and view published by the input thread
+		if (this.handoff.consume(this.renderSpider.skeleton())) {
+			this.stateChanged = true;
+		}
+		// pose the drawn spider from the clip if it is playing
+		if (this.player.update(System.nanoTime() / 1e9, this.renderSpider.skeleton())) {
+			this.stateChanged = true;
+		}
 
+		this.phase(FrameProfiler.Phase.UPDATE);
 		// from here on affect the model view
 		gl.glMatrixMode(GL2.GL_MODELVIEW);
 
@@ -155,19 +320,78 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 		gl.glLoadIdentity();
 
 		// rotate the world by the appropriate rotation quaternion
-		gl.glMultMatrixf(this.viewing_quaternion.toMatrix(), 0);
-
-		// update the position of the components which need to be updated
-		// TODO only need to update the selected and JUST deselected components
-		if (this.stateChanged) {
-			//this.arm.update(gl);
-			this.spider.update(gl);
-			this.stateChanged = false;
+		gl.glMultMatrixf(this.handoff.view(), 0);
+
+		if (this.crowd != null) {
+			// pose every spider of the crowd like the edited spider, then draw each
+			// part of all of them with a single instanced draw call
+			this.crowd.setPose(this.renderSpider.skeleton());
+			this.phase(FrameProfiler.Phase.DRAW);
+			gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+			this.crowd.draw(gl);
+		} else {
+			// choose how finely to tessellate each part from its size on screen
+			final RenderCommands commands = this.commands(gl);
+			if (this.options.levelOfDetail() && this.levelOfDetail.update(commands, this.renderSpider.kinematics())) {
+				this.stateChanged = true;
+			}
+
+			if (this.options.useKinematics()) {
+				// recompute the transforms of the joints which moved, then draw every
+				// component with its transform loaded directly
+				this.renderSpider.kinematics().update();
+				this.phase(FrameProfiler.Phase.DRAW);
+				gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+				this.renderSpider.kinematics().draw(commands);
+			} else {
+				// update the call lists of the components which changed since the
+				// last frame; unchanged components keep their compiled call lists
+				if (this.stateChanged) {
+					//this.arm.update(gl);
+					this.renderSpider.update(commands);
+					this.stateChanged = false;
+				}
+
+				// redraw the components
+				this.phase(FrameProfiler.Phase.DRAW);
+				gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+				//this.arm.draw(gl);
+				this.renderSpider.draw(commands);
+			}
 		}
 
-		// redraw the components
-		//this.arm.draw(gl);
-		this.spider.draw(gl);
+		if (this.profiler != null) {
+			// the overlay is drawn outside of any phase, so it is not timed itself
+			this.profiler.stop();
+			this.profiler.drawOverlay(gl, drawable.getHeight());
+			this.profiler.phase(FrameProfiler.Phase.SWAP);
+			drawable.swapBuffers();
+			this.profiler.endFrame();
+		}
+	}
+
+	/**
+	 * Starts timing the specified phase of the frame, if profiling.
+	 * 
+	 * @param phase The phase of the frame which begins.
+	 */
+	private void phase(final FrameProfiler.Phase phase) {
+		if (this.profiler != null) {
+			this.profiler.phase(phase);
+		}
+	}
+
+	/**
+	 * Gets the render commands which forward to the specified OpenGL object.
+	 * 
+	 * @param gl The current OpenGL object of the canvas.
+	 * @return The render commands which forward to it.
+	 */
+	private RenderCommands commands(final GL2 gl) {
+		if (this.commands == null || this.commands.gl() != gl) {
+			this.commands = new JoglRenderCommands(gl);
+		}
+		return this.commands;
 	}
 
 	/**
@@ -190,12 +414,16 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 		final GL2 gl = (GL2) drawable.getGL();
 
 		// perform any initialization needed by the hand model
+		GeometryCache.forContext(gl).setBackend(this.options.backend());
 		//this.arm.initialize(gl);
-		this.spider.initialize(gl);
+		this.renderSpider.initialize(gl);
+		if (this.crowd != null) {
+			this.crowd.initialize(gl);
+		}
 
 		// initially draw the scene
 		//this.arm.update(gl);
-		this.spider.update(gl);
+		this.renderSpider.update(this.commands(gl));
 
 		// set up for shaded display of the hand
 		final float light0_position[] = { 1, 1, 1, 0 };
@@ -229,39 +457,36 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 	 * @param key The key press event object.
 	 */
 	public void keyPressed(final KeyEvent key) {
-		BaseConfiguration bc = new BaseConfiguration(0, 0, 0);
 		switch (key.getKeyCode()) {
 		case KeyEvent.VK_KP_UP:
 		case KeyEvent.VK_UP:
-			if (this.selectedAxis.equals(Axis.X)) {
-				bc.setXAngle(ROTATION_ANGLE);
-			} else if (this.selectedAxis.equals(Axis.Y)) {
-				bc.setYAngle(ROTATION_ANGLE);
-			} else if (this.selectedAxis.equals(Axis.Z)) {
-				bc.setZAngle(ROTATION_ANGLE);
-			}
-			//this.arm.changeSelected(bc);
-			this.spider.changeSelected(bc);
-			this.stateChanged = true;
+			this.accumulateRotation(ROTATION_ANGLE);
 			break;
 		case KeyEvent.VK_KP_DOWN:
 		case KeyEvent.VK_DOWN:
-			if (this.selectedAxis.equals(Axis.X)) {
-				bc.setXAngle(-ROTATION_ANGLE);
-			} else if (this.selectedAxis.equals(Axis.Y)) {
-				bc.setYAngle(-ROTATION_ANGLE);
-			} else if (this.selectedAxis.equals(Axis.Z)) {
-				bc.setZAngle(-ROTATION_ANGLE);
-			}
-			//this.arm.changeSelected(bc);
-			this.spider.changeSelected(bc);
-			this.stateChanged = true;
+			this.accumulateRotation(-ROTATION_ANGLE);
 			break;
 		default:
 			break;
 		}
 	}
 
+	/**
+	 * Adds a rotation of the selected joints around the selected axis, to be
+	 * applied together with every other rotation requested before the next
+	 * frame.
+	 * 
+	 * @param angle The angle by which to rotate, in degrees.
+	 */
+	private void accumulateRotation(final double angle) {
+		this.input.add(this.selectedAxis, angle);
+		if (!this.pacer.isContinuous()) {
+			// with no frame clock running, apply the rotations once the events
+			// already waiting have been added too
+			this.input.schedule();
+		}
+	}
+
 	/**
 	 * This method is intentionally unimplemented.
 	 * 
@@ -271,14 +496,21 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 		// intentionally unimplemented
 	}
 
-	private final TestCasesSpider testCasesSpider = new TestCasesSpider();
+	/** The test case poses, compiled once from {@link TestCasesSpider}. */
+	private final Pose[] testPoses;
+	/** The pose of the stop sign test case. */
+	private final Pose stopPose;
+	/** The index of the current test case pose. */
+	private int testPose = 0;
 
-	private void setModelState(final Map<String, Configuration> state) {
+	private void setModelState(final Pose state) {
+		// the rotations requested so far belong to the pose they were typed on
+		this.input.flush();
 
 		//this.arm.setModelStates(state);
 		this.spider.setModelStates(state);
 
-		this.stateChanged = true;
+		this.publish();
 
 	}
 
@@ -309,7 +541,7 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 	 * 
 	 * C : resets the hand to the stop sign
 	 * 
-	 * P : select joint that connects finger to palm
+	 * P : plays an animation through every test case, ending at the stop sign
 	 * 
 	 * M : select middle joint
 	 * 
@@ -330,7 +562,7 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 			new Thread() {
 				@Override
 				public void run() {
-					PA2.this.animator.stop();
+					PA2.this.pacer.stop();
 				}
 			}.start();
 			System.exit(0);
@@ -345,19 +577,32 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 		// resets to the stop sign
 		case 'C':
 		case 'c':
-			this.setModelState(this.testCasesSpider.stop());
+			this.setModelState(this.stopPose);
+			break;
+
+		// animate through every test case, ending at the stop sign
+		case 'P':
+		case 'p':
+			this.setModelState(this.stopPose);
+			this.player.play();
 			break;
 
 		// set the state of the hand to the next test case
 		case 'T':
 		case 't':
-			this.setModelState(this.testCasesSpider.next());
+			this.testPose = (this.testPose + 1) % this.testPoses.length;
+			this.setModelState(this.testPoses[this.testPose]);
 			break;
 
 		// set the viewing quaternion to 0 rotation
 		case 'R':
 		case 'r':
+			this.input.flush();
 			this.viewing_quaternion.reset();
+			if (this.recorder != null) {
+				this.recorder.viewReset();
+			}
+			this.publish();
 			break;
 
 		// Toggle which finger(s) are affected by the current rotation
@@ -479,12 +724,15 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 			 * ************* Implement Rotation with Mouse Here *************
 			 */
 
-			float magnitude = (float) Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
-			float[] rotate_axis = new float[] {dy/magnitude, dx/magnitude, 0};
+			float magnitude = (float) Math.sqrt(dx * dx + dy * dy);
 			float rotate_angle = (float) (magnitude * 0.05);
-			Quaternion new_quaternion = new Quaternion((float)Math.cos(rotate_angle/2), (float)Math.sin(rotate_angle/2)*rotate_axis[0]/2,(float)Math.sin(rotate_angle/2)*rotate_axis[1]/2,(float)Math.sin(rotate_angle/2)*rotate_axis[2]/2);
-//			
-			viewing_quaternion = new_quaternion.multiply(viewing_quaternion);
+			float half_sin = (float) Math.sin(rotate_angle / 2) / magnitude / 2;
+			this.drag_quaternion.set((float) Math.cos(rotate_angle / 2), dy * half_sin, dx * half_sin, 0);
+			// rotate in place rather than allocating a quaternion per mouse event
+			this.drag_quaternion.multiplyInto(this.viewing_quaternion, this.viewing_quaternion);
+			if (this.recorder != null) {
+				this.recorder.view(this.drag_quaternion);
+			}
 			
 			
 			// normalize to counteract accumulating round-off error
@@ -493,6 +741,8 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 			// save x, y as last x, y
 			this.last_x = x;
 			this.last_y = y;
+
+			this.publish();
 		}
 	}
 
@@ -580,18 +830,87 @@ public class PA2 extends JFrame implements GLEventListener, KeyListener, MouseLi
 
 		// switch back to model coordinate system
 		gl.glMatrixMode(GL2.GL_MODELVIEW);
+
+		// no render request is needed here: the canvas redraws itself after a
+		// reshape whenever the animator is paused
+	}
+
+	/**
+	 * Replays the specified session on the edited spider and the view, publishing
+	 * each change as it would have been during recording.
+	 * 
+	 * @param replayer The session to replay.
+	 * @param fast     Whether to replay one record per event instead of at the
+	 *                 pace at which the session was recorded.
+	 */
+	private void replay(final SessionReplayer replayer, final boolean fast) {
+		final long start = System.nanoTime();
+		final Timer timer = new Timer(fast ? 0 : REPLAY_INTERVAL, null);
+		timer.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(final ActionEvent event) {
+				boolean changed;
+				try {
+					if (fast) {
+						changed = replayer.next(PA2.this.spider, PA2.this.viewing_quaternion);
+					} else {
+						changed = replayer.replayUntil((System.nanoTime() - start) / 1e9, PA2.this.spider,
+								PA2.this.viewing_quaternion) > 0;
+					}
+				} catch (final IllegalStateException exception) {
+					// a malformed or truncated session cannot be replayed any further
+					exception.printStackTrace();
+					timer.stop();
+					changed = true;
+				}
+				if (changed) {
+					PA2.this.publish();
+				}
+				if (!timer.isRunning()) {
+					return;
+				}
+				if (!replayer.hasNext()) {
+					timer.stop();
+					System.out.printf("replayed %.1f s of session in %.1f s%n", replayer.time(),
+							(System.nanoTime() - start) / 1e9);
+				}
+			}
+		});
+		timer.start();
 	}
 
 	private void toggleSelection(final int componentNum) {
+		// the rotations requested so far belong to the joints selected so far
+		this.input.flush();
 		//this.arm.toggleSelection(componentNum);
 		this.spider.toggleSelection(componentNum);
 
-		this.stateChanged = true;
+		this.publish();
+	}
+
+	/**
+	 * Publishes the edited spider and view for the next frame, and requests that
+	 * frame. Only the event dispatch thread may call this.
+	 */
+	private void publish() {
+		this.viewing_quaternion.toMatrix(this.viewing_matrix, 0);
+		this.handoff.publish(this.spider.skeleton(), this.viewing_matrix);
+		this.pacer.requestRender();
 	}
 
+	/**
+	 * Frees the OpenGL resources held by the model.
+	 * 
+	 * @param drawable {@inheritDoc}
+	 */
 	@Override
 	public void dispose(GLAutoDrawable drawable) {
-		// TODO Auto-generated method stub
+		final GL2 gl = (GL2) drawable.getGL();
 
+		//this.arm.dispose(gl);
+		this.renderSpider.dispose(gl);
+		if (this.crowd != null) {
+			this.crowd.dispose(gl);
+		}
 	}
 }
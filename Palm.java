@@ -9,13 +9,13 @@ import javax.media.opengl.GL2;
 
 import com.jogamp.opengl.util.gl2.GLUT;//for new version of gl
 
-public class Palm extends Circular implements Displayable {
+public class Palm extends Circular implements Displayable, Tessellable {
 
 	/**
-	 * The OpenGL handle to the display list which contains all the components which
-	 * comprise this cylinder.
+	 * The mesh of the scaled sphere at each level of detail, shared with every
+	 * other palm of the same radius.
 	 */
-	private int callListHandle;
+	private final Geometry[] geometries = new Geometry[LevelOfDetail.LEVELS];
 
 	/**
 	 * Instantiates this object with the specified radius and OpenGL utility toolkit
@@ -28,6 +28,18 @@ public class Palm extends Circular implements Displayable {
 		super(radius, glut);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The sphere is only scaled down, so its radius still bounds it.
+	 * 
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public BoundingSphere bounds() {
+		return new BoundingSphere(0, 0, this.radius(), this.radius());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -35,8 +47,8 @@ public class Palm extends Circular implements Displayable {
 	 * @see edu.bu.cs.cs480.Displayable#draw(javax.media.opengl.GL)
 	 */
 	@Override
-	public void draw(GL2 gl) {
-		gl.glCallList(this.callListHandle);
+	public void draw(RenderCommands gl) {
+		this.geometries[this.levelOfDetail()].draw(gl);
 	}
 
 	/**
@@ -48,18 +60,52 @@ public class Palm extends Circular implements Displayable {
 	 */
 	@Override
 	public void initialize(final GL2 gl) {
-		this.callListHandle = gl.glGenLists(1);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			final GeometryCache.Key key = this.geometryKey(level);
+			this.geometries[level] = GeometryCache.forContext(gl).acquire(gl, key, new GeometryCache.Builder() {
+				@Override
+				public Geometry build(final GL2 gl) {
+					final int callListHandle = gl.glGenLists(1);
+
+					// create an ellipsoid for the palm by scaling a sphere
+					gl.glNewList(callListHandle, GL2.GL_COMPILE);
+					gl.glPushMatrix();
+					// position this so that the sphere is drawn above the x-y plane, not at
+					// the origin
+					gl.glTranslated(0, 0, Palm.this.radius());
+					gl.glScalef(0.9f, 0.5f, 1);
+					Palm.this.glut().glutSolidSphere(Palm.this.radius(), key.slices(), key.stacks());
+					gl.glPopMatrix();
+					gl.glEndList();
+					return new DisplayListGeometry(callListHandle);
+				}
+			});
+		}
+	}
 
-		// create an ellipsoid for the palm by scaling a sphere
-		gl.glNewList(this.callListHandle, GL2.GL_COMPILE);
-		gl.glPushMatrix();
-		// position this so that the sphere is drawn above the x-y plane, not at
-		// the origin
-		gl.glTranslated(0, 0, this.radius());
-		gl.glScalef(0.9f, 0.5f, 1);
-		this.glut().glutSolidSphere(this.radius(), 36, 18);
-		gl.glPopMatrix();
-		gl.glEndList();
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @param level {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public GeometryCache.Key geometryKey(final int level) {
+		return new GeometryCache.Key(GeometryCache.Primitive.PALM, this.radius(), 0, LevelOfDetail.slices(36, level),
+				LevelOfDetail.stacks(18, level));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void dispose(final GL2 gl) {
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			GeometryCache.forContext(gl).release(gl, this.geometries[level]);
+			this.geometries[level] = null;
+		}
 	}
 
 }
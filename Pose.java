@@ -0,0 +1,153 @@
+/**
+ * Pose.java - the angles of every joint of a skeleton in one array
+ */
+
+import java.util.Map;
+
+/**
+ * The angles of every joint of a {@link Skeleton}, stored in one array in the
+ * order of the skeleton, with {@link Skeleton#ANGLE_STRIDE} entries per joint.
+ *
+ * Joints are addressed by their index in the skeleton, which
+ * {@link Skeleton#indexOf(String)} resolves from a name once, when a pose is
+ * built, rather than each time it is applied. A pose is 24 bytes per joint
+ * plus one array header, where a map from names to configurations costs a map
+ * entry, a configuration, and a position per joint. Applying a pose copies its
+ * array onto the angles of the skeleton, comparing as it goes so that only the
+ * joints which move are marked out of date.
+ */
+public class Pose {
+
+	/**
+	 * Builds the pose of the specified skeleton in which the joints named in the
+	 * specified map have the angles of their configurations, and every other
+	 * joint has its current angles.
+	 *
+	 * @param skeleton The skeleton whose joints are posed.
+	 * @param state    The configuration of some of the joints by name.
+	 * @return The pose.
+	 * @throws IllegalArgumentException if a joint is not in the skeleton.
+	 */
+	public static Pose compile(final Skeleton skeleton, final Map<String, Configuration> state) {
+		final Pose pose = new Pose(skeleton);
+		for (final Map.Entry<String, Configuration> entry : state.entrySet()) {
+			final Configuration configuration = entry.getValue();
+			pose.set(skeleton.indexOf(entry.getKey()), configuration.xAngle(), configuration.yAngle(),
+					configuration.zAngle());
+		}
+		return pose;
+	}
+
+	/** The angles of each joint, in the order of the skeleton. */
+	private final double[] angles;
+
+	/**
+	 * Instantiates a pose of the specified number of joints, all at angle 0.
+	 *
+	 * @param size The number of joints of the skeleton.
+	 */
+	public Pose(final int size) {
+		this.angles = new double[size * Skeleton.ANGLE_STRIDE];
+	}
+
+	/**
+	 * Instantiates a pose with the current angles of the specified skeleton.
+	 *
+	 * @param skeleton The skeleton whose angles to copy.
+	 */
+	public Pose(final Skeleton skeleton) {
+		this.angles = skeleton.angles().clone();
+	}
+
+	/**
+	 * Gets the array of angles of this pose, with {@link Skeleton#ANGLE_STRIDE}
+	 * entries per joint in the order of the skeleton, which may be written
+	 * directly.
+	 *
+	 * @return The angles of this pose.
+	 */
+	public double[] angles() {
+		return this.angles;
+	}
+
+	/**
+	 * Sets the joints of the specified skeleton to the angles of this pose, and
+	 * marks the components which moved out of date.
+	 *
+	 * @param skeleton The skeleton to pose, with as many joints as this pose.
+	 * @return Whether any joint moved.
+	 * @throws IllegalArgumentException if the skeleton has another number of
+	 *                                  joints.
+	 */
+	public boolean applyTo(final Skeleton skeleton) {
+		final double[] target = skeleton.angles();
+		if (target.length != this.angles.length) {
+			throw new IllegalArgumentException("pose has " + this.size() + " joints, skeleton has " + skeleton.size());
+		}
+		boolean moved = false;
+		for (int joint = 0, a = 0; a < target.length; joint++, a += Skeleton.ANGLE_STRIDE) {
+			if (target[a] != this.angles[a] || target[a + 1] != this.angles[a + 1]
+					|| target[a + 2] != this.angles[a + 2]) {
+				target[a] = this.angles[a];
+				target[a + 1] = this.angles[a + 1];
+				target[a + 2] = this.angles[a + 2];
+				skeleton.component(joint).markDirty();
+				moved = true;
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * Copies the current angles of the specified skeleton into this pose.
+	 *
+	 * @param skeleton The skeleton whose angles to copy, with as many joints as
+	 *                 this pose.
+	 * @throws IllegalArgumentException if the skeleton has another number of
+	 *                                  joints.
+	 */
+	public void capture(final Skeleton skeleton) {
+		if (skeleton.angles().length != this.angles.length) {
+			throw new IllegalArgumentException("pose has " + this.size() + " joints, skeleton has " + skeleton.size());
+		}
+		System.arraycopy(skeleton.angles(), 0, this.angles, 0, this.angles.length);
+	}
+
+	/**
+	 * Gets the angle of the specified joint around the specified axis.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 * @param axis  The axis, one of {@link Skeleton#X}, {@link Skeleton#Y}, and
+	 *              {@link Skeleton#Z}.
+	 * @return The angle, in degrees.
+	 */
+	public double get(final int joint, final int axis) {
+		return this.angles[joint * Skeleton.ANGLE_STRIDE + axis];
+	}
+
+	/**
+	 * Sets the angles of the specified joint.
+	 *
+	 * @param joint The index of the joint in the skeleton.
+	 * @param x     The angle around the x axis, in degrees.
+	 * @param y     The angle around the y axis, in degrees.
+	 * @param z     The angle around the z axis, in degrees.
+	 * @return This pose.
+	 */
+	public Pose set(final int joint, final double x, final double y, final double z) {
+		final int a = joint * Skeleton.ANGLE_STRIDE;
+		this.angles[a + Skeleton.X] = x;
+		this.angles[a + Skeleton.Y] = y;
+		this.angles[a + Skeleton.Z] = z;
+		return this;
+	}
+
+	/**
+	 * Gets the number of joints of this pose.
+	 *
+	 * @return The number of joints of this pose.
+	 */
+	public int size() {
+		return this.angles.length / Skeleton.ANGLE_STRIDE;
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * PoseHandoff.java - hands consistent model snapshots from input to rendering
+ */
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands snapshots of the state of a model from the thread which edits it to the
+ * thread which draws it, without either thread ever blocking the other.
+ *
+ * Each thread owns a model of its own with the same hierarchy. After each edit
+ * the editing thread calls {@link #publish(Skeleton, float[])}, which copies the
+ * edited model into a private back buffer and exchanges it with the shared
+ * middle buffer in one atomic step. At the start of each frame the drawing
+ * thread calls {@link #consume(Skeleton)}, which exchanges its front buffer
+ * with the middle buffer if a newer snapshot was published, and copies it onto
+ * the drawn model. Since each buffer is only ever written by the thread which
+ * holds it, a frame always sees one complete snapshot: the latest one published
+ * before the frame started. Intermediate snapshots published between two frames
+ * are simply overwritten.
+ */
+public class PoseHandoff {
+
+	/**
+	 * A copy of the state of a model which can change through user input.
+	 */
+	private static class Snapshot {
+		/** The angles of the components, in the order of the skeleton. */
+		private final double[] angles;
+		/** The color of each component. */
+		private final FloatColor[] colors;
+		/** The positions of the components, in the order of the skeleton. */
+		private final double[] positions;
+		/**
+		 * The number of this snapshot in the order of publication, or 0 if it was
+		 * never published.
+		 */
+		private long sequence = 0;
+		/** The rotation of the world, as a column major matrix. */
+		private final float[] view = new float[16];
+
+		/**
+		 * Instantiates an empty snapshot for the specified number of components.
+		 *
+		 * @param size The number of components of the model.
+		 */
+		private Snapshot(final int size) {
+			this.angles = new double[size * Skeleton.ANGLE_STRIDE];
+			this.positions = new double[size * Skeleton.POSITION_STRIDE];
+			this.colors = new FloatColor[size];
+		}
+	}
+
+	/** The snapshot being filled by the editing thread. */
+	private Snapshot back;
+	/** The snapshot being read by the drawing thread. */
+	private Snapshot front;
+	/** The snapshot most recently handed over by either thread. */
+	private final AtomicReference<Snapshot> middle;
+	/** The sequence number of the last published snapshot. */
+	private long published = 0;
+
+	/**
+	 * Instantiates a handoff between models of the specified number of
+	 * components.
+	 *
+	 * @param size The number of components of the models.
+	 */
+	public PoseHandoff(final int size) {
+		this.back = new Snapshot(size);
+		this.front = new Snapshot(size);
+		this.middle = new AtomicReference<Snapshot>(new Snapshot(size));
+	}
+
+	/**
+	 * Copies the latest published snapshot onto the specified skeleton, if it was
+	 * published after the last one consumed. The components whose state changed
+	 * are marked out of date. Only the drawing thread may call this method.
+	 *
+	 * @param skeleton The skeleton of the drawn model.
+	 * @return Whether a new snapshot was applied.
+	 */
+	public boolean consume(final Skeleton skeleton) {
+		if (this.middle.get().sequence <= this.front.sequence) {
+			return false;
+		}
+		this.front = this.middle.getAndSet(this.front);
+
+		final Snapshot snapshot = this.front;
+		final double[] angles = skeleton.angles();
+		final double[] positions = skeleton.positions();
+		for (int i = 0; i < skeleton.size(); i++) {
+			final Component component = skeleton.component(i);
+			boolean changed = false;
+			for (int axis = 0; axis < Skeleton.ANGLE_STRIDE; axis++) {
+				final int a = i * Skeleton.ANGLE_STRIDE + axis;
+				final int p = i * Skeleton.POSITION_STRIDE + axis;
+				if (angles[a] != snapshot.angles[a] || positions[p] != snapshot.positions[p]) {
+					angles[a] = snapshot.angles[a];
+					positions[p] = snapshot.positions[p];
+					changed = true;
+				}
+			}
+			if (changed) {
+				component.markDirty();
+			}
+			component.setColor(snapshot.colors[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the state of the specified skeleton and view rotation into a new
+	 * snapshot and makes it the latest one. Only the editing thread may call this
+	 * method.
+	 *
+	 * @param skeleton The skeleton of the edited model.
+	 * @param view     The rotation of the world, as a column major matrix.
+	 */
+	public void publish(final Skeleton skeleton, final float[] view) {
+		final Snapshot snapshot = this.back;
+		System.arraycopy(skeleton.angles(), 0, snapshot.angles, 0, snapshot.angles.length);
+		System.arraycopy(skeleton.positions(), 0, snapshot.positions, 0, snapshot.positions.length);
+		for (int i = 0; i < skeleton.size(); i++) {
+			snapshot.colors[i] = skeleton.component(i).color();
+		}
+		System.arraycopy(view, 0, snapshot.view, 0, snapshot.view.length);
+		snapshot.sequence = ++this.published;
+		this.back = this.middle.getAndSet(snapshot);
+	}
+
+	/**
+	 * Gets the rotation of the world in the snapshot last consumed. Only the
+	 * drawing thread may call this method.
+	 *
+	 * @return The rotation of the world, as a column major matrix.
+	 */
+	public float[] view() {
+		return this.front.view;
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * PoseSource.java - anything which poses some joints of a skeleton over time
+ */
+
+/**
+ * Anything which poses some of the joints of a {@link Skeleton} as a function
+ * of time, such as an {@link AnimationClip} or a {@link BlendTree}. Each
+ * animated joint is called a track.
+ */
+public interface PoseSource {
+
+	/**
+	 * Gets the time after which the pose no longer changes.
+	 *
+	 * @return The length of this source, in seconds.
+	 */
+	double duration();
+
+	/**
+	 * Gets the index in the skeleton of the joint of the specified track.
+	 *
+	 * @param track The index of the track.
+	 * @return The index of the joint of the track.
+	 */
+	int joint(final int track);
+
+	/**
+	 * Writes the angles of every animated joint at the specified time into the
+	 * specified array. The angles of joints without a track are left unchanged.
+	 *
+	 * @param time   The time from the start of this source, in seconds.
+	 * @param angles The array of angles, with {@link Skeleton#ANGLE_STRIDE}
+	 *               entries per joint in the order of the skeleton.
+	 */
+	void sample(final double time, final double[] angles);
+
+	/**
+	 * Gets the number of tracks of this source.
+	 *
+	 * @return The number of animated joints.
+	 */
+	int trackCount();
+
+}
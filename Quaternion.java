@@ -71,13 +71,73 @@ public class Quaternion {
 	 * @param v1 The second vector component of this quaternion.
 	 * @param v2 The third vector component of this quaternion.
 	 */
-	private void set(float s, float v0, float v1, float v2) {
+	public void set(float s, float v0, float v1, float v2) {
 		this.s = s;
 		this.v[0] = v0;
 		this.v[1] = v1;
 		this.v[2] = v2;
 	}
 
+	/**
+	 * Sets the components of this quaternion to those of the specified one.
+	 * 
+	 * @param that The quaternion to copy.
+	 */
+	public void set(final Quaternion that) {
+		this.set(that.s, that.v[0], that.v[1], that.v[2]);
+	}
+
+	/**
+	 * Sets this quaternion to a rotation by the specified angle around the
+	 * specified axis, which need not be of unit length.
+	 * 
+	 * @param x     The x component of the axis.
+	 * @param y     The y component of the axis.
+	 * @param z     The z component of the axis.
+	 * @param angle The angle of the rotation, in radians.
+	 */
+	public void setFromAxisAngle(final float x, final float y, final float z, final float angle) {
+		final float length = (float) Math.sqrt(x * x + y * y + z * z);
+		final float sin = (float) Math.sin(angle / 2) / length;
+		this.set((float) Math.cos(angle / 2), x * sin, y * sin, z * sin);
+	}
+
+	/**
+	 * Gets the scalar component of this quaternion.
+	 * 
+	 * @return The scalar component of this quaternion.
+	 */
+	public float s() {
+		return this.s;
+	}
+
+	/**
+	 * Gets the first vector component of this quaternion.
+	 * 
+	 * @return The first vector component of this quaternion.
+	 */
+	public float x() {
+		return this.v[0];
+	}
+
+	/**
+	 * Gets the second vector component of this quaternion.
+	 * 
+	 * @return The second vector component of this quaternion.
+	 */
+	public float y() {
+		return this.v[1];
+	}
+
+	/**
+	 * Gets the third vector component of this quaternion.
+	 * 
+	 * @return The third vector component of this quaternion.
+	 */
+	public float z() {
+		return this.v[2];
+	}
+
 	/**
 	 * Returns a new quaternion representing the product of this and the specified
 	 * other quaternion.
@@ -86,15 +146,58 @@ public class Quaternion {
 	 * @return The product of this and the specified other quaternion.
 	 */
 	public Quaternion multiply(final Quaternion that) {
-		/*
-		 * ************* Implement Your Code Here *************
-		 */
+		final Quaternion mult = new Quaternion();
+		this.multiplyInto(that, mult);
+		return mult;
+	}
+
+	/**
+	 * Stores the product of this and the specified other quaternion in the
+	 * specified destination, which may be either operand.
+	 * 
+	 * @param that The other quaternion with which to multiply this one.
+	 * @param dst  The quaternion in which to store the product.
+	 */
+	public void multiplyInto(final Quaternion that, final Quaternion dst) {
 		float real = this.s * that.s - (this.v[0] * that.v[0] + this.v[1] * that.v[1] + this.v[2] * that.v[2]) ;
 		float v1 = this.s * that.v[0] + that.s * this.v[0] + this.v[1] * that.v[2] - this.v[2] * that.v[1];
 		float v2 = this.s * that.v[1] + that.s * this.v[1] - this.v[0] * that.v[2] + this.v[2] * that.v[0];
 		float v3 = this.s * that.v[2] + that.s * this.v[2] + this.v[0] * that.v[1] - this.v[1] * that.v[0];
-		Quaternion mult = new Quaternion(real, v1, v2, v3);
-		return mult;
+		dst.set(real, v1, v2, v3);
+	}
+
+	/**
+	 * Stores the spherical linear interpolation between this and the specified
+	 * other unit quaternion, along the shorter arc, in the specified destination,
+	 * which may be either operand.
+	 * 
+	 * @param that The quaternion at {@code t = 1}; this one is at {@code t = 0}.
+	 * @param t    The interpolation parameter, between 0 and 1.
+	 * @param dst  The quaternion in which to store the interpolated rotation.
+	 */
+	public void slerpInto(final Quaternion that, final float t, final Quaternion dst) {
+		float bs = that.s, b0 = that.v[0], b1 = that.v[1], b2 = that.v[2];
+		float cos = this.s * bs + this.v[0] * b0 + this.v[1] * b1 + this.v[2] * b2;
+		if (cos < 0) {
+			bs = -bs;
+			b0 = -b0;
+			b1 = -b1;
+			b2 = -b2;
+			cos = -cos;
+		}
+		final float wa, wb;
+		if (cos > 1 - ROUND_OFF_THRESHOLD) {
+			// nearly parallel, so interpolate linearly and normalize below
+			wa = 1 - t;
+			wb = t;
+		} else {
+			final float angle = (float) Math.acos(cos);
+			final float sin = (float) Math.sin(angle);
+			wa = (float) Math.sin((1 - t) * angle) / sin;
+			wb = (float) Math.sin(t * angle) / sin;
+		}
+		dst.set(wa * this.s + wb * bs, wa * this.v[0] + wb * b0, wa * this.v[1] + wb * b1, wa * this.v[2] + wb * b2);
+		dst.normalize();
 	}
 	
 //	public Quaternion multiply(final Quaternion that) {
@@ -126,7 +229,7 @@ public class Quaternion {
 		/*
 		 * ************* Implement Your Code Here *************
 		 */
-		float magnitude = (float) Math.sqrt((float) Math.pow(s, 2) + this.v[0] * this.v[0] + this.v[1] * this.v[1] + this.v[2] * this.v[2]);
+		float magnitude = (float) Math.sqrt(this.s * this.s + this.v[0] * this.v[0] + this.v[1] * this.v[1] + this.v[2] * this.v[2]);
 		return magnitude;
 	}
 
@@ -153,39 +256,59 @@ public class Quaternion {
 	 * 
 	 * Note: OpenGL uses column major order when specifying a matrix.
 	 * 
-	 * Algorithm: follows equation 5-107 on page 273 of Hearn and Baker.
-	 * 
-	 * @return
+	 * @return A new matrix equivalent to this quaternion, in column major order.
 	 */
 	public float[] toMatrix() {
 		final float[] M = new float[16];
+		this.toMatrix(M, 0);
+		return M;
+	}
 
+	/**
+	 * Writes a 4 by 4 matrix which represents a transformation equivalent to that
+	 * of this quaternion into the specified array.
+	 * 
+	 * Algorithm: follows equation 5-107 on page 273 of Hearn and Baker.
+	 * 
+	 * @param M   The array to which to write the matrix, in column major order.
+	 * @param off The offset at which to write the matrix.
+	 */
+	public void toMatrix(final float[] M, final int off) {
 		final float a = this.v[0];
 		final float b = this.v[1];
 		final float c = this.v[2];
 
 		// Specify the matrix in column major
-		M[0] = 1 - 2 * b * b - 2 * c * c; // M[0][0]
-		M[1] = 2 * a * b + 2 * this.s * c; // M[1][0]
-		M[2] = 2 * a * c - 2 * this.s * b; // M[2][0]
-		M[3] = 0.0f; // M[3][0]
-
-		M[4] = 2 * a * b - 2 * this.s * c; // M[0][1]
-		M[5] = 1 - 2 * a * a - 2 * c * c; // M[1][1]
-		M[6] = 2 * b * c + 2 * this.s * a; // M[2][1]
-		M[7] = 0.0f; // M[3][1]
-
-		M[8] = 2 * a * c + 2 * this.s * b; // M[0][2]
-		M[9] = 2 * b * c - 2 * this.s * a; // M[1][2]
-		M[10] = 1 - 2 * a * a - 2 * b * b; // M[2][2]
-		M[11] = 0.0f; // M[3][2]
-
-		M[12] = 0.0f; // M[0][3]
-		M[13] = 0.0f; // M[1][3]
-		M[14] = 0.0f; // M[2][3]
-		M[15] = 1.0f; // M[3][3]
+		M[off] = 1 - 2 * b * b - 2 * c * c; // M[0][0]
+		M[off + 1] = 2 * a * b + 2 * this.s * c; // M[1][0]
+		M[off + 2] = 2 * a * c - 2 * this.s * b; // M[2][0]
+		M[off + 3] = 0.0f; // M[3][0]
 
-		return M;
+		M[off + 4] = 2 * a * b - 2 * this.s * c; // M[0][1]
+		M[off + 5] = 1 - 2 * a * a - 2 * c * c; // M[1][1]
+		M[off + 6] = 2 * b * c + 2 * this.s * a; // M[2][1]
+		M[off + 7] = 0.0f; // M[3][1]
+
+		M[off + 8] = 2 * a * c + 2 * this.s * b; // M[0][2]
+		M[off + 9] = 2 * b * c - 2 * this.s * a; // M[1][2]
+		M[off + 10] = 1 - 2 * a * a - 2 * b * b; // M[2][2]
+		M[off + 11] = 0.0f; // M[3][2]
+
+		M[off + 12] = 0.0f; // M[0][3]
+		M[off + 13] = 0.0f; // M[1][3]
+		M[off + 14] = 0.0f; // M[2][3]
+		M[off + 15] = 1.0f; // M[3][3]
+	}
+
+	/**
+	 * Writes a 4 by 4 matrix which represents a transformation equivalent to that
+	 * of this quaternion into the specified array, in double precision.
+	 * 
+	 * @param M   The array to which to write the matrix, in column major order.
+	 * @param off The offset at which to write the matrix.
+	 */
+	public void toMatrix(final double[] M, final int off) {
+		QuaternionMath.toMatrix(this.s, this.v[0], this.v[1], this.v[2], M, off);
 	}
 
 }
@@ -0,0 +1,188 @@
+/**
+ * QuaternionArray.java - a batch of rotation quaternions stored component by component
+ */
+
+import java.util.Arrays;
+
+/**
+ * A fixed number of quaternions stored as a structure of arrays: one
+ * {@code float} array per component, so that batch operations read and write
+ * consecutive memory and can be vectorized.
+ *
+ * The batch operations run on the kernels returned by {@link #kernels()}: the
+ * SIMD kernels of {@link VectorQuaternionKernels} if the
+ * {@code jdk.incubator.vector} module is available at run time, and the scalar
+ * kernels of {@link ScalarQuaternionKernels} otherwise.
+ */
+public class QuaternionArray {
+	/** The kernels used by the batch operations. */
+	private static final QuaternionKernels KERNELS = loadKernels();
+
+	/**
+	 * Gets the kernels used by the batch operations of all quaternion arrays.
+	 *
+	 * @return The SIMD kernels if available, or else the scalar kernels.
+	 */
+	public static QuaternionKernels kernels() {
+		return KERNELS;
+	}
+
+	/**
+	 * Instantiates the SIMD kernels, falling back to the scalar kernels if the
+	 * vector module was not added to the virtual machine.
+	 *
+	 * @return The kernels to use.
+	 */
+	private static QuaternionKernels loadKernels() {
+		try {
+			return (QuaternionKernels) Class.forName("VectorQuaternionKernels").getDeclaredConstructor()
+					.newInstance();
+		} catch (final ReflectiveOperationException | LinkageError exception) {
+			return new ScalarQuaternionKernels();
+		}
+	}
+
+	/** The scalar part of each quaternion. */
+	private final float[] w;
+	/** The x component of the vector part of each quaternion. */
+	private final float[] x;
+	/** The y component of the vector part of each quaternion. */
+	private final float[] y;
+	/** The z component of the vector part of each quaternion. */
+	private final float[] z;
+
+	/**
+	 * Instantiates an array of the specified number of identity quaternions.
+	 *
+	 * @param size The number of quaternions.
+	 */
+	public QuaternionArray(final int size) {
+		this.w = new float[size];
+		this.x = new float[size];
+		this.y = new float[size];
+		this.z = new float[size];
+		Arrays.fill(this.w, 1);
+	}
+
+	/**
+	 * Copies the specified quaternion of this array into the specified
+	 * quaternion.
+	 *
+	 * @param i   The index of the quaternion.
+	 * @param dst The quaternion into which to copy it.
+	 */
+	public void get(final int i, final Quaternion dst) {
+		dst.set(this.w[i], this.x[i], this.y[i], this.z[i]);
+	}
+
+	/**
+	 * Multiplies each quaternion of this array by the quaternion at the same index
+	 * of the specified array, {@code dst[i] = this[i] * that[i]}.
+	 *
+	 * @param that The array of right operands.
+	 * @param dst  The array of products, which may be either operand.
+	 */
+	public void multiply(final QuaternionArray that, final QuaternionArray dst) {
+		KERNELS.multiply(this, that, dst);
+	}
+
+	/**
+	 * Scales each quaternion of this array to unit length.
+	 */
+	public void normalize() {
+		KERNELS.normalize(this);
+	}
+
+	/**
+	 * Sets the specified quaternion of this array.
+	 *
+	 * @param i The index of the quaternion.
+	 * @param w The scalar part.
+	 * @param x The x component of the vector part.
+	 * @param y The y component of the vector part.
+	 * @param z The z component of the vector part.
+	 */
+	public void set(final int i, final float w, final float x, final float y, final float z) {
+		this.w[i] = w;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.z[i] = z;
+	}
+
+	/**
+	 * Sets the specified quaternion of this array to the specified quaternion.
+	 *
+	 * @param i The index of the quaternion.
+	 * @param q The quaternion to copy.
+	 */
+	public void set(final int i, final Quaternion q) {
+		this.set(i, q.s(), q.x(), q.y(), q.z());
+	}
+
+	/**
+	 * Gets the number of quaternions in this array.
+	 *
+	 * @return The number of quaternions.
+	 */
+	public int size() {
+		return this.w.length;
+	}
+
+	/**
+	 * Interpolates spherically between each unit quaternion of this array and the
+	 * one at the same index of the specified array, along the shorter arc.
+	 *
+	 * @param that The array of quaternions at {@code t = 1}.
+	 * @param t    The interpolation parameter of each quaternion, between 0 and 1.
+	 * @param dst  The array of interpolated quaternions, which may be either
+	 *             operand.
+	 */
+	public void slerp(final QuaternionArray that, final float[] t, final QuaternionArray dst) {
+		KERNELS.slerp(this, that, t, dst);
+	}
+
+	/**
+	 * Converts each unit quaternion of this array into a rotation matrix.
+	 *
+	 * @param dst The array of matrices, of the same size as this one.
+	 */
+	public void toMatrices(final Mat4Array dst) {
+		KERNELS.toMatrices(this, dst);
+	}
+
+	/**
+	 * Gets the scalar parts of the quaternions of this array.
+	 *
+	 * @return The backing array of the scalar parts.
+	 */
+	public float[] w() {
+		return this.w;
+	}
+
+	/**
+	 * Gets the x components of the quaternions of this array.
+	 *
+	 * @return The backing array of the x components.
+	 */
+	public float[] x() {
+		return this.x;
+	}
+
+	/**
+	 * Gets the y components of the quaternions of this array.
+	 *
+	 * @return The backing array of the y components.
+	 */
+	public float[] y() {
+		return this.y;
+	}
+
+	/**
+	 * Gets the z components of the quaternions of this array.
+	 *
+	 * @return The backing array of the z components.
+	 */
+	public float[] z() {
+		return this.z;
+	}
+}
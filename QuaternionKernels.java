@@ -0,0 +1,52 @@
+/**
+ * QuaternionKernels.java - batch operations on arrays of quaternions
+ */
+
+/**
+ * Batch operations on {@link QuaternionArray} objects, applied element by
+ * element. The arrays of an operation must all have the same size.
+ */
+public interface QuaternionKernels {
+
+	/**
+	 * Multiplies the quaternions of two arrays element by element,
+	 * {@code dst[i] = a[i] * b[i]}.
+	 *
+	 * @param a   The array of left operands.
+	 * @param b   The array of right operands.
+	 * @param dst The array of products, which may be either operand.
+	 * @throws IllegalArgumentException if the arrays differ in size.
+	 */
+	void multiply(final QuaternionArray a, final QuaternionArray b, final QuaternionArray dst);
+
+	/**
+	 * Scales each quaternion of the specified array to unit length.
+	 *
+	 * @param q The array of quaternions.
+	 */
+	void normalize(final QuaternionArray q);
+
+	/**
+	 * Interpolates spherically between the unit quaternions of two arrays element
+	 * by element, along the shorter arc, and normalizes the results.
+	 *
+	 * @param a   The array of quaternions at {@code t = 0}.
+	 * @param b   The array of quaternions at {@code t = 1}.
+	 * @param t   The interpolation parameter of each quaternion, between 0 and 1.
+	 * @param dst The array of interpolated quaternions, which may be either
+	 *            operand.
+	 * @throws IllegalArgumentException if the arrays differ in size.
+	 */
+	void slerp(final QuaternionArray a, final QuaternionArray b, final float[] t, final QuaternionArray dst);
+
+	/**
+	 * Converts each unit quaternion of the specified array into a rotation
+	 * matrix.
+	 *
+	 * @param q   The array of quaternions.
+	 * @param dst The array of matrices.
+	 * @throws IllegalArgumentException if the arrays differ in size.
+	 */
+	void toMatrices(final QuaternionArray q, final Mat4Array dst);
+
+}
@@ -0,0 +1,321 @@
+/**
+ * QuaternionMath.java - rotation quaternions stored in flat arrays
+ */
+
+/**
+ * Operations on unit quaternions stored in flat {@code double} arrays as four
+ * consecutive entries: the scalar part followed by the x, y, and z components of
+ * the vector part. None of the operations allocate.
+ *
+ * Euler angles are in degrees and follow the convention of
+ * {@link Component}: the rotation around the x axis is applied first in the
+ * model, then the rotation around the y axis, then the rotation around the z
+ * axis, so that the rotation matrix is {@code Rx * Ry * Rz}.
+ */
+public final class QuaternionMath {
+	/** The number of entries per quaternion. */
+	public static final int STRIDE = 4;
+	/** The offset of the scalar part within a quaternion. */
+	public static final int W = 0;
+	/** The offset of the x component within a quaternion. */
+	public static final int X = 1;
+	/** The offset of the y component within a quaternion. */
+	public static final int Y = 2;
+	/** The offset of the z component within a quaternion. */
+	public static final int Z = 3;
+	/**
+	 * The cosine of the angle between two quaternions above which spherical
+	 * interpolation falls back to normalized linear interpolation.
+	 */
+	private static final double SLERP_THRESHOLD = 0.9995;
+
+	/**
+	 * Converts Euler angles into a quaternion.
+	 *
+	 * @param x      The rotation around the x axis, in degrees.
+	 * @param y      The rotation around the y axis, in degrees.
+	 * @param z      The rotation around the z axis, in degrees.
+	 * @param dst    The array to which to write the quaternion.
+	 * @param offset The offset at which to write the quaternion.
+	 */
+	public static void fromEuler(final double x, final double y, final double z, final double[] dst,
+			final int offset) {
+		final double hx = Math.toRadians(x) / 2, hy = Math.toRadians(y) / 2, hz = Math.toRadians(z) / 2;
+		final double sx = Math.sin(hx), cx = Math.cos(hx);
+		final double sy = Math.sin(hy), cy = Math.cos(hy);
+		final double sz = Math.sin(hz), cz = Math.cos(hz);
+		// the product qx * qy * qz
+		dst[offset + W] = cx * cy * cz - sx * sy * sz;
+		dst[offset + X] = sx * cy * cz + cx * sy * sz;
+		dst[offset + Y] = cx * sy * cz - sx * cy * sz;
+		dst[offset + Z] = cx * cy * sz + sx * sy * cz;
+	}
+
+	/**
+	 * Sets a quaternion to a rotation by the specified angle around the
+	 * specified axis, which need not be of unit length.
+	 *
+	 * @param x      The x component of the axis.
+	 * @param y      The y component of the axis.
+	 * @param z      The z component of the axis.
+	 * @param angle  The angle of the rotation, in radians.
+	 * @param dst    The array to which to write the quaternion.
+	 * @param offset The offset at which to write the quaternion.
+	 */
+	public static void fromAxisAngle(final double x, final double y, final double z, final double angle,
+			final double[] dst, final int offset) {
+		final double sin = Math.sin(angle / 2) / Math.sqrt(x * x + y * y + z * z);
+		dst[offset + W] = Math.cos(angle / 2);
+		dst[offset + X] = x * sin;
+		dst[offset + Y] = y * sin;
+		dst[offset + Z] = z * sin;
+	}
+
+	/**
+	 * Multiplies two quaternions, {@code dst = a * b}. The destination may
+	 * overlap either operand.
+	 *
+	 * @param a  The array containing the left operand.
+	 * @param ao The offset of the left operand.
+	 * @param b  The array containing the right operand.
+	 * @param bo The offset of the right operand.
+	 * @param d  The array to which to write the product.
+	 * @param d0 The offset at which to write the product.
+	 */
+	public static void multiply(final double[] a, final int ao, final double[] b, final int bo, final double[] d,
+			final int d0) {
+		final double aw = a[ao + W], ax = a[ao + X], ay = a[ao + Y], az = a[ao + Z];
+		final double bw = b[bo + W], bx = b[bo + X], by = b[bo + Y], bz = b[bo + Z];
+		d[d0 + W] = aw * bw - ax * bx - ay * by - az * bz;
+		d[d0 + X] = aw * bx + bw * ax + ay * bz - az * by;
+		d[d0 + Y] = aw * by + bw * ay + az * bx - ax * bz;
+		d[d0 + Z] = aw * bz + bw * az + ax * by - ay * bx;
+	}
+
+	/**
+	 * Scales a quaternion to unit length.
+	 *
+	 * @param q      The array containing the quaternion.
+	 * @param offset The offset of the quaternion.
+	 */
+	public static void normalize(final double[] q, final int offset) {
+		final double w = q[offset + W], x = q[offset + X], y = q[offset + Y], z = q[offset + Z];
+		final double inverse = 1 / Math.sqrt(w * w + x * x + y * y + z * z);
+		q[offset + W] = w * inverse;
+		q[offset + X] = x * inverse;
+		q[offset + Y] = y * inverse;
+		q[offset + Z] = z * inverse;
+	}
+
+	/**
+	 * Interpolates spherically between two unit quaternions along the shorter
+	 * arc. The destination may overlap either operand.
+	 *
+	 * @param a  The array containing the quaternion at {@code t = 0}.
+	 * @param ao The offset of the quaternion at {@code t = 0}.
+	 * @param b  The array containing the quaternion at {@code t = 1}.
+	 * @param bo The offset of the quaternion at {@code t = 1}.
+	 * @param t  The interpolation parameter, between 0 and 1.
+	 * @param d  The array to which to write the interpolated quaternion.
+	 * @param d0 The offset at which to write the interpolated quaternion.
+	 */
+	public static void slerp(final double[] a, final int ao, final double[] b, final int bo, final double t,
+			final double[] d, final int d0) {
+		final double aw = a[ao + W], ax = a[ao + X], ay = a[ao + Y], az = a[ao + Z];
+		double bw = b[bo + W], bx = b[bo + X], by = b[bo + Y], bz = b[bo + Z];
+		double cos = aw * bw + ax * bx + ay * by + az * bz;
+		if (cos < 0) {
+			bw = -bw;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			cos = -cos;
+		}
+		final double wa, wb;
+		if (cos > SLERP_THRESHOLD) {
+			wa = 1 - t;
+			wb = t;
+		} else {
+			final double angle = Math.acos(cos);
+			final double sin = Math.sin(angle);
+			wa = Math.sin((1 - t) * angle) / sin;
+			wb = Math.sin(t * angle) / sin;
+		}
+		d[d0 + W] = wa * aw + wb * bw;
+		d[d0 + X] = wa * ax + wb * bx;
+		d[d0 + Y] = wa * ay + wb * by;
+		d[d0 + Z] = wa * az + wb * bz;
+		normalize(d, d0);
+	}
+
+	/**
+	 * Writes the rotation matrix of a unit quaternion as a 4 by 4 matrix in
+	 * column major order.
+	 *
+	 * @param w      The scalar part of the quaternion.
+	 * @param x      The x component of the vector part of the quaternion.
+	 * @param y      The y component of the vector part of the quaternion.
+	 * @param z      The z component of the vector part of the quaternion.
+	 * @param dst    The array to which to write the matrix.
+	 * @param offset The offset at which to write the matrix.
+	 */
+	public static void toMatrix(final double w, final double x, final double y, final double z, final double[] dst,
+			final int offset) {
+		dst[offset] = 1 - 2 * y * y - 2 * z * z;
+		dst[offset + 1] = 2 * x * y + 2 * w * z;
+		dst[offset + 2] = 2 * x * z - 2 * w * y;
+		dst[offset + 3] = 0;
+
+		dst[offset + 4] = 2 * x * y - 2 * w * z;
+		dst[offset + 5] = 1 - 2 * x * x - 2 * z * z;
+		dst[offset + 6] = 2 * y * z + 2 * w * x;
+		dst[offset + 7] = 0;
+
+		dst[offset + 8] = 2 * x * z + 2 * w * y;
+		dst[offset + 9] = 2 * y * z - 2 * w * x;
+		dst[offset + 10] = 1 - 2 * x * x - 2 * y * y;
+		dst[offset + 11] = 0;
+
+		dst[offset + 12] = 0;
+		dst[offset + 13] = 0;
+		dst[offset + 14] = 0;
+		dst[offset + 15] = 1;
+	}
+
+	/**
+	 * Interpolates between two quaternions along the shorter arc and writes the
+	 * result as the Euler angles nearest to the specified angles.
+	 *
+	 * @param a          The array containing the quaternion at {@code t = 0}.
+	 * @param ao         The offset of the quaternion at {@code t = 0}.
+	 * @param b          The array containing the quaternion at {@code t = 1}.
+	 * @param bo         The offset of the quaternion at {@code t = 1}.
+	 * @param t          The interpolation parameter, between 0 and 1.
+	 * @param linear     Whether to interpolate linearly and normalize, which is
+	 *                   cheaper but does not move at a constant angular velocity.
+	 * @param near       The array containing the x, y, and z angles, in degrees,
+	 *                   nearest to which to write the result.
+	 * @param nearOffset The offset of the angles nearest to which to write the
+	 *                   result.
+	 * @param dst        The array to which to write the x, y, and z angles, in
+	 *                   degrees, which may be the same as {@code near}.
+	 * @param offset     The offset at which to write the angles.
+	 */
+	public static void interpolateToEuler(final double[] a, final int ao, final double[] b, final int bo,
+			final double t, final boolean linear, final double[] near, final int nearOffset, final double[] dst,
+			final int offset) {
+		double bw = b[bo + W], bx = b[bo + X], by = b[bo + Y], bz = b[bo + Z];
+		double cos = a[ao + W] * bw + a[ao + X] * bx + a[ao + Y] * by + a[ao + Z] * bz;
+		if (cos < 0) {
+			// q and -q are the same rotation; take the shorter way around
+			bw = -bw;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			cos = -cos;
+		}
+		final double wa, wb;
+		if (linear || cos > SLERP_THRESHOLD) {
+			wa = 1 - t;
+			wb = t;
+		} else {
+			final double angle = Math.acos(cos);
+			final double sin = Math.sin(angle);
+			wa = Math.sin((1 - t) * angle) / sin;
+			wb = Math.sin(t * angle) / sin;
+		}
+		final double w = wa * a[ao + W] + wb * bw;
+		final double x = wa * a[ao + X] + wb * bx;
+		final double y = wa * a[ao + Y] + wb * by;
+		final double z = wa * a[ao + Z] + wb * bz;
+		final double norm = Math.sqrt(w * w + x * x + y * y + z * z);
+		toEuler(w / norm, x / norm, y / norm, z / norm, near, nearOffset, dst, offset);
+	}
+
+	/**
+	 * Converts a unit quaternion into Euler angles. The angle around the y axis is
+	 * between -90 and 90 degrees.
+	 *
+	 * @param w      The scalar part of the quaternion.
+	 * @param x      The x component of the vector part of the quaternion.
+	 * @param y      The y component of the vector part of the quaternion.
+	 * @param z      The z component of the vector part of the quaternion.
+	 * @param dst    The array to which to write the x, y, and z angles, in
+	 *               degrees.
+	 * @param offset The offset at which to write the angles.
+	 */
+	public static void toEuler(final double w, final double x, final double y, final double z, final double[] dst,
+			final int offset) {
+		// the entries of Rx * Ry * Rz which isolate each angle
+		final double m02 = 2 * (x * z + w * y);
+		final double m12 = 2 * (y * z - w * x);
+		final double m22 = 1 - 2 * (x * x + y * y);
+		final double m01 = 2 * (x * y - w * z);
+		final double m00 = 1 - 2 * (y * y + z * z);
+		dst[offset + Skeleton.X] = Math.toDegrees(Math.atan2(-m12, m22));
+		dst[offset + Skeleton.Y] = Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, m02))));
+		dst[offset + Skeleton.Z] = Math.toDegrees(Math.atan2(-m01, m00));
+	}
+
+	/**
+	 * Converts a unit quaternion into the Euler angles nearest to the specified
+	 * angles. Every rotation has two sets of Euler angles, {@code (x, y, z)} and
+	 * {@code (x + 180, 180 - y, z + 180)}, each up to whole turns of every angle.
+	 * Of these, this writes the set whose angles differ least in total from the
+	 * specified angles, so that a rotation converted from Euler angles converts
+	 * back to the same angles even where the angle around the y axis is beyond 90
+	 * degrees.
+	 *
+	 * @param w          The scalar part of the quaternion.
+	 * @param x          The x component of the vector part of the quaternion.
+	 * @param y          The y component of the vector part of the quaternion.
+	 * @param z          The z component of the vector part of the quaternion.
+	 * @param near       The array containing the x, y, and z angles, in degrees,
+	 *                   nearest to which to write the result.
+	 * @param nearOffset The offset of the angles nearest to which to write the
+	 *                   result.
+	 * @param dst        The array to which to write the x, y, and z angles, in
+	 *                   degrees, which may be the same as {@code near}.
+	 * @param offset     The offset at which to write the angles.
+	 */
+	public static void toEuler(final double w, final double x, final double y, final double z,
+			final double[] near, final int nearOffset, final double[] dst, final int offset) {
+		final double nx = near[nearOffset + Skeleton.X];
+		final double ny = near[nearOffset + Skeleton.Y];
+		final double nz = near[nearOffset + Skeleton.Z];
+		toEuler(w, x, y, z, dst, offset);
+		final double ax = dst[offset + Skeleton.X];
+		final double ay = dst[offset + Skeleton.Y];
+		final double az = dst[offset + Skeleton.Z];
+		final double x1 = nearestTurn(ax, nx), y1 = nearestTurn(ay, ny), z1 = nearestTurn(az, nz);
+		final double x2 = nearestTurn(ax + 180, nx), y2 = nearestTurn(180 - ay, ny), z2 = nearestTurn(az + 180, nz);
+		if (Math.abs(x2 - nx) + Math.abs(y2 - ny) + Math.abs(z2 - nz) < Math.abs(x1 - nx) + Math.abs(y1 - ny)
+				+ Math.abs(z1 - nz)) {
+			dst[offset + Skeleton.X] = x2;
+			dst[offset + Skeleton.Y] = y2;
+			dst[offset + Skeleton.Z] = z2;
+		} else {
+			dst[offset + Skeleton.X] = x1;
+			dst[offset + Skeleton.Y] = y1;
+			dst[offset + Skeleton.Z] = z1;
+		}
+	}
+
+	/**
+	 * Adds the whole turns to an angle which bring it nearest to another angle.
+	 *
+	 * @param angle The angle, in degrees.
+	 * @param near  The angle to which to bring it nearest, in degrees.
+	 * @return The angle plus a multiple of 360 degrees.
+	 */
+	private static double nearestTurn(final double angle, final double near) {
+		return angle + 360 * Math.rint((near - angle) / 360);
+	}
+
+	/**
+	 * This class should not be instantiated.
+	 */
+	private QuaternionMath() {
+		// intentionally unimplemented
+	}
+}
@@ -0,0 +1,628 @@
+/**
+ * RecordingRenderCommands.java - records render commands into a buffer
+ */
+
+import java.util.Arrays;
+
+import javax.media.opengl.GL2;
+
+/**
+ * Records render commands into a compact buffer of integers instead of
+ * issuing them, so that the scene graph can be updated and drawn without an
+ * OpenGL context, counted, checked, and measured for its CPU cost alone.
+ *
+ * Each command is stored as its opcode followed by its arguments, floats as
+ * their bits, doubles and longs as two integers, high word first, and the
+ * matrix of {@link #glLoadMatrixd(double[], int)} inline as 16 doubles. The
+ * buffer of one frame can be issued again to any other commands with
+ * {@link #replay(RenderCommands)}.
+ *
+ * The recorder counts the commands of each kind, and tracks the current color,
+ * the bound buffers, the enabled client arrays, and the loaded modelview matrix
+ * to count the commands which set a state to the value it already has. As in
+ * OpenGL, the commands between {@code glNewList} with {@code GL_COMPILE} and
+ * {@code glEndList} are compiled rather than executed, so they change neither
+ * the tracked color nor the tracked matrix; binding buffers and the client
+ * arrays are not compiled into lists, so they still take effect. Since the
+ * recorder does not know what a called list does, {@code glCallList} forgets
+ * the tracked color and matrix.
+ * {@link #clear()} starts a new frame: it empties the buffer and the counts,
+ * but keeps the tracked state, as OpenGL keeps it between frames. Reading the
+ * modelview matrix gives the matrix last loaded, or the identity; reading the
+ * projection matrix and the viewport gives what was set with
+ * {@link #setProjection(double[])} and {@link #setViewport(int, int, int, int)}.
+ * Matrix arithmetic is not simulated.
+ */
+public class RecordingRenderCommands implements RenderCommands {
+	/** The opcode of {@link #glBindBuffer(int, int)}. */
+	public static final int BIND_BUFFER = 0;
+	/** The opcode of {@link #glCallList(int)}. */
+	public static final int CALL_LIST = 1;
+	/** The opcode of {@link #glColor3f(float, float, float)}. */
+	public static final int COLOR = 2;
+	/** The opcode of {@link #glDisableClientState(int)}. */
+	public static final int DISABLE_CLIENT_STATE = 3;
+	/** The opcode of {@link #glDrawElements(int, int, int, long)}. */
+	public static final int DRAW_ELEMENTS = 4;
+	/** The opcode of {@link #glEnableClientState(int)}. */
+	public static final int ENABLE_CLIENT_STATE = 5;
+	/** The opcode of {@link #glEndList()}. */
+	public static final int END_LIST = 6;
+	/** The opcode of {@link #glGetDoublev(int, double[], int)}. */
+	public static final int GET_DOUBLES = 7;
+	/** The opcode of {@link #glGetIntegerv(int, int[], int)}. */
+	public static final int GET_INTEGERS = 8;
+	/** The opcode of {@link #glLoadMatrixd(double[], int)}. */
+	public static final int LOAD_MATRIX = 9;
+	/** The opcode of {@link #glNewList(int, int)}. */
+	public static final int NEW_LIST = 10;
+	/** The opcode of {@link #glNormalPointer(int, int, long)}. */
+	public static final int NORMAL_POINTER = 11;
+	/** The opcode of {@link #glPopAttrib()}. */
+	public static final int POP_ATTRIB = 12;
+	/** The opcode of {@link #glPopMatrix()}. */
+	public static final int POP_MATRIX = 13;
+	/** The opcode of {@link #glPushAttrib(int)}. */
+	public static final int PUSH_ATTRIB = 14;
+	/** The opcode of {@link #glPushMatrix()}. */
+	public static final int PUSH_MATRIX = 15;
+	/** The opcode of {@link #glRotated(double, double, double, double)}. */
+	public static final int ROTATE = 16;
+	/** The opcode of {@link #glTranslated(double, double, double)}. */
+	public static final int TRANSLATE = 17;
+	/** The opcode of {@link #glVertexPointer(int, int, int, long)}. */
+	public static final int VERTEX_POINTER = 18;
+	/** The number of opcodes. */
+	public static final int OPCODES = 19;
+
+	/** The name of the command of each opcode. */
+	private static final String[] NAMES = { "glBindBuffer", "glCallList", "glColor3f", "glDisableClientState",
+			"glDrawElements", "glEnableClientState", "glEndList", "glGetDoublev", "glGetIntegerv", "glLoadMatrixd",
+			"glNewList", "glNormalPointer", "glPopAttrib", "glPopMatrix", "glPushAttrib", "glPushMatrix",
+			"glRotated", "glTranslated", "glVertexPointer" };
+	/** The initial capacity of the buffer, in integers. */
+	private static final int INITIAL_CAPACITY = 1024;
+	/** The number of entries of a matrix. */
+	private static final int MATRIX_SIZE = 16;
+
+	/** The buffer to which the commands of the current frame are recorded. */
+	private int[] buffer = new int[INITIAL_CAPACITY];
+	/** The number of integers used in the buffer. */
+	private int size = 0;
+	/** The number of commands of each opcode recorded in the current frame. */
+	private final int[] counts = new int[OPCODES];
+	/** The number of redundant commands of each opcode in the current frame. */
+	private final int[] redundant = new int[OPCODES];
+
+	/** The buffer bound to {@code GL_ARRAY_BUFFER}. */
+	private int arrayBuffer = 0;
+	/** The current color, or NaN if it was never set. */
+	private final float[] color = { Float.NaN, Float.NaN, Float.NaN };
+	/** The colors saved by {@link #glPushAttrib(int)}, three entries each. */
+	private float[] colorStack = new float[3 * 8];
+	/** The number of colors saved on the stack. */
+	private int colorDepth = 0;
+	/** Whether a call list is being compiled without being executed. */
+	private boolean compiling = false;
+	/** The buffer bound to {@code GL_ELEMENT_ARRAY_BUFFER}. */
+	private int elementBuffer = 0;
+	/** The enabled client arrays, in the first {@link #enabledCount} entries. */
+	private final int[] enabled = new int[8];
+	/** The number of enabled client arrays. */
+	private int enabledCount = 0;
+	/** The modelview matrix last loaded. */
+	private final double[] modelview = new double[MATRIX_SIZE];
+	/** Whether the modelview matrix is the one last loaded, unchanged since. */
+	private boolean modelviewLoaded = false;
+	/** The projection matrix reported by {@link #glGetDoublev(int, double[], int)}. */
+	private final double[] projection = new double[MATRIX_SIZE];
+	/** The viewport reported by {@link #glGetIntegerv(int, int[], int)}. */
+	private final int[] viewport = { 0, 0, 1, 1 };
+
+	/**
+	 * Instantiates a recorder with an empty buffer, the identity as modelview
+	 * and projection matrices, and a viewport of one pixel.
+	 */
+	public RecordingRenderCommands() {
+		for (int i = 0; i < MATRIX_SIZE; i += 5) {
+			this.modelview[i] = 1;
+			this.projection[i] = 1;
+		}
+	}
+
+	/**
+	 * Gets the name of the command of the specified opcode.
+	 *
+	 * @param opcode The opcode.
+	 * @return The name of the command, such as {@code glCallList}.
+	 */
+	public static String name(final int opcode) {
+		return NAMES[opcode];
+	}
+
+	/**
+	 * Gets the buffer of recorded commands, of which the first {@link #size()}
+	 * integers are used. The buffer is replaced as it grows.
+	 *
+	 * @return The buffer of recorded commands.
+	 */
+	public int[] buffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * Empties the buffer and the counts to record a new frame. The tracked state
+	 * is kept.
+	 */
+	public void clear() {
+		this.size = 0;
+		Arrays.fill(this.counts, 0);
+		Arrays.fill(this.redundant, 0);
+	}
+
+	/**
+	 * Gets the number of commands recorded since the last {@link #clear()}.
+	 *
+	 * @return The number of commands.
+	 */
+	public int commandCount() {
+		int total = 0;
+		for (final int count : this.counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of commands of the specified opcode recorded since the
+	 * last {@link #clear()}.
+	 *
+	 * @param opcode The opcode.
+	 * @return The number of commands.
+	 */
+	public int count(final int opcode) {
+		return this.counts[opcode];
+	}
+
+	/**
+	 * Gets the number of commands of the specified opcode recorded since the
+	 * last {@link #clear()} which set a state to the value it already had.
+	 *
+	 * @param opcode The opcode.
+	 * @return The number of redundant commands.
+	 */
+	public int redundant(final int opcode) {
+		return this.redundant[opcode];
+	}
+
+	/**
+	 * Gets the number of commands recorded since the last {@link #clear()} which
+	 * set a state to the value it already had.
+	 *
+	 * @return The number of redundant commands.
+	 */
+	public int redundantCount() {
+		int total = 0;
+		for (final int count : this.redundant) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Issues the recorded commands, in order, to the specified commands.
+	 *
+	 * @param target The commands to which to issue the recorded commands.
+	 */
+	public void replay(final RenderCommands target) {
+		final double[] matrix = new double[MATRIX_SIZE];
+		final int[] integers = new int[4];
+		int i = 0;
+		while (i < this.size) {
+			final int[] b = this.buffer;
+			switch (b[i++]) {
+			case BIND_BUFFER:
+				target.glBindBuffer(b[i], b[i + 1]);
+				i += 2;
+				break;
+			case CALL_LIST:
+				target.glCallList(b[i++]);
+				break;
+			case COLOR:
+				target.glColor3f(Float.intBitsToFloat(b[i]), Float.intBitsToFloat(b[i + 1]),
+						Float.intBitsToFloat(b[i + 2]));
+				i += 3;
+				break;
+			case DISABLE_CLIENT_STATE:
+				target.glDisableClientState(b[i++]);
+				break;
+			case DRAW_ELEMENTS:
+				target.glDrawElements(b[i], b[i + 1], b[i + 2], readLong(b, i + 3));
+				i += 5;
+				break;
+			case ENABLE_CLIENT_STATE:
+				target.glEnableClientState(b[i++]);
+				break;
+			case END_LIST:
+				target.glEndList();
+				break;
+			case GET_DOUBLES:
+				target.glGetDoublev(b[i++], matrix, 0);
+				break;
+			case GET_INTEGERS:
+				target.glGetIntegerv(b[i++], integers, 0);
+				break;
+			case LOAD_MATRIX:
+				for (int e = 0; e < MATRIX_SIZE; e++) {
+					matrix[e] = readDouble(b, i + 2 * e);
+				}
+				target.glLoadMatrixd(matrix, 0);
+				i += 2 * MATRIX_SIZE;
+				break;
+			case NEW_LIST:
+				target.glNewList(b[i], b[i + 1]);
+				i += 2;
+				break;
+			case NORMAL_POINTER:
+				target.glNormalPointer(b[i], b[i + 1], readLong(b, i + 2));
+				i += 4;
+				break;
+			case POP_ATTRIB:
+				target.glPopAttrib();
+				break;
+			case POP_MATRIX:
+				target.glPopMatrix();
+				break;
+			case PUSH_ATTRIB:
+				target.glPushAttrib(b[i++]);
+				break;
+			case PUSH_MATRIX:
+				target.glPushMatrix();
+				break;
+			case ROTATE:
+				target.glRotated(readDouble(b, i), readDouble(b, i + 2), readDouble(b, i + 4), readDouble(b, i + 6));
+				i += 8;
+				break;
+			case TRANSLATE:
+				target.glTranslated(readDouble(b, i), readDouble(b, i + 2), readDouble(b, i + 4));
+				i += 6;
+				break;
+			case VERTEX_POINTER:
+				target.glVertexPointer(b[i], b[i + 1], b[i + 2], readLong(b, i + 3));
+				i += 5;
+				break;
+			default:
+				throw new IllegalStateException("unknown opcode " + b[i - 1] + " at " + (i - 1));
+			}
+		}
+	}
+
+	/**
+	 * Sets the projection matrix which reading {@code GL_PROJECTION_MATRIX}
+	 * gives.
+	 *
+	 * @param matrix The projection matrix, in column major order.
+	 */
+	public void setProjection(final double[] matrix) {
+		System.arraycopy(matrix, 0, this.projection, 0, MATRIX_SIZE);
+	}
+
+	/**
+	 * Sets the viewport which reading {@code GL_VIEWPORT} gives.
+	 *
+	 * @param x      The left edge, in pixels.
+	 * @param y      The bottom edge, in pixels.
+	 * @param width  The width, in pixels.
+	 * @param height The height, in pixels.
+	 */
+	public void setViewport(final int x, final int y, final int width, final int height) {
+		this.viewport[0] = x;
+		this.viewport[1] = y;
+		this.viewport[2] = width;
+		this.viewport[3] = height;
+	}
+
+	/**
+	 * Gets the number of integers of the buffer used by the commands recorded
+	 * since the last {@link #clear()}.
+	 *
+	 * @return The used size of the buffer.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the counts of the commands recorded since the last {@link #clear()},
+	 * by command, with the number of redundant commands of each.
+	 *
+	 * @return A summary of the recorded commands.
+	 */
+	public String summary() {
+		final StringBuilder summary = new StringBuilder();
+		summary.append(this.commandCount()).append(" commands, ").append(this.redundantCount())
+				.append(" redundant, ").append(this.size * 4).append(" bytes:");
+		for (int opcode = 0; opcode < OPCODES; opcode++) {
+			if (this.counts[opcode] > 0) {
+				summary.append(' ').append(NAMES[opcode]).append(' ').append(this.counts[opcode]);
+				if (this.redundant[opcode] > 0) {
+					summary.append(" (").append(this.redundant[opcode]).append(" redundant)");
+				}
+			}
+		}
+		return summary.toString();
+	}
+
+	@Override
+	public void glBindBuffer(final int target, final int buffer) {
+		this.begin(BIND_BUFFER, 2);
+		this.put(target);
+		this.put(buffer);
+		if (target == GL2.GL_ARRAY_BUFFER) {
+			this.redundantIf(BIND_BUFFER, this.arrayBuffer == buffer);
+			this.arrayBuffer = buffer;
+		} else if (target == GL2.GL_ELEMENT_ARRAY_BUFFER) {
+			this.redundantIf(BIND_BUFFER, this.elementBuffer == buffer);
+			this.elementBuffer = buffer;
+		}
+	}
+
+	@Override
+	public void glCallList(final int list) {
+		this.begin(CALL_LIST, 1);
+		this.put(list);
+		if (!this.compiling) {
+			Arrays.fill(this.color, Float.NaN);
+			this.modelviewLoaded = false;
+		}
+	}
+
+	@Override
+	public void glColor3f(final float red, final float green, final float blue) {
+		this.begin(COLOR, 3);
+		this.put(Float.floatToRawIntBits(red));
+		this.put(Float.floatToRawIntBits(green));
+		this.put(Float.floatToRawIntBits(blue));
+		if (this.compiling) {
+			return;
+		}
+		this.redundantIf(COLOR, this.color[0] == red && this.color[1] == green && this.color[2] == blue);
+		this.color[0] = red;
+		this.color[1] = green;
+		this.color[2] = blue;
+	}
+
+	@Override
+	public void glDisableClientState(final int array) {
+		this.begin(DISABLE_CLIENT_STATE, 1);
+		this.put(array);
+		for (int i = 0; i < this.enabledCount; i++) {
+			if (this.enabled[i] == array) {
+				this.enabled[i] = this.enabled[--this.enabledCount];
+				return;
+			}
+		}
+		this.redundantIf(DISABLE_CLIENT_STATE, true);
+	}
+
+	@Override
+	public void glDrawElements(final int mode, final int count, final int type, final long offset) {
+		this.begin(DRAW_ELEMENTS, 5);
+		this.put(mode);
+		this.put(count);
+		this.put(type);
+		this.putLong(offset);
+	}
+
+	@Override
+	public void glEnableClientState(final int array) {
+		this.begin(ENABLE_CLIENT_STATE, 1);
+		this.put(array);
+		for (int i = 0; i < this.enabledCount; i++) {
+			if (this.enabled[i] == array) {
+				this.redundantIf(ENABLE_CLIENT_STATE, true);
+				return;
+			}
+		}
+		if (this.enabledCount < this.enabled.length) {
+			this.enabled[this.enabledCount++] = array;
+		}
+	}
+
+	@Override
+	public void glEndList() {
+		this.begin(END_LIST, 0);
+		this.compiling = false;
+	}
+
+	@Override
+	public void glGetDoublev(final int name, final double[] params, final int offset) {
+		this.begin(GET_DOUBLES, 1);
+		this.put(name);
+		if (name == GL2.GL_MODELVIEW_MATRIX) {
+			System.arraycopy(this.modelview, 0, params, offset, MATRIX_SIZE);
+		} else if (name == GL2.GL_PROJECTION_MATRIX) {
+			System.arraycopy(this.projection, 0, params, offset, MATRIX_SIZE);
+		}
+	}
+
+	@Override
+	public void glGetIntegerv(final int name, final int[] params, final int offset) {
+		this.begin(GET_INTEGERS, 1);
+		this.put(name);
+		if (name == GL2.GL_VIEWPORT) {
+			System.arraycopy(this.viewport, 0, params, offset, this.viewport.length);
+		}
+	}
+
+	@Override
+	public void glLoadMatrixd(final double[] matrix, final int offset) {
+		this.begin(LOAD_MATRIX, 2 * MATRIX_SIZE);
+		for (int e = 0; e < MATRIX_SIZE; e++) {
+			this.putLong(Double.doubleToRawLongBits(matrix[offset + e]));
+		}
+		if (this.compiling) {
+			return;
+		}
+		boolean same = this.modelviewLoaded;
+		for (int e = 0; e < MATRIX_SIZE; e++) {
+			same &= this.modelview[e] == matrix[offset + e];
+			this.modelview[e] = matrix[offset + e];
+		}
+		this.redundantIf(LOAD_MATRIX, same);
+		this.modelviewLoaded = true;
+	}
+
+	@Override
+	public void glNewList(final int list, final int mode) {
+		this.begin(NEW_LIST, 2);
+		this.put(list);
+		this.put(mode);
+		this.compiling = mode == GL2.GL_COMPILE;
+	}
+
+	@Override
+	public void glNormalPointer(final int type, final int stride, final long offset) {
+		this.begin(NORMAL_POINTER, 4);
+		this.put(type);
+		this.put(stride);
+		this.putLong(offset);
+	}
+
+	@Override
+	public void glPopAttrib() {
+		this.begin(POP_ATTRIB, 0);
+		if (!this.compiling && this.colorDepth > 0) {
+			this.colorDepth--;
+			System.arraycopy(this.colorStack, 3 * this.colorDepth, this.color, 0, 3);
+		}
+	}
+
+	@Override
+	public void glPopMatrix() {
+		this.begin(POP_MATRIX, 0);
+		if (!this.compiling) {
+			this.modelviewLoaded = false;
+		}
+	}
+
+	@Override
+	public void glPushAttrib(final int mask) {
+		this.begin(PUSH_ATTRIB, 1);
+		this.put(mask);
+		if (this.compiling) {
+			return;
+		}
+		if (3 * this.colorDepth == this.colorStack.length) {
+			this.colorStack = Arrays.copyOf(this.colorStack, 2 * this.colorStack.length);
+		}
+		System.arraycopy(this.color, 0, this.colorStack, 3 * this.colorDepth, 3);
+		this.colorDepth++;
+	}
+
+	@Override
+	public void glPushMatrix() {
+		this.begin(PUSH_MATRIX, 0);
+	}
+
+	@Override
+	public void glRotated(final double angle, final double x, final double y, final double z) {
+		this.begin(ROTATE, 8);
+		this.putLong(Double.doubleToRawLongBits(angle));
+		this.putLong(Double.doubleToRawLongBits(x));
+		this.putLong(Double.doubleToRawLongBits(y));
+		this.putLong(Double.doubleToRawLongBits(z));
+		if (!this.compiling) {
+			this.modelviewLoaded = false;
+		}
+	}
+
+	@Override
+	public void glTranslated(final double x, final double y, final double z) {
+		this.begin(TRANSLATE, 6);
+		this.putLong(Double.doubleToRawLongBits(x));
+		this.putLong(Double.doubleToRawLongBits(y));
+		this.putLong(Double.doubleToRawLongBits(z));
+		if (!this.compiling) {
+			this.modelviewLoaded = false;
+		}
+	}
+
+	@Override
+	public void glVertexPointer(final int size, final int type, final int stride, final long offset) {
+		this.begin(VERTEX_POINTER, 5);
+		this.put(size);
+		this.put(type);
+		this.put(stride);
+		this.putLong(offset);
+	}
+
+	/**
+	 * Counts a command of the specified opcode and writes the opcode, making
+	 * room for its arguments.
+	 *
+	 * @param opcode    The opcode.
+	 * @param arguments The number of integers of the arguments of the command.
+	 */
+	private void begin(final int opcode, final int arguments) {
+		if (this.size + 1 + arguments > this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(2 * this.buffer.length, this.size + 1 + arguments));
+		}
+		this.counts[opcode]++;
+		this.buffer[this.size++] = opcode;
+	}
+
+	/**
+	 * Writes an integer argument, for which {@link #begin(int, int)} made room.
+	 *
+	 * @param value The argument.
+	 */
+	private void put(final int value) {
+		this.buffer[this.size++] = value;
+	}
+
+	/**
+	 * Writes a long argument as two integers, high word first.
+	 *
+	 * @param value The argument.
+	 */
+	private void putLong(final long value) {
+		this.buffer[this.size++] = (int) (value >>> 32);
+		this.buffer[this.size++] = (int) value;
+	}
+
+	/**
+	 * Counts the last command of the specified opcode as redundant if the
+	 * specified condition holds.
+	 *
+	 * @param opcode    The opcode of the command.
+	 * @param redundant Whether the command set a state to the value it had.
+	 */
+	private void redundantIf(final int opcode, final boolean redundant) {
+		if (redundant) {
+			this.redundant[opcode]++;
+		}
+	}
+
+	/**
+	 * Reads a double written as two integers.
+	 *
+	 * @param buffer The buffer.
+	 * @param index  The index of the high word.
+	 * @return The double.
+	 */
+	private static double readDouble(final int[] buffer, final int index) {
+		return Double.longBitsToDouble(readLong(buffer, index));
+	}
+
+	/**
+	 * Reads a long written as two integers.
+	 *
+	 * @param buffer The buffer.
+	 * @param index  The index of the high word.
+	 * @return The long.
+	 */
+	private static long readLong(final int[] buffer, final int index) {
+		return (long) buffer[index] << 32 | buffer[index + 1] & 0xffffffffL;
+	}
+}
@@ -0,0 +1,16 @@
+/**
+ * RenderBackend.java - the ways in which meshes can be stored and drawn
+ */
+
+/**
+ * The ways in which the meshes of the model can be stored and drawn.
+ */
+public enum RenderBackend {
+	/** Meshes drawn by GLUT in immediate mode and compiled into call lists. */
+	DISPLAY_LIST,
+	/**
+	 * Meshes tessellated in main memory, uploaded into vertex and index buffers,
+	 * and drawn with {@code glDrawElements}.
+	 */
+	VERTEX_BUFFER;
+}
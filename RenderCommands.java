@@ -0,0 +1,168 @@
+/**
+ * RenderCommands.java - the OpenGL commands with which the scene graph draws
+ */
+
+/**
+ * The OpenGL commands which the scene graph issues every frame to update and
+ * draw itself, with the names and arguments of the corresponding methods of
+ * {@code GL2}.
+ *
+ * Drawing only depends on this interface, so it runs against
+ * {@link JoglRenderCommands}, which forwards every command to a JOGL context,
+ * or against {@link RecordingRenderCommands}, which needs no context and
+ * records the commands into a buffer. Creating and freeing OpenGL resources in
+ * {@link Displayable#initialize(javax.media.opengl.GL2)} and
+ * {@link Displayable#dispose(javax.media.opengl.GL2)} still takes a
+ * {@code GL2}, since the meshes are built with GLUT; without a context, a
+ * {@link NoOpGL} serves for that.
+ */
+public interface RenderCommands {
+
+	/**
+	 * Binds the specified buffer to the specified target.
+	 *
+	 * @param target The target, such as {@code GL_ARRAY_BUFFER}.
+	 * @param buffer The buffer, or 0 to unbind the target.
+	 */
+	void glBindBuffer(final int target, final int buffer);
+
+	/**
+	 * Executes the specified call list.
+	 *
+	 * @param list The call list.
+	 */
+	void glCallList(final int list);
+
+	/**
+	 * Sets the current color.
+	 *
+	 * @param red   The red component, from 0 to 1.
+	 * @param green The green component, from 0 to 1.
+	 * @param blue  The blue component, from 0 to 1.
+	 */
+	void glColor3f(final float red, final float green, final float blue);
+
+	/**
+	 * Disables the specified client-side array.
+	 *
+	 * @param array The array, such as {@code GL_VERTEX_ARRAY}.
+	 */
+	void glDisableClientState(final int array);
+
+	/**
+	 * Draws primitives from the bound element array buffer.
+	 *
+	 * @param mode   The kind of primitive, such as {@code GL_TRIANGLES}.
+	 * @param count  The number of indices.
+	 * @param type   The type of the indices, such as {@code GL_UNSIGNED_INT}.
+	 * @param offset The offset of the first index in the bound buffer, in bytes.
+	 */
+	void glDrawElements(final int mode, final int count, final int type, final long offset);
+
+	/**
+	 * Enables the specified client-side array.
+	 *
+	 * @param array The array, such as {@code GL_VERTEX_ARRAY}.
+	 */
+	void glEnableClientState(final int array);
+
+	/**
+	 * Ends the call list started by {@link #glNewList(int, int)}.
+	 */
+	void glEndList();
+
+	/**
+	 * Reads the specified matrix or other state of doubles.
+	 *
+	 * @param name   The state to read, such as {@code GL_MODELVIEW_MATRIX}.
+	 * @param params The array into which to read the state.
+	 * @param offset The index in the array at which to start.
+	 */
+	void glGetDoublev(final int name, final double[] params, final int offset);
+
+	/**
+	 * Reads the specified viewport or other state of integers.
+	 *
+	 * @param name   The state to read, such as {@code GL_VIEWPORT}.
+	 * @param params The array into which to read the state.
+	 * @param offset The index in the array at which to start.
+	 */
+	void glGetIntegerv(final int name, final int[] params, final int offset);
+
+	/**
+	 * Replaces the current matrix with the specified matrix.
+	 *
+	 * @param matrix The matrix, in column major order.
+	 * @param offset The index of its first entry.
+	 */
+	void glLoadMatrixd(final double[] matrix, final int offset);
+
+	/**
+	 * Starts compiling the specified call list.
+	 *
+	 * @param list The call list.
+	 * @param mode The mode, such as {@code GL_COMPILE}.
+	 */
+	void glNewList(final int list, final int mode);
+
+	/**
+	 * Sets the layout of the normals of the bound array buffer.
+	 *
+	 * @param type   The type of each coordinate, such as {@code GL_FLOAT}.
+	 * @param stride The distance between consecutive normals, in bytes.
+	 * @param offset The offset of the first normal in the bound buffer, in bytes.
+	 */
+	void glNormalPointer(final int type, final int stride, final long offset);
+
+	/**
+	 * Restores the attributes saved by the matching {@link #glPushAttrib(int)}.
+	 */
+	void glPopAttrib();
+
+	/**
+	 * Restores the matrix saved by the matching {@link #glPushMatrix()}.
+	 */
+	void glPopMatrix();
+
+	/**
+	 * Saves the specified groups of attributes.
+	 *
+	 * @param mask The groups of attributes, such as {@code GL_CURRENT_BIT}.
+	 */
+	void glPushAttrib(final int mask);
+
+	/**
+	 * Saves the current matrix.
+	 */
+	void glPushMatrix();
+
+	/**
+	 * Multiplies the current matrix by a rotation.
+	 *
+	 * @param angle The angle of the rotation, in degrees.
+	 * @param x     The x coordinate of the axis.
+	 * @param y     The y coordinate of the axis.
+	 * @param z     The z coordinate of the axis.
+	 */
+	void glRotated(final double angle, final double x, final double y, final double z);
+
+	/**
+	 * Multiplies the current matrix by a translation.
+	 *
+	 * @param x The translation along the x axis.
+	 * @param y The translation along the y axis.
+	 * @param z The translation along the z axis.
+	 */
+	void glTranslated(final double x, final double y, final double z);
+
+	/**
+	 * Sets the layout of the vertices of the bound array buffer.
+	 *
+	 * @param size   The number of coordinates per vertex.
+	 * @param type   The type of each coordinate, such as {@code GL_FLOAT}.
+	 * @param stride The distance between consecutive vertices, in bytes.
+	 * @param offset The offset of the first vertex in the bound buffer, in bytes.
+	 */
+	void glVertexPointer(final int size, final int type, final int stride, final long offset);
+
+}
@@ -0,0 +1,143 @@
+/**
+ * RenderCommandsCheck.java - checks recorded frames without an OpenGL context
+ */
+
+import java.util.Arrays;
+
+import javax.media.opengl.GL2;
+
+/**
+ * Checks {@link RecordingRenderCommands} on the frames of a spider, without an
+ * OpenGL context: the meshes are tessellated into vertex buffers of a
+ * {@link NoOpGL}, so the traversals run exactly as they do on screen.
+ *
+ * For the frame which updates every component and for the frame drawn by
+ * forward kinematics, before and after a joint moved, it checks that replaying
+ * the recorded buffer into a second recorder reproduces the buffer and the
+ * counts exactly, that recording the same frame twice gives the same buffer,
+ * and that the counts of the opcodes add up to the number of commands. It also
+ * checks that the commands of a frame follow the pose: moving a joint changes
+ * the recorded frame, and moving it back restores it. The first failed check
+ * throws an {@link AssertionError}, so that the Maven build fails.
+ *
+ * Run with {@code java RenderCommandsCheck}; {@code mvn test} runs it too.
+ */
+public class RenderCommandsCheck {
+
+	/**
+	 * Checks that two recorders hold the same commands and counts.
+	 *
+	 * @param frame    The name of the frame, for the message of a failure.
+	 * @param expected The recorder to which the frame was recorded.
+	 * @param actual   The recorder to compare with it.
+	 * @throws AssertionError if the recorders differ.
+	 */
+	private static void compare(final String frame, final RecordingRenderCommands expected,
+			final RecordingRenderCommands actual) {
+		if (expected.size() != actual.size() || !Arrays.equals(Arrays.copyOf(expected.buffer(), expected.size()),
+				Arrays.copyOf(actual.buffer(), actual.size()))) {
+			throw new AssertionError(frame + ": the buffers differ");
+		}
+		for (int opcode = 0; opcode < RecordingRenderCommands.OPCODES; opcode++) {
+			if (expected.count(opcode) != actual.count(opcode)
+					|| expected.redundant(opcode) != actual.redundant(opcode)) {
+				throw new AssertionError(frame + ": the counts of " + RecordingRenderCommands.name(opcode) + " differ");
+			}
+		}
+	}
+
+	/**
+	 * Records a frame twice and checks the recording and its replay.
+	 *
+	 * @param frame The name of the frame, for the messages.
+	 * @param draw  Issues the commands of the frame.
+	 * @return The recorder to which the frame was recorded.
+	 * @throws AssertionError if a check fails.
+	 */
+	private static RecordingRenderCommands check(final String frame, final Frame draw) {
+		final RecordingRenderCommands recorded = new RecordingRenderCommands();
+		draw.draw(recorded);
+		if (recorded.commandCount() == 0) {
+			throw new AssertionError(frame + ": nothing was recorded");
+		}
+		int total = 0;
+		for (int opcode = 0; opcode < RecordingRenderCommands.OPCODES; opcode++) {
+			total += recorded.count(opcode);
+		}
+		if (total != recorded.commandCount()) {
+			throw new AssertionError(frame + ": the counts add up to " + total + " of " + recorded.commandCount()
+					+ " commands");
+		}
+
+		final RecordingRenderCommands again = new RecordingRenderCommands();
+		draw.draw(again);
+		compare(frame + " recorded twice", recorded, again);
+
+		final RecordingRenderCommands replayed = new RecordingRenderCommands();
+		recorded.replay(replayed);
+		compare(frame + " replayed", recorded, replayed);
+		System.out.println(frame + ": " + recorded.summary());
+		return recorded;
+	}
+
+	/**
+	 * Issues the commands of a frame.
+	 */
+	private interface Frame {
+		/**
+		 * Issues the commands of the frame.
+		 *
+		 * @param commands The render commands to which to issue them.
+		 */
+		void draw(RenderCommands commands);
+	}
+
+	/**
+	 * Runs the checks.
+	 *
+	 * @param args This parameter is ignored.
+	 * @throws AssertionError if a check fails.
+	 */
+	public static void main(final String[] args) {
+		final GL2 gl = NoOpGL.create();
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		// tessellate in memory, since display lists would need a real context
+		GeometryCache.forContext(gl).setBackend(RenderBackend.VERTEX_BUFFER);
+		spider.initialize(gl);
+		spider.update(new JoglRenderCommands(gl));
+		final Skeleton skeleton = spider.skeleton();
+
+		check("component.update.all", new Frame() {
+			@Override
+			public void draw(final RenderCommands commands) {
+				for (int c = 0; c < skeleton.size(); c++) {
+					skeleton.component(c).markDirty();
+				}
+				spider.update(commands);
+			}
+		});
+		final Frame kinematics = new Frame() {
+			@Override
+			public void draw(final RenderCommands commands) {
+				spider.kinematics().draw(commands);
+			}
+		};
+		final RecordingRenderCommands still = check("kinematics.draw", kinematics);
+		final Component joint = spider.legJoints(0).get(2);
+		final double[] angles = { joint.xAngle(), joint.yAngle(), joint.zAngle() };
+		joint.setAngles(angles[0], angles[1] + 10, angles[2]);
+		final RecordingRenderCommands moved = check("kinematics.draw moved", kinematics);
+		if (Arrays.equals(Arrays.copyOf(still.buffer(), still.size()), Arrays.copyOf(moved.buffer(), moved.size()))) {
+			throw new AssertionError("kinematics.draw: moving a joint did not change the recorded frame");
+		}
+		joint.setAngles(angles[0], angles[1], angles[2]);
+		final RecordingRenderCommands restored = new RecordingRenderCommands();
+		kinematics.draw(restored);
+		compare("kinematics.draw moved back", still, restored);
+
+		// run the recording through every method of JoglRenderCommands; the no-op
+		// context accepts any command, so this only checks the forwarding
+		moved.replay(new JoglRenderCommands(gl));
+		System.out.println("all render command checks passed");
+	}
+}
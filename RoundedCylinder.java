@@ -9,7 +9,7 @@ import javax.media.opengl.GL2;
 
 import com.jogamp.opengl.util.gl2.GLUT;//for new version of gl
 
-public class RoundedCylinder extends Circular implements Displayable {
+public class RoundedCylinder extends Circular implements Displayable, Tessellable {
 	/**
 	 * The default number of slices to use when drawing the cylinder and the sphere.
 	 */
@@ -19,11 +19,14 @@ public class RoundedCylinder extends Circular implements Displayable {
 	 */
 	public static final int DEFAULT_STACKS = 28;
 
+	/** The sphere which encloses this cylinder and the sphere on top. */
+	private final BoundingSphere bounds;
 	/**
-	 * The OpenGL handle to the display list which contains all the components which
-	 * comprise this cylinder.
+	 * The mesh at each level of detail which contains all the components which
+	 * comprise this cylinder, shared with every other cylinder of the same
+	 * dimensions.
 	 */
-	private int callListHandle;
+	private final Geometry[] geometries = new Geometry[LevelOfDetail.LEVELS];
 	/** The height of this cylinder. */
 	private final double height;
 
@@ -40,6 +43,20 @@ public class RoundedCylinder extends Circular implements Displayable {
 	public RoundedCylinder(final double radius, final double height, final GLUT glut) {
 		super(radius, glut);
 		this.height = height;
+		// the cylinder spans 0 to height along the z axis and the sphere adds its
+		// radius at the top
+		final double half = (height + radius) / 2;
+		this.bounds = new BoundingSphere(0, 0, half, Math.sqrt(half * half + radius * radius));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public BoundingSphere bounds() {
+		return this.bounds;
 	}
 
 	/**
@@ -49,8 +66,8 @@ public class RoundedCylinder extends Circular implements Displayable {
 	 * @see edu.bu.cs.cs480.Displayable#draw(javax.media.opengl.GL)
 	 */
 	@Override
-	public void draw(final GL2 gl) {
-		gl.glCallList(this.callListHandle);
+	public void draw(final RenderCommands gl) {
+		this.geometries[this.levelOfDetail()].draw(gl);
 	}
 
 	/**
@@ -61,21 +78,53 @@ public class RoundedCylinder extends Circular implements Displayable {
 	 */
 	@Override
 	public void initialize(final GL2 gl) {
-		this.callListHandle = gl.glGenLists(1);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			final GeometryCache.Key key = this.geometryKey(level);
+			this.geometries[level] = GeometryCache.forContext(gl).acquire(gl, key, new GeometryCache.Builder() {
+				@Override
+				public Geometry build(final GL2 gl) {
+					final int callListHandle = gl.glGenLists(1);
+
+					gl.glNewList(callListHandle, GL2.GL_COMPILE);
 
-		gl.glNewList(this.callListHandle, GL2.GL_COMPILE);
+					RoundedCylinder.this.glut().glutSolidCylinder(RoundedCylinder.this.radius(),
+							RoundedCylinder.this.height, key.slices(), key.stacks());
 
-		this.glut().glutSolidCylinder(this.radius(), this.height, DEFAULT_SLICES, DEFAULT_STACKS);
+					gl.glPushMatrix();
+					gl.glTranslated(0, 0, RoundedCylinder.this.height);
+					RoundedCylinder.this.glut().glutSolidSphere(RoundedCylinder.this.radius(), key.slices(),
+							key.stacks());
+					gl.glPopMatrix();
 
-		gl.glPushMatrix();
-		
-//		gl.glScaled(10 ,1, 1);
-//		
-		gl.glTranslated(0, 0, this.height);
-		
-		this.glut().glutSolidSphere(this.radius(), DEFAULT_SLICES, DEFAULT_STACKS);
-		gl.glPopMatrix();
+					gl.glEndList();
+					return new DisplayListGeometry(callListHandle);
+				}
+			});
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @param level {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public GeometryCache.Key geometryKey(final int level) {
+		return new GeometryCache.Key(GeometryCache.Primitive.ROUNDED_CYLINDER, this.radius(), this.height,
+				LevelOfDetail.slices(DEFAULT_SLICES, level), LevelOfDetail.stacks(DEFAULT_STACKS, level));
+	}
 
-		gl.glEndList();
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void dispose(final GL2 gl) {
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			GeometryCache.forContext(gl).release(gl, this.geometries[level]);
+			this.geometries[level] = null;
+		}
 	}
 }
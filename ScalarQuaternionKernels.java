@@ -0,0 +1,190 @@
+/**
+ * ScalarQuaternionKernels.java - batch quaternion operations one element at a time
+ */
+
+import java.util.Arrays;
+
+/**
+ * Batch quaternion operations which process one element at a time, for virtual
+ * machines without the {@code jdk.incubator.vector} module. The SIMD kernels
+ * also use the static methods of this class for the elements left over after
+ * the last full vector.
+ */
+public class ScalarQuaternionKernels implements QuaternionKernels {
+	/**
+	 * The cosine of the angle between two quaternions above which spherical
+	 * interpolation falls back to normalized linear interpolation.
+	 */
+	static final float SLERP_THRESHOLD = 0.9995f;
+
+	/**
+	 * Checks that the specified sizes are equal.
+	 *
+	 * @param size  The size of the first array.
+	 * @param other The size of the other array.
+	 * @throws IllegalArgumentException if the sizes differ.
+	 */
+	static void checkSize(final int size, final int other) {
+		if (size != other) {
+			throw new IllegalArgumentException("arrays of sizes " + size + " and " + other);
+		}
+	}
+
+	/**
+	 * Multiplies the quaternions in the specified range of two arrays.
+	 *
+	 * @param a    The array of left operands.
+	 * @param b    The array of right operands.
+	 * @param dst  The array of products.
+	 * @param from The index of the first quaternion, inclusive.
+	 * @param to   The index of the last quaternion, exclusive.
+	 */
+	static void multiply(final QuaternionArray a, final QuaternionArray b, final QuaternionArray dst,
+			final int from, final int to) {
+		final float[] aw = a.w(), ax = a.x(), ay = a.y(), az = a.z();
+		final float[] bw = b.w(), bx = b.x(), by = b.y(), bz = b.z();
+		final float[] dw = dst.w(), dx = dst.x(), dy = dst.y(), dz = dst.z();
+		for (int i = from; i < to; i++) {
+			final float w0 = aw[i], x0 = ax[i], y0 = ay[i], z0 = az[i];
+			final float w1 = bw[i], x1 = bx[i], y1 = by[i], z1 = bz[i];
+			dw[i] = w0 * w1 - x0 * x1 - y0 * y1 - z0 * z1;
+			dx[i] = w0 * x1 + w1 * x0 + y0 * z1 - z0 * y1;
+			dy[i] = w0 * y1 + w1 * y0 + z0 * x1 - x0 * z1;
+			dz[i] = w0 * z1 + w1 * z0 + x0 * y1 - y0 * x1;
+		}
+	}
+
+	/**
+	 * Normalizes the quaternions in the specified range of an array.
+	 *
+	 * @param q    The array of quaternions.
+	 * @param from The index of the first quaternion, inclusive.
+	 * @param to   The index of the last quaternion, exclusive.
+	 */
+	static void normalize(final QuaternionArray q, final int from, final int to) {
+		final float[] w = q.w(), x = q.x(), y = q.y(), z = q.z();
+		for (int i = from; i < to; i++) {
+			final float inverse = 1 / (float) Math.sqrt(w[i] * w[i] + x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+			w[i] *= inverse;
+			x[i] *= inverse;
+			y[i] *= inverse;
+			z[i] *= inverse;
+		}
+	}
+
+	/**
+	 * Interpolates between the quaternions in the specified range of two arrays.
+	 *
+	 * @param a    The array of quaternions at {@code t = 0}.
+	 * @param b    The array of quaternions at {@code t = 1}.
+	 * @param t    The interpolation parameter of each quaternion.
+	 * @param dst  The array of interpolated quaternions.
+	 * @param from The index of the first quaternion, inclusive.
+	 * @param to   The index of the last quaternion, exclusive.
+	 */
+	static void slerp(final QuaternionArray a, final QuaternionArray b, final float[] t, final QuaternionArray dst,
+			final int from, final int to) {
+		final float[] aw = a.w(), ax = a.x(), ay = a.y(), az = a.z();
+		final float[] bw = b.w(), bx = b.x(), by = b.y(), bz = b.z();
+		final float[] dw = dst.w(), dx = dst.x(), dy = dst.y(), dz = dst.z();
+		for (int i = from; i < to; i++) {
+			final float w0 = aw[i], x0 = ax[i], y0 = ay[i], z0 = az[i];
+			float w1 = bw[i], x1 = bx[i], y1 = by[i], z1 = bz[i];
+			float cos = w0 * w1 + x0 * x1 + y0 * y1 + z0 * z1;
+			if (cos < 0) {
+				// q and -q are the same rotation; take the shorter way around
+				w1 = -w1;
+				x1 = -x1;
+				y1 = -y1;
+				z1 = -z1;
+				cos = -cos;
+			}
+			final float u = t[i];
+			final float wa, wb;
+			if (cos > SLERP_THRESHOLD) {
+				wa = 1 - u;
+				wb = u;
+			} else {
+				final float angle = (float) Math.acos(cos);
+				final float sin = (float) Math.sin(angle);
+				wa = (float) Math.sin((1 - u) * angle) / sin;
+				wb = (float) Math.sin(u * angle) / sin;
+			}
+			final float w = wa * w0 + wb * w1, x = wa * x0 + wb * x1, y = wa * y0 + wb * y1, z = wa * z0 + wb * z1;
+			final float inverse = 1 / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+			dw[i] = w * inverse;
+			dx[i] = x * inverse;
+			dy[i] = y * inverse;
+			dz[i] = z * inverse;
+		}
+	}
+
+	/**
+	 * Converts the quaternions in the specified range of an array into the
+	 * rotation entries of the matrices, leaving the constant entries unchanged.
+	 *
+	 * @param q    The array of quaternions.
+	 * @param dst  The array of matrices.
+	 * @param from The index of the first quaternion, inclusive.
+	 * @param to   The index of the last quaternion, exclusive.
+	 */
+	static void toMatrices(final QuaternionArray q, final Mat4Array dst, final int from, final int to) {
+		final float[] qw = q.w(), qx = q.x(), qy = q.y(), qz = q.z();
+		final float[] m0 = dst.entry(0), m1 = dst.entry(1), m2 = dst.entry(2);
+		final float[] m4 = dst.entry(4), m5 = dst.entry(5), m6 = dst.entry(6);
+		final float[] m8 = dst.entry(8), m9 = dst.entry(9), m10 = dst.entry(10);
+		for (int i = from; i < to; i++) {
+			final float w = qw[i], x = qx[i], y = qy[i], z = qz[i];
+			m0[i] = 1 - 2 * y * y - 2 * z * z;
+			m1[i] = 2 * x * y + 2 * w * z;
+			m2[i] = 2 * x * z - 2 * w * y;
+			m4[i] = 2 * x * y - 2 * w * z;
+			m5[i] = 1 - 2 * x * x - 2 * z * z;
+			m6[i] = 2 * y * z + 2 * w * x;
+			m8[i] = 2 * x * z + 2 * w * y;
+			m9[i] = 2 * y * z - 2 * w * x;
+			m10[i] = 1 - 2 * x * x - 2 * y * y;
+		}
+	}
+
+	/**
+	 * Sets the entries of the matrices which do not depend on the rotation: the
+	 * translation and the bottom row.
+	 *
+	 * @param dst The array of matrices.
+	 */
+	static void setConstantEntries(final Mat4Array dst) {
+		final int[] zeros = { 3, 7, 11, 12, 13, 14 };
+		for (final int k : zeros) {
+			Arrays.fill(dst.entry(k), 0);
+		}
+		Arrays.fill(dst.entry(15), 1);
+	}
+
+	@Override
+	public void multiply(final QuaternionArray a, final QuaternionArray b, final QuaternionArray dst) {
+		checkSize(a.size(), b.size());
+		checkSize(a.size(), dst.size());
+		multiply(a, b, dst, 0, a.size());
+	}
+
+	@Override
+	public void normalize(final QuaternionArray q) {
+		normalize(q, 0, q.size());
+	}
+
+	@Override
+	public void slerp(final QuaternionArray a, final QuaternionArray b, final float[] t, final QuaternionArray dst) {
+		checkSize(a.size(), b.size());
+		checkSize(a.size(), t.length);
+		checkSize(a.size(), dst.size());
+		slerp(a, b, t, dst, 0, a.size());
+	}
+
+	@Override
+	public void toMatrices(final QuaternionArray q, final Mat4Array dst) {
+		checkSize(q.size(), dst.size());
+		setConstantEntries(dst);
+		toMatrices(q, dst, 0, q.size());
+	}
+}
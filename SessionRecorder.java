@@ -0,0 +1,288 @@
+/**
+ * SessionRecorder.java - records interactive edits of a spider to a file
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records every edit of a {@link Spider} and of the view rotation to an
+ * append-only session file, which a {@link SessionReplayer} plays back.
+ *
+ * Each edit becomes one record: a kind byte, the time since the previous
+ * record in microseconds as a variable-length integer, and the change itself.
+ * Rotations of the selected joints and of the view are stored as the deltas
+ * which were applied, not as the resulting angles, so that replaying them
+ * repeats the same arithmetic and reproduces the session exactly. All numbers
+ * are little endian:
+ *
+ * <pre>
+ * int    magic, the bytes "SPSS"
+ * int    version, currently 2
+ * long   wall clock time at which recording started, in milliseconds
+ * records:
+ *   TOGGLE       byte number of the toggled component
+ *   ROTATE       double x, y, and z angles added to each selected joint
+ *   VIEW         float w, x, y, and z of the rotation applied to the view
+ *   VIEW_RESET   nothing
+ *   STATE        short count, then for each joint a short byte count, the UTF-8
+ *                bytes of its name, and its double x, y, and z angles
+ *   POSE         short count, then the double x, y, and z angles of each joint
+ *                in the order of the skeleton
+ * </pre>
+ *
+ * The thread which edits the spider only encodes records into a buffer in
+ * memory. Full buffers are handed to a background thread which writes them to
+ * the file and returns them for reuse, so recording never waits for the disk.
+ * The records still in memory are written when the recorder is closed.
+ */
+public class SessionRecorder implements AutoCloseable {
+	/** The first four bytes of a session file. */
+	public static final int MAGIC = 'S' | 'P' << 8 | 'S' << 16 | 'S' << 24;
+	/** The version of the format which this class writes. */
+	public static final int VERSION = 2;
+	/** The kind of a record of a component whose selection was toggled. */
+	public static final byte TOGGLE = 1;
+	/** The kind of a record of a rotation of the selected joints. */
+	public static final byte ROTATE = 2;
+	/** The kind of a record of a rotation of the view. */
+	public static final byte VIEW = 3;
+	/** The kind of a record of a reset of the view. */
+	public static final byte VIEW_RESET = 4;
+	/** The kind of a record of joints set to given angles. */
+	public static final byte STATE = 5;
+	/** The kind of a record of every joint set to the angles of a pose. */
+	public static final byte POSE = 6;
+
+	/** The greatest number stored in an unsigned short of a record. */
+	private static final int MAX_SHORT = 0xffff;
+	/** The size of each buffer of records, in bytes. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** The greatest size of the time and kind of a record, in bytes. */
+	private static final int RECORD_PREFIX = 11;
+
+	/** The buffer into which records are encoded. */
+	private ByteBuffer buffer;
+	/** The file to which the records are written. */
+	private final FileChannel channel;
+	/** Whether this recorder was closed. */
+	private boolean closed = false;
+	/** The emptied buffers, ready for reuse. */
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+	/** The full buffers waiting to be written, followed by an empty one on close. */
+	private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<ByteBuffer>();
+	/** The time of the last record, in nanoseconds. */
+	private long last;
+	/** The first error of the writing thread, if any. */
+	private volatile IOException failure = null;
+	/** Writes the full buffers to the file. */
+	private final Thread writer;
+
+	/**
+	 * Creates or replaces the specified session file and starts recording.
+	 *
+	 * @param file The session file.
+	 * @throws IOException if the file cannot be created.
+	 */
+	public SessionRecorder(final Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+		this.last = System.nanoTime();
+		this.writer = new Thread("session writer") {
+			@Override
+			public void run() {
+				SessionRecorder.this.write();
+			}
+		};
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Writes the records still in memory, waits until the file is complete, and
+	 * closes it. Later records are ignored.
+	 *
+	 * @throws IOException if any record could not be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.full.add(this.buffer);
+		this.full.add(ByteBuffer.allocate(0));
+		try {
+			this.writer.join();
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		this.channel.close();
+		if (this.failure != null) {
+			throw this.failure;
+		}
+	}
+
+	/**
+	 * Records that the selected joints were rotated by the specified angles.
+	 *
+	 * @param configuration The angles added to each selected joint.
+	 */
+	public synchronized void rotate(final Configuration configuration) {
+		if (this.begin(ROTATE, 24)) {
+			this.buffer.putDouble(configuration.xAngle()).putDouble(configuration.yAngle())
+					.putDouble(configuration.zAngle());
+		}
+	}
+
+	/**
+	 * Records that every joint was set to the angles of the specified pose.
+	 *
+	 * @param pose The pose.
+	 */
+	public synchronized void pose(final Pose pose) {
+		final double[] angles = pose.angles();
+		if (this.begin(POSE, 2 + 8 * angles.length)) {
+			this.buffer.putShort((short) pose.size());
+			for (final double angle : angles) {
+				this.buffer.putDouble(angle);
+			}
+		}
+	}
+
+	/**
+	 * Records that the joints with the specified names were set to the specified
+	 * angles.
+	 *
+	 * @param state The angles of each joint by name.
+	 * @throws IllegalArgumentException if the state has more than 65535 joints,
+	 *                                  or the name of a joint is longer than
+	 *                                  65535 bytes in UTF-8.
+	 */
+	public synchronized void state(final Map<String, Configuration> state) {
+		if (state.size() > MAX_SHORT) {
+			throw new IllegalArgumentException("cannot record a state of " + state.size() + " joints");
+		}
+		int size = 2;
+		for (final String name : state.keySet()) {
+			if (name.length() > MAX_SHORT / 3 && name.getBytes(StandardCharsets.UTF_8).length > MAX_SHORT) {
+				throw new IllegalArgumentException("cannot record a joint name of " + name.length() + " characters");
+			}
+			size += 2 + 3 * name.length() + 24;
+		}
+		if (this.begin(STATE, size)) {
+			this.buffer.putShort((short) state.size());
+			for (final Map.Entry<String, Configuration> entry : state.entrySet()) {
+				final byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				final Configuration configuration = entry.getValue();
+				this.buffer.putShort((short) name.length).put(name).putDouble(configuration.xAngle())
+						.putDouble(configuration.yAngle()).putDouble(configuration.zAngle());
+			}
+		}
+	}
+
+	/**
+	 * Records that the selection of the specified component was toggled.
+	 *
+	 * @param component The number of the component, as in
+	 *                  {@link Spider#toggleSelection(int)}.
+	 */
+	public synchronized void toggle(final int component) {
+		if (this.begin(TOGGLE, 1)) {
+			this.buffer.put((byte) component);
+		}
+	}
+
+	/**
+	 * Records that the view was rotated by the specified rotation.
+	 *
+	 * @param rotation The rotation applied to the view.
+	 */
+	public synchronized void view(final Quaternion rotation) {
+		if (this.begin(VIEW, 16)) {
+			this.buffer.putFloat(rotation.s()).putFloat(rotation.x()).putFloat(rotation.y()).putFloat(rotation.z());
+		}
+	}
+
+	/**
+	 * Records that the view was reset to no rotation.
+	 */
+	public synchronized void viewReset() {
+		this.begin(VIEW_RESET, 0);
+	}
+
+	/**
+	 * Starts a record of the specified kind, making room for it first.
+	 *
+	 * @param kind The kind of the record.
+	 * @param size The greatest size of the change stored in the record, in bytes.
+	 * @return Whether the record was started, which it is not once this recorder
+	 *         is closed.
+	 */
+	private boolean begin(final byte kind, final int size) {
+		if (this.closed) {
+			return false;
+		}
+		if (this.buffer.remaining() < RECORD_PREFIX + size) {
+			// hand the full buffer to the writer and continue in an empty one
+			this.full.add(this.buffer);
+			this.buffer = this.free.poll();
+			if (this.buffer == null || this.buffer.capacity() < RECORD_PREFIX + size) {
+				this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, RECORD_PREFIX + size))
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+		final long now = System.nanoTime();
+		long micros = (now - this.last) / 1000;
+		// keep the remainder, so that rounding errors do not add up
+		this.last += micros * 1000;
+		this.buffer.put(kind);
+		while (micros >= 0x80) {
+			this.buffer.put((byte) (micros | 0x80));
+			micros >>>= 7;
+		}
+		this.buffer.put((byte) micros);
+		return true;
+	}
+
+	/**
+	 * Writes each full buffer to the file and returns it for reuse, until the
+	 * empty buffer which marks the end arrives.
+	 */
+	private void write() {
+		while (true) {
+			final ByteBuffer next;
+			try {
+				next = this.full.take();
+			} catch (final InterruptedException exception) {
+				return;
+			}
+			if (next.capacity() == 0) {
+				return;
+			}
+			next.flip();
+			try {
+				while (next.hasRemaining()) {
+					this.channel.write(next);
+				}
+			} catch (final IOException exception) {
+				if (this.failure == null) {
+					this.failure = exception;
+				}
+			}
+			next.clear();
+			this.free.add(next);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * SessionReplayer.java - replays a recorded session of edits of a spider
+ */
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replays a session file written by a {@link SessionRecorder} on a spider and a
+ * view rotation, either at the pace at which it was recorded with
+ * {@link #replayUntil}, or as fast as possible with {@link #next}.
+ *
+ * The spider and view should start as they did when the session was recorded,
+ * which for the viewer is the initial pose with nothing selected. The edits are
+ * then applied through the same methods and in the same order as when they
+ * were recorded, so the replayed session ends in exactly the recorded pose.
+ * Running {@code java SessionReplayer FILE} replays a session as fast as
+ * possible and prints the final angles, for use in benchmarks and regression
+ * checks.
+ */
+public class SessionReplayer {
+
+	/**
+	 * Replays the specified session on a spider as fast as possible, and prints
+	 * how long that took and the final angle of each joint.
+	 *
+	 * @param args The session file.
+	 * @throws IOException if the session file cannot be read.
+	 */
+	public static void main(final String[] args) throws IOException {
+		final SessionReplayer replayer = new SessionReplayer(Paths.get(args[0]));
+		final Spider spider = new Spider(new Point3D(0, 0, 0), "spider");
+		final Quaternion view = new Quaternion();
+		final long start = System.nanoTime();
+		int records = 0;
+		while (replayer.next(spider, view)) {
+			records++;
+		}
+		final double elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d records spanning %.1f s replayed in %.3f ms (%.0f records/s)%n", records,
+				replayer.time(), elapsed * 1e3, records / elapsed);
+		spider.printJoints(System.out);
+		System.out.printf("view %f %f %f %f%n", view.s(), view.x(), view.y(), view.z());
+	}
+
+	/** The records of the session. */
+	private final MappedByteBuffer buffer;
+	/** The rotation of the selected joints, reused for each record. */
+	private final BaseConfiguration configuration = new BaseConfiguration(0, 0, 0);
+	/** The pose of the last pose record, reused for each record of its size. */
+	private Pose pose = null;
+	/** The rotation of the view, reused for each record. */
+	private final Quaternion rotation = new Quaternion();
+	/** The time of the last replayed record from the start of the session, in microseconds. */
+	private long time = 0;
+	/** The wall clock time at which the session was recorded, in milliseconds. */
+	private final long wallClock;
+
+	/**
+	 * Opens the specified session file.
+	 *
+	 * @param file The session file.
+	 * @throws IOException if the file cannot be read or is not a session file.
+	 */
+	public SessionReplayer(final Path file) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map");
+			}
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (this.buffer.remaining() < 16 || this.buffer.getInt() != SessionRecorder.MAGIC) {
+			throw new IOException(file + " is not a session file");
+		}
+		final int version = this.buffer.getInt();
+		if (version != SessionRecorder.VERSION) {
+			throw new IOException(file + " has unsupported version " + version);
+		}
+		this.wallClock = this.buffer.getLong();
+	}
+
+	/**
+	 * Gets whether records remain to be replayed.
+	 *
+	 * @return Whether records remain to be replayed.
+	 */
+	public boolean hasNext() {
+		return this.buffer.hasRemaining();
+	}
+
+	/**
+	 * Replays the next record on the specified spider and view.
+	 *
+	 * @param spider The spider to edit, which must not be recording itself.
+	 * @param view   The rotation of the view.
+	 * @return Whether a record was replayed, which it is not at the end of the
+	 *         session.
+	 * @throws IllegalStateException if the record is malformed or truncated.
+	 */
+	public boolean next(final Spider spider, final Quaternion view) {
+		if (!this.buffer.hasRemaining()) {
+			return false;
+		}
+		final byte kind = this.buffer.get();
+		this.time += this.readTime();
+		switch (kind) {
+		case SessionRecorder.TOGGLE:
+			this.require(1);
+			spider.toggleSelection(this.buffer.get());
+			break;
+		case SessionRecorder.ROTATE:
+			this.require(24);
+			this.configuration.setXAngle(this.buffer.getDouble());
+			this.configuration.setYAngle(this.buffer.getDouble());
+			this.configuration.setZAngle(this.buffer.getDouble());
+			spider.changeSelected(this.configuration);
+			break;
+		case SessionRecorder.VIEW:
+			this.require(16);
+			this.rotation.set(this.buffer.getFloat(), this.buffer.getFloat(), this.buffer.getFloat(),
+					this.buffer.getFloat());
+			// the same arithmetic as when the view was dragged
+			this.rotation.multiplyInto(view, view);
+			view.normalize();
+			break;
+		case SessionRecorder.VIEW_RESET:
+			view.reset();
+			break;
+		case SessionRecorder.STATE:
+			this.require(2);
+			final int count = this.buffer.getShort() & 0xffff;
+			final Map<String, Configuration> state = new HashMap<String, Configuration>();
+			for (int i = 0; i < count; i++) {
+				this.require(2);
+				final byte[] name = new byte[this.buffer.getShort() & 0xffff];
+				this.require(name.length + 24);
+				this.buffer.get(name);
+				final double x = this.buffer.getDouble();
+				final double y = this.buffer.getDouble();
+				final double z = this.buffer.getDouble();
+				state.put(new String(name, StandardCharsets.UTF_8), new BaseConfiguration(x, y, z));
+			}
+			spider.setModelStates(state);
+			break;
+		case SessionRecorder.POSE:
+			this.require(2);
+			final int size = this.buffer.getShort() & 0xffff;
+			this.require(8 * Skeleton.ANGLE_STRIDE * size);
+			if (this.pose == null || this.pose.size() != size) {
+				this.pose = new Pose(size);
+			}
+			this.buffer.asDoubleBuffer().get(this.pose.angles());
+			this.buffer.position(this.buffer.position() + 8 * this.pose.angles().length);
+			spider.setModelStates(this.pose);
+			break;
+		default:
+			throw new IllegalStateException("unknown record kind " + kind);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the time of the next record from the start of the session, without
+	 * replaying it.
+	 *
+	 * @return The time of the next record, in seconds, or infinity at the end of
+	 *         the session.
+	 * @throws IllegalStateException if the time of the next record is truncated.
+	 */
+	public double nextTime() {
+		if (!this.buffer.hasRemaining()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		final int position = this.buffer.position();
+		this.buffer.get();
+		final long next = this.time + this.readTime();
+		this.buffer.position(position);
+		return next / 1e6;
+	}
+
+	/**
+	 * Replays every record up to the specified time from the start of the
+	 * session.
+	 *
+	 * @param time   The time up to which to replay, in seconds.
+	 * @param spider The spider to edit, which must not be recording itself.
+	 * @param view   The rotation of the view.
+	 * @return The number of records replayed.
+	 * @throws IllegalStateException if a record is malformed or truncated.
+	 */
+	public int replayUntil(final double time, final Spider spider, final Quaternion view) {
+		int records = 0;
+		while (this.nextTime() <= time) {
+			this.next(spider, view);
+			records++;
+		}
+		return records;
+	}
+
+	/**
+	 * Gets the time of the last replayed record from the start of the session.
+	 *
+	 * @return The time of the last replayed record, in seconds.
+	 */
+	public double time() {
+		return this.time / 1e6;
+	}
+
+	/**
+	 * Gets the wall clock time at which the session was recorded.
+	 *
+	 * @return The time at which recording started, in milliseconds since the
+	 *         epoch.
+	 */
+	public long wallClock() {
+		return this.wallClock;
+	}
+
+	/**
+	 * Reads the variable-length time since the previous record.
+	 *
+	 * @return The time since the previous record, in microseconds.
+	 * @throws IllegalStateException if the time is truncated or too long.
+	 */
+	private long readTime() {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift > 63) {
+				throw new IllegalStateException("malformed record time at " + this.buffer.position());
+			}
+			this.require(1);
+			b = this.buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Checks that the session holds at least the specified number of bytes after
+	 * the current position.
+	 *
+	 * @param bytes The number of bytes about to be read.
+	 * @throws IllegalStateException if fewer bytes remain.
+	 */
+	private void require(final int bytes) {
+		if (this.buffer.remaining() < bytes) {
+			throw new IllegalStateException("truncated record at " + this.buffer.position() + ": " + bytes
+					+ " bytes needed, " + this.buffer.remaining() + " left");
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/**
+ * Skeleton.java - a hierarchy of components compiled into flat arrays
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchy of components packed into flat primitive arrays.
+ *
+ * The components are stored in depth-first order, so every component comes
+ * after its parent, and the descendants of a component are stored contiguously
+ * right after it. Traversals of the hierarchy therefore become linear sweeps
+ * over the arrays, such as the one with which {@link ForwardKinematics} draws
+ * the model.
+ *
+ * The components remain the interface for building and posing the model:
+ * compiling a skeleton moves the angles, extents, and position of each component
+ * into the arrays of the skeleton, so that changes made through a component are
+ * seen in the arrays and vice versa.
+ */
+public class Skeleton {
+	/** The offset of the x component within an angle or position entry. */
+	public static final int X = 0;
+	/** The offset of the y component within an angle or position entry. */
+	public static final int Y = 1;
+	/** The offset of the z component within an angle or position entry. */
+	public static final int Z = 2;
+	/** The number of entries per component in the angles array. */
+	public static final int ANGLE_STRIDE = 3;
+	/** The number of entries per component in the positions array. */
+	public static final int POSITION_STRIDE = 3;
+	/**
+	 * The number of entries per component in the extents array, which holds the
+	 * minimum and maximum angle around the x, y, and z axes in that order.
+	 */
+	public static final int EXTENT_STRIDE = 6;
+
+	/**
+	 * Compiles the hierarchy of components rooted at the specified component into
+	 * a skeleton.
+	 *
+	 * @param root The root of the hierarchy.
+	 * @return The compiled skeleton.
+	 */
+	public static Skeleton compile(final Component root) {
+		final List<Component> order = new ArrayList<Component>();
+		final List<Integer> parents = new ArrayList<Integer>();
+		collect(root, -1, order, parents);
+		return new Skeleton(order, parents);
+	}
+
+	/**
+	 * Appends the specified component and its descendants to the specified list
+	 * in depth-first order.
+	 *
+	 * @param component The component to append.
+	 * @param parent    The index of the parent of the component, or -1.
+	 * @param order     The list of components in depth-first order.
+	 * @param parents   The list of parent indices of the components.
+	 */
+	private static void collect(final Component component, final int parent, final List<Component> order,
+			final List<Integer> parents) {
+		final int index = order.size();
+		order.add(component);
+		parents.add(parent);
+		for (final Component child : component.children()) {
+			collect(child, index, order, parents);
+		}
+	}
+
+	/** The current x, y, and z angles of each component. */
+	private final double[] angles;
+	/** The components, in depth-first order. */
+	private final Component[] components;
+	/** The minimum and maximum angles around each axis of each component. */
+	private final double[] extents;
+	/** The index of the first component of the skeleton with each name. */
+	private final Map<String, Integer> indices = new HashMap<String, Integer>();
+	/** The index of the parent of each component, or -1 for the root. */
+	private final int[] parents;
+	/** The x, y, and z components of the position of each component. */
+	private final double[] positions;
+	/** The index one past the last descendant of each component. */
+	private final int[] subtreeEnds;
+
+	/**
+	 * Instantiates this skeleton with the specified components in depth-first
+	 * order, binding the state of each component to the arrays of this skeleton.
+	 *
+	 * @param order   The components in depth-first order.
+	 * @param parents The index of the parent of each component, or -1.
+	 */
+	private Skeleton(final List<Component> order, final List<Integer> parents) {
+		final int size = order.size();
+		this.components = order.toArray(new Component[size]);
+		this.parents = new int[size];
+		this.subtreeEnds = new int[size];
+		this.angles = new double[size * ANGLE_STRIDE];
+		this.extents = new double[size * EXTENT_STRIDE];
+		this.positions = new double[size * POSITION_STRIDE];
+
+		for (int i = 0; i < size; i++) {
+			this.parents[i] = parents.get(i);
+			this.subtreeEnds[i] = i + 1;
+			this.components[i].bind(this.angles, this.extents, this.positions, i);
+			if (this.components[i].name() != null && !this.indices.containsKey(this.components[i].name())) {
+				this.indices.put(this.components[i].name(), i);
+			}
+		}
+		// every descendant comes after its ancestors, so a backwards sweep sees
+		// each component before its parent
+		for (int i = size - 1; i > 0; i--) {
+			final int parent = this.parents[i];
+			this.subtreeEnds[parent] = Math.max(this.subtreeEnds[parent], this.subtreeEnds[i]);
+		}
+	}
+
+	/**
+	 * Gets the array of the current angles of the components, with
+	 * {@link #ANGLE_STRIDE} entries per component.
+	 *
+	 * @return The array of the current angles of the components.
+	 */
+	public double[] angles() {
+		return this.angles;
+	}
+
+	/**
+	 * Gets the component at the specified index.
+	 *
+	 * @param index The index of the component.
+	 * @return The component at the specified index.
+	 */
+	public Component component(final int index) {
+		return this.components[index];
+	}
+
+	/**
+	 * Gets the array of the minimum and maximum angles of the components, with
+	 * {@link #EXTENT_STRIDE} entries per component.
+	 *
+	 * @return The array of the minimum and maximum angles of the components.
+	 */
+	public double[] extents() {
+		return this.extents;
+	}
+
+	/**
+	 * Gets the index of the component with the specified name.
+	 *
+	 * @param name The name of the component.
+	 * @return The index of the component with the specified name.
+	 * @throws IllegalArgumentException if no component has the specified name.
+	 */
+	public int indexOf(final String name) {
+		final Integer index = this.indices.get(name);
+		if (index == null) {
+			throw new IllegalArgumentException("componentName doesn't exist");
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the index of the specified component.
+	 *
+	 * @param component The component.
+	 * @return The index of the specified component.
+	 * @throws IllegalArgumentException if the component is not in this skeleton.
+	 */
+	public int indexOf(final Component component) {
+		for (int i = 0; i < this.components.length; i++) {
+			if (this.components[i] == component) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("component is not in this skeleton");
+	}
+
+	/**
+	 * Gets the index of the parent of the component at the specified index.
+	 *
+	 * @param index The index of the component.
+	 * @return The index of the parent of the component, or -1 for the root.
+	 */
+	public int parent(final int index) {
+		return this.parents[index];
+	}
+
+	/**
+	 * Gets the array of the positions of the components relative to their
+	 * parents, with {@link #POSITION_STRIDE} entries per component.
+	 *
+	 * @return The array of the positions of the components.
+	 */
+	public double[] positions() {
+		return this.positions;
+	}
+
+	/**
+	 * Gets the number of components in this skeleton.
+	 *
+	 * @return The number of components in this skeleton.
+	 */
+	public int size() {
+		return this.components.length;
+	}
+
+	/**
+	 * Gets the index one past the last descendant of the component at the
+	 * specified index, so that the component and its descendants occupy the
+	 * indices from {@code index} to {@code subtreeEnd(index) - 1}.
+	 *
+	 * @param index The index of the component.
+	 * @return The index one past the last descendant of the component.
+	 */
+	public int subtreeEnd(final int index) {
+		return this.subtreeEnds[index];
+	}
+}
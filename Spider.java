@@ -10,10 +10,8 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import com.jogamp.opengl.util.gl2.GLUT;
 
@@ -32,8 +30,20 @@ public class Spider extends Component implements Animate, Selection{
 	private final Legs[] legs;
 	/** The set of all components. */
 	private final List<Component> components;
-	/** The set of components which are currently selected for rotation. */
-	private final Set<Component> selectedComponents = new HashSet<Component>(18);
+	/** The hierarchy of this model compiled into flat arrays. */
+	private final Skeleton skeleton;
+	/** The cached local and world transforms of the components of this model. */
+	private final ForwardKinematics kinematics;
+	/** The joints clamped to their extents when this model was last posed. */
+	private final JointSelection clamped;
+	/** The extents of the joints, enforced whenever this model is posed. */
+	private final JointLimits limits;
+	/** The joints which are currently selected for rotation, by skeleton index. */
+	private final JointSelection selection;
+	/** The skeleton index of each component, in the order of {@link #mapNum2Component(int)}. */
+	private final int[] stateJoints = new int[STATE_COUNT];
+	/** Records each edit of this model, or {@code null} if it is not recorded. */
+	private SessionRecorder recorder = null;
 	
 	/** The color for components which are selected for rotation. */
 	public static final FloatColor ACTIVE_COLOR = FloatColor.RED;
@@ -79,6 +89,11 @@ public class Spider extends Component implements Animate, Selection{
   	public static final String RIGHT_LEG_3_JOINT_1 = "LegRight31";
   	public static final String RIGHT_LEG_3_JOINT_2 = "LegRight32";
   	public static final String RIGHT_LEG_3_JOINT_3 = "LegRight33";
+  	/**
+  	 * The number of components posed by {@link #setModelStates(ArrayList)}: the
+  	 * head, the body, then the inside, middle, and outer joint of each leg.
+  	 */
+  	public static final int STATE_COUNT = 20;
   	public static final String BODY_NAME = "body";
   	public static final String HEAD_NAME = "head";
 	
@@ -108,44 +123,68 @@ public class Spider extends Component implements Animate, Selection{
   		}
   	}
   	
-  	private Component mapName2Component(String componentName) {
-  		switch(componentName) {
-	  		case  HEAD_NAME: return this.head;
-			case  BODY_NAME: return this.body;
-			case  RIGHT_LEG_3_JOINT_1: return this.legs[5].insideJoint();
-			case  RIGHT_LEG_3_JOINT_2: return this.legs[5].middleJoint();
-			case  RIGHT_LEG_3_JOINT_3: return this.legs[5].outJoint();
-			case  RIGHT_LEG_2_JOINT_1: return this.legs[4].insideJoint();
-			case  RIGHT_LEG_2_JOINT_2: return this.legs[4].middleJoint();
-			case  RIGHT_LEG_2_JOINT_3: return this.legs[4].outJoint();
-			case  RIGHT_LEG_1_JOINT_1: return this.legs[3].insideJoint();
-			case  RIGHT_LEG_1_JOINT_2: return this.legs[3].middleJoint();
-			case  RIGHT_LEG_1_JOINT_3: return this.legs[3].outJoint();
-			case  LEFT_LEG_3_JOINT_1: return this.legs[2].insideJoint();
-			case  LEFT_LEG_3_JOINT_2: return this.legs[2].middleJoint();
-			case  LEFT_LEG_3_JOINT_3: return this.legs[2].outJoint();
-			case  LEFT_LEG_2_JOINT_1: return this.legs[1].insideJoint();
-			case  LEFT_LEG_2_JOINT_2: return this.legs[1].middleJoint();
-			case  LEFT_LEG_2_JOINT_3: return this.legs[1].outJoint();
-			case  LEFT_LEG_1_JOINT_1: return this.legs[0].insideJoint();
-			case  LEFT_LEG_1_JOINT_2: return this.legs[0].middleJoint();
-			case  LEFT_LEG_1_JOINT_3: return this.legs[0].outJoint();
-			default: throw new IllegalArgumentException("componentName doesn't exist");
-  		}
-  	}
-  	
   	public void setModelStates(final ArrayList<Configuration> config_list) {
   		for (int i = 0; i < config_list.size(); i++) {
-  			if ( 0 <= i && i <= 17) {
+  			if ( 0 <= i && i < STATE_COUNT) {
   				mapNum2Component(i).setAngles(config_list.get(i));
   			}
   		}
+  		this.enforceLimits();
   	}
   	
   	public void setModelStates(final Map<String, Configuration> state) {
+  		if (this.recorder != null) {
+  			this.recorder.state(state);
+  		}
   		for (Map.Entry<String, Configuration> entry: state.entrySet()) {
-  			this.mapName2Component(entry.getKey()).setAngles(entry.getValue());
+  			this.skeleton.component(this.skeleton.indexOf(entry.getKey())).setAngles(entry.getValue());
   		}
+  		this.enforceLimits();
+  	}
+
+  	/**
+  	 * Sets every joint of this model to the angles of the specified pose,
+  	 * clamped to the extents of the joints.
+  	 * 
+  	 * @param pose The pose, with an entry for every joint of the skeleton.
+  	 * @return Whether any joint moved.
+  	 */
+  	public boolean setModelStates(final Pose pose) {
+  		if (this.recorder != null) {
+  			this.recorder.pose(pose);
+  		}
+  		final boolean moved = pose.applyTo(this.skeleton);
+  		return this.enforceLimits() > 0 || moved;
+  	}
+
+  	/**
+  	 * Clamps every joint of this model to its extents after it was posed, which
+  	 * bypasses the limits applied by {@link Component#rotate(Axis, double)}.
+  	 * 
+  	 * @return The number of angles which were clamped.
+  	 */
+  	private int enforceLimits() {
+  		this.clamped.clear();
+  		return this.limits.enforce(this.skeleton, this.clamped);
+  	}
+
+  	/**
+  	 * Gets the joints which were clamped to their extents when this model was
+  	 * last posed.
+  	 * 
+  	 * @return The clamped joints, by skeleton index.
+  	 */
+  	public JointSelection clamped() {
+  		return this.clamped;
+  	}
+
+  	/**
+  	 * Gets the extents of the joints of this model.
+  	 * 
+  	 * @return The extents of the joints of this model.
+  	 */
+  	public JointLimits limits() {
+  		return this.limits;
   	}
   	
   	/**
@@ -161,25 +200,87 @@ public class Spider extends Component implements Animate, Selection{
     }
 
   	
+  	/**
+  	 * Gets the hierarchy of this model compiled into flat arrays.
+  	 * 
+  	 * @return The hierarchy of this model compiled into flat arrays.
+  	 */
+  	public Skeleton skeleton() {
+  		return this.skeleton;
+  	}
+
+  	/**
+  	 * Gets the cached local and world transforms of the components of this model.
+  	 * 
+  	 * @return The cached local and world transforms of this model.
+  	 */
+  	public ForwardKinematics kinematics() {
+  		return this.kinematics;
+  	}
+
+  	/**
+  	 * Gets the number of legs of this model.
+  	 * 
+  	 * @return The number of legs of this model.
+  	 */
+  	public int legCount() {
+  		return this.legs.length;
+  	}
+
+  	/**
+  	 * Gets the joints of the specified leg, from the joint attached to the body
+  	 * to the distal joint.
+  	 * 
+  	 * @param leg The index of the leg.
+  	 * @return An unmodifiable view of the list of the joints of the leg.
+  	 */
+  	public List<Component> legJoints(final int leg) {
+  		return this.legs[leg].joints();
+  	}
+
+  	/**
+  	 * Sets the recorder to which to report each edit of this model.
+  	 * 
+  	 * @param recorder The recorder, or {@code null} to stop recording.
+  	 */
+  	public void setRecorder(final SessionRecorder recorder) {
+  		this.recorder = recorder;
+  	}
+
   	public void toggleSelection(int selectionNum) {
-  		if ( 0 <= selectionNum && selectionNum <= 17) {
-  			Component component = mapNum2Component(selectionNum);
-  			if ( this.selectedComponents.contains(component) ) {
-  				this.selectedComponents.remove(component);
-  				component.setColor(INACTIVE_COLOR);
+  		if ( 0 <= selectionNum && selectionNum < STATE_COUNT) {
+  			if (this.recorder != null) {
+  				this.recorder.toggle(selectionNum);
   			}
-  			else {
-  		      this.selectedComponents.add(component);
-  		      component.setColor(ACTIVE_COLOR);
-  		    }
+  			final int joint = this.stateJoints[selectionNum];
+  			final boolean selected = this.selection.toggle(joint);
+  			this.skeleton.component(joint).setColor(selected ? ACTIVE_COLOR : INACTIVE_COLOR);
 		}
   	}
   	
   	public void changeSelected(Configuration config) {
-  		for(Component c: this.selectedComponents) {
-  			c.changeConfiguration(config);
+  		if (this.recorder != null) {
+  			this.recorder.rotate(config);
+  		}
+  		this.selection.rotate(this.skeleton, config.xAngle(), config.yAngle(), config.zAngle());
+  		final Point3D p = config.position();
+  		if (p.x() != 0 || p.y() != 0 || p.z() != 0) {
+  			for (int i = 0; i < STATE_COUNT; i++) {
+  				if (this.selection.contains(this.stateJoints[i])) {
+  					this.skeleton.component(this.stateJoints[i]).changeConfiguration(0, 0, 0, p);
+  				}
+  			}
   		}
   	}
+
+  	/**
+  	 * Gets the joints which are currently selected for rotation.
+  	 * 
+  	 * @return The selected joints, by skeleton index.
+  	 */
+  	public JointSelection selection() {
+  		return this.selection;
+  	}
   	
 	public Spider(final Point3D position, final String name) {
 		// Arm object itself as a top level component, need initialization
@@ -203,7 +304,7 @@ public class Spider extends Component implements Animate, Selection{
 	        OUT_JOINT_HEIGHT, this.glut), RIGHT_LEG_2_JOINT_3);
 	    final Component out6 = new Component(new Point3D(0, 0,
 		        MIDDLE_JOINT_HEIGHT), new RoundedCylinder(LEG_RADIUS,
-		        OUT_JOINT_HEIGHT, this.glut), RIGHT_LEG_2_JOINT_3);
+		        OUT_JOINT_HEIGHT, this.glut), RIGHT_LEG_3_JOINT_3);
 
 	    // all the middle joints
 	    final Component middle1 = new Component(new Point3D(0, 0,
@@ -223,7 +324,7 @@ public class Spider extends Component implements Animate, Selection{
 	        MIDDLE_JOINT_HEIGHT, this.glut), RIGHT_LEG_2_JOINT_2);
 	    final Component middle6 = new Component(new Point3D(0, 0,
 		        IN_JOINT_HEIGHT), new RoundedCylinder(LEG_RADIUS,
-		        MIDDLE_JOINT_HEIGHT, this.glut), RIGHT_LEG_2_JOINT_2);
+		        MIDDLE_JOINT_HEIGHT, this.glut), RIGHT_LEG_3_JOINT_2);
 
 	    // all the palm joints, displaced by various amounts from the palm
 	    final Component in1 = new Component(new Point3D(-0.35, 0, 0.3),
@@ -243,7 +344,7 @@ public class Spider extends Component implements Animate, Selection{
 	        RIGHT_LEG_2_JOINT_1);
 	    final Component in6 = new Component(new Point3D(0.35, 0, -0.1),
 		        new RoundedCylinder(LEG_RADIUS, IN_JOINT_HEIGHT, this.glut),
-		        RIGHT_LEG_2_JOINT_1);
+		        RIGHT_LEG_3_JOINT_1);
 
 	    // put together the fingers for easier selection by keyboard input later on
 	    this.legs = new Legs[] { new Legs(in1, middle1, out1),
@@ -326,9 +427,11 @@ public class Spider extends Component implements Animate, Selection{
 	    
 
 
+	    // the extents cover the rest pose and every pose of TestCasesSpider, which
+	    // are clamped to them when applied
 	    for (final Component palmJoint : Arrays.asList(in1, in2, in3, in4, in5, in6)) {
 	      palmJoint.setXPositiveExtent(105);
-	      palmJoint.setXNegativeExtent(85);
+	      palmJoint.setXNegativeExtent(0);
 	      palmJoint.setYPositiveExtent(95);
 	      palmJoint.setYNegativeExtent(-95);
 	      palmJoint.setZPositiveExtent(30);
@@ -343,13 +446,14 @@ public class Spider extends Component implements Animate, Selection{
 //	    in5.setZPositiveExtent(10);
 //	    in5.setZNegativeExtent(10);
 
-	    // set rotation limits for the middle joints of the finger
+	    // set rotation limits for the middle joints of the finger; the right legs
+	    // rest at -25 around Y, so the extent must reach that far
 	    for (final Component middleJoint : Arrays.asList(middle1, middle2,
 	        middle3, middle4, middle5, middle6)) {
-	      middleJoint.setXPositiveExtent(30);
+	      middleJoint.setXPositiveExtent(90);
 	      middleJoint.setXNegativeExtent(-20);
 	      middleJoint.setYPositiveExtent(30);
-	      middleJoint.setYNegativeExtent(-20);
+	      middleJoint.setYNegativeExtent(-25);
 	      middleJoint.setZPositiveExtent(0);
 	      middleJoint.setZNegativeExtent(0);
 	    }
@@ -357,11 +461,11 @@ public class Spider extends Component implements Animate, Selection{
 	    // set rotation limits for the distal joints of the finger
 	    for (final Component distalJoint : Arrays.asList(out1, out2,
 	        out3, out4, out5, out6)) {
-	      distalJoint.setXPositiveExtent(30);
+	      distalJoint.setXPositiveExtent(60);
 	      distalJoint.setXNegativeExtent(-30);
-	      distalJoint.setYPositiveExtent(30);
+	      distalJoint.setYPositiveExtent(60);
 	      distalJoint.setYNegativeExtent(-30);
-	      distalJoint.setZPositiveExtent(0);
+	      distalJoint.setZPositiveExtent(30);
 	      distalJoint.setZNegativeExtent(0);
 	    }
 
@@ -369,6 +473,16 @@ public class Spider extends Component implements Animate, Selection{
 	    this.components = Arrays.asList(in1, middle1, out1, in2, middle2,
 	        out2, in3, middle3, out3, in4, middle4, out4, in5,
 	        middle5, out5, in6, middle6, out6, this.body, this.head);
+
+	    // pack the finished hierarchy into flat arrays for linear traversals
+	    this.skeleton = Skeleton.compile(this);
+	    this.kinematics = new ForwardKinematics(this.skeleton);
+	    this.selection = new JointSelection(this.skeleton.size());
+	    this.limits = new JointLimits(this.skeleton);
+	    this.clamped = new JointSelection(this.skeleton.size());
+	    for (int i = 0; i < STATE_COUNT; i++) {
+	    	this.stateJoints[i] = this.skeleton.indexOf(mapNum2Component(i));
+	    }
 	}
 	
 	private class Legs {
@@ -0,0 +1,46 @@
+/**
+ * Tessellable.java - a displayable object whose mesh is a cacheable primitive
+ */
+
+/**
+ * A displayable object whose mesh is a primitive described entirely by a
+ * {@link GeometryCache.Key}, so that the mesh can be shared and tessellated
+ * independently of the object.
+ *
+ * The object holds one mesh for each of the {@link LevelOfDetail#LEVELS} levels
+ * of detail, and draws the one of its current level.
+ */
+public interface Tessellable {
+
+	/**
+	 * Gets the parameters from which the mesh of this object is tessellated at
+	 * the specified level of detail.
+	 *
+	 * @param level The level of detail, where 0 is the finest.
+	 * @return The parameters from which the mesh of this object is tessellated.
+	 */
+	GeometryCache.Key geometryKey(final int level);
+
+	/**
+	 * Gets the level of detail at which this object is drawn.
+	 *
+	 * @return The level of detail at which this object is drawn.
+	 */
+	int levelOfDetail();
+
+	/**
+	 * Sets the level of detail at which this object is drawn.
+	 *
+	 * @param level The level of detail, where 0 is the finest.
+	 */
+	void setLevelOfDetail(final int level);
+
+	/**
+	 * Gets the radius of the round cross section of this object, whose size on
+	 * screen decides how finely the object must be tessellated.
+	 *
+	 * @return The radius of the round cross section of this object.
+	 */
+	double silhouetteRadius();
+
+}
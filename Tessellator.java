@@ -0,0 +1,202 @@
+/**
+ * Tessellator.java - builds triangle meshes of the primitives of the model
+ */
+
+/**
+ * Builds triangle meshes of the primitives which the GLUT library draws for the
+ * displayable objects of the model, so that they can be drawn from vertex
+ * buffers instead of through GLUT.
+ */
+public final class Tessellator {
+
+	/**
+	 * Tessellates the primitive described by the specified cache key.
+	 *
+	 * @param key The parameters from which to tessellate the mesh.
+	 * @return The mesh of the primitive.
+	 */
+	public static Mesh tessellate(final GeometryCache.Key key) {
+		switch (key.primitive()) {
+		case ROUNDED_CYLINDER:
+			return roundedCylinder(key.radius(), key.height(), key.slices(), key.stacks());
+		case SPHERE:
+			return sphere(key.radius(), key.slices(), key.stacks());
+		case PALM:
+			return palm(key.radius(), key.slices(), key.stacks());
+		default:
+			throw new IllegalArgumentException("unknown primitive " + key.primitive());
+		}
+	}
+
+	/**
+	 * Tessellates a sphere centered at the origin, as drawn by
+	 * {@code glutSolidSphere}.
+	 *
+	 * @param radius The radius of the sphere.
+	 * @param slices The number of subdivisions around the z axis.
+	 * @param stacks The number of subdivisions along the z axis.
+	 * @return The mesh of the sphere.
+	 */
+	public static Mesh sphere(final double radius, final int slices, final int stacks) {
+		final Mesh mesh = new Mesh(sphereVertexCount(slices, stacks), sphereIndexCount(slices, stacks));
+		addEllipsoid(mesh, radius, slices, stacks, 0, 1, 1, 1);
+		return mesh;
+	}
+
+	/**
+	 * Tessellates a sphere scaled by 0.9 along the x axis and by 0.5 along the y
+	 * axis, resting on the x-y plane, as drawn by {@link Palm}.
+	 *
+	 * @param radius The radius of the sphere before scaling.
+	 * @param slices The number of subdivisions around the z axis.
+	 * @param stacks The number of subdivisions along the z axis.
+	 * @return The mesh of the scaled sphere.
+	 */
+	public static Mesh palm(final double radius, final int slices, final int stacks) {
+		final Mesh mesh = new Mesh(sphereVertexCount(slices, stacks), sphereIndexCount(slices, stacks));
+		addEllipsoid(mesh, radius, slices, stacks, radius, 0.9, 0.5, 1);
+		return mesh;
+	}
+
+	/**
+	 * Tessellates a closed cylinder along the z axis from the origin with a
+	 * sphere centered on the top, as drawn by {@link RoundedCylinder}.
+	 *
+	 * @param radius The radius of the cylinder and the sphere.
+	 * @param height The height of the cylinder.
+	 * @param slices The number of subdivisions around the z axis.
+	 * @param stacks The number of subdivisions along the z axis.
+	 * @return The mesh of the rounded cylinder.
+	 */
+	public static Mesh roundedCylinder(final double radius, final double height, final int slices,
+			final int stacks) {
+		final int cylinderVertices = (stacks + 1) * (slices + 1) + 2 * (slices + 2);
+		final int cylinderIndices = 6 * stacks * slices + 6 * slices;
+		final Mesh mesh = new Mesh(cylinderVertices + sphereVertexCount(slices, stacks),
+				cylinderIndices + sphereIndexCount(slices, stacks));
+
+		// the side, as rings of vertices with normals pointing away from the axis
+		final int side = mesh.vertexCount();
+		for (int i = 0; i <= stacks; i++) {
+			final double z = height * i / stacks;
+			for (int j = 0; j <= slices; j++) {
+				final double theta = 2 * Math.PI * j / slices;
+				final double c = Math.cos(theta), s = Math.sin(theta);
+				mesh.addVertex(radius * c, radius * s, z, c, s, 0);
+			}
+		}
+		for (int i = 0; i < stacks; i++) {
+			for (int j = 0; j < slices; j++) {
+				final int a = side + i * (slices + 1) + j;
+				final int b = a + slices + 1;
+				mesh.addTriangle(a, a + 1, b + 1);
+				mesh.addTriangle(a, b + 1, b);
+			}
+		}
+
+		// the bottom and top caps, as fans around their centers
+		addDisk(mesh, radius, slices, 0, -1);
+		addDisk(mesh, radius, slices, height, 1);
+
+		addEllipsoid(mesh, radius, slices, stacks, height, 1, 1, 1);
+		return mesh;
+	}
+
+	/**
+	 * Adds a disk perpendicular to the z axis, facing in the specified direction.
+	 *
+	 * @param mesh      The mesh to which to add the disk.
+	 * @param radius    The radius of the disk.
+	 * @param slices    The number of subdivisions around the z axis.
+	 * @param z         The z coordinate of the disk.
+	 * @param direction 1 if the disk faces the positive z direction, -1 otherwise.
+	 */
+	private static void addDisk(final Mesh mesh, final double radius, final int slices, final double z,
+			final int direction) {
+		final int center = mesh.addVertex(0, 0, z, 0, 0, direction);
+		for (int j = 0; j <= slices; j++) {
+			final double theta = 2 * Math.PI * j / slices;
+			mesh.addVertex(radius * Math.cos(theta), radius * Math.sin(theta), z, 0, 0, direction);
+		}
+		for (int j = 0; j < slices; j++) {
+			if (direction > 0) {
+				mesh.addTriangle(center, center + 1 + j, center + 2 + j);
+			} else {
+				mesh.addTriangle(center, center + 2 + j, center + 1 + j);
+			}
+		}
+	}
+
+	/**
+	 * Adds a sphere scaled along each axis and translated along the z axis.
+	 *
+	 * @param mesh    The mesh to which to add the sphere.
+	 * @param radius  The radius of the sphere before scaling.
+	 * @param slices  The number of subdivisions around the z axis.
+	 * @param stacks  The number of subdivisions along the z axis.
+	 * @param offsetZ The distance by which to translate the sphere along the z
+	 *                axis.
+	 * @param scaleX  The scale factor along the x axis.
+	 * @param scaleY  The scale factor along the y axis.
+	 * @param scaleZ  The scale factor along the z axis.
+	 */
+	private static void addEllipsoid(final Mesh mesh, final double radius, final int slices, final int stacks,
+			final double offsetZ, final double scaleX, final double scaleY, final double scaleZ) {
+		final int first = mesh.vertexCount();
+		for (int i = 0; i <= stacks; i++) {
+			final double phi = Math.PI * i / stacks;
+			final double sinPhi = Math.sin(phi), cosPhi = Math.cos(phi);
+			for (int j = 0; j <= slices; j++) {
+				final double theta = 2 * Math.PI * j / slices;
+				final double x = sinPhi * Math.cos(theta), y = sinPhi * Math.sin(theta), z = cosPhi;
+				// normals transform by the inverse of the scale
+				final double nx = x / scaleX, ny = y / scaleY, nz = z / scaleZ;
+				final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+				mesh.addVertex(radius * x * scaleX, radius * y * scaleY, radius * z * scaleZ + offsetZ, nx / length,
+						ny / length, nz / length);
+			}
+		}
+		for (int i = 0; i < stacks; i++) {
+			for (int j = 0; j < slices; j++) {
+				final int a = first + i * (slices + 1) + j;
+				final int b = a + slices + 1;
+				// skip the triangles which collapse into the poles
+				if (i != stacks - 1) {
+					mesh.addTriangle(a, b, b + 1);
+				}
+				if (i != 0) {
+					mesh.addTriangle(a, b + 1, a + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of indices in a tessellated sphere.
+	 *
+	 * @param slices The number of subdivisions around the z axis.
+	 * @param stacks The number of subdivisions along the z axis.
+	 * @return The number of indices in a tessellated sphere.
+	 */
+	private static int sphereIndexCount(final int slices, final int stacks) {
+		return 6 * slices * (stacks - 1);
+	}
+
+	/**
+	 * Gets the number of vertices in a tessellated sphere.
+	 *
+	 * @param slices The number of subdivisions around the z axis.
+	 * @param stacks The number of subdivisions along the z axis.
+	 * @return The number of vertices in a tessellated sphere.
+	 */
+	private static int sphereVertexCount(final int slices, final int stacks) {
+		return (slices + 1) * (stacks + 1);
+	}
+
+	/**
+	 * This class should not be instantiated.
+	 */
+	private Tessellator() {
+		// intentionally unimplemented
+	}
+}
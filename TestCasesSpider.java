@@ -17,7 +17,7 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 	public static String LEFT_LEG_2_JOINT_1 = "LegLeft21";
 	public static String LEFT_LEG_3_JOINT_3 = "LegLeft33";
 	public static String LEFT_LEG_3_JOINT_2 = "LegLeft32";
-	public static String LEFT_LEG_3_JOINT_1 = "LegLeft32";
+	public static String LEFT_LEG_3_JOINT_1 = "LegLeft31";
 	public static String RIGHT_LEG_1_JOINT_3 = "LegRight13";
 	public static String RIGHT_LEG_1_JOINT_2 = "LegRight12";
 	public static String RIGHT_LEG_1_JOINT_1 = "LegRight11";
@@ -73,10 +73,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		stop.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(0, 0, 0));
-		stop.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(0, 0, 0));
+		stop.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(0, 0, 0));
-		stop.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
+		stop.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(0, 0, 0));
 		stop.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(0, 0, 0));
@@ -93,10 +93,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		peace.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(60, 0, 0));
 		peace.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(50, 0, 0));
 		peace.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(90, 0, 0));
-		peace.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(60, 0, 0));
+		peace.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(60, 0, 0));
 		peace.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
 		peace.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(0, 0, 0));
-		peace.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
+		peace.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(0, 0, 0));
 		peace.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(0, 0, 0));
 		peace.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(0, 0, 0));
 		peace.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(0, 0, 0));
@@ -113,10 +113,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		fist.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(60, 0, 0));
 		fist.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(50, 0, 0));
 		fist.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(90, 0, 0));
-		fist.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(60, 0, 0));
+		fist.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(60, 0, 0));
 		fist.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(50, 0, 0));
 		fist.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(90, 0, 0));
-		fist.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(60, 0, 0));
+		fist.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(60, 0, 0));
 		fist.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(50, 0, 0));
 		fist.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(90, 0, 0));
 		fist.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(60, 0, 0));
@@ -133,10 +133,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		shaka.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(0, -10, 0));
 		shaka.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(30, 0, 0));
 		shaka.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(30, 0, 0));
-		shaka.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(35, 0, 0));
+		shaka.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(35, 0, 0));
 		shaka.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(40, 0, 0));
 		shaka.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(40, 0, 0));
-		shaka.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(55, 0, 0));
+		shaka.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(55, 0, 0));
 		shaka.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(60, 0, 0));
 		shaka.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(30, 0, 0));
 		shaka.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(25, 0, 0));
@@ -153,10 +153,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		spread.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(0, 10, 0));
 		spread.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(0, 10, 0));
 		spread.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(0, 0, 0));
-		spread.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(0, 10, 0));
+		spread.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(0, 10, 0));
 		spread.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
 		spread.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(0, 0, 0));
-		spread.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
+		spread.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(0, 0, 0));
 		spread.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(0, 0, 0));
 		spread.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(0, 0, 0));
 		spread.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(0, 10, 0));
@@ -173,10 +173,10 @@ public class TestCasesSpider extends CyclicIterator<Map<String, Configuration>>
 		claw.put(RIGHT_LEG_1_JOINT_3, new BaseConfiguration(0, 0, 0));
 		claw.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(60, 0, 0));
 		claw.put(LEFT_LEG_2_JOINT_2, new BaseConfiguration(80, 0, 0));
-		claw.put(LEFT_LEG_2_JOINT_1, new BaseConfiguration(0, 0, 0));
+		claw.put(LEFT_LEG_2_JOINT_3, new BaseConfiguration(0, 0, 0));
 		claw.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(60, 0, 0));
 		claw.put(LEFT_LEG_3_JOINT_2, new BaseConfiguration(80, 0, 0));
-		claw.put(LEFT_LEG_3_JOINT_1, new BaseConfiguration(0, 0, 0));
+		claw.put(LEFT_LEG_3_JOINT_3, new BaseConfiguration(0, 0, 0));
 		claw.put(LEFT_LEG_1_JOINT_1, new BaseConfiguration(60, 0, 0));
 		claw.put(LEFT_LEG_1_JOINT_2, new BaseConfiguration(80, 0, 0));
 		claw.put(LEFT_LEG_1_JOINT_3, new BaseConfiguration(0, 0, 0));
@@ -0,0 +1,276 @@
+/**
+ * TripodGait.java - a procedural alternating tripod walk for the spider
+ */
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Walks the six legs of a {@link Spider} in an alternating tripod gait: the
+ * first left, second right, and third left legs move together, half a cycle
+ * apart from the other three.
+ *
+ * Each leg spends the duty factor of every cycle in stance, sweeping its inside
+ * joint backward at a constant rate, and the rest of the cycle in swing,
+ * lifting its inside joint, flexing its middle joint, and sweeping forward
+ * again. The forward speed and the stride set the cadence and the sweep of each
+ * leg; the turn rate adds a sweep in the same direction on both sides, which
+ * turns the spider on the spot or along a curve.
+ *
+ * A gait is immutable and keeps no state between frames: the pose of a spider
+ * is a function of the time and the phase of the spider alone. One gait can
+ * therefore pose any number of spiders from any number of threads, and
+ * {@link #evaluateAll} poses a whole crowd in parallel on a fork-join pool.
+ *
+ * Poses are written as angles in the order of
+ * {@link Spider#setModelStates(java.util.ArrayList)}: the head, the body, then
+ * the inside, middle, and outer joint of each leg, with
+ * {@link Skeleton#ANGLE_STRIDE} entries per component.
+ */
+public class TripodGait {
+	/** The number of entries per spider in an array of poses. */
+	public static final int POSE_STRIDE = Spider.STATE_COUNT * Skeleton.ANGLE_STRIDE;
+
+	/** The number of joints of a leg. */
+	private static final int JOINTS = 3;
+	/** The angle by which the inside joint lifts a leg at the top of its swing. */
+	private static final double LIFT_ANGLE = 10;
+	/** The angle by which the middle joint flexes at the top of a swing. */
+	private static final double FLEX_ANGLE = 15;
+	/** The number of legs of the spider. */
+	private static final int LEGS = 6;
+	/** The horizontal distance from a hip to its foot, which turns strides into angles. */
+	private static final double REACH = Spider.IN_JOINT_HEIGHT + Spider.MIDDLE_JOINT_HEIGHT
+			+ Spider.OUT_JOINT_HEIGHT;
+	/** The number of spiders below which a fork-join task stops splitting. */
+	private static final int THRESHOLD = 256;
+
+	/**
+	 * Poses a range of spiders as one fork-join task, splitting it in halves
+	 * until it is small.
+	 */
+	private static class Evaluation extends RecursiveAction {
+		/** Generated serial version UID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The index of the first spider of the range, inclusive. */
+		private final int from;
+		/** The gait with which to pose the spiders. */
+		private final TripodGait gait;
+		/** The phase of each spider. */
+		private final double[] phases;
+		/** The poses of the spiders, with {@link #POSE_STRIDE} entries each. */
+		private final double[] poses;
+		/** The time of the frame, in seconds. */
+		private final double time;
+		/** The index of the last spider of the range, exclusive. */
+		private final int to;
+
+		/**
+		 * Instantiates a task which poses the specified range of spiders.
+		 *
+		 * @param gait   The gait with which to pose the spiders.
+		 * @param time   The time of the frame, in seconds.
+		 * @param phases The phase of each spider.
+		 * @param poses  The poses of the spiders.
+		 * @param from   The index of the first spider, inclusive.
+		 * @param to     The index of the last spider, exclusive.
+		 */
+		private Evaluation(final TripodGait gait, final double time, final double[] phases, final double[] poses,
+				final int from, final int to) {
+			this.gait = gait;
+			this.time = time;
+			this.phases = phases;
+			this.poses = poses;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= THRESHOLD) {
+				for (int i = this.from; i < this.to; i++) {
+					this.gait.evaluate(this.time, this.phases[i], this.poses, i * POSE_STRIDE);
+				}
+			} else {
+				final int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Evaluation(this.gait, this.time, this.phases, this.poses, this.from, middle),
+						new Evaluation(this.gait, this.time, this.phases, this.poses, middle, this.to));
+			}
+		}
+	}
+
+	/** The amplitude of the sweep of each leg due to the stride, in degrees. */
+	private final double strideSweep;
+	/** The fraction of each cycle which a leg spends on the ground. */
+	private final double dutyFactor;
+	/**
+	 * The minimum and maximum angles of each posed component, copied as they are
+	 * from the extents of the skeleton.
+	 */
+	private final double[] extents = new double[Spider.STATE_COUNT * Skeleton.EXTENT_STRIDE];
+	/** The number of cycles per second. */
+	private final double frequency;
+	/** The rest angles of each posed component. */
+	private final double[] rest = new double[POSE_STRIDE];
+	/** The amplitude of the sweep of each leg due to turning, in degrees. */
+	private final double turnSweep;
+
+	/**
+	 * Instantiates a gait for spiders built like the specified one, whose current
+	 * pose is the rest pose of the gait.
+	 *
+	 * @param spider     The spider whose rest pose and joint extents to use.
+	 * @param speed      The forward speed, in model units per second.
+	 * @param stride     The distance a foot covers in one cycle, in model units.
+	 * @param dutyFactor The fraction of each cycle which a leg spends on the
+	 *                   ground, between 0 and 1 exclusive; at least one half keeps
+	 *                   a tripod on the ground at all times.
+	 * @param turnRate   The rate at which to turn to the left, in degrees per
+	 *                   second.
+	 * @throws IllegalArgumentException if the stride is not positive or the duty
+	 *                                  factor is not between 0 and 1.
+	 */
+	public TripodGait(final Spider spider, final double speed, final double stride, final double dutyFactor,
+			final double turnRate) {
+		if (stride <= 0) {
+			throw new IllegalArgumentException("stride must be positive");
+		}
+		if (dutyFactor <= 0 || dutyFactor >= 1) {
+			throw new IllegalArgumentException("duty factor must be between 0 and 1");
+		}
+		this.dutyFactor = dutyFactor;
+		// the feet move over the ground at the forward speed plus the speed at
+		// which turning carries them around the body
+		final double footSpeed = Math.abs(speed) + Math.abs(Math.toRadians(turnRate)) * REACH;
+		this.frequency = footSpeed / stride;
+		if (this.frequency > 0) {
+			this.strideSweep = Math.toDegrees(speed / this.frequency / REACH) / 2;
+			this.turnSweep = turnRate / this.frequency / 2;
+		} else {
+			this.strideSweep = 0;
+			this.turnSweep = 0;
+		}
+
+		final Skeleton skeleton = spider.skeleton();
+		this.copyRest(skeleton, skeleton.indexOf(Spider.HEAD_NAME), 0);
+		this.copyRest(skeleton, skeleton.indexOf(Spider.BODY_NAME), 1);
+		for (int leg = 0; leg < LEGS; leg++) {
+			final List<Component> joints = spider.legJoints(leg);
+			for (int j = 0; j < JOINTS; j++) {
+				this.copyRest(skeleton, skeleton.indexOf(joints.get(j)), 2 + leg * JOINTS + j);
+			}
+		}
+	}
+
+	/**
+	 * Writes the pose of a spider at the specified time into the specified
+	 * configurations, as expected by
+	 * {@link Spider#setModelStates(java.util.ArrayList)}.
+	 *
+	 * @param time    The time, in seconds.
+	 * @param phase   The phase of the spider, as a fraction of a cycle.
+	 * @param configs The configuration of each posed component, of which there
+	 *                must be {@link Spider#STATE_COUNT}.
+	 * @param pose    A scratch array of at least {@link #POSE_STRIDE} entries.
+	 */
+	public void evaluate(final double time, final double phase, final List<Configuration> configs,
+			final double[] pose) {
+		this.evaluate(time, phase, pose, 0);
+		for (int i = 0; i < Spider.STATE_COUNT; i++) {
+			final Configuration config = configs.get(i);
+			config.setXAngle(pose[i * Skeleton.ANGLE_STRIDE + Skeleton.X]);
+			config.setYAngle(pose[i * Skeleton.ANGLE_STRIDE + Skeleton.Y]);
+			config.setZAngle(pose[i * Skeleton.ANGLE_STRIDE + Skeleton.Z]);
+		}
+	}
+
+	/**
+	 * Writes the pose of a spider at the specified time into the specified array.
+	 *
+	 * @param time   The time, in seconds.
+	 * @param phase  The phase of the spider, as a fraction of a cycle.
+	 * @param poses  The array to which to write the pose.
+	 * @param offset The offset at which to write the {@link #POSE_STRIDE} angles.
+	 */
+	public void evaluate(final double time, final double phase, final double[] poses, final int offset) {
+		System.arraycopy(this.rest, 0, poses, offset, POSE_STRIDE);
+		final double cycle = time * this.frequency + phase;
+		for (int leg = 0; leg < LEGS; leg++) {
+			// the tripods are half a cycle apart
+			final boolean second = leg % 2 == 1;
+			double p = cycle + (second ? 0.5 : 0);
+			p -= Math.floor(p);
+
+			final double sweep, lift;
+			if (p < this.dutyFactor) {
+				sweep = 1 - 2 * p / this.dutyFactor;
+				lift = 0;
+			} else {
+				final double u = (p - this.dutyFactor) / (1 - this.dutyFactor);
+				sweep = 2 * u - 1;
+				lift = Math.sin(Math.PI * u);
+			}
+			// the right legs mirror the left ones, except when turning
+			final double side = leg < LEGS / 2 ? -1 : 1;
+			final int inside = 2 + leg * JOINTS;
+			this.add(poses, offset, inside, Skeleton.Y, sweep * (side * this.strideSweep + this.turnSweep));
+			this.add(poses, offset, inside, Skeleton.X, -LIFT_ANGLE * lift);
+			this.add(poses, offset, inside + 1, Skeleton.Y, side * FLEX_ANGLE * lift);
+		}
+	}
+
+	/**
+	 * Writes the poses of many spiders at the specified time, in parallel on the
+	 * common fork-join pool.
+	 *
+	 * @param time   The time, in seconds.
+	 * @param phases The phase of each spider, as a fraction of a cycle.
+	 * @param poses  The array to which to write the poses, with
+	 *               {@link #POSE_STRIDE} entries per spider.
+	 */
+	public void evaluateAll(final double time, final double[] phases, final double[] poses) {
+		ForkJoinPool.commonPool().invoke(new Evaluation(this, time, phases, poses, 0, phases.length));
+	}
+
+	/**
+	 * Gets the number of cycles per second of this gait.
+	 *
+	 * @return The cadence of this gait, in cycles per second.
+	 */
+	public double frequency() {
+		return this.frequency;
+	}
+
+	/**
+	 * Adds the specified angle to an angle of a pose, clamped to the extent of its
+	 * component around that axis.
+	 *
+	 * @param poses     The array of poses.
+	 * @param offset    The offset of the pose.
+	 * @param component The index of the component in the order of the pose.
+	 * @param axis      The axis of the angle.
+	 * @param angle     The angle to add, in degrees.
+	 */
+	private void add(final double[] poses, final int offset, final int component, final int axis,
+			final double angle) {
+		final int i = offset + component * Skeleton.ANGLE_STRIDE + axis;
+		final int e = component * Skeleton.EXTENT_STRIDE + 2 * axis;
+		poses[i] = Math.max(this.extents[e], Math.min(this.extents[e + 1], poses[i] + angle));
+	}
+
+	/**
+	 * Copies the rest angles and extents of a component of the skeleton.
+	 *
+	 * @param skeleton  The skeleton of the spider.
+	 * @param index     The index of the component in the skeleton.
+	 * @param component The index of the component in the order of the pose.
+	 */
+	private void copyRest(final Skeleton skeleton, final int index, final int component) {
+		System.arraycopy(skeleton.angles(), index * Skeleton.ANGLE_STRIDE, this.rest,
+				component * Skeleton.ANGLE_STRIDE, Skeleton.ANGLE_STRIDE);
+		System.arraycopy(skeleton.extents(), index * Skeleton.EXTENT_STRIDE, this.extents,
+				component * Skeleton.EXTENT_STRIDE, Skeleton.EXTENT_STRIDE);
+	}
+}
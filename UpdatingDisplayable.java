@@ -6,15 +6,13 @@
  * @since Spring 2011
  */
 
-import javax.media.opengl.GL2;
-
 public interface UpdatingDisplayable extends Displayable {
 	/**
-	 * Updates the state of this object using the specified OpenGL object (for
+	 * Updates the state of this object using the specified render commands (for
 	 * example, redefining a GL call list based on a change to the state of this
 	 * object).
 	 * 
-	 * @param gl The OpenGL object on which to draw this object.
+	 * @param gl The render commands with which to draw this object.
 	 */
-	void update(final GL2 gl);
+	void update(final RenderCommands gl);
 }
@@ -0,0 +1,45 @@
+/**
+ * VectorLimitScanner.java - finds angles outside their extents on SIMD lanes
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scans angles against their extents with the {@code jdk.incubator.vector}
+ * API, comparing as many angles at once as the preferred vector shape of the
+ * processor holds doubles. The angles left over after the last full vector are
+ * compared one at a time. An angle is inside its extent only if it compares at
+ * least its minimum and at most its maximum, so angles which are not numbers are
+ * found as well.
+ *
+ * This class needs the vector module at compile time and at run time, as
+ * {@link VectorQuaternionKernels} does. Without it at run time,
+ * {@link JointLimits} scans one angle at a time instead.
+ */
+public class VectorLimitScanner implements JointLimits.Scanner {
+	/** The vector shape used by the scan. */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public int nextOutside(final double[] angles, final double[] min, final double[] max, final int from) {
+		final int bound = from + SPECIES.loopBound(angles.length - from);
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			final DoubleVector a = DoubleVector.fromArray(SPECIES, angles, i);
+			final VectorMask<Double> outside = a.compare(VectorOperators.GE, DoubleVector.fromArray(SPECIES, min, i))
+					.and(a.compare(VectorOperators.LE, DoubleVector.fromArray(SPECIES, max, i))).not();
+			if (outside.anyTrue()) {
+				return i + outside.firstTrue();
+			}
+		}
+		for (; i < angles.length; i++) {
+			if (!(angles[i] >= min[i] && angles[i] <= max[i])) {
+				return i;
+			}
+		}
+		return angles.length;
+	}
+}
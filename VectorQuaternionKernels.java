@@ -0,0 +1,146 @@
+/**
+ * VectorQuaternionKernels.java - batch quaternion operations on SIMD lanes
+ */
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Batch quaternion operations written against the {@code jdk.incubator.vector}
+ * API, which process as many quaternions at once as the preferred vector shape
+ * of the processor holds floats. The elements left over after the last full
+ * vector go through {@link ScalarQuaternionKernels}.
+ *
+ * This class needs the vector module at compile time and at run time:
+ * {@code javac --add-modules jdk.incubator.vector} and
+ * {@code java --add-modules jdk.incubator.vector}. Without it at run time,
+ * {@link QuaternionArray} uses the scalar kernels instead.
+ */
+public class VectorQuaternionKernels implements QuaternionKernels {
+	/** The vector shape used by every kernel. */
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	/** A vector of ones, to invert norms with one division instead of four. */
+	private static final FloatVector ONE = FloatVector.broadcast(SPECIES, 1);
+
+	@Override
+	public void multiply(final QuaternionArray a, final QuaternionArray b, final QuaternionArray dst) {
+		ScalarQuaternionKernels.checkSize(a.size(), b.size());
+		ScalarQuaternionKernels.checkSize(a.size(), dst.size());
+		final float[] aw = a.w(), ax = a.x(), ay = a.y(), az = a.z();
+		final float[] bw = b.w(), bx = b.x(), by = b.y(), bz = b.z();
+		final int bound = SPECIES.loopBound(a.size());
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			final FloatVector w0 = FloatVector.fromArray(SPECIES, aw, i);
+			final FloatVector x0 = FloatVector.fromArray(SPECIES, ax, i);
+			final FloatVector y0 = FloatVector.fromArray(SPECIES, ay, i);
+			final FloatVector z0 = FloatVector.fromArray(SPECIES, az, i);
+			final FloatVector w1 = FloatVector.fromArray(SPECIES, bw, i);
+			final FloatVector x1 = FloatVector.fromArray(SPECIES, bx, i);
+			final FloatVector y1 = FloatVector.fromArray(SPECIES, by, i);
+			final FloatVector z1 = FloatVector.fromArray(SPECIES, bz, i);
+			w0.mul(w1).sub(x0.mul(x1)).sub(y0.mul(y1)).sub(z0.mul(z1)).intoArray(dst.w(), i);
+			w0.mul(x1).add(w1.mul(x0)).add(y0.mul(z1)).sub(z0.mul(y1)).intoArray(dst.x(), i);
+			w0.mul(y1).add(w1.mul(y0)).add(z0.mul(x1)).sub(x0.mul(z1)).intoArray(dst.y(), i);
+			w0.mul(z1).add(w1.mul(z0)).add(x0.mul(y1)).sub(y0.mul(x1)).intoArray(dst.z(), i);
+		}
+		ScalarQuaternionKernels.multiply(a, b, dst, bound, a.size());
+	}
+
+	@Override
+	public void normalize(final QuaternionArray q) {
+		final float[] w = q.w(), x = q.x(), y = q.y(), z = q.z();
+		final int bound = SPECIES.loopBound(q.size());
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			final FloatVector vw = FloatVector.fromArray(SPECIES, w, i);
+			final FloatVector vx = FloatVector.fromArray(SPECIES, x, i);
+			final FloatVector vy = FloatVector.fromArray(SPECIES, y, i);
+			final FloatVector vz = FloatVector.fromArray(SPECIES, z, i);
+			final FloatVector inverse = ONE.div(vw.mul(vw).add(vx.mul(vx)).add(vy.mul(vy)).add(vz.mul(vz)).sqrt());
+			vw.mul(inverse).intoArray(w, i);
+			vx.mul(inverse).intoArray(x, i);
+			vy.mul(inverse).intoArray(y, i);
+			vz.mul(inverse).intoArray(z, i);
+		}
+		ScalarQuaternionKernels.normalize(q, bound, q.size());
+	}
+
+	@Override
+	public void slerp(final QuaternionArray a, final QuaternionArray b, final float[] t, final QuaternionArray dst) {
+		ScalarQuaternionKernels.checkSize(a.size(), b.size());
+		ScalarQuaternionKernels.checkSize(a.size(), t.length);
+		ScalarQuaternionKernels.checkSize(a.size(), dst.size());
+		final float[] aw = a.w(), ax = a.x(), ay = a.y(), az = a.z();
+		final float[] bw = b.w(), bx = b.x(), by = b.y(), bz = b.z();
+		final int bound = SPECIES.loopBound(a.size());
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			final FloatVector w0 = FloatVector.fromArray(SPECIES, aw, i);
+			final FloatVector x0 = FloatVector.fromArray(SPECIES, ax, i);
+			final FloatVector y0 = FloatVector.fromArray(SPECIES, ay, i);
+			final FloatVector z0 = FloatVector.fromArray(SPECIES, az, i);
+			FloatVector w1 = FloatVector.fromArray(SPECIES, bw, i);
+			FloatVector x1 = FloatVector.fromArray(SPECIES, bx, i);
+			FloatVector y1 = FloatVector.fromArray(SPECIES, by, i);
+			FloatVector z1 = FloatVector.fromArray(SPECIES, bz, i);
+			FloatVector cos = w0.mul(w1).add(x0.mul(x1)).add(y0.mul(y1)).add(z0.mul(z1));
+
+			// q and -q are the same rotation; take the shorter way around
+			final VectorMask<Float> flip = cos.compare(VectorOperators.LT, 0);
+			w1 = w1.lanewise(VectorOperators.NEG, flip);
+			x1 = x1.lanewise(VectorOperators.NEG, flip);
+			y1 = y1.lanewise(VectorOperators.NEG, flip);
+			z1 = z1.lanewise(VectorOperators.NEG, flip);
+			cos = cos.abs();
+
+			// compute both weightings and pick linear ones for nearly parallel lanes,
+			// whose spherical weights divide by a sine close to zero
+			final FloatVector u = FloatVector.fromArray(SPECIES, t, i);
+			final FloatVector v = u.neg().add(1);
+			final FloatVector angle = cos.lanewise(VectorOperators.ACOS);
+			final FloatVector sin = angle.lanewise(VectorOperators.SIN);
+			final VectorMask<Float> linear = cos.compare(VectorOperators.GT, ScalarQuaternionKernels.SLERP_THRESHOLD);
+			final FloatVector wa = v.mul(angle).lanewise(VectorOperators.SIN).div(sin).blend(v, linear);
+			final FloatVector wb = u.mul(angle).lanewise(VectorOperators.SIN).div(sin).blend(u, linear);
+
+			final FloatVector w = wa.mul(w0).add(wb.mul(w1));
+			final FloatVector x = wa.mul(x0).add(wb.mul(x1));
+			final FloatVector y = wa.mul(y0).add(wb.mul(y1));
+			final FloatVector z = wa.mul(z0).add(wb.mul(z1));
+			final FloatVector inverse = ONE.div(w.mul(w).add(x.mul(x)).add(y.mul(y)).add(z.mul(z)).sqrt());
+			w.mul(inverse).intoArray(dst.w(), i);
+			x.mul(inverse).intoArray(dst.x(), i);
+			y.mul(inverse).intoArray(dst.y(), i);
+			z.mul(inverse).intoArray(dst.z(), i);
+		}
+		ScalarQuaternionKernels.slerp(a, b, t, dst, bound, a.size());
+	}
+
+	@Override
+	public void toMatrices(final QuaternionArray q, final Mat4Array dst) {
+		ScalarQuaternionKernels.checkSize(q.size(), dst.size());
+		ScalarQuaternionKernels.setConstantEntries(dst);
+		final float[] qw = q.w(), qx = q.x(), qy = q.y(), qz = q.z();
+		final int bound = SPECIES.loopBound(q.size());
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			final FloatVector w = FloatVector.fromArray(SPECIES, qw, i);
+			final FloatVector x = FloatVector.fromArray(SPECIES, qx, i);
+			final FloatVector y = FloatVector.fromArray(SPECIES, qy, i);
+			final FloatVector z = FloatVector.fromArray(SPECIES, qz, i);
+			final FloatVector x2 = x.add(x), y2 = y.add(y), z2 = z.add(z);
+			final FloatVector xx = x.mul(x2), yy = y.mul(y2), zz = z.mul(z2);
+			final FloatVector xy = x.mul(y2), xz = x.mul(z2), yz = y.mul(z2);
+			final FloatVector wx = w.mul(x2), wy = w.mul(y2), wz = w.mul(z2);
+			yy.add(zz).neg().add(1).intoArray(dst.entry(0), i);
+			xy.add(wz).intoArray(dst.entry(1), i);
+			xz.sub(wy).intoArray(dst.entry(2), i);
+			xy.sub(wz).intoArray(dst.entry(4), i);
+			xx.add(zz).neg().add(1).intoArray(dst.entry(5), i);
+			yz.add(wx).intoArray(dst.entry(6), i);
+			xz.add(wy).intoArray(dst.entry(8), i);
+			yz.sub(wx).intoArray(dst.entry(9), i);
+			xx.add(yy).neg().add(1).intoArray(dst.entry(10), i);
+		}
+		ScalarQuaternionKernels.toMatrices(q, dst, bound, q.size());
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * VertexBufferGeometry.java - a mesh stored in OpenGL vertex buffer objects
+ */
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * A mesh stored in an OpenGL vertex buffer of interleaved positions and normals
+ * and an index buffer, and drawn with {@code glDrawElements}.
+ */
+public class VertexBufferGeometry implements Geometry {
+	/** The number of bytes per vertex in the vertex buffer. */
+	private static final int STRIDE_BYTES = Mesh.VERTEX_STRIDE * Buffers.SIZEOF_FLOAT;
+
+	/** The number of indices in the index buffer. */
+	private final int indexCount;
+	/** The handle to the index buffer. */
+	private final int indexBuffer;
+	/** The handle to the vertex buffer. */
+	private final int vertexBuffer;
+
+	/**
+	 * Uploads the specified mesh into new vertex and index buffers.
+	 *
+	 * @param gl   The OpenGL object with which to create the buffers.
+	 * @param mesh The mesh to upload.
+	 */
+	public VertexBufferGeometry(final GL2 gl, final Mesh mesh) {
+		final int[] buffers = new int[2];
+		gl.glGenBuffers(2, buffers, 0);
+		this.vertexBuffer = buffers[0];
+		this.indexBuffer = buffers[1];
+		this.indexCount = mesh.indexCount();
+
+		final int floats = mesh.vertexCount() * Mesh.VERTEX_STRIDE;
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.vertexBuffer);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) floats * Buffers.SIZEOF_FLOAT,
+				Buffers.newDirectFloatBuffer(mesh.vertices(), 0, floats), GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, this.indexBuffer);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, (long) this.indexCount * Buffers.SIZEOF_INT,
+				Buffers.newDirectIntBuffer(mesh.indices(), 0, this.indexCount), GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void draw(final RenderCommands gl) {
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, this.vertexBuffer);
+		gl.glVertexPointer(3, GL.GL_FLOAT, STRIDE_BYTES, 0);
+		gl.glNormalPointer(GL.GL_FLOAT, STRIDE_BYTES, Mesh.NORMAL_OFFSET * Buffers.SIZEOF_FLOAT);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, this.indexBuffer);
+		gl.glDrawElements(GL.GL_TRIANGLES, this.indexCount, GL.GL_UNSIGNED_INT, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param gl {@inheritDoc}
+	 */
+	@Override
+	public void dispose(final GL2 gl) {
+		gl.glDeleteBuffers(2, new int[] { this.vertexBuffer, this.indexBuffer }, 0);
+	}
+}
@@ -0,0 +1,248 @@
+/**
+ * ViewerOptions.java - the command line options of the model viewer
+ */
+
+/**
+ * The command line options of the model viewer.
+ *
+ * <pre>
+ * --kinematics        draw each component by loading its cached world
+ *                     transform instead of through its call list
+ * --renderer=list     store meshes as GLUT call lists (the default)
+ * --renderer=vbo      store meshes in vertex buffers; implies --kinematics so
+ *                     that the buffers are really drawn each frame
+ * --report-fps        print the frame rate every 300 continuously drawn frames
+ * --profile           overlay the median, 99th percentile, and longest time of
+ *                     each phase of the frame, once a second
+ * --profile-csv=FILE  append the same times to the CSV file FILE each second,
+ *                     creating it with a header if it is missing or empty
+ * --no-lod            always tessellate at the finest level of detail
+ * --no-cull           draw parts and spiders outside the view frustum too
+ * --crowd=N           draw N spiders with instanced draw calls
+ * --continuous        redraw 60 times a second instead of only on changes
+ * --clip=FILE         play the clip file FILE instead of the test cases
+ * --save-clip=FILE    write the clip through the test cases to FILE
+ * --record=FILE       record every edit of the spider and the view to FILE
+ * --replay=FILE       replay the session in FILE at the pace it was recorded;
+ *                     cannot be combined with --record
+ * --replay-fast       replay the session as fast as possible instead
+ * </pre>
+ */
+public class ViewerOptions {
+
+	/**
+	 * Parses the specified command line arguments.
+	 *
+	 * @param args The command line arguments.
+	 * @return The parsed options.
+	 * @throws IllegalArgumentException if an argument is not a known option, or
+	 *                                  if both a session to record and one to
+	 *                                  replay are given.
+	 */
+	public static ViewerOptions parse(final String[] args) {
+		final ViewerOptions options = new ViewerOptions();
+		for (final String arg : args) {
+			if (arg.equals("--kinematics")) {
+				options.useKinematics = true;
+			} else if (arg.equals("--renderer=list")) {
+				options.backend = RenderBackend.DISPLAY_LIST;
+			} else if (arg.equals("--renderer=vbo")) {
+				options.backend = RenderBackend.VERTEX_BUFFER;
+				options.useKinematics = true;
+			} else if (arg.equals("--continuous")) {
+				options.continuous = true;
+			} else if (arg.equals("--no-cull")) {
+				options.culling = false;
+			} else if (arg.equals("--no-lod")) {
+				options.levelOfDetail = false;
+			} else if (arg.equals("--report-fps")) {
+				options.reportFps = true;
+			} else if (arg.equals("--profile")) {
+				options.profileOverlay = true;
+			} else if (arg.startsWith("--profile-csv=")) {
+				options.profileCsvFile = arg.substring("--profile-csv=".length());
+			} else if (arg.startsWith("--clip=")) {
+				options.clipFile = arg.substring("--clip=".length());
+			} else if (arg.startsWith("--save-clip=")) {
+				options.saveClipFile = arg.substring("--save-clip=".length());
+			} else if (arg.startsWith("--record=")) {
+				options.recordFile = arg.substring("--record=".length());
+			} else if (arg.startsWith("--replay=")) {
+				options.replayFile = arg.substring("--replay=".length());
+			} else if (arg.equals("--replay-fast")) {
+				options.replayFast = true;
+			} else if (arg.startsWith("--crowd=")) {
+				options.crowdSize = Integer.parseInt(arg.substring("--crowd=".length()));
+			} else {
+				throw new IllegalArgumentException("unknown option " + arg);
+			}
+		}
+		if (options.recordFile != null && options.replayFile != null) {
+			// the replayed edits would be recorded again as new edits
+			throw new IllegalArgumentException("--record cannot be combined with --replay");
+		}
+		return options;
+	}
+
+	/** The way in which the meshes of the model are stored and drawn. */
+	private RenderBackend backend = RenderBackend.DISPLAY_LIST;
+	/** The clip file to play, or {@code null} to play the test cases. */
+	private String clipFile = null;
+	/** Whether to redraw continuously instead of only on changes. */
+	private boolean continuous = false;
+	/** Whether to skip what is outside the view frustum. */
+	private boolean culling = true;
+	/** The number of spiders to draw with instancing, or 0 for a single model. */
+	private int crowdSize = 0;
+	/** Whether to choose the level of detail of each part from its size on screen. */
+	private boolean levelOfDetail = true;
+	/** The CSV file to which to write the frame phase times, or {@code null}. */
+	private String profileCsvFile = null;
+	/** Whether to overlay the frame phase times. */
+	private boolean profileOverlay = false;
+	/** The file to which to record the session, or {@code null}. */
+	private String recordFile = null;
+	/** Whether to replay the session as fast as possible. */
+	private boolean replayFast = false;
+	/** The session file to replay, or {@code null}. */
+	private String replayFile = null;
+	/** Whether to print the frame rate periodically. */
+	private boolean reportFps = false;
+	/** The file to which to write the clip through the test cases, or {@code null}. */
+	private String saveClipFile = null;
+	/**
+	 * Whether to draw the model from its cached world transforms instead of from
+	 * the call lists of its components.
+	 */
+	private boolean useKinematics = false;
+
+	/**
+	 * Gets the way in which the meshes of the model are stored and drawn.
+	 *
+	 * @return The way in which the meshes of the model are stored and drawn.
+	 */
+	public RenderBackend backend() {
+		return this.backend;
+	}
+
+	/**
+	 * Gets the clip file to play instead of the test cases.
+	 *
+	 * @return The clip file to play, or {@code null} to play the test cases.
+	 */
+	public String clipFile() {
+		return this.clipFile;
+	}
+
+	/**
+	 * Gets the number of spiders to draw with instancing.
+	 *
+	 * @return The number of spiders to draw with instancing, or 0 for a single
+	 *         model.
+	 */
+	public int crowdSize() {
+		return this.crowdSize;
+	}
+
+	/**
+	 * Gets whether to redraw continuously instead of only on changes.
+	 *
+	 * @return Whether to redraw continuously instead of only on changes.
+	 */
+	public boolean continuous() {
+		return this.continuous;
+	}
+
+	/**
+	 * Gets whether to skip what is outside the view frustum.
+	 *
+	 * @return Whether to skip what is outside the view frustum.
+	 */
+	public boolean culling() {
+		return this.culling;
+	}
+
+	/**
+	 * Gets whether to choose the level of detail of each part from its size on
+	 * screen.
+	 *
+	 * @return Whether to choose the level of detail of each part from its size on
+	 *         screen.
+	 */
+	public boolean levelOfDetail() {
+		return this.levelOfDetail;
+	}
+
+	/**
+	 * Gets the CSV file to which to write the times of the phases of the frame.
+	 *
+	 * @return The CSV file to which to write the times, or {@code null} for none.
+	 */
+	public String profileCsvFile() {
+		return this.profileCsvFile;
+	}
+
+	/**
+	 * Gets whether to overlay the times of the phases of the frame.
+	 *
+	 * @return Whether to overlay the times of the phases of the frame.
+	 */
+	public boolean profileOverlay() {
+		return this.profileOverlay;
+	}
+
+	/**
+	 * Gets the file to which to record every edit of the spider and the view.
+	 *
+	 * @return The file to which to record the session, or {@code null} for none.
+	 */
+	public String recordFile() {
+		return this.recordFile;
+	}
+
+	/**
+	 * Gets whether to replay the session as fast as possible instead of at the
+	 * pace at which it was recorded.
+	 *
+	 * @return Whether to replay the session as fast as possible.
+	 */
+	public boolean replayFast() {
+		return this.replayFast;
+	}
+
+	/**
+	 * Gets the session file to replay.
+	 *
+	 * @return The session file to replay, or {@code null} for none.
+	 */
+	public String replayFile() {
+		return this.replayFile;
+	}
+
+	/**
+	 * Gets whether to print the frame rate periodically.
+	 *
+	 * @return Whether to print the frame rate periodically.
+	 */
+	public boolean reportFps() {
+		return this.reportFps;
+	}
+
+	/**
+	 * Gets the file to which to write the clip through the test cases.
+	 *
+	 * @return The file to which to write the clip, or {@code null} for none.
+	 */
+	public String saveClipFile() {
+		return this.saveClipFile;
+	}
+
+	/**
+	 * Gets whether to draw the model from its cached world transforms.
+	 *
+	 * @return Whether to draw the model from its cached world transforms.
+	 */
+	public boolean useKinematics() {
+		return this.useKinematics;
+	}
+}